@@ -56,6 +56,18 @@ public class DoubleData implements Cloneable {
 	}
 
 
+	/**
+	 * Returns the position within 'data' of an element.
+	 * Wraps with a comparison instead of a remainder, since this is done for every element access.
+	 * @param index index of the element, from 0 up to the capacity
+	 * @return position of the element within 'data'
+	 */
+	private int physicalIndex(int index) {
+		int i = offset + index;
+		return i >= data.length ? i - data.length : i;
+	}
+
+
 	/**
 	 * Returns the number of elements in the buffer.
 	 * @return the number of elements in the buffer.
@@ -74,7 +86,7 @@ public class DoubleData implements Cloneable {
 			// If we don't have enough space, allocate a larger array
 			setCapacity(data.length * 2);
 		}
-		data[(offset + length) % data.length] = d;
+		data[physicalIndex(length)] = d;
 		length++;
 	}
 
@@ -236,7 +248,7 @@ public class DoubleData implements Cloneable {
 			}
 		}
 		length++;
-		data[(offset + index) % data.length] = d;
+		data[physicalIndex(index)] = d;
 	}
 
 
@@ -335,7 +347,7 @@ public class DoubleData implements Cloneable {
 		if(index < 0 || index >= length) {
 			throw new IndexOutOfBoundsException("Index out of bounds: " + index + ", length is " + length);
 		}
-		return data[(offset + index) % data.length];
+		return data[physicalIndex(index)];
 	}
 
 
@@ -348,7 +360,7 @@ public class DoubleData implements Cloneable {
 		if(index < 0 || index >= length) {
 			throw new IndexOutOfBoundsException("Index out of bounds: " + index + ", length is " + length);
 		}
-		data[(offset + index) % data.length] = d;
+		data[physicalIndex(index)] = d;
 	}
 
 
@@ -440,7 +452,7 @@ public class DoubleData implements Cloneable {
 		int max = length;
 		while(max - min > 1) {
 			int mid = (min + max) / 2;
-			double x = data[(offset + mid) % data.length];
+			double x = data[physicalIndex(mid)];
 			if(x < d) {
 				min = mid;
 			} else if(x > d) {
@@ -449,7 +461,7 @@ public class DoubleData implements Cloneable {
 				return mid;
 			}
 		}
-		double x = data[(offset + min) % data.length];
+		double x = data[physicalIndex(min)];
 		if(x == d) {
 			return min;
 		} else if(x < d) {
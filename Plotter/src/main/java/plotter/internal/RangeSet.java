@@ -21,26 +21,25 @@
  *******************************************************************************/
 package plotter.internal;
 
-import java.util.Iterator;
 import java.util.NavigableMap;
 import java.util.TreeMap;
-import java.util.Map.Entry;
 
 /**
  * Set of closed ranges.  (Each range contains its endpoints.)
  * Behavior is undefined if NaN is used.
+ * The ranges are stored as sorted primitive arrays, so adding ranges does not allocate unless the arrays need to grow.
  * This class is optimized for the common case where the set contains exactly one contiguous range.
  * @author Adam Crume
  */
 public class RangeSet {
-	/** Holds the minimum value if there is exactly one range, infinity if none, and is undefined otherwise. */
-	private double min = Double.POSITIVE_INFINITY;
+	/** Minimum of each range, in increasing order.  Only the first {@link #size} elements are used. */
+	private double[] mins = new double[4];
 
-	/** Holds the maximum value if there is exactly one range, negative infinity if none, and is undefined otherwise. */
-	private double max = Double.NEGATIVE_INFINITY;
+	/** Maximum of each range, in increasing order.  Only the first {@link #size} elements are used. */
+	private double[] maxs = new double[4];
 
-	/** If there is more than one range, this maps the minimum to the maximum for each range.  Otherwise, this is null. */
-	private NavigableMap<Double, Double> data;
+	/** Number of disjoint ranges. */
+	private int size;
 
 
 	/**
@@ -50,47 +49,77 @@ public class RangeSet {
 	 * @param max maximum endpoint of the range
 	 */
 	public void add(double min, double max) {
-		if(data != null) {
-			Entry<Double, Double> e = data.floorEntry(min);
-			if(e != null) {
-				double key = e.getKey();
-				double value = e.getValue();
-				if(min <= value && max >= key) {
-					min = Math.min(key, min);
-					max = Math.max(value, max);
-					data.remove(key);
-				}
+		if(size == 1 && min <= maxs[0] && max >= mins[0]) {
+			// Common case, the range overlaps the only range
+			if(min < mins[0]) {
+				mins[0] = min;
 			}
-			do {
-				Entry<Double, Double> e2 = data.higherEntry(min);
-				if(e2 == null) {
-					break;
-				}
-				double key = e2.getKey();
-				double value = e2.getValue();
-				if(!(min <= value && max >= key)) {
-					break;
-				}
-				min = Math.min(key, min);
-				max = Math.max(value, max);
-				data.remove(key);
-			} while(true);
-			if(data.isEmpty()) {
-				data = null;
-				this.min = min;
-				this.max = max;
-			} else {
-				data.put(min, max);
+			if(max > maxs[0]) {
+				maxs[0] = max;
 			}
-		} else if((this.min == Double.POSITIVE_INFINITY && this.max == Double.NEGATIVE_INFINITY)
-				|| (min <= this.max && max >= this.min)) {
-			this.min = Math.min(this.min, min);
-			this.max = Math.max(this.max, max);
+			return;
+		}
+		// Ranges from first (inclusive) to last (exclusive) overlap the new range
+		int first = firstMaxNotBelow(min);
+		int last = first;
+		while(last < size && mins[last] <= max) {
+			last++;
+		}
+		if(first == last) {
+			if(size == mins.length) {
+				double[] newMins = new double[size * 2];
+				double[] newMaxs = new double[size * 2];
+				System.arraycopy(mins, 0, newMins, 0, size);
+				System.arraycopy(maxs, 0, newMaxs, 0, size);
+				mins = newMins;
+				maxs = newMaxs;
+			}
+			System.arraycopy(mins, first, mins, first + 1, size - first);
+			System.arraycopy(maxs, first, maxs, first + 1, size - first);
+			mins[first] = min;
+			maxs[first] = max;
+			size++;
 		} else {
-			data = new TreeMap<Double, Double>();
-			data.put(this.min, this.max);
-			data.put(min, max);
+			mins[first] = Math.min(min, mins[first]);
+			maxs[first] = Math.max(max, maxs[last - 1]);
+			int removed = last - first - 1;
+			if(removed > 0) {
+				System.arraycopy(mins, last, mins, first + 1, size - last);
+				System.arraycopy(maxs, last, maxs, first + 1, size - last);
+				size -= removed;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the index of the first range whose maximum is not less than the value, or the number of ranges if there is none.
+	 * @param value value to search for
+	 * @return index of the range
+	 */
+	private int firstMaxNotBelow(double value) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(maxs[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
 		}
+		return low;
+	}
+
+
+	/**
+	 * Returns true if a range contains the value.
+	 * @param value value to look for
+	 * @return true if the value is in the set
+	 */
+	public boolean contains(double value) {
+		int index = firstMaxNotBelow(value);
+		return index < size && mins[index] <= value;
 	}
 
 
@@ -98,9 +127,7 @@ public class RangeSet {
 	 * Resets this to the empty set.
 	 */
 	public void clear() {
-		min = Double.POSITIVE_INFINITY;
-		max = Double.NEGATIVE_INFINITY;
-		data = null;
+		size = 0;
 	}
 
 
@@ -109,7 +136,7 @@ public class RangeSet {
 	 * @return the minimum value
 	 */
 	public double getMin() {
-		return min;
+		return size == 0 ? Double.POSITIVE_INFINITY : mins[0];
 	}
 
 
@@ -118,45 +145,77 @@ public class RangeSet {
 	 * @return the maximum value
 	 */
 	public double getMax() {
-		return max;
+		return size == 0 ? Double.NEGATIVE_INFINITY : maxs[size - 1];
+	}
+
+
+	/**
+	 * Returns the number of disjoint ranges.
+	 * @return the number of ranges
+	 */
+	public int getRangeCount() {
+		return size;
+	}
+
+
+	/**
+	 * Returns the minimum of a range.  Ranges are indexed in increasing order.
+	 * @param index index of the range
+	 * @return the minimum of the range
+	 */
+	public double getMin(int index) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+		return mins[index];
+	}
+
+
+	/**
+	 * Returns the maximum of a range.  Ranges are indexed in increasing order.
+	 * @param index index of the range
+	 * @return the maximum of the range
+	 */
+	public double getMax(int index) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+		return maxs[index];
 	}
 
 
 	/**
 	 * Returns a map of the minimum to the maximum for each range, or null if there are zero or one ranges.
+	 * The map is created on each call, so performance sensitive code should use {@link #getRangeCount()}, {@link #getMin(int)} and {@link #getMax(int)} instead.
 	 * @return a map of the minimum to the maximum for each range, may be null
 	 */
 	public NavigableMap<Double, Double> getData() {
+		if(size <= 1) {
+			return null;
+		}
+		NavigableMap<Double, Double> data = new TreeMap<Double, Double>();
+		for(int i = 0; i < size; i++) {
+			data.put(mins[i], maxs[i]);
+		}
 		return data;
 	}
 
 
 	@Override
 	public String toString() {
-		if(data == null) {
-			if(min == Double.POSITIVE_INFINITY) {
-				return "{}";
-			} else {
-				return "{(" + min + ":" + max + ")}";
-			}
-		} else {
-			StringBuffer b = new StringBuffer();
-			b.append("{");
-			for(Iterator<Entry<Double, Double>> itr = data.entrySet().iterator(); itr.hasNext();) {
-				Entry<Double, Double> e = itr.next();
-				double min = e.getKey();
-				double max = e.getValue();
-				b.append("(");
-				b.append(min);
-				b.append(":");
-				b.append(max);
-				b.append(")");
-				if(itr.hasNext()) {
-					b.append(",");
-				}
+		StringBuffer b = new StringBuffer();
+		b.append("{");
+		for(int i = 0; i < size; i++) {
+			if(i > 0) {
+				b.append(",");
 			}
-			b.append("}");
-			return b.toString();
+			b.append("(");
+			b.append(mins[i]);
+			b.append(":");
+			b.append(maxs[i]);
+			b.append(")");
 		}
+		b.append("}");
+		return b.toString();
 	}
 }
@@ -88,12 +88,21 @@ public class CompressingXYDataset implements XYDataset {
 	/** Performs the streaming compression. */
 	private StreamingCompressor streamingCompressor;
 
+	/** Receives the output of the streaming compressor. */
+	private final LineOutput lineOutput = new LineOutput();
+
 	/** Offset to use for compression. */
 	private double compressionOffset;
 
 	/** Scale to use for compression. */
 	private double compressionScale;
 
+	/** Multi-resolution summary of the added points, or null if none is kept. */
+	private MinMaxPyramid pyramid;
+
+	/** Incremented by every modification, so a {@link Recompression} can tell if it is out of date. */
+	private int modCount;
+
 
 	/**
 	 * Creates a dataset.
@@ -122,20 +131,17 @@ public class CompressingXYDataset implements XYDataset {
 		preMod();
 
 		truncate();
-		if(streamingCompressor == null) {
-			XYDataset out;
-			if(line.getIndependentDimension() == XYDimension.X) {
-				out = line;
-			} else {
-				out = new XYReversingDataset(line);
-			}
-			streamingCompressor = compressor.createStreamingCompressor(out, compressionOffset, compressionScale);
-		}
-		int updateSize;
+		StreamingCompressor streamingCompressor = getStreamingCompressor();
 		if(line.getIndependentDimension() == XYDimension.X) {
-			updateSize = streamingCompressor.add(x, y);
+			streamingCompressor.add(x, y);
+			if(pyramid != null) {
+				pyramid.add(x, y);
+			}
 		} else {
-			updateSize = streamingCompressor.add(y, x);
+			streamingCompressor.add(y, x);
+			if(pyramid != null) {
+				pyramid.add(y, x);
+			}
 		}
 		updateMinMax(x, y);
 
@@ -143,6 +149,66 @@ public class CompressingXYDataset implements XYDataset {
 	}
 
 
+	/**
+	 * Adds points, truncating the buffer if necessary.
+	 * The result is the same as adding the points one at a time with {@link #add(double, double)},
+	 * but the compressed points are appended to the line in one copy, the line is repainted once,
+	 * and min/max listeners are notified at most once.
+	 * For the independent dimension, the coordinates must be in increasing order and greater than or equal to all other values in the dataset for that dimension.
+	 * @param x the X coordinates
+	 * @param y the Y coordinates
+	 * @param off offset within <code>x</code> and <code>y</code> of the first point
+	 * @param len number of points to add
+	 */
+	public void addAll(double[] x, double[] y, int off, int len) {
+		if(off < 0 || len < 0 || off + len > x.length || off + len > y.length) {
+			throw new IndexOutOfBoundsException("x.length = " + x.length + ", y.length = " + y.length + ", off = " + off + ", len = " + len);
+		}
+		if(len == 0) {
+			return;
+		}
+		preMod();
+
+		truncate();
+		StreamingCompressor streamingCompressor = getStreamingCompressor();
+		boolean independentX = line.getIndependentDimension() == XYDimension.X;
+		lineOutput.startBatch();
+		try {
+			int end = off + len;
+			for(int i = off; i < end; i++) {
+				if(independentX) {
+					streamingCompressor.add(x[i], y[i]);
+					if(pyramid != null) {
+						pyramid.add(x[i], y[i]);
+					}
+				} else {
+					streamingCompressor.add(y[i], x[i]);
+					if(pyramid != null) {
+						pyramid.add(y[i], x[i]);
+					}
+				}
+				updateMinMax(x[i], y[i]);
+			}
+		} finally {
+			lineOutput.endBatch();
+		}
+
+		postMod();
+	}
+
+
+	/**
+	 * Returns the streaming compressor, creating it if the compression settings changed.
+	 * @return the streaming compressor
+	 */
+	private StreamingCompressor getStreamingCompressor() {
+		if(streamingCompressor == null) {
+			streamingCompressor = compressor.createStreamingCompressor(lineOutput, compressionOffset, compressionScale);
+		}
+		return streamingCompressor;
+	}
+
+
 	/**
 	 * Called after a modification.
 	 * Notifies any relevant listeners of changes.
@@ -170,6 +236,7 @@ public class CompressingXYDataset implements XYDataset {
 	 * Stores any state needed for {@link #postMod()}.
 	 */
 	protected void preMod() {
+		modCount++;
 		oldMinX = minX;
 		oldMaxX = maxX;
 		oldMinY = minY;
@@ -189,6 +256,9 @@ public class CompressingXYDataset implements XYDataset {
 		i -= truncationOffset;
 		if(i > 0) {
 			_removeFirst(i);
+			if(pyramid != null) {
+				pyramid.removeBefore(truncationPoint);
+			}
 		}
 	}
 
@@ -277,6 +347,9 @@ public class CompressingXYDataset implements XYDataset {
 			input.getY().add(x, xoff, len);
 			input.getX().add(y, yoff, len);
 		}
+		if(pyramid != null) {
+			pyramid.prepend(input.getX(), input.getY());
+		}
 		PointData output = new PointData();
 		compressor.compress(input, output, compressionOffset, compressionScale);
 
@@ -301,6 +374,23 @@ public class CompressingXYDataset implements XYDataset {
 
 	@Override
 	public void prepend(DoubleData x, DoubleData y) {
+		if(pyramid != null) {
+			if(line.getIndependentDimension() == XYDimension.X) {
+				pyramid.prepend(x, y);
+			} else {
+				pyramid.prepend(y, x);
+			}
+		}
+		prependCompressed(x, y);
+	}
+
+
+	/**
+	 * Compresses and prepends points without adding them to the pyramid.
+	 * @param x the X coordinates
+	 * @param y the Y coordinates
+	 */
+	private void prependCompressed(DoubleData x, DoubleData y) {
 		preMod();
 
 		PointData input = new PointData(x, y);
@@ -353,6 +443,9 @@ public class CompressingXYDataset implements XYDataset {
 	public void removeAllPoints() {
 		preMod();
 		line.removeAllPoints();
+		if(pyramid != null) {
+			pyramid.clear();
+		}
 		minX = Double.POSITIVE_INFINITY;
 		maxX = Double.NEGATIVE_INFINITY;
 		minY = Double.POSITIVE_INFINITY;
@@ -364,13 +457,54 @@ public class CompressingXYDataset implements XYDataset {
 	/**
 	 * Recompresses the existing data.
 	 * This is useful if the compression scale has increased since data was added.
-	 * Data may lose fidelity if compressed multiple times.
+	 * Data may lose fidelity if compressed multiple times, unless the dataset has a pyramid,
+	 * in which case the data is recompressed from the pyramid as by {@link #recompress(double, double)} over all of the data.
 	 */
 	public void recompress() {
+		if(pyramid != null) {
+			recompress(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			return;
+		}
 		DoubleData newx =xData.clone();
 		DoubleData newy =yData.clone();
 		line.removeAllPoints();
-		prepend(newx, newy);
+		prependCompressed(newx, newy);
+	}
+
+
+	/**
+	 * Replaces the data with the data from the pyramid between the min and max independent values, compressed at the current compression offset and scale.
+	 * Because the pyramid keeps more detail than the compressed points, this does not lose fidelity when repeated,
+	 * and it can increase the resolution down to the pyramid's base scale.
+	 * Points outside the range are removed from the line but stay in the pyramid.
+	 * Independent values are rounded down to the start of their pyramid bucket, as are the resulting min and max.
+	 * @param min minimum independent value
+	 * @param max maximum independent value
+	 * @throws IllegalStateException if the dataset has no pyramid
+	 */
+	public void recompress(double min, double max) {
+		Recompression recompression = prepareRecompress(min, max);
+		recompression.run();
+		recompression.apply();
+	}
+
+
+	/**
+	 * Prepares the same recompression as {@link #recompress(double, double)}, split into steps so the compression can run on another thread.
+	 * This copies the points it needs from the pyramid, which is proportional to the size of the result rather than of the data.
+	 * The returned recompression must be {@link Recompression#run() run} and then {@link Recompression#apply() applied}.
+	 * @param min minimum independent value
+	 * @param max maximum independent value
+	 * @return the recompression
+	 * @throws IllegalStateException if the dataset has no pyramid
+	 */
+	public Recompression prepareRecompress(double min, double max) {
+		if(pyramid == null) {
+			throw new IllegalStateException("The dataset has no pyramid");
+		}
+		PointData input = new PointData();
+		pyramid.getPoints(min, max, compressionScale, input);
+		return new Recompression(input, compressor, compressionOffset, compressionScale);
 	}
 
 
@@ -471,6 +605,7 @@ public class CompressingXYDataset implements XYDataset {
 		if(this.compressionOffset != compressionOffset) {
 			this.compressionOffset = compressionOffset;
 			streamingCompressor = null;
+			modCount++;
 		}
 	}
 
@@ -494,10 +629,31 @@ public class CompressingXYDataset implements XYDataset {
 		if(this.compressionScale != compressionScale) {
 			this.compressionScale = compressionScale;
 			streamingCompressor = null;
+			modCount++;
 		}
 	}
 
 
+	/**
+	 * Returns the pyramid that keeps a multi-resolution summary of the added points.
+	 * @return the pyramid, or null if none is kept
+	 */
+	public MinMaxPyramid getPyramid() {
+		return pyramid;
+	}
+
+
+	/**
+	 * Sets the pyramid that keeps a multi-resolution summary of the points added from now on.
+	 * Points already in the dataset are not added to it.
+	 * @param pyramid the pyramid, or null to stop keeping one
+	 */
+	public void setPyramid(MinMaxPyramid pyramid) {
+		this.pyramid = pyramid;
+		modCount++;
+	}
+
+
 	/**
 	 * Returns the minimum X value.
 	 * @return the minimum X value
@@ -581,10 +737,132 @@ public class CompressingXYDataset implements XYDataset {
 	 */
 	@Override
 	public void removeLast(int count) {
+		modCount++;
 		line.removeLast(count);
 	}
 
 
+	/**
+	 * Recompression of the data from the pyramid, prepared by {@link CompressingXYDataset#prepareRecompress(double, double)}.
+	 * {@link #run()} only works on the points copied from the pyramid, so it may run on any thread, as long as the compressor is thread safe.
+	 * {@link #apply()} replaces the data and must be called on the thread that modifies the dataset.
+	 */
+	public final class Recompression implements Runnable {
+		/** Points copied from the pyramid. */
+		private final PointData input;
+
+		/** Performs the compression. */
+		private final Compressor compressor;
+
+		/** Offset to use for compression. */
+		private final double offset;
+
+		/** Scale to use for compression. */
+		private final double scale;
+
+		/** Value of {@link CompressingXYDataset#modCount} when the recompression was prepared. */
+		private final int expectedModCount;
+
+		/** Compressed X data, or null if not run yet. */
+		private DoubleData outx;
+
+		/** Compressed Y data, or null if not run yet. */
+		private DoubleData outy;
+
+		/** Minimum X value of the input. */
+		private double newMinX = Double.POSITIVE_INFINITY;
+
+		/** Maximum X value of the input. */
+		private double newMaxX = Double.NEGATIVE_INFINITY;
+
+		/** Minimum Y value of the input. */
+		private double newMinY = Double.POSITIVE_INFINITY;
+
+		/** Maximum Y value of the input. */
+		private double newMaxY = Double.NEGATIVE_INFINITY;
+
+
+		private Recompression(PointData input, Compressor compressor, double offset, double scale) {
+			this.input = input;
+			this.compressor = compressor;
+			this.offset = offset;
+			this.scale = scale;
+			this.expectedModCount = modCount;
+		}
+
+
+		/**
+		 * Compresses the points copied from the pyramid.
+		 */
+		@Override
+		public void run() {
+			PointData output = new PointData();
+			compressor.compress(input, output, offset, scale);
+
+			DoubleData inx;
+			DoubleData iny;
+			if(line.getIndependentDimension() == XYDimension.X) {
+				inx = input.getX();
+				iny = input.getY();
+				outx = output.getX();
+				outy = output.getY();
+			} else {
+				iny = input.getX();
+				inx = input.getY();
+				outy = output.getX();
+				outx = output.getY();
+			}
+			int length = inx.getLength();
+			for(int i = 0; i < length; i++) {
+				double x = inx.get(i);
+				double y = iny.get(i);
+				if(x < newMinX) {
+					newMinX = x;
+				}
+				if(x > newMaxX) {
+					newMaxX = x;
+				}
+				if(y < newMinY) {
+					newMinY = y;
+				}
+				if(y > newMaxY) {
+					newMaxY = y;
+				}
+			}
+		}
+
+
+		/**
+		 * Replaces the data of the dataset with the compressed data, unless the dataset was modified since the recompression was prepared.
+		 * The line's buffers are swapped rather than copied, and the line is repainted once.
+		 * @return true if the data was replaced, false if the recompression is out of date and must be prepared again
+		 * @throws IllegalStateException if the recompression has not been run
+		 */
+		public boolean apply() {
+			if(outx == null) {
+				throw new IllegalStateException("The recompression has not been run");
+			}
+			if(modCount != expectedModCount) {
+				return false;
+			}
+			preMod();
+			minX = newMinX;
+			maxX = newMaxX;
+			minY = newMinY;
+			maxY = newMaxY;
+			xData = outx;
+			yData = outy;
+			line.setXData(outx);
+			line.setYData(outy);
+			// The streaming compressor holds temporary points that are gone now
+			streamingCompressor = null;
+			line.repaint();
+			postMod();
+			return true;
+		}
+	}
+
+
 	/**
 	 * Listens to min/max changes.
 	 * @author Adam Crume
@@ -597,4 +875,86 @@ public class CompressingXYDataset implements XYDataset {
 		 */
 		public void minMaxChanged(CompressingXYDataset dataset, XYDimension dimension);
 	}
+
+
+	/**
+	 * Passes the output of the streaming compressor to the line.
+	 * While a batch is in progress, points added by the compressor are kept aside and appended to the line's data in one copy when the batch ends.
+	 * Coordinates are given with the independent dimension first, as the compressor works on them.
+	 */
+	private class LineOutput implements CompressionOutput {
+		/** Independent coordinates of the points kept aside during a batch. */
+		private final DoubleData batchIndependent = new DoubleData();
+
+		/** Dependent coordinates of the points kept aside during a batch. */
+		private final DoubleData batchDependent = new DoubleData();
+
+		/** True while a batch is in progress. */
+		private boolean batching;
+
+
+		/**
+		 * Starts keeping points aside.
+		 */
+		void startBatch() {
+			batching = true;
+		}
+
+
+		/**
+		 * Appends the points kept aside to the line and repaints them.
+		 */
+		void endBatch() {
+			batching = false;
+			int count = batchIndependent.getLength();
+			if(count == 0) {
+				return;
+			}
+			DoubleData lineX = line.getXData();
+			DoubleData lineY = line.getYData();
+			int start = lineX.getLength();
+			if(line.getIndependentDimension() == XYDimension.X) {
+				lineX.add(batchIndependent, 0, count);
+				lineY.add(batchDependent, 0, count);
+			} else {
+				lineX.add(batchDependent, 0, count);
+				lineY.add(batchIndependent, 0, count);
+			}
+			batchIndependent.removeAll();
+			batchDependent.removeAll();
+			line.repaintData(start, count);
+		}
+
+
+		@Override
+		public void add(double independentValue, double dependentValue) {
+			if(batching) {
+				batchIndependent.add(independentValue);
+				batchDependent.add(dependentValue);
+			} else if(line.getIndependentDimension() == XYDimension.X) {
+				line.add(independentValue, dependentValue);
+			} else {
+				line.add(dependentValue, independentValue);
+			}
+		}
+
+
+		@Override
+		public int getPointCount() {
+			return line.getPointCount() + batchIndependent.getLength();
+		}
+
+
+		@Override
+		public void removeLast(int count) {
+			int batched = Math.min(count, batchIndependent.getLength());
+			if(batched > 0) {
+				batchIndependent.removeLast(batched);
+				batchDependent.removeLast(batched);
+			}
+			if(count > batched) {
+				line.removeLast(count - batched);
+			}
+		}
+	}
 }
@@ -21,10 +21,6 @@
  *******************************************************************************/
 package plotter.xy;
 
-import java.util.Iterator;
-import java.util.NavigableMap;
-import java.util.Map.Entry;
-
 import plotter.DoubleData;
 import plotter.internal.RangeSet;
 
@@ -105,8 +101,8 @@ public class DefaultCompressor implements Compressor {
 			long bucketSize) {
 		out.add(bucketx, firsty);
 		double prevy = firsty;
-		NavigableMap<Double, Double> data2 = r.getData();
-		if(data2 == null) {
+		int ranges = r.getRangeCount();
+		if(ranges <= 1) {
 			double min = r.getMin();
 			double max = r.getMax();
 			if(min != Double.POSITIVE_INFINITY) {
@@ -127,20 +123,17 @@ public class DefaultCompressor implements Compressor {
 			}
 		} else {
 			boolean first = true;
-			NavigableMap<Double, Double> m = data2;
-			if(firsty > lasty) {
-				// If the line is descending (based on the first and last Y coordinates),
-				// draw the segments in decreasing order.  This improves the odds that
-				// we will be able to merge the first and last points into line segments.
-				m = data2.descendingMap();
-			}
-			for(Iterator<Entry<Double, Double>> itr = m.entrySet().iterator(); itr.hasNext();) {
-				Entry<Double, Double> e = itr.next();
-				double min = e.getKey();
-				double max = e.getValue();
-				boolean last = !itr.hasNext();
+			// If the line is descending (based on the first and last Y coordinates),
+			// draw the segments in decreasing order.  This improves the odds that
+			// we will be able to merge the first and last points into line segments.
+			boolean descending = firsty > lasty;
+			for(int i = 0; i < ranges; i++) {
+				int index = descending ? ranges - 1 - i : i;
+				double min = r.getMin(index);
+				double max = r.getMax(index);
+				boolean last = i == ranges - 1;
 				boolean wroteSomething = true;
-				// Since RangeSet will not return a map if there is only one segment, the current segment cannot be first and last.
+				// Since there is more than one segment, the current segment cannot be first and last.
 				if(first) {
 					if(firsty > max || firsty < min) {
 						out.add(bucketx, Double.NaN);
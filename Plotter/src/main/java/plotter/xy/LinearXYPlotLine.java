@@ -23,7 +23,9 @@ package plotter.xy;
 
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Stroke;
+import java.util.Arrays;
 
 import plotter.DoubleData;
 
@@ -60,6 +62,9 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	/** The independent dimension stores data in increasing or decreasing order.  May be null for a scatter plot or parametric plot, although this is not supported yet. */
 	private XYDimension independentDimension;
 
+	/** Vertex buffer reused between paints, created lazily. */
+	private transient PolylineBuffer polyline;
+
 
 	/**
 	 * Creates a plot line.
@@ -90,91 +95,67 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 			g2.setStroke(stroke);
 		}
 
-		// Skip the points that are outside our clipping area
-		// TODO: Support a stop index, not just a start index
+		// Skip the points that are outside our clipping area.
+		// index is the last point before the clip and end is one past the first point after the clip.
+		Rectangle clip = g.getClipBounds();
 		int index;
-		if(independentDimension == XYDimension.X) {
-			int clipx;
-			if(xstart < xend) {
-				clipx = g.getClipBounds().x;
-			} else {
-				clipx = (int) g.getClipBounds().getMaxX();
-			}
-			clipx = toAxisX(clipx) - 1;
-			double min = xAxis.toLogical(clipx);
-			index = xData.binarySearch(min);
-			if(index < 0) {
-				index = -index - 1;
-			}
-			index--;
+		int end;
+		if(clip == null) {
+			index = 0;
+			end = n;
+		} else if(independentDimension == XYDimension.X) {
+			double min = xAxis.toLogical(toAxisX(clip.x) - 1);
+			double max = xAxis.toLogical(toAxisX((int) clip.getMaxX()) + 1);
+			index = insertionPoint(xData, Math.min(min, max)) - 1;
+			end = insertionPoint(xData, Math.max(min, max)) + 1;
 		} else {
-			int clipy;
-			if(ystart < yend) {
-				clipy = (int) g.getClipBounds().getMaxY();
-			} else {
-				clipy = (int) g.getClipBounds().getMinY();
-			}
-			clipy = toAxisY(clipy) - 1;
-			double min = yAxis.toLogical(clipy);
-			index = yData.binarySearch(min);
-			if(index < 0) {
-				index = -index - 1;
-			}
-			index--;
+			double min = yAxis.toLogical(toAxisY((int) clip.getMaxY()) + 1);
+			double max = yAxis.toLogical(toAxisY(clip.y) - 1);
+			index = insertionPoint(yData, Math.min(min, max)) - 1;
+			end = insertionPoint(yData, Math.max(min, max)) + 1;
 		}
+		end = Math.min(n, end);
 
 		int i = Math.max(0, index);
 		double xscale = width / (xend - xstart);
 		double yscale = height / (yend - ystart);
-		int[] pointsx = new int[(n - i) * 2];
-		int[] pointsy = new int[pointsx.length];
+		if(polyline == null) {
+			polyline = new PolylineBuffer();
+		}
+		PolylineBuffer polyline = this.polyline;
 
 		DoubleData dependentData = independentDimension == XYDimension.Y ? xData : yData;
 		// Loop through all the points to draw.
-		outer: while(i < n - 1) {
+		outer: while(i < end - 1) {
 			// Find the first non-NaN point.
 			while(Double.isNaN(dependentData.get(i))) {
 				i++;
-				if(i == n) {
+				if(i == end) {
 					break outer;
 				}
 			}
+			polyline.start(g2, independentDimension != XYDimension.Y);
 			int x = (int) ((xData.get(i) - xstart) * xscale + .5) - 1;
 			int y = height - (int) ((yData.get(i) - ystart) * yscale + .5);
-			int points = 0;
 			if(missingPointMode == MissingPointMode.RIGHT || missingPointMode == MissingPointMode.BOTH) {
 				if(i > 0 && i > index) {
 					if(independentDimension == XYDimension.X) {
-						pointsx[points] = (int) ((xData.get(i - 1) - xstart) * xscale + .5) - 1;
-						pointsy[points] = y;
-						points++;
+						polyline.add((int) ((xData.get(i - 1) - xstart) * xscale + .5) - 1, y);
 					} else if(independentDimension == XYDimension.Y) {
-						pointsy[points] = height - (int) ((yData.get(i - 1) - ystart) * yscale + .5);
-						pointsx[points] = x;
-						points++;
+						polyline.add(x, height - (int) ((yData.get(i - 1) - ystart) * yscale + .5));
 					}
 				}
 			}
-			pointsx[points]=x;
-			pointsy[points]=y;
-			points++;
+			polyline.add(x, y);
 			i++;
 			// Add points until we come to the end or a NaN point.
-			while(i < n) {
+			while(i < end) {
 				if(Double.isNaN(dependentData.get(i))) {
 					if(missingPointMode == MissingPointMode.BOTH || missingPointMode == MissingPointMode.LEFT) {
 						if(independentDimension == XYDimension.X) {
-							double xd = xData.get(i);
-							int x2 = (int) ((xd - xstart) * xscale + .5) - 1;
-							pointsx[points] = x2;
-							pointsy[points] = y;
-							points++;
+							polyline.add((int) ((xData.get(i) - xstart) * xscale + .5) - 1, y);
 						} else if(independentDimension == XYDimension.Y) {
-							double yd = yData.get(i);
-							int y2 = height - (int) ((yd - ystart) * yscale + .5);
-							pointsx[points] = x;
-							pointsy[points] = y2;
-							points++;
+							polyline.add(x, height - (int) ((yData.get(i) - ystart) * yscale + .5));
 						}
 					}
 					i++;
@@ -186,36 +167,39 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 				int y2 = height - (int) ((yd - ystart) * yscale + .5);
 
 				if(lineMode == LineMode.STRAIGHT) {
-					pointsx[points]=x2;
-					pointsy[points]=y2;
-					points++;
+					polyline.add(x2, y2);
 				} else if(lineMode == LineMode.STEP_XY) {
-					pointsx[points]=x2;
-					pointsy[points]=y;
-					points++;
-					pointsx[points]=x2;
-					pointsy[points]=y2;
-					points++;
+					polyline.add(x2, y);
+					polyline.add(x2, y2);
 				} else {
-					pointsx[points]=x;
-					pointsy[points]=y2;
-					points++;
-					pointsx[points]=x2;
-					pointsy[points]=y2;
-					points++;
+					polyline.add(x, y2);
+					polyline.add(x2, y2);
 				}
 
 				x = x2;
 				y = y2;
 				i++;
 			}
-			if(points > 1) {
-				g2.drawPolyline(pointsx, pointsy, points);
-			}
+			polyline.finish();
 		}
 	}
 
 
+	/**
+	 * Returns the index of the first point not less than the value, or the index of a point equal to the value.
+	 * @param data data to search
+	 * @param value value to search for
+	 * @return index in the data
+	 */
+	private static int insertionPoint(DoubleData data, double value) {
+		int index = data.binarySearch(value);
+		if(index < 0) {
+			index = -index - 1;
+		}
+		return index;
+	}
+
+
 	private int toAxisX(int x) {
 		// Assumption: plot line is contained in an XYPlotContents, which is contained in an XYPlot.  xAxis is contained in the XYPlot.
 		return x + getParent().getX() - xAxis.getX();
@@ -585,6 +569,164 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	}
 
 
+	/**
+	 * Collects the vertices of a polyline and draws them in chunks of at most {@link #MAX_POINTS} vertices.
+	 * Consecutive vertices on the same pixel column (or pixel row, when merging by Y) are merged into the first, lowest, highest and last of them.
+	 * This draws the same pixels, so a dense line costs a few vertices per pixel instead of one per point.
+	 */
+	private static final class PolylineBuffer {
+		/** Maximum number of vertices passed to one drawPolyline call. */
+		private static final int MAX_POINTS = 4096;
+
+		/** X coordinates of the vertices. */
+		private int[] xs = new int[64];
+
+		/** Y coordinates of the vertices. */
+		private int[] ys = new int[64];
+
+		/** Number of vertices in the buffers. */
+		private int count;
+
+		/** True to merge vertices with equal X coordinates, false to merge vertices with equal Y coordinates. */
+		private boolean mergeX;
+
+		/** Coordinate shared by the vertices of the current run. */
+		private int runCoordinate;
+
+		/** Smallest other coordinate in the current run. */
+		private int runMin;
+
+		/** Largest other coordinate in the current run. */
+		private int runMax;
+
+		/** Other coordinate of the last vertex in the current run. */
+		private int runLast;
+
+		/** True if vertices were merged into the current run after its first vertex, which is already buffered. */
+		private boolean runMerged;
+
+		/** Graphics to draw with, only set between {@link #start(Graphics2D, boolean)} and {@link #finish()}. */
+		private Graphics2D g;
+
+
+		/**
+		 * Starts a new polyline.
+		 * @param g graphics to draw with
+		 * @param mergeX true to merge vertices on the same pixel column, false for the same pixel row
+		 */
+		void start(Graphics2D g, boolean mergeX) {
+			this.g = g;
+			this.mergeX = mergeX;
+			count = 0;
+			runMerged = false;
+		}
+
+
+		/**
+		 * Adds a vertex to the polyline.
+		 * @param x X coordinate of the vertex
+		 * @param y Y coordinate of the vertex
+		 */
+		void add(int x, int y) {
+			int shared = mergeX ? x : y;
+			int other = mergeX ? y : x;
+			if(count > 0 && shared == runCoordinate) {
+				if(other < runMin) {
+					runMin = other;
+				} else if(other > runMax) {
+					runMax = other;
+				}
+				runLast = other;
+				runMerged = true;
+				return;
+			}
+			// Closing the run appends up to three vertices, plus one for the new vertex
+			if(count + 4 > xs.length) {
+				if(xs.length < MAX_POINTS) {
+					xs = Arrays.copyOf(xs, xs.length * 2);
+					ys = Arrays.copyOf(ys, ys.length * 2);
+				} else {
+					// Draw what we have and continue from the first vertex of the current run
+					g.drawPolyline(xs, ys, count);
+					xs[0] = xs[count - 1];
+					ys[0] = ys[count - 1];
+					count = 1;
+				}
+			}
+			closeRun();
+			xs[count] = x;
+			ys[count] = y;
+			count++;
+			runCoordinate = shared;
+			runMin = other;
+			runMax = other;
+			runLast = other;
+		}
+
+
+		/**
+		 * Draws the remaining vertices of the polyline.
+		 */
+		void finish() {
+			closeRun();
+			if(count > 1) {
+				g.drawPolyline(xs, ys, count);
+			}
+			count = 0;
+			g = null;
+		}
+
+
+		/**
+		 * Appends the lowest, highest and last vertex of the current run, skipping repeated vertices.
+		 * The lowest and highest are visited in whichever order needs fewer vertices.
+		 */
+		private void closeRun() {
+			if(!runMerged) {
+				return;
+			}
+			runMerged = false;
+			int previous = mergeX ? ys[count - 1] : xs[count - 1];
+			int before = count;
+			int lowFirst = (runMin != previous ? 1 : 0) + (runLast != runMax ? 1 : 0);
+			int highFirst = (runMax != previous ? 1 : 0) + (runLast != runMin ? 1 : 0);
+			if(lowFirst <= highFirst) {
+				previous = append(runMin, previous);
+				previous = append(runMax, previous);
+			} else {
+				previous = append(runMax, previous);
+				previous = append(runMin, previous);
+			}
+			append(runLast, previous);
+			if(count == before && count == 1) {
+				// Keep a line made of coincident points, which draws as a dot
+				append(previous, previous + 1);
+			}
+		}
+
+
+		/**
+		 * Appends a vertex of the current run unless it repeats the previous vertex.
+		 * @param other non-shared coordinate of the vertex
+		 * @param previous non-shared coordinate of the previous vertex
+		 * @return non-shared coordinate of the last vertex
+		 */
+		private int append(int other, int previous) {
+			if(other != previous) {
+				if(mergeX) {
+					xs[count] = runCoordinate;
+					ys[count] = other;
+				} else {
+					xs[count] = other;
+					ys[count] = runCoordinate;
+				}
+				count++;
+			}
+			return other;
+		}
+	}
+
+
 	/**
 	 * A line mode specifies how lines are drawn connecting points.
 	 */
@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter.xy;
+
+import plotter.DoubleData;
+
+/**
+ * Multi-resolution min/max summary of a series, used to recompress the series at any scale down to the base scale without the original points.
+ * Level 0 divides the independent dimension into buckets of width {@link #getBaseScale()} starting at the offset,
+ * and each level above it has buckets twice as wide as the level below.
+ * Every non-empty bucket keeps the first, minimum, maximum and last dependent values,
+ * so the envelope of the data is exact at every level.
+ * A gap (NaN value) is only kept if it is at the start or end of a bucket.
+ * <p>
+ * Points are given as (independent, dependent) pairs, the same way a {@link Compressor} sees them in a {@link PointData},
+ * and must be added in increasing order of the independent value.
+ */
+public class MinMaxPyramid {
+	/** Independent value where bucket zero of every level starts. */
+	private final double offset;
+
+	/** Width of the buckets in level 0. */
+	private final double baseScale;
+
+	/** The levels, finest first. */
+	private final Level[] levels;
+
+
+	/**
+	 * Creates an empty pyramid.
+	 * @param offset independent value where bucket zero of every level starts
+	 * @param baseScale width of the buckets in level 0
+	 * @param levelCount number of levels
+	 */
+	public MinMaxPyramid(double offset, double baseScale, int levelCount) {
+		if(!(baseScale > 0) || Double.isInfinite(baseScale)) {
+			throw new IllegalArgumentException("Base scale must be positive and finite: " + baseScale);
+		}
+		if(levelCount < 1 || levelCount > 62) {
+			throw new IllegalArgumentException("Level count must be between 1 and 62: " + levelCount);
+		}
+		this.offset = offset;
+		this.baseScale = baseScale;
+		levels = new Level[levelCount];
+		double scale = baseScale;
+		for(int i = 0; i < levelCount; i++) {
+			levels[i] = new Level(scale);
+			scale *= 2;
+		}
+	}
+
+
+	/**
+	 * Adds a point.
+	 * The independent value must be greater than or equal to those of all points already added.
+	 * @param x the independent value
+	 * @param y the dependent value
+	 */
+	public void add(double x, double y) {
+		long bucket = (long) Math.floor((x - offset) / baseScale);
+		for(int i = 0; i < levels.length; i++) {
+			levels[i].add(bucket >> i, y);
+		}
+	}
+
+
+	/**
+	 * Adds points that come before all points already added.
+	 * @param x the independent values, in increasing order
+	 * @param xoff offset of the first independent value
+	 * @param y the dependent values
+	 * @param yoff offset of the first dependent value
+	 * @param len number of points
+	 */
+	public void prepend(double[] x, int xoff, double[] y, int yoff, int len) {
+		MinMaxPyramid before = new MinMaxPyramid(offset, baseScale, levels.length);
+		for(int i = 0; i < len; i++) {
+			before.add(x[xoff + i], y[yoff + i]);
+		}
+		prepend(before);
+	}
+
+
+	/**
+	 * Adds points that come before all points already added.
+	 * @param x the independent values, in increasing order
+	 * @param y the dependent values
+	 */
+	public void prepend(DoubleData x, DoubleData y) {
+		MinMaxPyramid before = new MinMaxPyramid(offset, baseScale, levels.length);
+		int len = x.getLength();
+		for(int i = 0; i < len; i++) {
+			before.add(x.get(i), y.get(i));
+		}
+		prepend(before);
+	}
+
+
+	private void prepend(MinMaxPyramid before) {
+		for(int i = 0; i < levels.length; i++) {
+			levels[i].prepend(before.levels[i]);
+		}
+	}
+
+
+	/**
+	 * Removes the buckets that end at or before the independent value.
+	 * @param x the independent value
+	 */
+	public void removeBefore(double x) {
+		double bucket = Math.floor((x - offset) / baseScale);
+		if(bucket > Long.MAX_VALUE / 2 || bucket < Long.MIN_VALUE / 2) {
+			clear();
+			return;
+		}
+		for(int i = 0; i < levels.length; i++) {
+			levels[i].removeBefore(((long) bucket) >> i);
+		}
+	}
+
+
+	/**
+	 * Removes all points.
+	 */
+	public void clear() {
+		for(Level level : levels) {
+			level.clear();
+		}
+	}
+
+
+	/**
+	 * Writes points that stand in for the data between the min and max independent values (inclusive) when compressed at the given scale.
+	 * The points come from the coarsest level whose buckets are no wider than the scale.
+	 * Each bucket is written as its first, minimum, maximum and last values, all at the independent value where the bucket starts.
+	 * Compressing them at the scale gives the same minimum and maximum per bucket as compressing the original points,
+	 * with the independent values rounded down to the level's bucket width.
+	 * If the scale is finer than the base scale, level 0 is used.
+	 * @param min minimum independent value
+	 * @param max maximum independent value
+	 * @param scale compression scale the points will be compressed at
+	 * @param out receives the points
+	 */
+	public void getPoints(double min, double max, double scale, CompressionOutput out) {
+		int index = 0;
+		while(index + 1 < levels.length && levels[index + 1].scale <= scale) {
+			index++;
+		}
+		Level level = levels[index];
+		DoubleData buckets = level.buckets;
+		int n = buckets.getLength();
+		double minBucket = Math.floor((min - offset) / level.scale);
+		double maxBucket = Math.floor((max - offset) / level.scale);
+		int i = buckets.binarySearch(minBucket);
+		if(i < 0) {
+			i = -i - 1;
+		}
+		for(; i < n; i++) {
+			double bucket = buckets.get(i);
+			if(bucket > maxBucket) {
+				break;
+			}
+			double x = offset + bucket * level.scale;
+			double first = level.first.get(i);
+			double low = level.min.get(i);
+			double high = level.max.get(i);
+			double last = level.last.get(i);
+			out.add(x, first);
+			double previous = first;
+			if(!Double.isNaN(low)) {
+				// Visit the extreme further from the last value first, so the line moves on from near the last value
+				double a = low;
+				double b = high;
+				if(Math.abs(last - high) > Math.abs(last - low)) {
+					a = high;
+					b = low;
+				}
+				if(a != previous) {
+					out.add(x, a);
+					previous = a;
+				}
+				if(b != previous) {
+					out.add(x, b);
+					previous = b;
+				}
+			}
+			if(!(last == previous || (Double.isNaN(last) && Double.isNaN(previous)))) {
+				out.add(x, last);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the independent value where bucket zero of every level starts.
+	 * @return the offset
+	 */
+	public double getOffset() {
+		return offset;
+	}
+
+
+	/**
+	 * Returns the width of the buckets in level 0, the finest scale the pyramid can recompress at without losing detail.
+	 * @return the base scale
+	 */
+	public double getBaseScale() {
+		return baseScale;
+	}
+
+
+	/**
+	 * Returns the number of levels.
+	 * @return the number of levels
+	 */
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+
+	/**
+	 * Returns the number of non-empty buckets in a level.
+	 * @param level index of the level, 0 for the finest
+	 * @return the number of buckets
+	 */
+	public int getBucketCount(int level) {
+		return levels[level].buckets.getLength();
+	}
+
+
+	/**
+	 * One level of the pyramid.
+	 */
+	private static final class Level {
+		/** Width of the buckets. */
+		final double scale;
+
+		/** Number of each non-empty bucket, in increasing order. */
+		final DoubleData buckets = new DoubleData();
+
+		/** First dependent value in each bucket. */
+		final DoubleData first = new DoubleData();
+
+		/** Minimum dependent value in each bucket, NaN if all values are NaN. */
+		final DoubleData min = new DoubleData();
+
+		/** Maximum dependent value in each bucket, NaN if all values are NaN. */
+		final DoubleData max = new DoubleData();
+
+		/** Last dependent value in each bucket. */
+		final DoubleData last = new DoubleData();
+
+
+		/**
+		 * Creates an empty level.
+		 * @param scale width of the buckets
+		 */
+		Level(double scale) {
+			this.scale = scale;
+		}
+
+
+		/**
+		 * Adds a value to the last bucket, or to a new bucket after it.
+		 * @param bucket number of the bucket, merged into the last bucket if not after it
+		 * @param y the dependent value
+		 */
+		void add(long bucket, double y) {
+			int n = buckets.getLength();
+			if(n > 0 && bucket <= buckets.get(n - 1)) {
+				int i = n - 1;
+				if(!Double.isNaN(y)) {
+					double low = min.get(i);
+					if(Double.isNaN(low)) {
+						min.set(i, y);
+						max.set(i, y);
+					} else if(y < low) {
+						min.set(i, y);
+					} else if(y > max.get(i)) {
+						max.set(i, y);
+					}
+				}
+				last.set(i, y);
+			} else {
+				buckets.add(bucket);
+				first.add(y);
+				min.add(y);
+				max.add(y);
+				last.add(y);
+			}
+		}
+
+
+		/**
+		 * Adds the buckets of a level that comes before this one.
+		 * If the last bucket of that level is the first bucket of this one, the two are merged.
+		 * @param before level with buckets before this level's buckets
+		 */
+		void prepend(Level before) {
+			int n = before.buckets.getLength();
+			if(n == 0) {
+				return;
+			}
+			if(buckets.getLength() > 0 && before.buckets.get(n - 1) == buckets.get(0)) {
+				double low = before.min.get(n - 1);
+				double high = before.max.get(n - 1);
+				if(!Double.isNaN(low)) {
+					double low0 = min.get(0);
+					if(Double.isNaN(low0) || low < low0) {
+						min.set(0, low);
+					}
+					double high0 = max.get(0);
+					if(Double.isNaN(high0) || high > high0) {
+						max.set(0, high);
+					}
+				}
+				first.set(0, before.first.get(n - 1));
+				n--;
+			}
+			buckets.prepend(before.buckets, 0, n);
+			first.prepend(before.first, 0, n);
+			min.prepend(before.min, 0, n);
+			max.prepend(before.max, 0, n);
+			last.prepend(before.last, 0, n);
+		}
+
+
+		/**
+		 * Removes the buckets before the given bucket.
+		 * @param bucket number of the first bucket to keep
+		 */
+		void removeBefore(long bucket) {
+			int i = buckets.binarySearch(bucket);
+			if(i < 0) {
+				i = -i - 1;
+			}
+			if(i > 0) {
+				buckets.removeFirst(i);
+				first.removeFirst(i);
+				min.removeFirst(i);
+				max.removeFirst(i);
+				last.removeFirst(i);
+			}
+		}
+
+
+		/**
+		 * Removes all buckets.
+		 */
+		void clear() {
+			buckets.removeAll();
+			first.removeAll();
+			min.removeAll();
+			max.removeAll();
+			last.removeAll();
+		}
+	}
+}
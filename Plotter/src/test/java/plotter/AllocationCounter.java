@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+
+/**
+ * Measures the bytes allocated by the current thread, where the JVM supports it.
+ */
+public class AllocationCounter {
+	private final Object bean = ManagementFactory.getThreadMXBean();
+
+	private final Method method;
+
+	private long start;
+
+
+	/**
+	 * Creates a counter and starts counting.
+	 */
+	public AllocationCounter() {
+		Method m;
+		try {
+			m = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+			if(!(Boolean) Class.forName("com.sun.management.ThreadMXBean").getMethod("isThreadAllocatedMemoryEnabled").invoke(bean)) {
+				m = null;
+			}
+		} catch(Exception e) {
+			m = null;
+		}
+		method = m;
+		reset();
+	}
+
+
+	/**
+	 * Returns true if the JVM reports allocated bytes.
+	 * @return true if the counter works
+	 */
+	public boolean isSupported() {
+		return method != null;
+	}
+
+
+	/**
+	 * Restarts counting.
+	 */
+	public void reset() {
+		start = getAllocatedBytes();
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated by the current thread since the counter was created or reset.
+	 * @return allocated bytes, or 0 if not supported
+	 */
+	public long getCount() {
+		return getAllocatedBytes() - start;
+	}
+
+
+	private long getAllocatedBytes() {
+		if(method == null) {
+			return 0;
+		}
+		try {
+			return (Long) method.invoke(bean, Thread.currentThread().getId());
+		} catch(Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -292,6 +292,30 @@ public class JUnitDoubleData extends TestCase {
 	}
 
 
+	public void testPrependChunksWithCycle() {
+		// Backfills older chunks in front of data that was added after the buffer wrapped.
+		DoubleData data = new DoubleData(8);
+		for(int i = 0; i < 6; i++) {
+			data.add(i);
+		}
+		data.removeFirst(5);
+		data.add(6);
+		data.add(7);
+		for(int chunk = 1; chunk <= 5; chunk++) {
+			data.prepend(new double[] {-2 * chunk + 5, -2 * chunk + 6}, 0, 2);
+		}
+		assertEquals(13, data.getLength());
+		assertEquals(16, data.getCapacity());
+		for(int i = 0; i < 13; i++) {
+			assertEquals(i - 5.0, data.get(i));
+			assertEquals(i, data.binarySearch(i - 5));
+		}
+		assertEquals(-1, data.binarySearch(-5.5));
+		assertEquals(-7, data.binarySearch(0.5));
+		assertEquals(-14, data.binarySearch(7.5));
+	}
+
+
 	public void testPrependOutOfRange() {
 		DoubleData data = new DoubleData(4);
 		data.add(0);
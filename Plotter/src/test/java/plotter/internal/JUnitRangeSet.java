@@ -21,10 +21,14 @@
  *******************************************************************************/
 package plotter.internal;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import junit.framework.TestCase;
+import plotter.AllocationCounter;
 
 public class JUnitRangeSet extends TestCase {
 	public void testGeneral() {
@@ -184,4 +188,103 @@ public class JUnitRangeSet extends TestCase {
 		r.add(5, 6);
 		assertEquals("{(1.0:2.0),(3.0:4.0),(5.0:6.0)}", r.toString());
 	}
+
+
+	public void testContains() {
+		RangeSet r = new RangeSet();
+		assertFalse(r.contains(1));
+		r.add(1, 2);
+		r.add(3, 4);
+		assertFalse(r.contains(.5));
+		assertTrue(r.contains(1));
+		assertTrue(r.contains(1.5));
+		assertTrue(r.contains(2));
+		assertFalse(r.contains(2.5));
+		assertTrue(r.contains(3));
+		assertTrue(r.contains(4));
+		assertFalse(r.contains(4.5));
+	}
+
+
+	public void testIndexedAccess() {
+		RangeSet r = new RangeSet();
+		assertEquals(0, r.getRangeCount());
+		r.add(5, 6);
+		r.add(1, 2);
+		r.add(3, 4);
+		assertEquals(3, r.getRangeCount());
+		assertEquals(1.0, r.getMin(0));
+		assertEquals(2.0, r.getMax(0));
+		assertEquals(3.0, r.getMin(1));
+		assertEquals(4.0, r.getMax(1));
+		assertEquals(5.0, r.getMin(2));
+		assertEquals(6.0, r.getMax(2));
+		try {
+			r.getMin(3);
+			fail("Should have thrown an exception");
+		} catch(IndexOutOfBoundsException e) {
+			// should happen
+		}
+		r.clear();
+		assertEquals(0, r.getRangeCount());
+		assertEquals("{}", r.toString());
+	}
+
+
+	public void testRandom() {
+		Random random = new Random(0);
+		for(int i = 0; i < 1000; i++) {
+			RangeSet r = new RangeSet();
+			// Reference implementation, a list of disjoint ranges
+			List<double[]> ranges = new ArrayList<double[]>();
+			for(int j = 0; j < 20; j++) {
+				double min = random.nextInt(100);
+				double max = min + random.nextInt(5);
+				r.add(min, max);
+				List<double[]> merged = new ArrayList<double[]>();
+				for(double[] range : ranges) {
+					if(range[1] >= min && range[0] <= max) {
+						min = Math.min(min, range[0]);
+						max = Math.max(max, range[1]);
+					} else {
+						merged.add(range);
+					}
+				}
+				int k = 0;
+				while(k < merged.size() && merged.get(k)[0] < min) {
+					k++;
+				}
+				merged.add(k, new double[] { min, max });
+				ranges = merged;
+
+				assertEquals(ranges.size(), r.getRangeCount());
+				for(k = 0; k < ranges.size(); k++) {
+					assertEquals(ranges.get(k)[0], r.getMin(k));
+					assertEquals(ranges.get(k)[1], r.getMax(k));
+				}
+			}
+		}
+	}
+
+
+	public void testAddDoesNotAllocate() {
+		RangeSet r = new RangeSet();
+		for(int i = 0; i < 16; i++) {
+			r.add(i * 2, i * 2 + 1);
+		}
+		AllocationCounter counter = new AllocationCounter();
+		if(!counter.isSupported()) {
+			return;
+		}
+		for(int i = 0; i < 100000; i++) {
+			r.clear();
+			for(int j = 0; j < 16; j++) {
+				r.add(j * 2, j * 2 + 1);
+			}
+			r.add(5, 9);
+			r.contains(7);
+		}
+		// Allows for the counter itself, but not for an allocation per add
+		assertTrue("Allocated " + counter.getCount() + " bytes", counter.getCount() < 10000);
+	}
 }
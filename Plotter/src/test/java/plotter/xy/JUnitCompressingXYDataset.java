@@ -23,6 +23,7 @@ package plotter.xy;
 
 import java.beans.IntrospectionException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
 
 import junit.framework.TestCase;
 import plotter.DoubleData;
@@ -271,6 +272,235 @@ public class JUnitCompressingXYDataset extends TestCase {
 	}
 
 
+	public void testRecompressRange() {
+		checkRecompressRange(XYDimension.X);
+	}
+
+
+	public void testRecompressRangeYIndependent() {
+		checkRecompressRange(XYDimension.Y);
+	}
+
+
+	private void checkRecompressRange(XYDimension independentDimension) {
+		CompressingXYDataset dataset = createDataset(independentDimension);
+		dataset.setPyramid(new MinMaxPyramid(0, 1, 8));
+		CompressingXYDataset expected = createDataset(independentDimension);
+		expected.setCompressionScale(4);
+		Random random = new Random(1);
+		for(int i = 0; i < 5000; i++) {
+			double dependent = random.nextGaussian();
+			double x = independentDimension == XYDimension.X ? i : dependent;
+			double y = independentDimension == XYDimension.X ? dependent : i;
+			dataset.add(x, y);
+			if(i >= 2000 && i < 3004) {
+				expected.add(x, y);
+			}
+		}
+		dataset.setCompressionScale(4);
+		dataset.recompress(2000, 3003);
+
+		assertEquals(expected.getPointCount(), dataset.getPointCount());
+		for(int i = 0; i < expected.getPointCount(); i++) {
+			assertEquals(expected.getXData().get(i), dataset.getXData().get(i));
+			assertEquals(expected.getYData().get(i), dataset.getYData().get(i));
+		}
+		// The pyramid places points at the start of their bucket, so the independent maximum is rounded down
+		if(independentDimension == XYDimension.X) {
+			assertEquals(2000.0, dataset.getMinX());
+			assertEquals(3000.0, dataset.getMaxX());
+			assertEquals(expected.getMinY(), dataset.getMinY());
+			assertEquals(expected.getMaxY(), dataset.getMaxY());
+		} else {
+			assertEquals(expected.getMinX(), dataset.getMinX());
+			assertEquals(expected.getMaxX(), dataset.getMaxX());
+			assertEquals(2000.0, dataset.getMinY());
+			assertEquals(3000.0, dataset.getMaxY());
+		}
+
+		// Zooming back out restores all of the data, not just the recompressed range
+		dataset.setCompressionScale(1);
+		dataset.recompress();
+		assertEquals(5000, dataset.getPointCount());
+	}
+
+
+	public void testPrepareRecompress() throws InterruptedException {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		dataset.setPyramid(new MinMaxPyramid(0, 1, 8));
+		CompressingXYDataset expected = createDataset(XYDimension.X);
+		expected.setPyramid(new MinMaxPyramid(0, 1, 8));
+		Random random = new Random(1);
+		for(int i = 0; i < 5000; i++) {
+			double y = random.nextGaussian();
+			dataset.add(i, y);
+			expected.add(i, y);
+		}
+		final int[] count = new int[1];
+		dataset.addYMinMaxChangeListener(new MinMaxChangeListener() {
+			@Override
+			public void minMaxChanged(CompressingXYDataset dataset2, XYDimension dimension) {
+				count[0]++;
+			}
+		});
+		dataset.setCompressionScale(8);
+		expected.setCompressionScale(8);
+		expected.recompress(1000, Double.POSITIVE_INFINITY);
+
+		CompressingXYDataset.Recompression recompression = dataset.prepareRecompress(1000, Double.POSITIVE_INFINITY);
+		try {
+			recompression.apply();
+			fail("Should throw an exception");
+		} catch(IllegalStateException e) {
+			// should happen
+		}
+		Thread thread = new Thread(recompression);
+		thread.start();
+		thread.join();
+		assertEquals(5000, dataset.getPointCount());
+		assertTrue(recompression.apply());
+
+		assertEquals(expected.getPointCount(), dataset.getPointCount());
+		for(int i = 0; i < expected.getPointCount(); i++) {
+			assertEquals(expected.getXData().get(i), dataset.getXData().get(i));
+			assertEquals(expected.getYData().get(i), dataset.getYData().get(i));
+		}
+		assertEquals(expected.getMinX(), dataset.getMinX());
+		assertEquals(expected.getMinY(), dataset.getMinY());
+		assertEquals(expected.getMaxY(), dataset.getMaxY());
+		assertEquals(1, count[0]);
+
+		// Points added later go to the new buffers
+		dataset.add(5000, 0);
+		expected.add(5000, 0);
+		assertEquals(expected.getPointCount(), dataset.getPointCount());
+	}
+
+
+	public void testPrepareRecompressOutOfDate() {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		dataset.setPyramid(new MinMaxPyramid(0, 1, 8));
+		for(int i = 0; i < 100; i++) {
+			dataset.add(i, i);
+		}
+		CompressingXYDataset.Recompression recompression = dataset.prepareRecompress(0, Double.POSITIVE_INFINITY);
+		recompression.run();
+		dataset.add(100, 100);
+		assertFalse(recompression.apply());
+		assertEquals(101, dataset.getPointCount());
+
+		recompression = dataset.prepareRecompress(0, Double.POSITIVE_INFINITY);
+		recompression.run();
+		dataset.setCompressionScale(2);
+		assertFalse(recompression.apply());
+	}
+
+
+	public void testRecompressRangeWithoutPyramid() {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		dataset.add(0, 0);
+		try {
+			dataset.recompress(0, 1);
+			fail("Should throw an exception");
+		} catch(IllegalStateException e) {
+			// should happen
+		}
+	}
+
+
+	public void testTruncatePyramid() {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		dataset.setPyramid(new MinMaxPyramid(0, 1, 4));
+		for(int i = 0; i < 10; i++) {
+			dataset.add(i, i);
+		}
+		dataset.setTruncationPoint(4.5);
+		dataset.setTruncationOffset(0);
+		dataset.add(10, 10);
+		// The bucket holding the truncation point is kept
+		assertEquals(7, dataset.getPyramid().getBucketCount(0));
+		dataset.recompress();
+		assertEquals(7, dataset.getPointCount());
+		assertEquals(4.0, dataset.getXData().get(0));
+	}
+
+
+	public void testAddAll() {
+		checkAddAll(XYDimension.X);
+	}
+
+
+	public void testAddAllYIndependent() {
+		checkAddAll(XYDimension.Y);
+	}
+
+
+	private void checkAddAll(XYDimension independentDimension) {
+		CompressingXYDataset single = createDataset(independentDimension);
+		CompressingXYDataset bulk = createDataset(independentDimension);
+		Random random = new Random(1);
+		double[] independent = new double[1000];
+		double[] dependent = new double[independent.length];
+		double t = 0;
+		for(int i = 0; i < independent.length; i++) {
+			t += random.nextDouble() * .5;
+			independent[i] = t;
+			dependent[i] = random.nextInt(20) == 0 ? Double.NaN : random.nextGaussian();
+		}
+		double[] x = independentDimension == XYDimension.X ? independent : dependent;
+		double[] y = independentDimension == XYDimension.X ? dependent : independent;
+		for(int i = 0; i < x.length; i++) {
+			single.add(x[i], y[i]);
+		}
+		// Mix single and bulk additions, so batches continue the work in progress of the compressor
+		bulk.add(x[0], y[0]);
+		bulk.addAll(x, y, 1, 400);
+		bulk.add(x[401], y[401]);
+		bulk.addAll(x, y, 402, 0);
+		bulk.addAll(x, y, 402, x.length - 402);
+
+		assertEquals(single.getPointCount(), bulk.getPointCount());
+		for(int i = 0; i < single.getPointCount(); i++) {
+			assertEquals(single.getXData().get(i), bulk.getXData().get(i));
+			assertEquals(single.getYData().get(i), bulk.getYData().get(i));
+		}
+		assertEquals(single.getMinX(), bulk.getMinX());
+		assertEquals(single.getMaxX(), bulk.getMaxX());
+		assertEquals(single.getMinY(), bulk.getMinY());
+		assertEquals(single.getMaxY(), bulk.getMaxY());
+
+		try {
+			bulk.addAll(x, y, x.length - 1, 2);
+			fail("Should throw an exception");
+		} catch(IndexOutOfBoundsException e) {
+			// should happen
+		}
+	}
+
+
+	public void testAddAllMinMaxListeners() {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		final int[] count = new int[2];
+		dataset.addXMinMaxChangeListener(new MinMaxChangeListener() {
+			@Override
+			public void minMaxChanged(CompressingXYDataset dataset2, XYDimension dimension) {
+				count[0]++;
+			}
+		});
+		dataset.addYMinMaxChangeListener(new MinMaxChangeListener() {
+			@Override
+			public void minMaxChanged(CompressingXYDataset dataset2, XYDimension dimension) {
+				count[1]++;
+			}
+		});
+		dataset.addAll(new double[] { 0, 1, 2, 3 }, new double[] { 0, 5, -5, 1 }, 0, 4);
+		assertEquals(1, count[0]);
+		assertEquals(1, count[1]);
+		assertEquals(3.0, dataset.getMaxX());
+		assertEquals(-5.0, dataset.getMinY());
+	}
+
+
 	public void testProperties() throws InvocationTargetException, IllegalAccessException, IntrospectionException {
 		CompressingXYDataset dataset = createDataset(XYDimension.X);
 		PropertyTester t = new PropertyTester(dataset);
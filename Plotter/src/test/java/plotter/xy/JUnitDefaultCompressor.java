@@ -22,6 +22,7 @@
 package plotter.xy;
 
 import junit.framework.TestCase;
+import plotter.AllocationCounter;
 import plotter.DoubleData;
 import plotter.xy.Compressor.StreamingCompressor;
 
@@ -477,6 +478,46 @@ public class JUnitDefaultCompressor extends TestCase {
 	}
 
 
+	public void testStreamingDoesNotAllocate() {
+		// Only counts the points, so that the compressor is the only thing that could allocate
+		CompressionOutput out = new CompressionOutput() {
+			private int count;
+
+			@Override
+			public void add(double x, double y) {
+				count++;
+			}
+
+
+			@Override
+			public int getPointCount() {
+				return count;
+			}
+
+
+			@Override
+			public void removeLast(int count) {
+				this.count -= count;
+			}
+		};
+		StreamingCompressor s = compressor.createStreamingCompressor(out, 0, 1);
+		// Gaps in each bucket give it several Y ranges
+		double[] ys = { 0, 1, Double.NaN, 5, 6, Double.NaN, 3, 2, Double.NaN, 9 };
+		for(int i = 0; i < 10000; i++) {
+			s.add(i * .1, ys[i % ys.length] + i % 7);
+		}
+		AllocationCounter counter = new AllocationCounter();
+		if(!counter.isSupported()) {
+			return;
+		}
+		for(int i = 10000; i < 1000000; i++) {
+			s.add(i * .1, ys[i % ys.length] + i % 7);
+		}
+		// Allows for the counter itself, but not for an allocation per bucket
+		assertTrue("Allocated " + counter.getCount() + " bytes", counter.getCount() < 10000);
+	}
+
+
 	public void testFlatLine() {
 		in(.51, 3);
 		in(.52, 3);
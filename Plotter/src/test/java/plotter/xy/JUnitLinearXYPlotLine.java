@@ -28,12 +28,14 @@ import java.awt.image.BufferedImage;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
 import junit.framework.TestCase;
 import plotter.CountingGraphics;
+import plotter.DoubleData;
 import plotter.LineChecker;
 import plotter.xy.LinearXYPlotLine.LineMode;
 
@@ -467,6 +469,62 @@ public class JUnitLinearXYPlotLine extends TestCase {
 	}
 
 
+	public void testPaintDensePoints() {
+		XYAxis xAxis = plot.getXAxis();
+		XYAxis yAxis = plot.getYAxis();
+		xAxis.setSize(200, 1);
+		yAxis.setSize(1, 200);
+		int points = 20000;
+		List<LinearXYPlotLine> lines = new ArrayList<LinearXYPlotLine>();
+		Random random = new Random(0);
+		for(LineMode mode : LineMode.values()) {
+			LinearXYPlotLine l = new LinearXYPlotLine(xAxis, yAxis, XYDimension.X);
+			l.setLineMode(mode);
+			line.getParent().add(l);
+			l.setSize(200, 200);
+			DoubleData x = l.getXData();
+			DoubleData y = l.getYData();
+			for(int j = 0; j < points; j++) {
+				x.add(j / (double) points);
+				y.add(random.nextDouble());
+			}
+			lines.add(l);
+		}
+
+		BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D imageG = image.createGraphics();
+		try {
+			// Points on the same pixel column are merged, so the vertex count depends on the width, not the number of points
+			CountingGraphics full = new CountingGraphics(imageG);
+			paintAll(lines, full, new Rectangle(0, 0, 200, 200));
+			assertTrue(full.getPointCount() > 0);
+			assertTrue(full.getPointCount() < lines.size() * 200 * 5);
+
+			// Painting a narrow clip only paints the points inside it
+			CountingGraphics narrow = new CountingGraphics(imageG);
+			paintAll(lines, narrow, new Rectangle(90, 0, 20, 200));
+			assertTrue(narrow.getPointCount() > 0);
+			assertTrue(narrow.getPointCount() < full.getPointCount() / 4);
+		} finally {
+			imageG.dispose();
+		}
+	}
+
+
+	// Paints the lines with the clip.
+	private void paintAll(List<LinearXYPlotLine> lines, Graphics2D g, Rectangle clip) {
+		for(LinearXYPlotLine l : lines) {
+			Graphics2D g2 = (Graphics2D) g.create();
+			try {
+				g2.setClip(clip);
+				l.paint(g2);
+			} finally {
+				g2.dispose();
+			}
+		}
+	}
+
+
 	private CountingGraphics paint() throws InterruptedException, InvocationTargetException {
 		return paint(null);
 	}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter.xy;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class JUnitMinMaxPyramid extends TestCase {
+	public void testLevels() {
+		MinMaxPyramid p = new MinMaxPyramid(0, 1, 3);
+		for(int i = 0; i < 16; i++) {
+			p.add(i + .5, i % 4);
+		}
+		assertEquals(3, p.getLevelCount());
+		assertEquals(16, p.getBucketCount(0));
+		assertEquals(8, p.getBucketCount(1));
+		assertEquals(4, p.getBucketCount(2));
+
+		// Level 2 has buckets of width 4, each holding 0, 1, 2, 3
+		PointData out = new PointData();
+		p.getPoints(0, 7.5, 4, out);
+		check(out, new double[] { 0, 0, 4, 4 }, new double[] { 0, 3, 0, 3 });
+	}
+
+
+	public void testFinerThanBaseScale() {
+		MinMaxPyramid p = new MinMaxPyramid(0, 1, 3);
+		p.add(.25, 1);
+		p.add(.75, 2);
+		PointData out = new PointData();
+		p.getPoints(0, 1, .5, out);
+		check(out, new double[] { 0, 0 }, new double[] { 1, 2 });
+	}
+
+
+	public void testRange() {
+		MinMaxPyramid p = new MinMaxPyramid(0, 1, 1);
+		for(int i = 0; i < 10; i++) {
+			p.add(i, i);
+		}
+		PointData out = new PointData();
+		p.getPoints(2.5, 4.5, 1, out);
+		check(out, new double[] { 2, 3, 4 }, new double[] { 2, 3, 4 });
+	}
+
+
+	public void testGapAtBucketEdges() {
+		MinMaxPyramid p = new MinMaxPyramid(0, 1, 2);
+		p.add(.1, 1);
+		p.add(.5, Double.NaN);
+		p.add(1.1, Double.NaN);
+		p.add(1.5, 2);
+		p.add(2.5, Double.NaN);
+		PointData out = new PointData();
+		p.getPoints(0, 3, 1, out);
+		check(out, new double[] { 0, 0, 1, 1, 2 }, new double[] { 1, Double.NaN, Double.NaN, 2, Double.NaN });
+	}
+
+
+	public void testMatchesCompressor() {
+		Random random = new Random(0);
+		PointData raw = new PointData();
+		MinMaxPyramid p = new MinMaxPyramid(0, .5, 8);
+		double x = 0;
+		double y = 0;
+		for(int i = 0; i < 10000; i++) {
+			x += random.nextDouble() * .2;
+			y += random.nextGaussian();
+			raw.add(x, y);
+			p.add(x, y);
+		}
+		DefaultCompressor compressor = new DefaultCompressor();
+		for(double scale = .5; scale < 1000; scale *= 2) {
+			PointData expected = new PointData();
+			compressor.compress(raw, expected, 0, scale);
+			PointData points = new PointData();
+			p.getPoints(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, scale, points);
+			PointData actual = new PointData();
+			compressor.compress(points, actual, 0, scale);
+			check(actual, expected);
+		}
+	}
+
+
+	public void testPrepend() {
+		Random random = new Random(0);
+		double[] x = new double[1000];
+		double[] y = new double[x.length];
+		for(int i = 0; i < x.length; i++) {
+			x[i] = i * .3;
+			y[i] = random.nextGaussian();
+		}
+		MinMaxPyramid appended = new MinMaxPyramid(0, 1, 4);
+		for(int i = 0; i < x.length; i++) {
+			appended.add(x[i], y[i]);
+		}
+		// Split inside a bucket, so the shared bucket has to be merged
+		MinMaxPyramid prepended = new MinMaxPyramid(0, 1, 4);
+		for(int i = 501; i < x.length; i++) {
+			prepended.add(x[i], y[i]);
+		}
+		prepended.prepend(x, 0, y, 0, 501);
+		for(int level = 0; level < 4; level++) {
+			assertEquals(appended.getBucketCount(level), prepended.getBucketCount(level));
+			double scale = Math.pow(2, level);
+			PointData expected = new PointData();
+			appended.getPoints(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, scale, expected);
+			PointData actual = new PointData();
+			prepended.getPoints(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, scale, actual);
+			check(actual, expected);
+		}
+	}
+
+
+	public void testRemoveBefore() {
+		MinMaxPyramid p = new MinMaxPyramid(0, 1, 3);
+		for(int i = 0; i < 16; i++) {
+			p.add(i, i);
+		}
+		p.removeBefore(5.5);
+		assertEquals(11, p.getBucketCount(0));
+		assertEquals(6, p.getBucketCount(1));
+		assertEquals(3, p.getBucketCount(2));
+		p.clear();
+		assertEquals(0, p.getBucketCount(0));
+		assertEquals(0, p.getBucketCount(2));
+	}
+
+
+	public void testInvalidArguments() {
+		try {
+			new MinMaxPyramid(0, 0, 3);
+			fail("Should have thrown an exception");
+		} catch(IllegalArgumentException e) {
+			// should happen
+		}
+		try {
+			new MinMaxPyramid(0, 1, 0);
+			fail("Should have thrown an exception");
+		} catch(IllegalArgumentException e) {
+			// should happen
+		}
+	}
+
+
+	private void check(PointData actual, double[] x, double[] y) {
+		PointData expected = new PointData();
+		expected.getX().add(x, 0, x.length);
+		expected.getY().add(y, 0, y.length);
+		check(actual, expected);
+	}
+
+
+	private void check(PointData actual, PointData expected) {
+		int n = expected.getX().getLength();
+		assertEquals(n, actual.getX().getLength());
+		for(int i = 0; i < n; i++) {
+			assertEquals(expected.getX().get(i), actual.getX().get(i));
+			assertEquals(expected.getY().get(i), actual.getY().get(i));
+		}
+	}
+}
@@ -32,6 +32,7 @@ public class JUnitXY extends TestSuite {
 		suite.addTestSuite(JUnitLinearXYAxis.class);
 		suite.addTestSuite(JUnitLinearXYPlotLine.class);
 		suite.addTestSuite(JUnitLinearXYPlotLineYIndependent.class);
+		suite.addTestSuite(JUnitMinMaxPyramid.class);
 		suite.addTestSuite(JUnitScatterXYPlotLine.class);
 		suite.addTestSuite(JUnitSimpleXYDataset.class);
 		suite.addTestSuite(JUnitSlopeLine.class);
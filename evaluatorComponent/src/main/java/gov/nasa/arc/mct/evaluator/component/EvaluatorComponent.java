@@ -29,6 +29,8 @@ import gov.nasa.arc.mct.evaluator.api.Evaluator;
 import gov.nasa.arc.mct.evaluator.api.Executor;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
@@ -42,12 +44,105 @@ import org.slf4j.LoggerFactory;
  */
 public class EvaluatorComponent extends AbstractComponent {
 	private final AtomicReference<EvaluatorModelRole> model = new AtomicReference<EvaluatorModelRole>(new EvaluatorModelRole());
+	private final AtomicReference<CompiledExecutor> executor = new AtomicReference<CompiledExecutor>();
+	
+	/** 
+	 * Latest evaluation of each set of inputs, keyed by the subscription ids of the inputs. Views showing the 
+	 * same evaluator get the result computed by the first one until an input delivers a new sample. Guarded by itself.
+	 */
+	private final Map<List<String>, Evaluation> evaluations = new HashMap<List<String>, Evaluation>();
+	private Executor evaluationExecutor;
 	
 	
 	public EvaluatorModelRole getModel() {
 		return model.get();
 	}
 	
+	/**
+	 * Returns the executor compiled from the current code. The executor is compiled once and shared by all 
+	 * <code>Evaluator</code> capabilities of this component; it is only compiled again after the language or code 
+	 * is edited. 
+	 * @return the compiled executor, or null if no provider is registered for the language
+	 */
+	public Executor getExecutor() {
+		EvaluatorData data = getData();
+		String language = data.getLanguage();
+		String code = data.getCode();
+		CompiledExecutor compiled = executor.get();
+		if (compiled != null && compiled.isCompiledFrom(language, code)) {
+			if (compiled.language != language || compiled.code != code) {
+				// same text in new strings, remember these so the next check is by reference
+				executor.compareAndSet(compiled, new CompiledExecutor(language, code, compiled.executor));
+			}
+			return compiled.executor;
+		}
+		
+		Executor e = EvaluatorProviderRegistry.getExecutor(language, code);
+		if (e != null) {
+			// not caching a missing executor, the provider may be registered later
+			executor.set(new CompiledExecutor(language, code, e));
+		}
+		return e;
+	}
+	
+	/**
+	 * Evaluates the inputs, reusing the result of an earlier evaluation of the same samples. Samples are 
+	 * identified by the time of the last sample of each input, so each evaluator evaluates them once no matter 
+	 * how many views show it. Only the latest evaluation of each set of inputs is kept, and the cached results 
+	 * are dropped when the executor changes.
+	 * @param e the compiled executor
+	 * @param data the feed data to evaluate
+	 * @param providers the inputs
+	 * @return the evaluated rendering info, not shared with other callers
+	 */
+	private FeedProvider.RenderingInfo evaluate(Executor e, Map<String, List<Map<String, String>>> data, List<FeedProvider> providers) {
+		int n = providers.size();
+		List<String> feedIds = new ArrayList<String>(n);
+		List<String> times = new ArrayList<String>(n);
+		for (int i = 0; i < n; i++) {
+			String feedId = providers.get(i).getSubscriptionId();
+			List<Map<String, String>> samples = data.get(feedId);
+			String time = samples == null || samples.isEmpty() ? null : samples.get(samples.size() - 1).get(FeedProvider.NORMALIZED_TIME_KEY);
+			if (time == null) {
+				// an evaluation without data is not reused, the data may arrive later
+				return e.evaluate(data, providers);
+			}
+			feedIds.add(feedId);
+			times.add(time);
+		}
+		if (n == 0) {
+			return e.evaluate(data, providers);
+		}
+		
+		Evaluation cached;
+		synchronized (evaluations) {
+			if (evaluationExecutor != e) {
+				evaluations.clear();
+				evaluationExecutor = e;
+			}
+			cached = evaluations.get(feedIds);
+		}
+		if (cached != null && cached.times.equals(times)) {
+			return copyOf(cached.renderingInfo);
+		}
+		FeedProvider.RenderingInfo ri = e.evaluate(data, providers);
+		if (ri != null) {
+			synchronized (evaluations) {
+				if (evaluationExecutor == e) {
+					evaluations.put(feedIds, new Evaluation(times, copyOf(ri)));
+				}
+			}
+		}
+		return ri;
+	}
+	
+	private static FeedProvider.RenderingInfo copyOf(FeedProvider.RenderingInfo ri) {
+		FeedProvider.RenderingInfo copy = new FeedProvider.RenderingInfo(ri.getValueText(), ri.getValueColor(), 
+				ri.getStatusText(), ri.getStatusColor(), ri.isValid());
+		copy.setPlottable(ri.isPlottable());
+		return copy;
+	}
+	
 	public EvaluatorData getData() {
 		return getModel().getData();
 	}
@@ -80,20 +175,10 @@ public class EvaluatorComponent extends AbstractComponent {
 				}
 
 				public boolean requiresMultipleInputs() {
-					return getExecutor() != null && getExecutor().requiresMultipleInputs();
-				}
-
-				private Executor getExecutor() {
-					Executor e = executor.get();
-					if (e == null) {
-						executor.set(e = EvaluatorProviderRegistry.getExecutor(EvaluatorComponent.this));
-					}
-					
-					return e;
+					Executor e = getExecutor();
+					return e != null && e.requiresMultipleInputs();
 				}
 				
-				private final AtomicReference<Executor> executor = new AtomicReference<Executor>();
-				
 				@Override
 				public FeedProvider.RenderingInfo evaluate(
 						Map<String, List<Map<String, String>>> data,
@@ -102,7 +187,7 @@ public class EvaluatorComponent extends AbstractComponent {
 					
 					FeedProvider.RenderingInfo ri;
 					if (e != null) {
-						ri = e.evaluate(data, providers);
+						ri = EvaluatorComponent.this.evaluate(e, data, providers);
 					} else {
 						LoggerFactory.getLogger(EvaluatorComponent.class).error("no evaluator provider available for " + getLanguage());
 						ri = new FeedProvider.RenderingInfo("", Color.red, "", Color.red,false);
@@ -140,4 +225,40 @@ public class EvaluatorComponent extends AbstractComponent {
 		
 		return super.handleGetCapability(capability);
 	}
+	
+	/**
+	 * Result of evaluating the samples with the given last sample times.
+	 */
+	private static final class Evaluation {
+		private final List<String> times;
+		private final FeedProvider.RenderingInfo renderingInfo;
+		
+		public Evaluation(List<String> times, FeedProvider.RenderingInfo renderingInfo) {
+			this.times = times;
+			this.renderingInfo = renderingInfo;
+		}
+	}
+	
+	/**
+	 * Executor together with the language and code it was compiled from.
+	 */
+	private static final class CompiledExecutor {
+		private final String language;
+		private final String code;
+		private final Executor executor;
+		
+		public CompiledExecutor(String language, String code, Executor executor) {
+			this.language = language;
+			this.code = code;
+			this.executor = executor;
+		}
+		
+		public boolean isCompiledFrom(String language, String code) {
+			return equals(this.language, language) && equals(this.code, code);
+		}
+		
+		private static boolean equals(String s1, String s2) {
+			return s1 == s2 || (s1 != null && s1.equals(s2));
+		}
+	}
 }
@@ -49,12 +49,21 @@ public class EvaluatorProviderRegistry {
 	
 	public static Executor getExecutor(EvaluatorComponent component) {
 		EvaluatorData data = component.getData();
-		String language = data.getLanguage();
+		return getExecutor(data.getLanguage(), data.getCode());
+	}
+	
+	/**
+	 * Compiles code with the provider registered for the language. Compiled executors are cached by 
+	 * {@link EvaluatorComponent#getExecutor()}, so this is only called when an evaluator is edited.
+	 * @param language of the code
+	 * @param code to compile
+	 * @return the compiled executor, or null if no provider is registered for the language
+	 */
+	public static Executor getExecutor(String language, String code) {
 		Executor executor = null;
-		// cache here if necessary
 		for (EvaluatorProvider provider : registry) {
 			if (provider.getLanguage().equals(language)) {
-				executor = provider.compile(data.getCode());
+				executor = provider.compile(code);
 				break;
 			}
 		}
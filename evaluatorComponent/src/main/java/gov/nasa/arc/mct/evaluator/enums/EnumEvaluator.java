@@ -22,6 +22,7 @@
 package gov.nasa.arc.mct.evaluator.enums;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -46,21 +47,23 @@ public class EnumEvaluator  implements EvaluatorProvider {
 	
 	/** Enum expression pattern. */
 	public static final Pattern enumExpression = Pattern.compile(ruleMatcher);
-	private List<EnumExpression> expressions;
+	private volatile EnumPlan plan = new EnumPlan(new ArrayList<String>(), new ArrayList<String>(), new ArrayList<String>());
 	
 	@Override
 	public Executor compile(String code) {
 		Matcher m = enumExpression.matcher(code);
-		expressions = new ArrayList<EnumExpression>();
+		List<String> relations = new ArrayList<String>();
+		List<String> values = new ArrayList<String>();
+		List<String> displays = new ArrayList<String>();
 		while (m.find()){
 			assert m.groupCount() == 3 : "only three matching groups should be discovered: found " + m.groupCount();
-			String relation = m.group(1);
-			String value = m.group(2);
-			String display = m.group(3);
-			expressions.add(new EnumExpression(relation, value, display));
-			
+			relations.add(m.group(1));
+			values.add(m.group(2));
+			displays.add(m.group(3));
 		}
-		return new EnumExecutor(expressions);
+		EnumPlan compiled = new EnumPlan(relations, values, displays);
+		plan = compiled;
+		return new EnumExecutor(compiled);
 	}
 	
 	/** 
@@ -71,12 +74,9 @@ public class EnumEvaluator  implements EvaluatorProvider {
 	public String evaluate(String val) {
 		if (val != null) {
 			try {
-				double value = Double.parseDouble(val);
-				for (EnumExpression expression : expressions) {
-					String expressionValue = expression.execute(value);
-					if (expressionValue != null){ 
-						return expressionValue;
-					}
+				String expressionValue = plan.evaluate(Double.parseDouble(val));
+				if (expressionValue != null) {
+					return expressionValue;
 				}
 			} catch (NumberFormatException nfe) {
 				
@@ -90,97 +90,163 @@ public class EnumEvaluator  implements EvaluatorProvider {
 		return LANGUAGE_STRING;
 	}
 	
-	private static class EnumExpression {
-		private final String display;
-		private final double value;
+	/**
+	 * Immutable evaluation plan of an enumeration. The distinct rule values are sorted into thresholds which split 
+	 * the number line into regions: each threshold itself and the open interval between neighbouring thresholds. 
+	 * Every rule either matches all values of a region or none of them, so the display of the first matching rule 
+	 * is resolved per region at compile time and evaluation is a binary search over the thresholds.
+	 */
+	private static final class EnumPlan {
+		private static final byte EQUALS = 0;
+		private static final byte LESS_THAN = 1;
+		private static final byte GREATER_THAN = 2;
+		private static final byte NOT_EQUALS = 3;
 		
-		enum Operator {
-			EQUALS {
-				@Override
-				public boolean matches(String operator) {
-					return "=".equals(operator);
-				}
-				
-				@Override
-				public String evaluate(double lhs, double rhs, String output) {
-					return lhs == rhs ? output : null;
-				}
-			},
-			LESS_THAN {
-				@Override
-				public boolean matches(String operator) {
-					return "<".equals(operator);
-				}
-				
-				@Override
-				public String evaluate(double lhs, double rhs, String output) {
-					return lhs < rhs ? output : null;
-				}
-			},
-			GREATER_THAN {
-				@Override
-				public boolean matches(String operator) {
-					return ">".equals(operator);
-				}
-				
-				@Override
-				public String evaluate(double lhs, double rhs, String output) {
-					return lhs > rhs ? output : null;
-				}
-			},
-			NOT_EQUALS {
-				@Override 
-				public boolean matches(String operator) {
-					return EnumEvaluator.NOT_EQUALS.equals(operator);
+		/** Distinct rule values in increasing order. */
+		private final double[] thresholds;
+		
+		/** 
+		 * Display of the first matching rule for each region, null if no rule matches. Region 2i+1 is threshold i, 
+		 * region 2i is the interval below it and the last region is the interval above the last threshold.
+		 */
+		private final String[] regionDisplays;
+		
+		/** Display of the first matching rule for NaN, which only matches not equals. */
+		private final String nanDisplay;
+		
+		/**
+		 * Resolves the rules.
+		 * @param relations the operator of each rule.
+		 * @param values the value of each rule.
+		 * @param displays the display text of each rule.
+		 */
+		public EnumPlan(List<String> relations, List<String> values, List<String> displays) {
+			int n = relations.size();
+			byte[] operators = new byte[n];
+			double[] ruleValues = new double[n];
+			for (int i = 0; i < n; i++) {
+				operators[i] = toOperator(relations.get(i));
+				ruleValues[i] = Double.parseDouble(values.get(i));
+			}
+			
+			double[] sorted = ruleValues.clone();
+			Arrays.sort(sorted);
+			int k = 0;
+			for (int i = 0; i < n; i++) {
+				// -0.0 and 0.0 compare equal, so they are one threshold
+				if (k == 0 || sorted[i] != sorted[k - 1]) {
+					sorted[k++] = sorted[i];
 				}
-				
-				@Override
-				public String evaluate (double lhs, double rhs, String output) {
-					return lhs != rhs ? output : null;
+			}
+			thresholds = Arrays.copyOf(sorted, k);
+			
+			// a rule compares the region of a value with the region of the rule's threshold
+			int[] ruleRegions = new int[n];
+			for (int i = 0; i < n; i++) {
+				ruleRegions[i] = findRegion(ruleValues[i]);
+			}
+			regionDisplays = new String[2 * k + 1];
+			for (int region = 0; region < regionDisplays.length; region++) {
+				for (int i = 0; i < n; i++) {
+					if (matches(operators[i], region, ruleRegions[i])) {
+						regionDisplays[region] = displays.get(i);
+						break;
+					}
 				}
-			};
+			}
 			
-			public abstract boolean matches(String operator);
-			public abstract String evaluate(double lhs, double rhs, String output);
+			String nan = null;
+			for (int i = 0; i < n; i++) {
+				if (operators[i] == NOT_EQUALS) {
+					nan = displays.get(i);
+					break;
+				}
+			}
+			nanDisplay = nan;
+		}
+		
+		private static byte toOperator(String relation) {
+			if ("=".equals(relation)) {
+				return EQUALS;
+			} else if ("<".equals(relation)) {
+				return LESS_THAN;
+			} else if (">".equals(relation)) {
+				return GREATER_THAN;
+			} else if (EnumEvaluator.NOT_EQUALS.equals(relation)) {
+				return NOT_EQUALS;
+			}
+			throw new IllegalArgumentException("unknown operator " + relation);
+		}
+		
+		private static boolean matches(byte operator, int region, int ruleRegion) {
+			switch (operator) {
+			case EQUALS:
+				return region == ruleRegion;
+			case LESS_THAN:
+				return region < ruleRegion;
+			case GREATER_THAN:
+				return region > ruleRegion;
+			default:
+				return region != ruleRegion;
+			}
 		}
-		private final Operator operator;
 		
 		/**
-		 * Enum expression contructor.
-		 * @param op the operation performed.
+		 * Finds the region of a value which is not NaN.
 		 * @param value the value.
-		 * @param display the display name.
+		 * @return the region index.
 		 */
-		public EnumExpression (String op, String value, String display) {
-			this.value = Double.parseDouble(value);
-			this.display = display;
-			
-			Operator localOperator = null;
-			for (Operator o:Operator.values()) {
-				if (o.matches(op)) {
-					localOperator = o;
-					break;
+		private int findRegion(double value) {
+			int low = 0;
+			int high = thresholds.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				double threshold = thresholds[mid];
+				if (value < threshold) {
+					high = mid - 1;
+				} else if (value > threshold) {
+					low = mid + 1;
+				} else {
+					return 2 * mid + 1;
 				}
 			}
-			operator = localOperator;
-			assert operator != null : "operator must not be null" ;
+			return 2 * low;
 		}
 		
 		/**
-		 * Executes the value.
-		 * @param aValue the value.
-		 * @return the execute string.
+		 * Finds the first rule matching the value.
+		 * @param value the value.
+		 * @return the display text of the first matching rule, or null if no rule matches.
 		 */
-		public String execute(double aValue) {
-			return operator.evaluate(aValue, value, display);
+		public String evaluate(double value) {
+			if (value != value) {
+				return nanDisplay;
+			}
+			return regionDisplays[findRegion(value)];
+		}
+	}
+	
+	/**
+	 * Last value text seen by an executor and the display text it evaluated to.
+	 */
+	private static final class LastValue {
+		private final String valueText;
+		private final String display;
+		
+		public LastValue(String valueText, String display) {
+			this.valueText = valueText;
+			this.display = display;
 		}
 	}
 	
 	private static class EnumExecutor implements Executor {
-		private final List <EnumExpression> expressions;
+		private final EnumPlan plan;
+		
+		/** Feeds usually repeat their value across cycles, so the parse and rule walk of the last value is remembered. */
+		private volatile LastValue lastValue = new LastValue(null, null);
 		
-		public EnumExecutor(List<EnumExpression> expressionList) {
-			expressions = expressionList;
+		public EnumExecutor(EnumPlan plan) {
+			this.plan = plan;
 		}
 		
 		private FeedProvider.RenderingInfo getValueFromFeed(List<FeedProvider> providers, Map<String, List<Map<String, String>>> data) {
@@ -210,23 +276,26 @@ public class EnumEvaluator  implements EvaluatorProvider {
 			FeedProvider.RenderingInfo feedValue = getValueFromFeed(feedProviders,data);
 			
 			if (feedValue != null) {
-				try {
-					double value = Double.parseDouble(feedValue.getValueText());
-					for (EnumExpression expression : expressions) {
-						String expressionValue = expression.execute(value);
-						if (expressionValue != null) {
-							return new FeedProvider.RenderingInfo(
-									expressionValue, feedValue.getValueColor(), feedValue.getStatusText(), feedValue.getStatusColor(), feedValue.isValid()
-									);
-						}
+				String valueText = feedValue.getValueText();
+				LastValue last = lastValue;
+				String expressionValue;
+				if (valueText != null && valueText.equals(last.valueText)) {
+					expressionValue = last.display;
+				} else {
+					try {
+						expressionValue = plan.evaluate(Double.parseDouble(valueText));
+					} catch (NumberFormatException nfe) {
+						expressionValue = null;
 					}
-				} catch (NumberFormatException nfe){
-						
+					lastValue = new LastValue(valueText, expressionValue);
+				}
+				if (expressionValue != null) {
+					return new FeedProvider.RenderingInfo(
+							expressionValue, feedValue.getValueColor(), feedValue.getStatusText(), feedValue.getStatusColor(), feedValue.isValid()
+							);
 				}
 			}			
 			return feedValue;
 		}
 	}
 }
-	
-
@@ -27,7 +27,9 @@ import gov.nasa.arc.mct.evaluator.api.Executor;
 import gov.nasa.arc.mct.evaluator.spi.EvaluatorProvider;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -92,4 +94,108 @@ public class TestEvaluatorComponent {
 		
 		Assert.assertSame(expectedRenderingInfo, e.evaluate(Collections.<String,List<Map<String,String>>>emptyMap(), Collections.<FeedProvider>emptyList()));
 	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testExecutorCompiledOnlyOnEdit() {
+		EvaluatorComponent ec = new EvaluatorComponent();
+		final String language = "test/cached";
+		ec.getData().setLanguage(language);
+		ec.getData().setCode("first");
+		
+		EvaluatorProvider ep = Mockito.mock(EvaluatorProvider.class);
+		Executor executor = Mockito.mock(Executor.class);
+		Mockito.when(ep.getLanguage()).thenReturn(language);
+		Mockito.when(ep.compile(Mockito.anyString())).thenReturn(executor);
+		EvaluatorProviderRegistry registry = new EvaluatorProviderRegistry();
+		registry.addProvider(ep);
+		try {
+			// capabilities are fetched again on every update, they must share the compiled executor
+			for (int i = 0; i < 10; i++) {
+				Evaluator e = ec.getCapability(Evaluator.class);
+				e.evaluate(Collections.<String,List<Map<String,String>>>emptyMap(), Collections.<FeedProvider>emptyList());
+				e.requiresMultipleInputs();
+			}
+			Mockito.verify(ep, Mockito.times(1)).compile("first");
+			
+			// the same text in a new string is not an edit
+			ec.getData().setCode(new String("first"));
+			Assert.assertSame(ec.getExecutor(), executor);
+			Mockito.verify(ep, Mockito.times(1)).compile(Mockito.anyString());
+			
+			ec.getData().setCode("second");
+			ec.getCapability(Evaluator.class).evaluate(Collections.<String,List<Map<String,String>>>emptyMap(), Collections.<FeedProvider>emptyList());
+			ec.getExecutor();
+			Mockito.verify(ep, Mockito.times(1)).compile("second");
+			Mockito.verify(ep, Mockito.times(2)).compile(Mockito.anyString());
+		} finally {
+			registry.removeProvider(ep);
+		}
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testEvaluationSharedInCycle() {
+		EvaluatorComponent ec = new EvaluatorComponent();
+		final String language = "test/shared";
+		ec.getData().setLanguage(language);
+		ec.getData().setCode("code");
+		
+		EvaluatorProvider ep = Mockito.mock(EvaluatorProvider.class);
+		Executor executor = Mockito.mock(Executor.class);
+		Mockito.when(ep.getLanguage()).thenReturn(language);
+		Mockito.when(ep.compile(Mockito.anyString())).thenReturn(executor);
+		Mockito.when(executor.evaluate(Mockito.anyMap(), Mockito.anyList())).thenReturn(
+				new FeedProvider.RenderingInfo("1", Color.black, "", Color.black, true),
+				new FeedProvider.RenderingInfo("2", Color.black, "", Color.black, true),
+				new FeedProvider.RenderingInfo("3", Color.black, "", Color.black, true),
+				new FeedProvider.RenderingInfo("4", Color.black, "", Color.black, true));
+		FeedProvider feed = Mockito.mock(FeedProvider.class);
+		Mockito.when(feed.getSubscriptionId()).thenReturn("feed");
+		FeedProvider other = Mockito.mock(FeedProvider.class);
+		Mockito.when(other.getSubscriptionId()).thenReturn("other");
+		EvaluatorProviderRegistry registry = new EvaluatorProviderRegistry();
+		registry.addProvider(ep);
+		try {
+			Map<String, List<Map<String, String>>> cycle = new HashMap<String, List<Map<String, String>>>();
+			List<Map<String, String>> samples = new ArrayList<Map<String, String>>();
+			samples.add(Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "1"));
+			cycle.put("feed", samples);
+			cycle.put("other", Collections.singletonList(Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "1")));
+			
+			// views of the same evaluator share the evaluation of the same samples
+			Evaluator table = ec.getCapability(Evaluator.class);
+			Evaluator graphic = ec.getCapability(Evaluator.class);
+			FeedProvider.RenderingInfo tableInfo = table.evaluate(cycle, Collections.singletonList(feed));
+			FeedProvider.RenderingInfo graphicInfo = graphic.evaluate(new HashMap<String, List<Map<String, String>>>(cycle), Collections.singletonList(feed));
+			Assert.assertEquals(tableInfo.getValueText(), "1");
+			Assert.assertEquals(graphicInfo.getValueText(), "1");
+			Assert.assertNotSame(graphicInfo, tableInfo);
+			Mockito.verify(executor, Mockito.times(1)).evaluate(Mockito.anyMap(), Mockito.anyList());
+			
+			// other inputs are evaluated separately
+			Assert.assertEquals(table.evaluate(cycle, Collections.singletonList(other)).getValueText(), "2");
+			Assert.assertEquals(graphic.evaluate(cycle, Collections.singletonList(feed)).getValueText(), "1");
+			Mockito.verify(executor, Mockito.times(2)).evaluate(Mockito.anyMap(), Mockito.anyList());
+			
+			// new samples in the same list are evaluated again
+			samples.set(0, Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "2"));
+			Assert.assertEquals(graphic.evaluate(cycle, Collections.singletonList(feed)).getValueText(), "3");
+			Assert.assertEquals(table.evaluate(cycle, Collections.singletonList(feed)).getValueText(), "3");
+			Mockito.verify(executor, Mockito.times(3)).evaluate(Mockito.anyMap(), Mockito.anyList());
+			
+			// only the latest evaluation of an input is kept
+			samples.set(0, Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "1"));
+			Assert.assertEquals(table.evaluate(cycle, Collections.singletonList(feed)).getValueText(), "4");
+			Mockito.verify(executor, Mockito.times(4)).evaluate(Mockito.anyMap(), Mockito.anyList());
+			
+			// evaluations without data are not reused
+			cycle.remove("feed");
+			table.evaluate(cycle, Collections.singletonList(feed));
+			table.evaluate(cycle, Collections.singletonList(feed));
+			Mockito.verify(executor, Mockito.times(6)).evaluate(Mockito.anyMap(), Mockito.anyList());
+		} finally {
+			registry.removeProvider(ep);
+		}
+	}
 }
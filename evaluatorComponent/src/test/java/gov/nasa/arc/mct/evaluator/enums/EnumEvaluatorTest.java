@@ -25,9 +25,12 @@ import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.evaluator.api.Executor;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
 
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -54,6 +57,24 @@ public class EnumEvaluatorTest {
 			},
 			new Object[] {
 					"< -3.3 low\t|> -3.3 normal\t|", "3", "normal"
+			},
+			new Object[] {
+					"< -3.3 low\t|> -3.3 normal\t|", "-3.3", "-3.3"
+			},
+			new Object[] {
+					"> 10 high\t|< 10 low\t|= 7 seven\t|", "7", "low"
+			},
+			new Object[] {
+					"= 0 zero\t|", "-0", "zero"
+			},
+			new Object[] {
+					"= 1 one\t|\u2260 1 other\t|", "NaN", "other"
+			},
+			new Object[] {
+					"< 1 low\t|> 1 high\t|", "NaN", "NaN"
+			},
+			new Object[] {
+					"", "2", "2"
 			}
 		};
 	}
@@ -73,5 +94,126 @@ public class EnumEvaluatorTest {
 		FeedProvider.RenderingInfo info = e.evaluate(dataSet, Collections.singletonList(fp));
 		Assert.assertTrue(info.isValid());
 		Assert.assertEquals(info.getValueText(), expectedValue);
+		Assert.assertEquals(enumEvaluator.evaluate(inputValue), expectedValue);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRepeatedValues() {
+		Executor e = new EnumEvaluator().compile("< 0 low\t|= 0 zero\t|> 0 high\t|");
+		FeedProvider fp = Mockito.mock(FeedProvider.class);
+		Mockito.when(fp.getSubscriptionId()).thenReturn("abc");
+		Map<String, List<Map<String, String>>> dataSet = Collections.singletonMap("abc", 
+				Collections.singletonList(Collections.<String, String>emptyMap()));
+		
+		FeedProvider.RenderingInfo low = new FeedProvider.RenderingInfo("-1", Color.red, "x", Color.red, true);
+		FeedProvider.RenderingInfo lowAgain = new FeedProvider.RenderingInfo("-1", Color.green, "y", Color.blue, false);
+		FeedProvider.RenderingInfo text = new FeedProvider.RenderingInfo("abc", Color.red, "x", Color.red, true);
+		FeedProvider.RenderingInfo zero = new FeedProvider.RenderingInfo("0", Color.red, "x", Color.red, true);
+		Mockito.when(fp.getRenderingInfo(Mockito.anyMap())).thenReturn(low, lowAgain, text, text, zero);
+		
+		Assert.assertEquals(e.evaluate(dataSet, Collections.singletonList(fp)).getValueText(), "low");
+		// a repeated value keeps the color, status and validity of the new sample
+		FeedProvider.RenderingInfo info = e.evaluate(dataSet, Collections.singletonList(fp));
+		Assert.assertEquals(info.getValueText(), "low");
+		Assert.assertEquals(info.getValueColor(), Color.green);
+		Assert.assertEquals(info.getStatusText(), "y");
+		Assert.assertEquals(info.getStatusColor(), Color.blue);
+		Assert.assertFalse(info.isValid());
+		// values which are not numbers are passed through
+		Assert.assertSame(e.evaluate(dataSet, Collections.singletonList(fp)), text);
+		Assert.assertSame(e.evaluate(dataSet, Collections.singletonList(fp)), text);
+		Assert.assertEquals(e.evaluate(dataSet, Collections.singletonList(fp)).getValueText(), "zero");
+	}
+	
+	@Test
+	public void indexedLookupMatchesLinearScanTest() {
+		Random random = new Random(23);
+		
+		// discrete states with a range at each end
+		StringBuilder states = new StringBuilder("< 0 negative\t|");
+		for (int i = 0; i < 498; i++) {
+			states.append("= ").append(i).append(" state").append(i).append("\t|");
+		}
+		states.append("> 497 overflow\t|");
+		
+		// overlapping rules in any order
+		StringBuilder mixed = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			int op = random.nextInt(50);
+			String relation = op < 30 ? "=" : op < 39 ? "<" : op < 48 ? ">" : EnumEvaluator.NOT_EQUALS;
+			mixed.append(relation).append(' ').append((random.nextInt(1200) - 600) / 2.0).append(" rule").append(i).append("\t|");
+			if (i % 100 == 0) {
+				// rules with unknown operators are not rules
+				mixed.append("\u2265 ").append(i).append(" unknown").append(i).append("\t|");
+			}
+		}
+		
+		for (String code : new String[] { states.toString(), mixed.toString() }) {
+			EnumEvaluator enumEvaluator = new EnumEvaluator();
+			enumEvaluator.compile(code);
+			List<String> relations = new ArrayList<String>();
+			List<String> displays = new ArrayList<String>();
+			double[] values = parseRules(code, relations, displays);
+			Assert.assertEquals(values.length, 500);
+			
+			// every rule value, the values next to it and the values between rules
+			List<String> inputs = new ArrayList<String>();
+			for (int i = -1202; i <= 1202; i++) {
+				inputs.add(Double.toString(i / 4.0));
+			}
+			for (double value : values) {
+				inputs.add(Double.toString(Math.nextUp(value)));
+				inputs.add(Double.toString(-Math.nextUp(-value)));
+			}
+			Collections.addAll(inputs, "NaN", "-0.0", "0", "-0", "Infinity", "-Infinity", 
+					Double.toString(Double.MAX_VALUE), Double.toString(-Double.MAX_VALUE), "abc", "");
+			for (String input : inputs) {
+				Assert.assertEquals(enumEvaluator.evaluate(input), evaluateLinear(relations, values, displays, input), input);
+			}
+		}
+	}
+	
+	private double[] parseRules(String code, List<String> relations, List<String> displays) {
+		List<Double> values = new ArrayList<Double>();
+		Matcher m = EnumEvaluator.enumExpression.matcher(code);
+		while (m.find()) {
+			relations.add(m.group(1));
+			values.add(Double.parseDouble(m.group(2)));
+			displays.add(m.group(3));
+		}
+		double[] result = new double[values.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = values.get(i);
+		}
+		return result;
+	}
+	
+	/** First-match scan over the rules, the way enumerations were evaluated before they were indexed. */
+	private String evaluateLinear(List<String> relations, double[] values, List<String> displays, String val) {
+		double value;
+		try {
+			value = Double.parseDouble(val);
+		} catch (NumberFormatException e) {
+			return val;
+		}
+		for (int i = 0; i < values.length; i++) {
+			String relation = relations.get(i);
+			double rhs = values[i];
+			boolean matches;
+			if ("=".equals(relation)) {
+				matches = value == rhs;
+			} else if ("<".equals(relation)) {
+				matches = value < rhs;
+			} else if (">".equals(relation)) {
+				matches = value > rhs;
+			} else {
+				matches = value != rhs;
+			}
+			if (matches) {
+				return displays.get(i);
+			}
+		}
+		return val;
 	}
 }
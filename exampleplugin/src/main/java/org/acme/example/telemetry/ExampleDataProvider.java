@@ -31,7 +31,7 @@ import java.util.SortedMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
-import gov.nasa.arc.mct.api.feed.DataProvider;
+import gov.nasa.arc.mct.api.feed.ScopedDataProvider;
 import gov.nasa.arc.mct.gui.FeedView;
 
 /**
@@ -40,7 +40,7 @@ import gov.nasa.arc.mct.gui.FeedView;
  * safe as this may be accessed concurrently. 
  *
  */
-public class ExampleDataProvider implements DataProvider {
+public class ExampleDataProvider implements ScopedDataProvider {
 	private Map<String, TestDataFeed> feeds = new ConcurrentHashMap<String, TestDataFeed>();
 
 
@@ -67,6 +67,12 @@ public class ExampleDataProvider implements DataProvider {
 		return feedId.startsWith(TelemetryComponent.TelemetryPrefix);
 	}
 
+	@Override
+	public boolean canProvide(String feedID) {
+		// only the generated telemetry feeds, so other feeds are never requested from this provider
+		return canHandleFeed(feedID);
+	}
+
 	@Override
 	public LOS getLOS() {
 		// use the medium level of service if the data can be accessed relatively quickly (local storage)
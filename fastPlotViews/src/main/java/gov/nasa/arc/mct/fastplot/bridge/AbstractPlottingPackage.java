@@ -430,6 +430,13 @@ public interface AbstractPlottingPackage extends PlotSubject {
 	 */
 	public void addData(String feedID, SortedMap<Long, Double> points);
 
+	/**
+	 * Adds the data points per feed Id.
+	 * @param feedID feed identifier.
+	 * @param points the points, which are not modified.
+	 */
+	public void addData(String feedID, PlotDataPoints points);
+
 	/**
 	 * Adds the data per feed Id, timestamp and telemetry value.
 	 * @param feed - feed Id.
@@ -139,7 +139,7 @@ public class PanAndZoomManager {
 		}
 		plot.plotAbstraction.updateResetButtons();
 		plot.refreshDisplay();
-		if(timeChanged) {
+		if(timeChanged && !PlotDataManager.reloadFromLocalData(plot.plotAbstraction.getSubPlots())) {
 			plot.clearAllDataFromPlot();
 			plot.plotAbstraction.requestPlotData(plot.getCurrentTimeAxisMin(), plot.getCurrentTimeAxisMax());
 		}
@@ -149,6 +149,14 @@ public class PlotConstants {
     public static final boolean COMPRESSION_ENABLED_BY_DEFAULT = true;
     
     public static final int MAXIMUM_PLOT_DATA_BUFFER_SLIZE_REQUEST_SIZE = 12 * MILLISECONDS_IN_HOUR ;
+    
+    // Each data set keeps a min/max pyramid of the data it was given, so zooming and panning within the loaded span 
+    // does not go back to the MCT data buffer. The finest level of the pyramid is this many times finer than the
+    // compression scale at the time the data was loaded, which is how far the plot can zoom in locally. Data is
+    // requested from the MCT data buffer at the same resolution.
+    public static final int LOCAL_DATA_RESOLUTION_FACTOR = 4;
+    // Number of levels in the pyramid, each half the resolution of the previous one.
+    public static final int LOCAL_DATA_PYRAMID_LEVELS = 12;
 
     // Panning and zooming controls
     public static final double PANNING_NON_TIME_AXIS_PERCENTAGE = 25;
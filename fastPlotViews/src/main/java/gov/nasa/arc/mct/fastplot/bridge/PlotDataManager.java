@@ -30,19 +30,28 @@ import gov.nasa.arc.mct.fastplot.view.PlotSettingsControlPanel;
 import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
-import java.util.TreeMap;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import plotter.xy.CompressingXYDataset;
+import plotter.xy.MinMaxPyramid;
 import plotter.xy.XYPlotContents;
 
 /**
@@ -56,6 +65,11 @@ import plotter.xy.XYPlotContents;
 public class PlotDataManager {
 
 	private final static Logger logger = LoggerFactory.getLogger(PlotDataManager.class);
+	
+	private final static int RECOMPRESSION_WORKER_KEEP_ALIVE_SECONDS = 60;
+	
+	/** Compresses the lines redrawn from their local data, in parallel. */
+	private final static ExecutorService recompressionExecutor = createRecompressionExecutor();
 
 	/** Do we allow new values in data sets - should always be true. */
 	final static boolean DATA_SET_ENABLE_UPDATE_STATE = true;
@@ -91,6 +105,15 @@ public class PlotDataManager {
 	/** Flag to record if a buffer truncation event occurred on a scrunch plot.*/
 	boolean scrunchBufferTruncationOccured = false;
 	
+	/** Earliest time for which the data sets hold all of the data, as of the last request to the MCT data buffer. */
+	long localDataStart = Long.MAX_VALUE;
+	
+	/** Flag to record if the data sets hold all of the data from localDataStart on, so the plot can be redrawn from them. */
+	boolean localDataComplete = false;
+	
+	/** Recompressions of the data sets being redrawn from their local data, or null if no redraw is pending. */
+	private List<LocalRecompression> pendingRecompressions;
+	
 	/** Span of the plot data buffer. */
 	GregorianCalendar plotDataBufferStartTime;
 	GregorianCalendar plotDataBufferEndTime;
@@ -164,6 +187,15 @@ public class PlotDataManager {
 
 
 	public void addData(String feed, SortedMap<Long, Double> points) {
+		addData(feed, new PlotDataPoints(points));
+	}
+
+	/**
+	 * Add points to a data set. The points are not modified, so the same points can be added to several plots.
+	 * @param feed the data set
+	 * @param points to add
+	 */
+	public void addData(String feed, PlotDataPoints points) {
 		assert plot.plotView !=null : "Plot Object not initalized";
 		assert isKnownDataSet(feed) : "Data set " + feed + " not defined.";
 
@@ -173,48 +205,30 @@ public class PlotDataManager {
 
 		setupCompressionRatio();
 
+		// The points from "from" up to "to" are plotted
+		int from = 0;
+		int to = points.size();
+
 		// prevent plotting of data if it is not compatible with scrunch settings.
 		if(plot.timeAxisSubsequentSetting == TimeAxisSubsequentBoundsSetting.SCRUNCH) {
-			boolean needsFixing = false;
-			for(Long time : points.keySet()) {
-				if(time <= plot.timeVariableAxisMinValue) {
-					needsFixing = true;
-					break;
-				}
-			}
-			if(needsFixing) {
-				SortedMap<Long, Double> points2 = new TreeMap<Long, Double>();
-				for(Entry<Long, Double> point : points.entrySet()) {
-					if(point.getKey() > plot.timeVariableAxisMinValue) {
-						points2.put(point.getKey(), point.getValue());
-					}
-				}
-				points = points2;
+			int first = points.indexOfFirstAfter(plot.timeVariableAxisMinValue);
+			if(first > from) {
+				localDataComplete = false;
+				from = first;
 			}
 		}
 
 		// Don't plot points off the end if the time axis is pinned
 		if (plot.plotAbstraction.getTimeAxis().isPinned()) {
 			long max = plot.getCurrentTimeAxisMaxAsLong();
-			boolean needsFixing = false;
-			for(Long time : points.keySet()) {
-				if(time > max) {
-					needsFixing = true;
-					break;
-				}
-			}
-			if(needsFixing) {
-				SortedMap<Long, Double> points2 = new TreeMap<Long, Double>();
-				for(Entry<Long, Double> point : points.entrySet()) {
-					if(point.getKey() <= max) {
-						points2.put(point.getKey(), point.getValue());
-					}
-				}
-				points = points2;
+			int end = points.indexOfFirstAfter(max);
+			if(end < to) {
+				localDataComplete = false;
+				to = end;
 			}
 		}
 
-		if(points.isEmpty()) {
+		if(from >= to) {
 			return;
 		}
 
@@ -231,33 +245,10 @@ public class PlotDataManager {
 		double datasetMinTime = Math.min(min, max);
 		double datasetMaxTime = Math.max(min, max);
 
-		if(dataset.getPointCount() == 0 || points.firstKey() >= datasetMaxTime) {
-			// TODO: Change this to use an aggregate add method
-			if(plot.axisOrientation == AxisOrientationSetting.X_AXIS_AS_TIME) {
-				for(Entry<Long, Double> point : points.entrySet()) {
-					dataset.add(point.getKey(), point.getValue());
-				}
-			} else {
-				for(Entry<Long, Double> point : points.entrySet()) {
-					dataset.add(point.getValue(), point.getKey());
-				}
-			}
-		} else if(points.lastKey() <= datasetMinTime) {
-			// TODO: Make this efficient
-			double[] x = new double[points.size()];
-			double[] y = new double[x.length];
-			int i = 0;
-			for(Entry<Long, Double> p : points.entrySet()) {
-				x[i] = p.getKey();
-				y[i] = p.getValue();
-				i++;
-			}
-			if(plot.axisOrientation == AxisOrientationSetting.Y_AXIS_AS_TIME) {
-				double[] tmp = x;
-				x = y;
-				y = tmp;
-			}
-			dataset.prepend(x, 0, y, 0, x.length);
+		if(dataset.getPointCount() == 0 || points.getTime(from) >= datasetMaxTime) {
+			addAll(dataset, points, from, to);
+		} else if(points.getTime(to - 1) <= datasetMinTime) {
+			prepend(dataset, points, from, to);
 		} else {
 			// Data appearing in the middle of the dataset.
 			// Assume that it's caused by the last second of data arriving twice,
@@ -266,66 +257,63 @@ public class PlotDataManager {
 			// In either case, the overlapping data should be identical to what we already have, so ignore it.
 
 			// Append the data that isn't redundant.
-			SortedMap<Long, Double> before = points.subMap(0L, (long) datasetMinTime);
-			SortedMap<Long, Double> after = points.subMap((long) datasetMaxTime, Long.MAX_VALUE);
-			SortedMap<Long, Double> overlap = points.subMap((long) datasetMinTime, (long) datasetMaxTime);
-			if(!overlap.isEmpty()) {
-				if(overlap.lastKey() - overlap.firstKey() > 10000) {
+			int beforeEnd = Math.max(from, Math.min(to, points.indexOfFirstAtOrAfter((long) datasetMinTime)));
+			int afterStart = Math.max(beforeEnd, Math.min(to, points.indexOfFirstAtOrAfter((long) datasetMaxTime)));
+			if(afterStart > beforeEnd) {
+				if(points.getTime(afterStart - 1) - points.getTime(beforeEnd) > 10000) {
 					logger.warn("Cannot currently insert into the middle of a dataset: minX = " + datasetMinTime + ", maxX = " + datasetMaxTime
-							+ ", firstKey = " + points.firstKey() + ", lastKey = " + points.lastKey());
+							+ ", firstKey = " + points.getTime(from) + ", lastKey = " + points.getTime(to - 1));
 				}
 			}
-			// TODO: Change this to use an aggregate add method
- 			if(plot.axisOrientation == AxisOrientationSetting.X_AXIS_AS_TIME) {
-				if(!before.isEmpty()) {
-					double[] x = new double[before.size()];
-					double[] y = new double[x.length];
-					int i = 0;
-					for(Entry<Long, Double> point : before.entrySet()) {
-						x[i] = point.getKey();
-						y[i] = point.getValue();
-						i++;
-					}
-					dataset.prepend(x, 0, y, 0, x.length);
-				}
-				for(Entry<Long, Double> point : after.entrySet()) {
- 				 					dataset.add(point.getKey(), point.getValue());
- 				}
- 			} else {
-				if(!before.isEmpty()) {
-					double[] x = new double[before.size()];
-					double[] y = new double[x.length];
-					int i = 0;
-					for(Entry<Long, Double> point : before.entrySet()) {
-						y[i] = point.getKey();
-						x[i] = point.getValue();
-						i++;
-					}
-					dataset.prepend(x, 0, y, 0, x.length);
-				}
-
-				for(Entry<Long, Double> point : after.entrySet()) {
- 					dataset.add(point.getValue(), point.getKey());
- 				}
- 			}
+			if(beforeEnd > from) {
+				prepend(dataset, points, from, beforeEnd);
+			}
+			addAll(dataset, points, afterStart, to);
 		}
 
-		for(Entry<Long, Double> point : points.entrySet()) {
-			Long timestamp = point.getKey();
-			Double value = point.getValue();
+		for(int i = from; i < to; i++) {
+			double value = points.getValue(i);
 			boolean isValidForPlot = !Double.isNaN(value);
 			if (isValidForPlot) {
-				minMaxValueManager.updateMinMaxCache(timestamp, value);
+				minMaxValueManager.updateMinMaxCache(points.getTime(i), value);
 			}
 		}
 		
-		for(Entry<Long, Double> e : points.entrySet()) {
-			plot.limitManager.informPointPlottedAtTime(e.getKey(), e.getValue());
-		}
+		plot.limitManager.informPointsPlotted(points, from, to);
 		
 		plot.isInitialized = true;
 	}
 
+	/**
+	 * Appends points to the end of a dataset in one batch.
+	 * @param dataset to append to
+	 * @param points to append
+	 * @param from index of the first point to append
+	 * @param to index after the last point to append
+	 */
+	private void addAll(CompressingXYDataset dataset, PlotDataPoints points, int from, int to) {
+		if(plot.axisOrientation == AxisOrientationSetting.X_AXIS_AS_TIME) {
+			dataset.addAll(points.getTimes(), points.getValues(), from, to - from);
+		} else {
+			dataset.addAll(points.getValues(), points.getTimes(), from, to - from);
+		}
+	}
+
+	/**
+	 * Prepends points to the start of a dataset.
+	 * @param dataset to prepend to
+	 * @param points to prepend
+	 * @param from index of the first point to prepend
+	 * @param to index after the last point to prepend
+	 */
+	private void prepend(CompressingXYDataset dataset, PlotDataPoints points, int from, int to) {
+		if(plot.axisOrientation == AxisOrientationSetting.X_AXIS_AS_TIME) {
+			dataset.prepend(points.getTimes(), from, points.getValues(), from, to - from);
+		} else {
+			dataset.prepend(points.getValues(), from, points.getTimes(), from, to - from);
+		}
+	}
+
 	void updateLegend(String dataSetName, FeedProvider.RenderingInfo info) {
 		dataSeries.get(dataSetName).getLegendEntry().setData(info);
 	}
@@ -407,10 +395,181 @@ public class PlotDataManager {
 				CompressingXYDataset d = s.getData();
 				d.setCompressionOffset(start);
 				d.setCompressionScale(compressionScale);
+				// Start the pyramid with the data, so it holds everything the data set was given
+				if(d.getPyramid() == null && d.getPointCount() == 0 && compressionScale != Double.MAX_VALUE) {
+					d.setPyramid(new MinMaxPyramid(start, compressionScale / PlotConstants.LOCAL_DATA_RESOLUTION_FACTOR,
+							PlotConstants.LOCAL_DATA_PYRAMID_LEVELS));
+				}
 			}
 		}
 	}
 
+	/**
+	 * Redraw the plots at their current time axis span and compression ratio from the pyramids of the data they were given,
+	 * rather than requesting the data from the MCT data buffer again. A data request refreshes every plot in a stack,
+	 * so either all of the plots are redrawn or none is.
+	 * @param plots the plots to redraw
+	 * @return true if the plots were redrawn, false if the data needs to be requested
+	 */
+	static boolean reloadFromLocalData(List<AbstractPlottingPackage> plots) {
+		for (AbstractPlottingPackage p : plots) {
+			if (!(p instanceof PlotterPlot) || !((PlotterPlot) p).plotDataManager.canReloadFromLocalData()) {
+				return false;
+			}
+		}
+		logger.debug("Redrawing plot data from the local data.");
+		// The lines are compressed in parallel off the AWT thread, and the last one to finish 
+		// swaps the compressed data into all of the plots at once.
+		final Map<PlotDataManager, List<LocalRecompression>> recompressions = new HashMap<PlotDataManager, List<LocalRecompression>>();
+		int count = 0;
+		for (AbstractPlottingPackage p : plots) {
+			PlotDataManager manager = ((PlotterPlot) p).plotDataManager;
+			List<LocalRecompression> managerRecompressions = manager.prepareReloadFromLocalData();
+			recompressions.put(manager, managerRecompressions);
+			count += managerRecompressions.size();
+		}
+		final Runnable apply = new Runnable() {
+			@Override
+			public void run() {
+				for (Entry<PlotDataManager, List<LocalRecompression>> entry : recompressions.entrySet()) {
+					entry.getKey().applyReloadFromLocalData(entry.getValue());
+				}
+			}
+		};
+		if (count == 0) {
+			apply.run();
+			return true;
+		}
+		final AtomicInteger remaining = new AtomicInteger(count);
+		for (List<LocalRecompression> managerRecompressions : recompressions.values()) {
+			for (final LocalRecompression recompression : managerRecompressions) {
+				recompressionExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							recompression.run();
+						} catch (RuntimeException e) {
+							// the data set is recompressed in the AWT thread instead
+							logger.error("exception thrown while recompressing plot data", e);
+						} finally {
+							if (remaining.decrementAndGet() == 0) {
+								SwingUtilities.invokeLater(apply);
+							}
+						}
+					}
+				});
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Determine if the plot can be redrawn from its local data. This is only possible if the data sets hold all of the 
+	 * data from the start of the time axis on, and their pyramids are fine enough for the current compression ratio.
+	 * @return true if the plot can be redrawn from its local data
+	 */
+	boolean canReloadFromLocalData() {
+		if (!localDataComplete || plot.isUpdateFromCacheDataStreamInProcess() || 
+				plot.timeAxisSubsequentSetting == TimeAxisSubsequentBoundsSetting.SCRUNCH) {
+			return false;
+		}
+		setupCompressionRatio();
+		if (plot.getCurrentTimeAxisMinAsLong() < localDataStart) {
+			return false;
+		}
+		for(PlotDataSeries s : dataSeries.values()) {
+			CompressingXYDataset d = s.getData();
+			MinMaxPyramid pyramid = d.getPyramid();
+			if(pyramid == null || d.getCompressionScale() < pyramid.getBaseScale() || 
+					plot.getCurrentTimeAxisMinAsLong() < d.getTruncationPoint()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Prepare redrawing the data sets at the current time axis span and compression ratio from their pyramids.
+	 * This replaces any redraw that is still pending.
+	 * @return the recompressions of the data sets, to be run and then applied by {@link #applyReloadFromLocalData(List)}
+	 */
+	List<LocalRecompression> prepareReloadFromLocalData() {
+		long start = plot.getCurrentTimeAxisMinAsLong();
+		List<LocalRecompression> recompressions = new ArrayList<LocalRecompression>(dataSeries.size());
+		for(PlotDataSeries s : dataSeries.values()) {
+			CompressingXYDataset d = s.getData();
+			recompressions.add(new LocalRecompression(d, d.prepareRecompress(start, Double.POSITIVE_INFINITY)));
+		}
+		pendingRecompressions = recompressions;
+		return recompressions;
+	}
+	
+	/**
+	 * Swap the data recompressed from the pyramids into the data sets. Data sets which were modified while 
+	 * they were recompressed are recompressed again here. Nothing is done if the redraw was replaced by a newer
+	 * one or by a data request.
+	 * @param recompressions the recompressions returned by {@link #prepareReloadFromLocalData()}
+	 */
+	void applyReloadFromLocalData(List<LocalRecompression> recompressions) {
+		if (pendingRecompressions != recompressions) {
+			return;
+		}
+		pendingRecompressions = null;
+		minMaxValueManager.setMinMaxCacheState(false);
+		for (LocalRecompression recompression : recompressions) {
+			if (!recompression.apply()) {
+				recompression.dataset.recompress(plot.getCurrentTimeAxisMinAsLong(), Double.POSITIVE_INFINITY);
+			}
+		}
+		minMaxValueManager.setMinMaxCacheState(true);
+	}
+	
+	private static ExecutorService createRecompressionExecutor() {
+		int workers = Runtime.getRuntime().availableProcessors();
+		ThreadFactory threadFactory = new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Plot recompression worker " + threadNumber.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, RECOMPRESSION_WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, 
+				new LinkedBlockingQueue<Runnable>(), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	/**
+	 * Recompression of a data set redrawn from its local data.
+	 */
+	static final class LocalRecompression implements Runnable {
+		final CompressingXYDataset dataset;
+		private final CompressingXYDataset.Recompression recompression;
+		private volatile boolean compressed = false;
+		
+		LocalRecompression(CompressingXYDataset dataset, CompressingXYDataset.Recompression recompression) {
+			this.dataset = dataset;
+			this.recompression = recompression;
+		}
+
+		@Override
+		public void run() {
+			recompression.run();
+			compressed = true;
+		}
+		
+		/**
+		 * Swap the compressed data into the data set.
+		 * @return true if it was swapped, false if the compression failed or the data set was modified since it was prepared
+		 */
+		boolean apply() {
+			return compressed && recompression.apply();
+		}
+	}
+
 	
 	/**
 	 * Setup the data compression ratio and plot buffer sizes based on the number of pixels on the plot's span
@@ -446,6 +605,9 @@ public class PlotDataManager {
 		 * is scaled to the buffer size calculated in the above call.
 		 */
 	     if (!scrunchBufferTruncationOccured) {
+	    	if (plot.plotAbstraction != null && reloadFromLocalData(plot.plotAbstraction.getSubPlots())) {
+	    		return;
+	    	}
 	    	// prevent further resize events from occurring until this event is completed.
 		    plot.setUpdateFromCacheDataStreamInProcess(true);
 		   // Window size has changed so recalculated compression ratio;
@@ -526,6 +688,11 @@ public class PlotDataManager {
 		minMaxValueManager.setMinMaxCacheState(false);
 		resetPlotDataSeries();
 		// There should be no data on the plot at this point. 
+		// The data sets will hold all of the data requested from the MCT data buffer.
+		pendingRecompressions = null;
+		long max = plot.getCurrentTimeAxisMaxAsLong();
+		localDataStart = Math.max(plot.getCurrentTimeAxisMinAsLong(), max - PlotConstants.MAXIMUM_PLOT_DATA_BUFFER_SLIZE_REQUEST_SIZE);
+		localDataComplete = true;
  
 	}
 	
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.fastplot.bridge;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+/**
+ * Points of a feed to add to a plot, in increasing time order. The points are held in primitive arrays, so they are
+ * not boxed and the same instance can be cleared and refilled on every update. As in a sorted map, adding a point 
+ * at the time of an existing point replaces its value.
+ */
+public class PlotDataPoints {
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/** Times of the points, in milliseconds. Held as doubles as they are plotted as doubles; these are exact for any time in milliseconds since the epoch. */
+	private double[] times = new double[INITIAL_CAPACITY];
+	
+	private double[] values = new double[INITIAL_CAPACITY];
+	
+	private int size = 0;
+	
+	/**
+	 * Create an empty set of points.
+	 */
+	public PlotDataPoints() {
+	}
+	
+	/**
+	 * Create a set of points holding the entries of a map.
+	 * @param points sorted map of values keyed by time
+	 */
+	public PlotDataPoints(SortedMap<Long, Double> points) {
+		ensureCapacity(points.size());
+		for (Entry<Long, Double> point : points.entrySet()) {
+			add(point.getKey(), point.getValue());
+		}
+	}
+	
+	/**
+	 * Add a point. Points are usually added in time order, which only appends them.
+	 * @param time of the point in milliseconds
+	 * @param value of the point
+	 */
+	public void add(long time, double value) {
+		if (size == 0 || time > times[size - 1]) {
+			ensureCapacity(size + 1);
+			times[size] = time;
+			values[size] = value;
+			size++;
+			return;
+		}
+		int index = indexOfFirstAtOrAfter(time);
+		if (times[index] == time) {
+			values[index] = value;
+			return;
+		}
+		ensureCapacity(size + 1);
+		System.arraycopy(times, index, times, index + 1, size - index);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		times[index] = time;
+		values[index] = value;
+		size++;
+	}
+	
+	/**
+	 * Remove all of the points, keeping the storage for reuse.
+	 */
+	public void clear() {
+		size = 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Returns the time of a point.
+	 * @param index of the point
+	 * @return time of the point in milliseconds
+	 */
+	public long getTime(int index) {
+		checkIndex(index);
+		return (long) times[index];
+	}
+	
+	/**
+	 * Returns the value of a point.
+	 * @param index of the point
+	 * @return value of the point
+	 */
+	public double getValue(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+	
+	/**
+	 * Returns the index of the first point at or after a time.
+	 * @param time to search for
+	 * @return index of the first point with a time greater than or equal to the time, or the number of points if there is none
+	 */
+	public int indexOfFirstAtOrAfter(double time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (times[mid] < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Returns the index of the first point after a time.
+	 * @param time to search for
+	 * @return index of the first point with a time greater than the time, or the number of points if there is none
+	 */
+	public int indexOfFirstAfter(double time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (times[mid] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Returns the array holding the times, valid up to {@link #size()} until the points are modified.
+	 * @return the times
+	 */
+	double[] getTimes() {
+		return times;
+	}
+	
+	/**
+	 * Returns the array holding the values, valid up to {@link #size()} until the points are modified.
+	 * @return the values
+	 */
+	double[] getValues() {
+		return values;
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (capacity > times.length) {
+			int newCapacity = Math.max(capacity, times.length * 2);
+			double[] newTimes = new double[newCapacity];
+			double[] newValues = new double[newCapacity];
+			System.arraycopy(times, 0, newTimes, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			times = newTimes;
+			values = newValues;
+		}
+	}
+}
@@ -377,6 +377,97 @@ class PlotLimitManager implements ActionListener {
 		return false;
 	}
 	
+	/**
+	 * Inform limit manager of a batch of plotted points, in time order. The values which could raise an alarm or 
+	 * move a semi fixed axis are found once for the batch, so only those points are checked one by one.
+	 * @param points the plotted points
+	 * @param from index of the first point
+	 * @param to index after the last point
+	 */
+	void informPointsPlotted(PlotDataPoints points, int from, int to) {
+		if (from >= to) {
+			return;
+		}
+		AlarmBands bands = new AlarmBands();
+		for (int i = from; i < to; i++) {
+			double value = points.getValue(i);
+			if (bands.isCandidate(value)) {
+				informPointPlottedAtTime(points.getTime(i), value);
+				// the point may have raised an alarm or moved the axis
+				bands = new AlarmBands();
+			}
+		}
+		// the remaining points only check whether an alarm has scrolled off the plot, which is the same for all of them
+		informPointsScrolled();
+	}
+	
+	/**
+	 * Values for which a plotted point needs the checks of {@link PlotLimitManager#informPointPlottedAtTime(long, double)}, 
+	 * resolved from the current axis settings. Values between the bands neither raise an alarm nor move the axis.
+	 */
+	private final class AlarmBands {
+		/** Values at or above this may raise the max alarm or move the axis. */
+		private final double upper;
+		
+		/** Values at or below this may raise the min alarm or move the axis. */
+		private final double lower;
+		
+		AlarmBands() {
+			boolean checkMax = plot.nonTimeAxisMaxSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.FIXED
+					|| plot.nonTimeAxisMaxSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.SEMI_FIXED;
+			boolean checkMin = plot.nonTimeAxisMinSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.FIXED
+					|| plot.nonTimeAxisMinSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.SEMI_FIXED;
+			if (!checkMax && !checkMin) {
+				upper = Double.POSITIVE_INFINITY;
+				lower = Double.NEGATIVE_INFINITY;
+				return;
+			}
+			double axisMax = Math.max(plot.getCurrentNonTimeAxisMin(), plot.getCurrentNonTimeAxisMax());
+			double axisMin = Math.min(plot.getCurrentNonTimeAxisMin(), plot.getCurrentNonTimeAxisMax());
+			double up = axisMax;
+			double low = axisMin;
+			if (checkMax) {
+				up = Math.min(up, Math.min(plot.nonTimeVaribleAxisMaxValue, pixelBandStart(plot.nonTimeAxisMaxPhysicalValue)));
+			}
+			if (checkMin) {
+				low = Math.max(low, Math.max(plot.nonTimeVaribleAxisMinValue, pixelBandEnd(plot.nonTimeAxisMinPhysicalValue)));
+			}
+			upper = up;
+			lower = low;
+		}
+		
+		/**
+		 * Returns the lowest value which may be within 1 pixel of the physical value. The band is widened to 
+		 * 3 pixels to stay clear of rounding, points in it are still checked exactly.
+		 */
+		private double pixelBandStart(double physical) {
+			double a = toLogical(physical - 3);
+			double b = toLogical(physical + 3);
+			double start = Math.min(a, b);
+			return Double.isNaN(start) || Double.isInfinite(a) || Double.isInfinite(b) ? Double.NEGATIVE_INFINITY : start;
+		}
+		
+		/**
+		 * Returns the highest value which may be within 1 pixel of the physical value.
+		 */
+		private double pixelBandEnd(double physical) {
+			double a = toLogical(physical - 3);
+			double b = toLogical(physical + 3);
+			double end = Math.max(a, b);
+			return Double.isNaN(end) || Double.isInfinite(a) || Double.isInfinite(b) ? Double.POSITIVE_INFINITY : end;
+		}
+		
+		private double toLogical(double physical) {
+			Point2D point = new Point2D.Double(0, physical);
+			plot.plotView.toLogical(point, point);
+			return point.getY();
+		}
+		
+		boolean isCandidate(double value) {
+			return value >= upper || value <= lower;
+		}
+	}
+	
 	/**
 	 * Inform limit manager of the most recently plotted time. 
 	 * @param atTime time at which point was plotted
@@ -417,6 +508,23 @@ class PlotLimitManager implements ActionListener {
 			}
 		}
 
+		informPointsScrolled();
+        
+        if (checkMin || checkMax) {
+        	plot.newPointPlotted(atTime, value);
+        }
+        
+	}
+	
+	/**
+	 * Clear the alarms whose most recent out of range point has scrolled off the plot.
+	 */
+	private void informPointsScrolled() {
+		boolean checkMax = plot.nonTimeAxisMaxSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.FIXED
+				|| plot.nonTimeAxisMaxSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.SEMI_FIXED;
+		boolean checkMin = plot.nonTimeAxisMinSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.FIXED
+				|| plot.nonTimeAxisMinSubsequentSetting == NonTimeAxisSubsequentBoundsSetting.SEMI_FIXED;
+		
 		// Check upper alarm still valid
 		
         // Only check if we're in fixed max mode and an alarm a max alarm is raised.
@@ -437,11 +545,6 @@ class PlotLimitManager implements ActionListener {
             	nonTimeMinLimitButton.setVisible(false); 	
 			}
 		}
-        
-        if (checkMin || checkMax) {
-        	plot.newPointPlotted(atTime, value);
-        }
-        
 	}
 	
 	private void changeButtonIcon(JButton button, ImageIcon newIcon) {
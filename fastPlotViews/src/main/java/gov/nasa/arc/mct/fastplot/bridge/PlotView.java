@@ -59,7 +59,6 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.TreeMap;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
@@ -1453,17 +1452,24 @@ public class PlotView implements PlotAbstraction {
 	 */
 	public void addData(Map<String, SortedMap<Long, Double>> dataForPlot) {
 		for(Entry<String, SortedMap<Long, Double>> feedData : dataForPlot.entrySet()) {
-			String feedID = feedData.getKey();
-			String dataSetNameLower = feedID.toLowerCase();
-			if (!isKnownDataSet(dataSetNameLower)) {
-				throw new IllegalArgumentException("Attempting to set value for an unknown data set " + feedID);
-			}
-			Set<AbstractPlottingPackage> feedPlots = dataSetNameToSubGroupMap.get(dataSetNameLower);
+			addData(feedData.getKey(), new PlotDataPoints(feedData.getValue()));
+		}
+	}
 
-			SortedMap<Long, Double> points = feedData.getValue();
-			for(AbstractPlottingPackage plot : feedPlots) {
-				plot.addData(dataSetNameLower, points);
-			}
+	/**
+	 * Adds the points of a feed to every plot showing it. 
+	 * @param feedID the feed Id.
+	 * @param points to add, which are not modified.
+	 */
+	public void addData(String feedID, PlotDataPoints points) {
+		String dataSetNameLower = feedID.toLowerCase();
+		if (!isKnownDataSet(dataSetNameLower)) {
+			throw new IllegalArgumentException("Attempting to set value for an unknown data set " + feedID);
+		}
+		Set<AbstractPlottingPackage> feedPlots = dataSetNameToSubGroupMap.get(dataSetNameLower);
+
+		for(AbstractPlottingPackage plot : feedPlots) {
+			plot.addData(dataSetNameLower, points);
 		}
 	}
 
@@ -1474,9 +1480,9 @@ public class PlotView implements PlotAbstraction {
 	 * @param value telemetry value in double.
 	 */
 	public void addData(String feedID, long time, double value) {
-		SortedMap<Long, Double> points = new TreeMap<Long, Double>();
-		points.put(time, value);
-		addData(Collections.singletonMap(feedID, points));
+		PlotDataPoints points = new PlotDataPoints();
+		points.add(time, value);
+		addData(feedID, points);
 	}
 
 	/**
@@ -44,7 +44,6 @@ import java.util.GregorianCalendar;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TimeZone;
-import java.util.TreeMap;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
@@ -445,11 +444,17 @@ public class PlotterPlot implements AbstractPlottingPackage {
     	cornerResetButtonManager.updateButtons();
     }
     
+    @Override
+    public void addData(String feed, PlotDataPoints points) {
+		plotDataManager.addData(feed, points);
+    	cornerResetButtonManager.updateButtons();
+    }
+    
     @Override
     public void addData(String feed, long time, double value) {
-    	TreeMap<Long, Double> m = new TreeMap<Long, Double>();
-    	m.put(time, value);
-		plotDataManager.addData(feed, m);
+    	PlotDataPoints points = new PlotDataPoints();
+    	points.add(time, value);
+		plotDataManager.addData(feed, points);
     }
 
     @Override
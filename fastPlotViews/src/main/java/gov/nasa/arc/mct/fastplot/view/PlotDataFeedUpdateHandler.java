@@ -21,18 +21,19 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.fastplot.view;
 
+import gov.nasa.arc.mct.api.feed.FeedSampleBatch;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.FeedProvider.FeedType;
 import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+import gov.nasa.arc.mct.fastplot.bridge.PlotDataPoints;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +46,9 @@ public class PlotDataFeedUpdateHandler {
 
 	private static final RenderingInfo DEFAULT_RI = new RenderingInfo(null, Color.WHITE, "0", Color.WHITE, false);
 
+	/** Points of each feed, reused from one update to the next. */
+	private final Map<String, PlotDataPoints> points = new HashMap<String, PlotDataPoints>();
+
 	PlotDataFeedUpdateHandler(
 			PlotViewManifestation supportedPlotViewManifestation) {
 		plotViewManifestation = supportedPlotViewManifestation;
@@ -119,7 +123,7 @@ public class PlotDataFeedUpdateHandler {
 	void updateFromFeeds(Map<String, List<Map<String, String>>> data,
 			boolean legendOnly, boolean updateLegend, boolean predictionOnly) {
 		if (data != null) {
-			Map<String, SortedMap<Long, Double>> dataForPlot = new HashMap<String, SortedMap<Long,Double>>();
+			List<String> feedsForPlot = new ArrayList<String>();
 
 			// Iterate over the feeds (each is a plot line on the chart)
 			Collection<FeedProvider> feeds = plotViewManifestation
@@ -136,79 +140,165 @@ public class PlotDataFeedUpdateHandler {
 					boolean allowPlotting = predictionOnly == provider.isPrediction() || !updateLegend;
 	
 					if (dataForThisFeed != null && plotViewManifestation.thePlot.isKnownDataSet(feedId) && allowPlotting) {
-						SortedMap<Long, Double> dataForPlotThisFeed = dataForPlot.get(feedId);
-						if(dataForPlotThisFeed == null) {
-							dataForPlotThisFeed = new TreeMap<Long, Double>();
-							dataForPlot.put(feedId, dataForPlotThisFeed);
+						PlotDataPoints dataForPlotThisFeed = getPoints(feedId);
+						if (!feedsForPlot.contains(feedId)) {
+							dataForPlotThisFeed.clear();
+							feedsForPlot.add(feedId);
 						}
-	
 						RenderingInfo lastRI = DEFAULT_RI;
-						boolean haveLegendInfo = false;
-	
-						// Loop over each point that needs to be plotted for this
-						// feed.
-						for (Map<String, String> pointsData : dataForThisFeed) {
-							RenderingInfo ri = provider
-									.getRenderingInfo(pointsData);
-							assert pointsData != null : "PointsData is Null";
-							String timeAsString = pointsData
-									.get(FeedProvider.NORMALIZED_TIME_KEY);
-							String valueAsString = ri.getValueText();
-						    boolean isPlottable = ri.isPlottable();
-	
-							// Robust to time or value keys not being present.
-							if (timeAsString != null && valueAsString != null) {
-								try {
-									long milliSecondsEpoch = Long
-											.parseLong(timeAsString);
-									if (!isPlottable) {
-										valueAsString = "";
+						Map<String, String> lastPointsData = null;
+						
+						FeedSampleBatch batch = FeedSampleBatch.batchOf(dataForThisFeed);
+						if (batch != null) {
+							int last = addPoints(provider, batch, dataForPlotThisFeed, legendOnly);
+							if (last >= 0) {
+								lastRI = null;
+								lastPointsData = batch.toMap(last);
+							}
+						} else {
+							// Loop over each point that needs to be plotted for this
+							// feed.
+							for (Map<String, String> pointsData : dataForThisFeed) {
+								assert pointsData != null : "PointsData is Null";
+								String timeAsString = pointsData
+										.get(FeedProvider.NORMALIZED_TIME_KEY);
+								String riAsString = pointsData.get(FeedProvider.NORMALIZED_RENDERING_INFO);
+								String dataAsString = pointsData.get(FeedProvider.NORMALIZED_VALUE_KEY);
+							
+								// Points carrying their rendering info or value are decoded here, rather than by the provider.
+								if ((riAsString != null || dataAsString != null) && timeAsString != null) {
+									try {
+										long milliSecondsEpoch = Long.parseLong(timeAsString);
+										double value = PlotValueDecoder.getPlotValue(riAsString, dataAsString);
+										lastRI = null;
+										lastPointsData = pointsData;
+										if (!legendOnly) {
+											dataForPlotThisFeed.add(milliSecondsEpoch, value);
+										}
+									} catch (NumberFormatException e) {
+										logger
+												.error(
+														"Number format exception converting string to double while processing the data feed entry {}, {}",
+														timeAsString, riAsString != null ? riAsString : dataAsString);
 									}
-									lastRI = ri;
-									haveLegendInfo = true;
+									continue;
+								}
+							
+								RenderingInfo ri = provider
+										.getRenderingInfo(pointsData);
+								String valueAsString = ri.getValueText();
+							    boolean isPlottable = ri.isPlottable();
 	
-									if (!plotViewManifestation.thePlot
-											.isKnownDataSet(feedId)) {
-										plotViewManifestation.thePlot.addDataSet(
-												feedId, provider.getLegendText());
-									}
+								// Robust to time or value keys not being present.
+								if (timeAsString != null && valueAsString != null) {
+									try {
+										long milliSecondsEpoch = Long
+												.parseLong(timeAsString);
+										if (!isPlottable) {
+											valueAsString = "";
+										}
+										lastRI = ri;
+										lastPointsData = pointsData;
 	
-									if (!legendOnly) {
-										double value;
-										if(isPlottable) {
-											value = Double.parseDouble(valueAsString);
-										} else {
-											value = Double.NaN;
+										if (!legendOnly) {
+											double value;
+											if(isPlottable) {
+												value = Double.parseDouble(valueAsString);
+											} else {
+												value = Double.NaN;
+											}
+											dataForPlotThisFeed.add(milliSecondsEpoch, value);
 										}
-										dataForPlotThisFeed.put(milliSecondsEpoch, value);
-									}
 	
-								} catch (NumberFormatException e) {
+									} catch (NumberFormatException e) {
+										logger
+												.error(
+														"Number format exception converting string to double while processing the data feed entry {}, {}",
+														timeAsString, valueAsString);
+									}
+								} else {
 									logger
 											.error(
-													"Number format exception converting string to double while processing the data feed entry {}, {}",
+													"Either time, value, or isValid entry was not defined. {}, {}",
 													timeAsString, valueAsString);
 								}
-							} else {
-								logger
-										.error(
-												"Either time, value, or isValid entry was not defined. {}, {}",
-												timeAsString, valueAsString);
 							}
 						}
-						if (haveLegendInfo && updateLegend) {
+						if (lastPointsData != null && updateLegend) {
+							if (lastRI == null) {
+								// the last point was decoded here, so the provider decodes it for the legend
+								lastRI = provider.getRenderingInfo(lastPointsData);
+							}
 							plotViewManifestation.thePlot.updateLegend(feedId, lastRI);
 						}
 					}
 				}
 			}
 
-			plotViewManifestation.thePlot.addData(dataForPlot);
+			for (String feedId : feedsForPlot) {
+				plotViewManifestation.thePlot.addData(feedId, points.get(feedId));
+			}
 		} else {
 			logger.debug("Data was null");
 		}
 	}
 
+	/**
+	 * Adds the points of a feed delivered as a batch. Times and values are read from the columns of the 
+	 * batch, so no map is created per point; points without rendering info or value are decoded by the provider.
+	 * @param provider of the feed
+	 * @param batch the points of the feed
+	 * @param dataForPlotThisFeed the points to add to
+	 * @param legendOnly true if the points are only read for the legend
+	 * @return the index of the last point read, or -1 if there is none
+	 */
+	private int addPoints(FeedProvider provider, FeedSampleBatch batch, PlotDataPoints dataForPlotThisFeed, boolean legendOnly) {
+		int last = -1;
+		for (int i = 0; i < batch.size(); i++) {
+			long milliSecondsEpoch = batch.getTime(i);
+			String riAsString = batch.getRenderingInfo(i);
+			String valueAsString = null;
+			try {
+				double value;
+				if (riAsString != null) {
+					value = PlotValueDecoder.getPlotValue(riAsString, null);
+				} else if (batch.isNumeric(i)) {
+					value = batch.getValue(i);
+				} else {
+					RenderingInfo ri = provider.getRenderingInfo(batch.toMap(i));
+					valueAsString = ri.getValueText();
+					if (valueAsString == null) {
+						logger.error("Value entry was not defined. {}", milliSecondsEpoch);
+						continue;
+					}
+					value = ri.isPlottable() ? Double.parseDouble(valueAsString) : Double.NaN;
+				}
+				last = i;
+				if (!legendOnly) {
+					dataForPlotThisFeed.add(milliSecondsEpoch, value);
+				}
+			} catch (NumberFormatException e) {
+				logger.error("Number format exception converting string to double while processing the data feed entry {}, {}",
+						milliSecondsEpoch, riAsString != null ? riAsString : valueAsString);
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Returns the points of a feed, which are reused from one update to the next.
+	 * @param feedId of the feed
+	 * @return the points of the feed
+	 */
+	private PlotDataPoints getPoints(String feedId) {
+		PlotDataPoints feedPoints = points.get(feedId);
+		if (feedPoints == null) {
+			feedPoints = new PlotDataPoints();
+			points.put(feedId, feedPoints);
+		}
+		return feedPoints;
+	}
+
 	private String printDataOnSlice(Map<String, List<Map<String, String>>> data) {
 		long earliestTime = Long.MAX_VALUE;
 		long latestTime = -Long.MAX_VALUE;
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.fastplot.view;
+
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+
+/**
+ * Decodes the plotted values of feed points from their rendering info and value strings, as 
+ * {@link RenderingInfo#valueOf(String)} and the feed providers do, without creating a {@link RenderingInfo} per point.
+ * Values that fit a double exactly are parsed in place; the rest go through {@link Double#parseDouble(String)}.
+ */
+class PlotValueDecoder {
+	/** Separator of the fields of a rendering info string. */
+	private static final char RENDERING_INFO_SEPARATOR = '&';
+
+	/** Index of the plottable field of a rendering info string. */
+	private static final int PLOTTABLE_FIELD = 4;
+	
+	/** Largest mantissa a double holds exactly. */
+	private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+	
+	/** Most significant digits parsed in place, so the mantissa cannot overflow. */
+	private static final int MAXIMUM_DIGITS = 16;
+	
+	/** Powers of ten a double holds exactly. */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	
+	private PlotValueDecoder() {
+	}
+	
+	/**
+	 * Returns the plotted value of a point. The value is decoded from the rendering info string of the point,
+	 * or from the value string if the point has no rendering info.
+	 * @param riAsString rendering info string of the point, may be null
+	 * @param valueAsString value string of the point, used if there is no rendering info string
+	 * @return the plotted value, or NaN if the point is not plottable
+	 * @throws NumberFormatException if the plotted value is not a number
+	 */
+	static double getPlotValue(String riAsString, String valueAsString) {
+		if (riAsString == null) {
+			if (valueAsString == null) {
+				throw new NumberFormatException("no value");
+			}
+			return parseDouble(valueAsString, 0);
+		}
+		int start = -1;
+		for (int field = 0; field < PLOTTABLE_FIELD; field++) {
+			start = riAsString.indexOf(RENDERING_INFO_SEPARATOR, start + 1);
+			if (start < 0) {
+				throw new NumberFormatException(riAsString);
+			}
+		}
+		int end = riAsString.indexOf(RENDERING_INFO_SEPARATOR, start + 1);
+		if (end < 0) {
+			throw new NumberFormatException(riAsString);
+		}
+		boolean isPlottable = end - start - 1 == 4 && riAsString.regionMatches(true, start + 1, "true", 0, 4);
+		return isPlottable ? parseDouble(riAsString, end + 1) : Double.NaN;
+	}
+	
+	/**
+	 * Parses the decimal number at the end of a string. Numbers with at most 16 significant digits, a mantissa 
+	 * below 2^53 and a decimal exponent within 22 are exact in a double, so a single multiplication or 
+	 * division rounds them as {@link Double#parseDouble(String)} does. Other numbers are handed to it.
+	 * @param s the string
+	 * @param start index of the number in the string
+	 * @return the number
+	 * @throws NumberFormatException if the end of the string is not a number
+	 */
+	static double parseDouble(String s, int start) {
+		int end = s.length();
+		int i = start;
+		boolean negative = false;
+		if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			char c = s.charAt(i);
+			if (c == '.' && !fraction) {
+				fraction = true;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				break;
+			}
+			hasDigits = true;
+			if (mantissa != 0 || c != '0') {
+				if (++digits > MAXIMUM_DIGITS) {
+					return Double.parseDouble(s.substring(start));
+				}
+				mantissa = mantissa * 10 + (c - '0');
+			}
+			if (fraction) {
+				exponent--;
+			}
+		}
+		if (!hasDigits) {
+			return Double.parseDouble(s.substring(start));
+		}
+		if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+				negativeExponent = s.charAt(i) == '-';
+				i++;
+			}
+			int explicitExponent = 0;
+			boolean hasExponentDigits = false;
+			for (; i < end && explicitExponent < 1000; i++) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9') {
+					break;
+				}
+				hasExponentDigits = true;
+				explicitExponent = explicitExponent * 10 + (c - '0');
+			}
+			if (!hasExponentDigits) {
+				return Double.parseDouble(s.substring(start));
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (i != end || mantissa > MAXIMUM_EXACT_MANTISSA) {
+			return Double.parseDouble(s.substring(start));
+		}
+		double value;
+		if (mantissa == 0) {
+			value = 0;
+		} else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return Double.parseDouble(s.substring(start));
+		}
+		return negative ? -value : value;
+	}
+}
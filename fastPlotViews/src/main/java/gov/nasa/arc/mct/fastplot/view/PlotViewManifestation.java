@@ -299,7 +299,11 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 						PlotSettingsControlPanel.CalendarDump.dumpDateAndTime(startTime),  PlotSettingsControlPanel.CalendarDump.dumpDateAndTime(endTime));
 			}
 			
-			currentDataRequest = this.requestData(null, startTime.getTimeInMillis(), endTime.getTimeInMillis(), getTransformation(), this, true);
+			// the plot draws at most one point per pixel along the time axis, so only the envelope of each pixel's span is needed,
+			// refined so the plot can zoom in on the data it holds without another request
+			long resolution = (endTime.getTimeInMillis() - startTime.getTimeInMillis()) / Math.max(1, Math.max(getWidth(), getHeight()))
+					/ PlotConstants.LOCAL_DATA_RESOLUTION_FACTOR;
+			currentDataRequest = this.requestData(null, startTime.getTimeInMillis(), endTime.getTimeInMillis(), getTransformation(), this, true, resolution);
 			currentDataRequest.addPropertyChangeListener(new PropertyChangeListener() {
 				@Override
 				public void propertyChange(java.beans.PropertyChangeEvent evt) {
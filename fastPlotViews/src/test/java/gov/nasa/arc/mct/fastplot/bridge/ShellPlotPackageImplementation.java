@@ -344,6 +344,14 @@ public class ShellPlotPackageImplementation implements AbstractPlottingPackage{
 		data.addAll(points.values());
 	}
 
+	@Override
+	public void addData(String feedID, PlotDataPoints points) {
+		ArrayList<Double> data = plotDataSet.get(feedID);
+		for (int i = 0; i < points.size(); i++) {
+			data.add(points.getValue(i));
+		}
+	}
+
 	@Override
 	public void updateLegend(String dataSetName, FeedProvider.RenderingInfo info) {
 		// TODO Auto-generated method stub
@@ -131,6 +131,46 @@ public class TestLimitArrowIndicators {
 		
 	}
 	
+	@Test
+	public void testAlarmsFromBatch() {
+		PlotView testPlot = new PlotView.Builder(PlotterPlot.class)
+		.nonTimeAxisMinSubsequentSetting(NonTimeAxisSubsequentBoundsSetting.FIXED)
+		.nonTimeAxisMaxSubsequentSetting(NonTimeAxisSubsequentBoundsSetting.FIXED)
+		.nonTimeVaribleAxisMaxValue(10)
+		.nonTimeVaribleAxisMinValue(0)
+		.build();	
+		testPlot.setManifestation(mockPlotViewManifestation);
+		testPlot.setCompressionEnabled(false);
+		testPlot.addDataSet("DataSet1");
+		
+		// a batch within bounds raises no alarm
+		long time = System.currentTimeMillis();
+		PlotDataPoints points = new PlotDataPoints();
+		for (int i = 0; i < 1000; i++) {
+			points.add(time++, 5 + Math.sin(i));
+		}
+		testPlot.addData("DataSet1", points);
+		Assert.assertEquals(testPlot.getNonTimeMaxAlarmState(0), LimitAlarmState.NO_ALARM);
+		Assert.assertEquals(testPlot.getNonTimeMinAlarmState(0), LimitAlarmState.NO_ALARM);
+		
+		// a single point out of range in a batch raises the alarm
+		points = new PlotDataPoints();
+		for (int i = 0; i < 1000; i++) {
+			points.add(time++, i == 500 ? 11 : 5 + Math.sin(i));
+		}
+		testPlot.addData("DataSet1", points);
+		Assert.assertEquals(testPlot.getNonTimeMaxAlarmState(0), LimitAlarmState.ALARM_RAISED);
+		Assert.assertEquals(testPlot.getNonTimeMinAlarmState(0), LimitAlarmState.NO_ALARM);
+		
+		points = new PlotDataPoints();
+		for (int i = 0; i < 1000; i++) {
+			points.add(time++, i == 999 ? -1 : 5 + Math.sin(i));
+		}
+		testPlot.addData("DataSet1", points);
+		Assert.assertEquals(testPlot.getNonTimeMaxAlarmState(0), LimitAlarmState.ALARM_RAISED);
+		Assert.assertEquals(testPlot.getNonTimeMinAlarmState(0), LimitAlarmState.ALARM_RAISED);
+	}
+	
 	@Test
 	public void testMinAlarmOnly() {
 		// Create a simple in fix non time max and min modes with defined min/max bounds.
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.fastplot.bridge;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPlotDataPoints {
+
+	@Test
+	public void testAddInOrder() {
+		PlotDataPoints points = new PlotDataPoints();
+		Assert.assertTrue(points.isEmpty());
+		for (int i = 0; i < 100; i++) {
+			points.add(1000 + i, i * 0.5);
+		}
+		Assert.assertEquals(points.size(), 100);
+		Assert.assertEquals(points.getTime(0), 1000L);
+		Assert.assertEquals(points.getValue(99), 49.5);
+	}
+	
+	@Test
+	public void testAddOutOfOrderAndReplace() {
+		PlotDataPoints points = new PlotDataPoints();
+		SortedMap<Long, Double> expected = new TreeMap<Long, Double>();
+		long[] times = {5, 3, 9, 3, 1, 9, 7, 5};
+		for (int i = 0; i < times.length; i++) {
+			points.add(times[i], i);
+			expected.put(times[i], (double) i);
+		}
+		Assert.assertEquals(points.size(), expected.size());
+		int i = 0;
+		for (Long time : expected.keySet()) {
+			Assert.assertEquals(points.getTime(i), time.longValue());
+			Assert.assertEquals(points.getValue(i), expected.get(time));
+			i++;
+		}
+		
+		PlotDataPoints fromMap = new PlotDataPoints(expected);
+		Assert.assertEquals(fromMap.size(), expected.size());
+		Assert.assertEquals(fromMap.getTime(4), 9L);
+		Assert.assertEquals(fromMap.getValue(4), 5.0);
+	}
+	
+	@Test
+	public void testSearch() {
+		PlotDataPoints points = new PlotDataPoints();
+		points.add(10, 0);
+		points.add(20, 0);
+		points.add(30, 0);
+		Assert.assertEquals(points.indexOfFirstAtOrAfter(5), 0);
+		Assert.assertEquals(points.indexOfFirstAtOrAfter(20), 1);
+		Assert.assertEquals(points.indexOfFirstAtOrAfter(31), 3);
+		Assert.assertEquals(points.indexOfFirstAfter(5), 0);
+		Assert.assertEquals(points.indexOfFirstAfter(20), 2);
+		Assert.assertEquals(points.indexOfFirstAfter(30), 3);
+	}
+	
+	@Test
+	public void testClearReusesStorage() {
+		PlotDataPoints points = new PlotDataPoints();
+		for (int i = 0; i < 100; i++) {
+			points.add(i, i);
+		}
+		double[] times = points.getTimes();
+		points.clear();
+		Assert.assertTrue(points.isEmpty());
+		points.add(5, 1);
+		Assert.assertSame(points.getTimes(), times);
+		Assert.assertEquals(points.getTime(0), 5L);
+	}
+	
+	@Test (expectedExceptions = IndexOutOfBoundsException.class)
+	public void testGetOutOfRange() {
+		PlotDataPoints points = new PlotDataPoints();
+		points.add(1, 1);
+		points.getTime(1);
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.fastplot.view;
+
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+
+import java.awt.Color;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPlotValueDecoder {
+
+	@Test
+	public void testPlotValueFromRenderingInfo() {
+		RenderingInfo ri = new RenderingInfo("1.5", Color.GREEN, "X", Color.RED, true);
+		Assert.assertEquals(PlotValueDecoder.getPlotValue(ri.toString(), "2.5"), 1.5);
+		ri.setPlottable(false);
+		Assert.assertTrue(Double.isNaN(PlotValueDecoder.getPlotValue(ri.toString(), "2.5")));
+		ri = new RenderingInfo("-3.0E-4", Color.GREEN, "X", Color.RED, false);
+		Assert.assertEquals(PlotValueDecoder.getPlotValue(ri.toString(), null), -3.0E-4);
+	}
+	
+	@Test
+	public void testPlotValueFromValue() {
+		Assert.assertEquals(PlotValueDecoder.getPlotValue(null, "2.5"), 2.5);
+	}
+	
+	@Test(expectedExceptions = NumberFormatException.class)
+	public void testPlotValueWithoutStrings() {
+		PlotValueDecoder.getPlotValue(null, null);
+	}
+	
+	@Test(expectedExceptions = NumberFormatException.class)
+	public void testPlotValueFromMalformedRenderingInfo() {
+		PlotValueDecoder.getPlotValue("1&X&2&true", "2.5");
+	}
+	
+	@Test(expectedExceptions = NumberFormatException.class)
+	public void testPlotValueNotANumber() {
+		RenderingInfo ri = new RenderingInfo("OPEN", Color.GREEN, "X", Color.RED, true);
+		PlotValueDecoder.getPlotValue(ri.toString(), "OPEN");
+	}
+	
+	@Test
+	public void testParseDoubleAsJavaDoes() {
+		String[] numbers = {"0", "-0.0", "+1", "1.", ".5", "007.250", "86.2", "-1.0E-5", "1e22", "1e23", "4.9E-324", 
+				"1.7976931348623157E308", "9007199254740993", "0.8536763525123405", "123456789012345678901234567890",
+				"1.0e+2", "NaN", "-Infinity", " 2.5 ", "2.5d"};
+		for (String number : numbers) {
+			assertParsedAsJavaDoes(number);
+		}
+		Random random = new Random(1);
+		for (int i = 0; i < 10000; i++) {
+			assertParsedAsJavaDoes(Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10)));
+			assertParsedAsJavaDoes(Double.toString(Math.round(random.nextGaussian() * 100000) / 1000.0));
+		}
+	}
+	
+	@Test(expectedExceptions = NumberFormatException.class)
+	public void testParseDoubleWithoutDigits() {
+		PlotValueDecoder.parseDouble("-.", 0);
+	}
+	
+	@Test(expectedExceptions = NumberFormatException.class)
+	public void testParseDoubleWithoutExponentDigits() {
+		PlotValueDecoder.parseDouble("1e", 0);
+	}
+	
+	private static void assertParsedAsJavaDoes(String number) {
+		Assert.assertEquals(Double.doubleToRawLongBits(PlotValueDecoder.parseDouble("x&" + number, 2)), 
+				Double.doubleToRawLongBits(Double.parseDouble(number)), number);
+	}
+}
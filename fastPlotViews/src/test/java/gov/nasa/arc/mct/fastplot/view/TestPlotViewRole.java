@@ -21,6 +21,7 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.fastplot.view;
 
+import gov.nasa.arc.mct.api.feed.FeedSampleBatch;
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.ExtendedProperties;
 import gov.nasa.arc.mct.components.FeedProvider;
@@ -69,6 +70,8 @@ import javax.swing.JComponent;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -295,7 +298,7 @@ public class TestPlotViewRole {
 		Mockito.when(feed1.getRenderingInfo(Mockito.anyMap())).thenReturn(ri1);
 
 		Map<String, String> dataAPoint2 = new Hashtable<String, String>();
-		dataAPoint2.put(FeedProvider.NORMALIZED_TIME_KEY, "1");
+		dataAPoint2.put(FeedProvider.NORMALIZED_TIME_KEY, "2");
 		dataAPoint2.put(FeedProvider.NORMALIZED_VALUE_KEY, "86.2");
 		dataAPoint2.put(FeedProvider.NORMALIZED_IS_VALID_KEY, "TRUE");
 		dataAPoint2.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
@@ -315,7 +318,7 @@ public class TestPlotViewRole {
 		Mockito.when(feed2.getRenderingInfo(Mockito.anyMap())).thenReturn(ri2);
 		
 		Map<String, String> dataBPoint2 = new Hashtable<String, String>();
-		dataBPoint2.put(FeedProvider.NORMALIZED_TIME_KEY, "1");
+		dataBPoint2.put(FeedProvider.NORMALIZED_TIME_KEY, "2");
 		dataBPoint2.put(FeedProvider.NORMALIZED_VALUE_KEY, "110.9");
 		dataBPoint2.put(FeedProvider.NORMALIZED_IS_VALID_KEY, "TRUE");
 		dataBPoint2.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
@@ -381,6 +384,101 @@ public class TestPlotViewRole {
 				         0, 100, new GregorianCalendar(), new GregorianCalendar(), 0.05, 0.20, 0.20, true, false);
 	}
 		
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRenderingInfoDecodedOnlyForLegend() {
+		PlotViewManifestation panel = new PlotViewManifestation(mockComponent, new ViewInfo(PlotViewManifestation.class,"",ViewType.OBJECT));
+		panel.thePlot = new PlotView.Builder(ShellPlotPackageImplementation.class).build();
+		panel.thePlot.addDataSet("PUI1");
+		
+		Mockito.when(feed1.getSubscriptionId()).thenReturn("PUI1");
+		Mockito.when(feed1.getRenderingInfo(Mockito.anyMap())).thenAnswer(new Answer<RenderingInfo>() {
+			@Override
+			public RenderingInfo answer(InvocationOnMock invocation) throws Throwable {
+				Map<String, String> point = (Map<String, String>) invocation.getArguments()[0];
+				return RenderingInfo.valueOf(point.get(FeedProvider.NORMALIZED_RENDERING_INFO));
+			}
+		});
+		panel.plotDataAssigner.feedProvidersRef.get().add(feed1);
+		
+		// Unique values, every third one not plottable
+		List<Map<String, String>> dataSetA = new ArrayList<Map<String, String>>();
+		for (int i = 0; i < 10; i++) {
+			String value = Double.toString(i + 0.5);
+			RenderingInfo ri = new RenderingInfo(value, Color.BLACK, "X", Color.BLACK, true);
+			ri.setPlottable(i % 3 != 0);
+			Map<String, String> point = new Hashtable<String, String>();
+			point.put(FeedProvider.NORMALIZED_TIME_KEY, Integer.toString(i));
+			point.put(FeedProvider.NORMALIZED_VALUE_KEY, value);
+			point.put(FeedProvider.NORMALIZED_RENDERING_INFO, ri.toString());
+			dataSetA.add(point);
+		}
+		Map<String, List<Map<String, String>>> theData = new Hashtable<String, List<Map<String, String>>>();
+		theData.put("PUI1", dataSetA);
+		panel.plotDataFedUpdateHandler.updateFromFeeds(theData, false, true, false);
+		
+		// Only the last point is decoded by the provider, for the legend
+		Mockito.verify(feed1, Mockito.times(1)).getRenderingInfo(dataSetA.get(9));
+		Mockito.verify(feed1, Mockito.times(1)).getRenderingInfo(Mockito.anyMap());
+		ShellPlotPackageImplementation testPackage = (ShellPlotPackageImplementation) panel.thePlot.returnPlottingPackage(); 
+		ArrayList<Double> plotted = testPackage.getDataSet().get("pui1");
+		Assert.assertEquals(plotted.size(), 10);
+		for (int i = 0; i < 10; i++) {
+			if (i % 3 != 0) {
+				Assert.assertEquals(plotted.get(i), i + 0.5);
+			} else {
+				Assert.assertTrue(Double.isNaN(plotted.get(i)));
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testBatchPointsReadFromColumns() {
+		PlotViewManifestation panel = new PlotViewManifestation(mockComponent, new ViewInfo(PlotViewManifestation.class,"",ViewType.OBJECT));
+		panel.thePlot = new PlotView.Builder(ShellPlotPackageImplementation.class).build();
+		panel.thePlot.addDataSet("PUI1");
+		
+		Mockito.when(feed1.getSubscriptionId()).thenReturn("PUI1");
+		Mockito.when(feed1.getRenderingInfo(Mockito.anyMap())).thenAnswer(new Answer<RenderingInfo>() {
+			@Override
+			public RenderingInfo answer(InvocationOnMock invocation) throws Throwable {
+				Map<String, String> point = (Map<String, String>) invocation.getArguments()[0];
+				return new RenderingInfo(point.get(FeedProvider.NORMALIZED_VALUE_KEY), Color.BLACK, "X", Color.BLACK, true);
+			}
+		});
+		panel.plotDataAssigner.feedProvidersRef.get().add(feed1);
+		
+		// Even points carry rendering info, every third one not plottable, odd points only a value
+		FeedSampleBatch batch = new FeedSampleBatch();
+		for (int i = 0; i < 10; i++) {
+			String ri = null;
+			if (i % 2 == 0) {
+				RenderingInfo info = new RenderingInfo(Double.toString(i + 0.5), Color.BLACK, "X", Color.BLACK, true);
+				info.setPlottable(i % 3 != 0);
+				ri = info.toString();
+			}
+			batch.add(i, i + 0.5, true, null, ri);
+		}
+		Map<String, List<Map<String, String>>> theData = new Hashtable<String, List<Map<String, String>>>();
+		theData.put("PUI1", batch.asMaps());
+		panel.plotDataFedUpdateHandler.updateFromFeeds(theData, false, true, false);
+		
+		// Only the last point is decoded by the provider, for the legend
+		Mockito.verify(feed1, Mockito.times(1)).getRenderingInfo(batch.toMap(9));
+		Mockito.verify(feed1, Mockito.times(1)).getRenderingInfo(Mockito.anyMap());
+		ShellPlotPackageImplementation testPackage = (ShellPlotPackageImplementation) panel.thePlot.returnPlottingPackage(); 
+		ArrayList<Double> plotted = testPackage.getDataSet().get("pui1");
+		Assert.assertEquals(plotted.size(), 10);
+		for (int i = 0; i < 10; i++) {
+			if (i % 2 != 0 || i % 3 != 0) {
+				Assert.assertEquals(plotted.get(i), i + 0.5);
+			} else {
+				Assert.assertTrue(Double.isNaN(plotted.get(i)));
+			}
+		}
+	}
+	
 	@Test 
 	public void testUpdateFromDataFeedNoData() {
 		PlotViewManifestation panel = new PlotViewManifestation(mockComponent, new ViewInfo(PlotViewManifestation.class,"",ViewType.OBJECT));
@@ -412,20 +510,20 @@ public class TestPlotViewRole {
   	    Mockito.when(feed1.getRenderingInfo(Mockito.anyMap())).thenReturn(ri1);
 
 		Map<String, String> dataAPoint2 = new Hashtable<String, String>();
-		dataAPoint2.put(FeedProvider.NORMALIZED_TIME_KEY, "1");
+		dataAPoint2.put(FeedProvider.NORMALIZED_TIME_KEY, "2");
 		dataAPoint2.put(FeedProvider.NORMALIZED_VALUE_KEY, "86.2");
 		dataAPoint2.put(FeedProvider.NORMALIZED_IS_VALID_KEY, "TRUE");
 		dataAPoint2.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
 
 
 		Map<String, String> dataAPoint3 = new Hashtable<String, String>();
-		dataAPoint3.put(FeedProvider.NORMALIZED_TIME_KEY, "1");
+		dataAPoint3.put(FeedProvider.NORMALIZED_TIME_KEY, "3");
 		dataAPoint3.put(FeedProvider.NORMALIZED_VALUE_KEY, "");
 		dataAPoint3.put(FeedProvider.NORMALIZED_IS_VALID_KEY, "TRUE");
 		dataAPoint3.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
 
 		Map<String, String> dataAPoint4 = new Hashtable<String, String>();
-		dataAPoint4.put(FeedProvider.NORMALIZED_TIME_KEY, "1");
+		dataAPoint4.put(FeedProvider.NORMALIZED_TIME_KEY, "4");
 		dataAPoint4.put(FeedProvider.NORMALIZED_VALUE_KEY, "86.2");
 		dataAPoint4.put(FeedProvider.NORMALIZED_IS_VALID_KEY, "");
 		dataAPoint4.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
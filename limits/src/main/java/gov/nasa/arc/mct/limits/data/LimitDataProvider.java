@@ -21,7 +21,7 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.limits.data;
 
-import gov.nasa.arc.mct.api.feed.DataProvider;
+import gov.nasa.arc.mct.api.feed.ScopedDataProvider;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
 import gov.nasa.arc.mct.limits.LimitLineComponent;
@@ -42,8 +42,14 @@ import java.util.concurrent.TimeUnit;
  * their limit values, and an API to clear that cache. 
  */
 
-public class LimitDataProvider implements DataProvider {
+public class LimitDataProvider implements ScopedDataProvider {
 	public  Map<String, String> limitDefinitions = new ConcurrentHashMap<String, String>();
+	
+	/** 
+	 * Limit definitions compiled into the entries of the samples synthesized for them, so a request only 
+	 * adds the time. Updated together with the definitions.
+	 */
+	private final Map<String, CompiledLimit> compiledLimits = new ConcurrentHashMap<String, CompiledLimit>();
 
 	public  String getLimitDefinition(String key, String value) {
 		return limitDefinitions.get(key);
@@ -52,11 +58,29 @@ public class LimitDataProvider implements DataProvider {
 	public void putLimitDefinition(String key, String value) {
 		assert key != null;
 	    limitDefinitions.put(key, value);
+	    compiledLimits.put(key, new CompiledLimit(value));
 	}
 	
 	public void clearLimitDefinition(String key) {
 		assert key != null;
 	    limitDefinitions.remove(key);
+	    compiledLimits.remove(key);
+	}
+	
+	private CompiledLimit getCompiledLimit(String feedId) {
+		String id = LimitDataProvider.getID(feedId);
+		CompiledLimit limit = compiledLimits.get(id);
+		if (limit == null || !limit.isCompiledFrom(limitDefinitions.get(id))) {
+			// the definitions were changed directly
+			String limitValue = limitDefinitions.get(id);
+			if (limitValue == null) {
+				compiledLimits.remove(id);
+				return null;
+			}
+			limit = new CompiledLimit(limitValue);
+			compiledLimits.put(id, limit);
+		}
+		return limit;
 	}
 
 	@Override
@@ -69,17 +93,13 @@ public class LimitDataProvider implements DataProvider {
 				if (values.isEmpty()){
 					values = new HashMap<String, SortedMap<Long, Map<String,String>>>();
 				}
-				String limitValue = limitDefinitions.get(LimitDataProvider.getID(feedId));
-				if ( limitValue == null) continue;
-				List<Long> timeTags = new ArrayList<Long>(2);
-				timeTags.add(startTime);
-				timeTags.add(endTime);
+				CompiledLimit limit = getCompiledLimit(feedId);
+				if (limit == null) continue;
 
 				SortedMap<Long, Map<String,String>> sortedMap = new TreeMap<Long, Map<String,String>>();
 				values.put(feedId, sortedMap);
-				for (Long prediction: timeTags) {
-					sortedMap.put(prediction, convertPredictionToMap(prediction, limitValue));
-				}
+				sortedMap.put(startTime, limit.toMap(startTime));
+				sortedMap.put(endTime, limit.toMap(endTime));
 			}
 		}
 		return values;
@@ -95,31 +115,44 @@ public class LimitDataProvider implements DataProvider {
 				if (values.isEmpty()){
 					values = new HashMap<String, List<Map<String,String>>>();
 				}
-				String limitValue = this.limitDefinitions.get(feedId);
-				List<Long> predictions = new ArrayList<Long>(2);
-				predictions.add(startTime);
-				predictions.add(endTime);
+				CompiledLimit limit = getCompiledLimit(feedId);
+				if (limit == null) continue;
 				
-				List<Map<String,String>> list = new ArrayList<Map<String,String>>(predictions.size());
+				List<Map<String,String>> list = new ArrayList<Map<String,String>>(2);
 				values.put(feedId, list);
-				for (Long prediction: predictions) {
-					list.add(convertPredictionToMap(prediction, limitValue)); 
-				}
+				list.add(limit.toMap(startTime));
+				list.add(limit.toMap(endTime));
 			}
 		}
 		return values;
 	}
 	
-	private Map<String, String> convertPredictionToMap(Long time, String stringifiedValue) {
-		Map<String,String> data = new HashMap<String,String>();
-		data.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(time));
-		data.put(FeedProvider.NORMALIZED_VALUE_KEY, stringifiedValue);
-
-		RenderingInfo ri = LimitLineComponent.getRenderingInfo(stringifiedValue);
-		data.put(FeedProvider.NORMALIZED_RENDERING_INFO, ri.toString());
-		data.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
+	/**
+	 * A limit definition with the rendering info of its samples resolved once.
+	 */
+	private static final class CompiledLimit {
+		private final String value;
+		private final String renderingInfo;
+		
+		public CompiledLimit(String value) {
+			this.value = value;
+			RenderingInfo ri = LimitLineComponent.getRenderingInfo(value);
+			renderingInfo = ri.toString();
+		}
+		
+		public boolean isCompiledFrom(String definition) {
+			return value == definition || (value != null && value.equals(definition));
+		}
 		
-		return data;
+		public Map<String, String> toMap(long time) {
+			Map<String,String> data = new HashMap<String,String>();
+			data.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(time));
+			data.put(FeedProvider.NORMALIZED_VALUE_KEY, value);
+			data.put(FeedProvider.NORMALIZED_RENDERING_INFO, renderingInfo);
+			data.put(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
+			
+			return data;
+		}
 	}
 	
 	/** Returns true if this feed ID corresponds to a limit component.
@@ -139,6 +172,11 @@ public class LimitDataProvider implements DataProvider {
 		return topicID.substring(topicID.indexOf(':') + 1);
 	}
 	
+	@Override
+	public boolean canProvide(String feedID) {
+		return isLimitFeedID(feedID);
+	}
+	
 	@Override
 	public LOS getLOS() {
 		return LOS.medium;
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.limits.data;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.limits.LimitLineComponent;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LimitDataProviderTest {
+
+	private static final String FEED_ID = LimitLineComponent.LIMIT_FEED_PREFIX + "limit1";
+
+	@Test
+	public void testGetData() {
+		LimitDataProvider provider = new LimitDataProvider();
+		provider.putLimitDefinition("limit1", "1.5");
+		
+		List<Map<String, String>> list = provider.getData(Collections.singleton(FEED_ID), TimeUnit.MILLISECONDS, 10, 20).get(FEED_ID);
+		Assert.assertEquals(list.size(), 2);
+		assertSample(list.get(0), 10, "1.5");
+		assertSample(list.get(1), 20, "1.5");
+		
+		SortedMap<Long, Map<String, String>> sorted = provider.getData(Collections.singleton(FEED_ID), 10, 20, TimeUnit.MILLISECONDS).get(FEED_ID);
+		Assert.assertEquals(sorted.size(), 2);
+		assertSample(sorted.get(10L), 10, "1.5");
+		assertSample(sorted.get(20L), 20, "1.5");
+		
+		// samples are not shared between requests
+		Assert.assertNotSame(provider.getData(Collections.singleton(FEED_ID), TimeUnit.MILLISECONDS, 10, 20).get(FEED_ID).get(0), list.get(0));
+	}
+	
+	@Test
+	public void testDefinitionChanges() {
+		LimitDataProvider provider = new LimitDataProvider();
+		provider.putLimitDefinition("limit1", "1.5");
+		provider.putLimitDefinition("limit1", "2.5");
+		assertSample(provider.getData(Collections.singleton(FEED_ID), TimeUnit.MILLISECONDS, 10, 20).get(FEED_ID).get(0), 10, "2.5");
+		
+		// definitions changed without the provider methods are picked up
+		provider.limitDefinitions.put("limit1", "3.5");
+		assertSample(provider.getData(Collections.singleton(FEED_ID), TimeUnit.MILLISECONDS, 10, 20).get(FEED_ID).get(0), 10, "3.5");
+		
+		provider.clearLimitDefinition("limit1");
+		Assert.assertNull(provider.getData(Collections.singleton(FEED_ID), TimeUnit.MILLISECONDS, 10, 20).get(FEED_ID));
+		Assert.assertNull(provider.getData(Collections.singleton(FEED_ID), 10, 20, TimeUnit.MILLISECONDS).get(FEED_ID));
+		
+		// feeds which are not limits are not provided
+		Assert.assertTrue(provider.getData(new HashSet<String>(Collections.singleton("other")), TimeUnit.MILLISECONDS, 10, 20).isEmpty());
+	}
+	
+	private void assertSample(Map<String, String> sample, long time, String value) {
+		Assert.assertEquals(sample.get(FeedProvider.NORMALIZED_TIME_KEY), Long.toString(time));
+		Assert.assertEquals(sample.get(FeedProvider.NORMALIZED_VALUE_KEY), value);
+		Assert.assertEquals(sample.get(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY), "1");
+		FeedProvider.RenderingInfo ri = FeedProvider.RenderingInfo.valueOf(sample.get(FeedProvider.NORMALIZED_RENDERING_INFO));
+		Assert.assertEquals(ri.getValueText(), value);
+		Assert.assertTrue(ri.isValid());
+	}
+}
@@ -0,0 +1,629 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.RandomAccess;
+
+/**
+ * A columnar representation of a time ordered sequence of feed samples. Instead of holding one 
+ * <code>Map&lt;String,String&gt;</code> per sample, a batch keeps the timestamps and numeric values
+ * in parallel primitive arrays, packs the validity into a flag array and dictionary codes the 
+ * status and rendering info strings, which typically repeat for every sample of a feed. 
+ * <p>
+ * The batch uses the same normalized keys as the map based representation (time, data, ri, isValid
+ * and status). {@link #fromMaps(Collection)} and {@link #toMaps()} adapt between the two 
+ * representations, so providers which produce maps can be consumed through a batch and vice versa. 
+ * {@link #asMaps()} presents a batch as a list of maps without copying it, so a batch can be passed
+ * through code written for the map representation and recovered with {@link #batchOf(List)} by the 
+ * consumers reading the columns directly. Keys outside the normalized set are carried along unchanged.
+ * <p>
+ * This class is not thread safe, a batch is expected to be filled by a single thread and then
+ * handed off for reading. 
+ */
+public final class FeedSampleBatch {
+    /** Key for the sample time, same as <code>FeedProvider.NORMALIZED_TIME_KEY</code>. */
+    public static final String TIME_KEY = "time";
+    /** Key for the sample value, same as <code>FeedProvider.NORMALIZED_VALUE_KEY</code>. */
+    public static final String VALUE_KEY = "data";
+    /** Key for the rendering info, same as <code>FeedProvider.NORMALIZED_RENDERING_INFO</code>. */
+    public static final String RENDERING_INFO_KEY = "ri";
+    /** Key for the validity, same as <code>FeedProvider.NORMALIZED_IS_VALID_KEY</code>. */
+    public static final String IS_VALID_KEY = "isValid";
+    /** Key for the status class, same as <code>FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY</code>. */
+    public static final String STATUS_KEY = "status";
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int NO_CODE = -1;
+    
+    private static final byte HAS_TIME = 1;
+    private static final byte HAS_VALUE = 1 << 1;
+    private static final byte NUMERIC = 1 << 2;
+    private static final byte HAS_VALIDITY = 1 << 3;
+    private static final byte VALID = 1 << 4;
+    
+    private long[] times;
+    private double[] values;
+    private byte[] flags;
+    private int[] statusCodes;
+    private int[] renderingInfoCodes;
+    /** Only allocated once a non numeric value is added. */
+    private String[] valueTexts;
+    /** Only allocated once a sample with non normalized keys is added. */
+    private Map<String, String>[] extras;
+    private int size;
+    
+    private final List<String> dictionary = new ArrayList<String>();
+    private final Map<String, Integer> dictionaryCodes = new HashMap<String, Integer>();
+    
+    /**
+     * Creates an empty batch.
+     */
+    public FeedSampleBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates an empty batch able to hold the given number of samples without growing.
+     * @param initialCapacity number of samples to reserve space for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public FeedSampleBatch(int initialCapacity) throws IllegalArgumentException {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initial capacity must not be negative");
+        }
+        times = new long[initialCapacity];
+        values = new double[initialCapacity];
+        flags = new byte[initialCapacity];
+        statusCodes = new int[initialCapacity];
+        renderingInfoCodes = new int[initialCapacity];
+    }
+    
+    /**
+     * Appends a numeric sample.
+     * @param time of the sample
+     * @param value of the sample
+     * @param valid true if the sample is valid
+     * @param status the status class of the sample, may be null
+     * @param renderingInfo the string form of the rendering info of the sample, may be null
+     */
+    public void add(long time, double value, boolean valid, String status, String renderingInfo) {
+        int i = reserve();
+        times[i] = time;
+        values[i] = value;
+        flags[i] = (byte) (HAS_TIME | HAS_VALUE | NUMERIC | HAS_VALIDITY | (valid ? VALID : 0));
+        statusCodes[i] = encode(status);
+        renderingInfoCodes[i] = encode(renderingInfo);
+    }
+    
+    /**
+     * Appends a sample given in the map based representation. The value is stored as a 
+     * primitive if it can be parsed as a double, otherwise the text is retained. 
+     * @param sample to add, must contain the time key
+     * @throws IllegalArgumentException if the sample does not have a time
+     * @throws NumberFormatException if the time cannot be parsed
+     */
+    public void add(Map<String, String> sample) throws IllegalArgumentException, NumberFormatException {
+        String time = sample.get(TIME_KEY);
+        if (time == null) {
+            throw new IllegalArgumentException("sample does not contain a " + TIME_KEY + " entry");
+        }
+        add(Long.parseLong(time), sample);
+    }
+    
+    /**
+     * Appends a sample given in the map based representation using the given time if the 
+     * sample does not carry its own time. 
+     * @param defaultTime to use if the sample does not contain the time key
+     * @param sample to add
+     * @throws NumberFormatException if the time in the sample cannot be parsed
+     */
+    public void add(long defaultTime, Map<String, String> sample) throws NumberFormatException {
+        int i = reserve();
+        byte f = 0;
+        String time = sample.get(TIME_KEY);
+        if (time != null) {
+            times[i] = Long.parseLong(time);
+            f |= HAS_TIME;
+        } else {
+            times[i] = defaultTime;
+        }
+        
+        String value = sample.get(VALUE_KEY);
+        values[i] = Double.NaN;
+        if (value != null) {
+            f |= HAS_VALUE;
+            double d = parseDouble(value);
+            if (!Double.isNaN(d) && Double.toString(d).equals(value)) {
+                values[i] = d;
+                f |= NUMERIC;
+            } else {
+                if (valueTexts == null) {
+                    valueTexts = new String[times.length];
+                }
+                valueTexts[i] = value;
+                if (!Double.isNaN(d)) {
+                    values[i] = d;
+                    f |= NUMERIC;
+                }
+            }
+        }
+        
+        String isValid = sample.get(IS_VALID_KEY);
+        if (isValid != null) {
+            f |= HAS_VALIDITY;
+            if (Boolean.parseBoolean(isValid)) {
+                f |= VALID;
+            }
+        }
+        flags[i] = f;
+        statusCodes[i] = encode(sample.get(STATUS_KEY));
+        renderingInfoCodes[i] = encode(sample.get(RENDERING_INFO_KEY));
+        
+        if (sample.size() > countNormalizedKeys(f, i)) {
+            Map<String, String> extra = null;
+            for (Entry<String, String> entry : sample.entrySet()) {
+                if (!isNormalizedKey(entry.getKey())) {
+                    if (extra == null) {
+                        extra = new HashMap<String, String>();
+                    }
+                    extra.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (extra != null) {
+                if (extras == null) {
+                    extras = newExtras(times.length);
+                }
+                extras[i] = extra;
+            }
+        }
+    }
+    
+    /**
+     * Appends all the samples in the given batch to this batch.
+     * @param other batch to append
+     */
+    public void addAll(FeedSampleBatch other) {
+        for (int i = 0; i < other.size; i++) {
+            int j = reserve();
+            times[j] = other.times[i];
+            values[j] = other.values[i];
+            flags[j] = other.flags[i];
+            statusCodes[j] = encode(other.decode(other.statusCodes[i]));
+            renderingInfoCodes[j] = encode(other.decode(other.renderingInfoCodes[i]));
+            if (other.valueTexts != null && other.valueTexts[i] != null) {
+                if (valueTexts == null) {
+                    valueTexts = new String[times.length];
+                }
+                valueTexts[j] = other.valueTexts[i];
+            }
+            if (other.extras != null && other.extras[i] != null) {
+                if (extras == null) {
+                    extras = newExtras(times.length);
+                }
+                extras[j] = other.extras[i];
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of samples in this batch.
+     * @return number of samples
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Returns true if there are no samples in this batch.
+     * @return true if the batch is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Returns the time of a sample.
+     * @param index of the sample
+     * @return the time of the sample
+     */
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+    
+    /**
+     * Sets the time of a sample.
+     * @param index of the sample
+     * @param time of the sample
+     */
+    public void setTime(int index, long time) {
+        checkIndex(index);
+        times[index] = time;
+        flags[index] |= HAS_TIME;
+    }
+    
+    /**
+     * Returns the numeric value of a sample.
+     * @param index of the sample
+     * @return the value, or NaN if the value is not numeric
+     */
+    public double getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+    
+    /**
+     * Returns true if the value of the sample is numeric. 
+     * @param index of the sample
+     * @return true if {@link #getValue(int)} returns the sample value
+     */
+    public boolean isNumeric(int index) {
+        checkIndex(index);
+        return (flags[index] & NUMERIC) != 0;
+    }
+    
+    /**
+     * Returns the value of the sample as text, as it would appear in the map representation. 
+     * @param index of the sample
+     * @return the value as text or null if the sample does not have a value
+     */
+    public String getValueText(int index) {
+        checkIndex(index);
+        if (valueTexts != null && valueTexts[index] != null) {
+            return valueTexts[index];
+        }
+        if ((flags[index] & HAS_VALUE) == 0) {
+            return null;
+        }
+        return Double.toString(values[index]);
+    }
+    
+    /**
+     * Returns the validity of the sample. Samples which do not carry validity are considered valid. 
+     * @param index of the sample
+     * @return true if the sample is valid
+     */
+    public boolean isValid(int index) {
+        checkIndex(index);
+        byte f = flags[index];
+        return (f & HAS_VALIDITY) == 0 || (f & VALID) != 0;
+    }
+    
+    /**
+     * Returns the status class of the sample.
+     * @param index of the sample
+     * @return the status class or null if none was given
+     */
+    public String getStatus(int index) {
+        checkIndex(index);
+        return decode(statusCodes[index]);
+    }
+    
+    /**
+     * Returns the string form of the rendering info of the sample.
+     * @param index of the sample
+     * @return the rendering info or null if none was given
+     */
+    public String getRenderingInfo(int index) {
+        checkIndex(index);
+        return decode(renderingInfoCodes[index]);
+    }
+    
+    /**
+     * Returns the index of the first sample with a time greater than or equal to the given time, 
+     * assuming the samples were added in time order. 
+     * @param time to search for
+     * @return index of the first sample at or after time, or {@link #size()} if there is none
+     */
+    public int indexOf(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Returns a copy of the timestamps in this batch.
+     * @return the timestamps, one per sample
+     */
+    public long[] getTimes() {
+        return Arrays.copyOf(times, size);
+    }
+    
+    /**
+     * Returns a copy of the values in this batch. Non numeric values are NaN. 
+     * @return the values, one per sample
+     */
+    public double[] getValues() {
+        return Arrays.copyOf(values, size);
+    }
+    
+    /**
+     * Returns the sample at the given index in the map based representation. 
+     * @param index of the sample
+     * @return a new map containing the sample
+     */
+    public Map<String, String> toMap(int index) {
+        checkIndex(index);
+        Map<String, String> sample = new HashMap<String, String>();
+        if (extras != null && extras[index] != null) {
+            sample.putAll(extras[index]);
+        }
+        byte f = flags[index];
+        if ((f & HAS_TIME) != 0) {
+            sample.put(TIME_KEY, Long.toString(times[index]));
+        }
+        String value = getValueText(index);
+        if (value != null) {
+            sample.put(VALUE_KEY, value);
+        }
+        if ((f & HAS_VALIDITY) != 0) {
+            sample.put(IS_VALID_KEY, Boolean.toString((f & VALID) != 0));
+        }
+        String status = decode(statusCodes[index]);
+        if (status != null) {
+            sample.put(STATUS_KEY, status);
+        }
+        String ri = decode(renderingInfoCodes[index]);
+        if (ri != null) {
+            sample.put(RENDERING_INFO_KEY, ri);
+        }
+        return sample;
+    }
+    
+    /**
+     * Returns the samples in this batch in the map based representation. 
+     * @return a new list with one map per sample, in the order the samples were added
+     */
+    public List<Map<String, String>> toMaps() {
+        List<Map<String, String>> samples = new ArrayList<Map<String, String>>(size);
+        for (int i = 0; i < size; i++) {
+            samples.add(toMap(i));
+        }
+        return samples;
+    }
+    
+    /**
+     * Returns a read only view of the samples in this batch in the map based representation. The map 
+     * of a sample is created when the sample is read, and each read creates a new map, so consumers
+     * reading a few samples of a large batch do not pay for the others. 
+     * @return list with one map per sample, in the order the samples were added
+     */
+    public List<Map<String, String>> asMaps() {
+        return new SampleList(this);
+    }
+    
+    /**
+     * Returns a copy of this batch, which can be modified without affecting this batch. 
+     * @return a new batch containing the samples of this batch
+     */
+    public FeedSampleBatch copy() {
+        FeedSampleBatch copy = new FeedSampleBatch(0);
+        copy.times = Arrays.copyOf(times, size);
+        copy.values = Arrays.copyOf(values, size);
+        copy.flags = Arrays.copyOf(flags, size);
+        copy.statusCodes = Arrays.copyOf(statusCodes, size);
+        copy.renderingInfoCodes = Arrays.copyOf(renderingInfoCodes, size);
+        if (valueTexts != null) {
+            copy.valueTexts = Arrays.copyOf(valueTexts, size);
+        }
+        if (extras != null) {
+            copy.extras = Arrays.copyOf(extras, size);
+        }
+        copy.dictionary.addAll(dictionary);
+        copy.dictionaryCodes.putAll(dictionaryCodes);
+        copy.size = size;
+        return copy;
+    }
+    
+    /**
+     * Returns the batch a list of samples is a view of. 
+     * @param samples list of samples
+     * @return the batch, or null if the list was not returned by {@link #asMaps()}
+     */
+    public static FeedSampleBatch batchOf(List<Map<String, String>> samples) {
+        return samples instanceof SampleList ? ((SampleList) samples).batch : null;
+    }
+    
+    /**
+     * Creates a batch from samples in the map based representation. 
+     * @param samples to add, each must contain the time key
+     * @return a new batch containing the samples
+     */
+    public static FeedSampleBatch fromMaps(Collection<Map<String, String>> samples) {
+        FeedSampleBatch batch = new FeedSampleBatch(samples.size());
+        for (Map<String, String> sample : samples) {
+            batch.add(sample);
+        }
+        return batch;
+    }
+    
+    /**
+     * Creates batches from a time keyed set of samples as returned by a {@link DataProvider}. The 
+     * key is used as the time for samples without a time entry. 
+     * @param samples time ordered samples
+     * @return a new batch containing the samples
+     */
+    public static FeedSampleBatch fromTimeMap(Map<Long, Map<String, String>> samples) {
+        FeedSampleBatch batch = new FeedSampleBatch(samples.size());
+        for (Entry<Long, Map<String, String>> entry : samples.entrySet()) {
+            batch.add(entry.getKey().longValue(), entry.getValue());
+        }
+        return batch;
+    }
+    
+    /**
+     * Adapts a response from {@link FeedAggregator#getData(java.util.Set, java.util.concurrent.TimeUnit, long, long)} 
+     * into batches.
+     * @param data map from feed id to samples
+     * @return map from feed id to batch
+     */
+    public static Map<String, FeedSampleBatch> fromMaps(Map<String, ? extends Collection<Map<String, String>>> data) {
+        Map<String, FeedSampleBatch> batches = new LinkedHashMap<String, FeedSampleBatch>(data.size() * 2);
+        for (Entry<String, ? extends Collection<Map<String, String>>> entry : data.entrySet()) {
+            batches.put(entry.getKey(), fromMaps(entry.getValue()));
+        }
+        return batches;
+    }
+    
+    /**
+     * Adapts batches into the map based representation used by 
+     * {@link FeedAggregator#getData(java.util.Set, java.util.concurrent.TimeUnit, long, long)}.
+     * @param batches map from feed id to batch
+     * @return map from feed id to samples
+     */
+    public static Map<String, List<Map<String, String>>> toMaps(Map<String, FeedSampleBatch> batches) {
+        Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>(batches.size() * 2);
+        for (Entry<String, FeedSampleBatch> entry : batches.entrySet()) {
+            data.put(entry.getKey(), entry.getValue().toMaps());
+        }
+        return data;
+    }
+    
+    /**
+     * Adapts batches into the map based representation used by 
+     * {@link FeedAggregator#getData(java.util.Set, java.util.concurrent.TimeUnit, long, long)} without 
+     * copying the samples, see {@link #asMaps()}.
+     * @param batches map from feed id to batch
+     * @return map from feed id to a view of the samples of the batch
+     */
+    public static Map<String, List<Map<String, String>>> asMaps(Map<String, FeedSampleBatch> batches) {
+        Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>(batches.size() * 2);
+        for (Entry<String, FeedSampleBatch> entry : batches.entrySet()) {
+            data.put(entry.getKey(), entry.getValue().asMaps());
+        }
+        return data;
+    }
+    
+    private int reserve() {
+        if (size == times.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, times.length + (times.length >> 1));
+            times = Arrays.copyOf(times, capacity);
+            values = Arrays.copyOf(values, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            statusCodes = Arrays.copyOf(statusCodes, capacity);
+            renderingInfoCodes = Arrays.copyOf(renderingInfoCodes, capacity);
+            if (valueTexts != null) {
+                valueTexts = Arrays.copyOf(valueTexts, capacity);
+            }
+            if (extras != null) {
+                extras = Arrays.copyOf(extras, capacity);
+            }
+        }
+        return size++;
+    }
+    
+    private int encode(String s) {
+        if (s == null) {
+            return NO_CODE;
+        }
+        Integer code = dictionaryCodes.get(s);
+        if (code == null) {
+            code = Integer.valueOf(dictionary.size());
+            dictionary.add(s);
+            dictionaryCodes.put(s, code);
+        }
+        return code.intValue();
+    }
+    
+    private String decode(int code) {
+        return code == NO_CODE ? null : dictionary.get(code);
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+    
+    private int countNormalizedKeys(byte f, int index) {
+        int count = 0;
+        if ((f & HAS_TIME) != 0) { count++; }
+        if ((f & HAS_VALUE) != 0) { count++; }
+        if ((f & HAS_VALIDITY) != 0) { count++; }
+        if (statusCodes[index] != NO_CODE) { count++; }
+        if (renderingInfoCodes[index] != NO_CODE) { count++; }
+        return count;
+    }
+    
+    private static boolean isNormalizedKey(String key) {
+        return TIME_KEY.equals(key) || VALUE_KEY.equals(key) || RENDERING_INFO_KEY.equals(key) ||
+               IS_VALID_KEY.equals(key) || STATUS_KEY.equals(key);
+    }
+    
+    private static double parseDouble(String value) {
+        if (value.length() == 0) {
+            return Double.NaN;
+        }
+        char c = value.charAt(0);
+        if (!(Character.isDigit(c) || c == '-' || c == '+' || c == '.')) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException nfe) {
+            return Double.NaN;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, String>[] newExtras(int capacity) {
+        return (Map<String, String>[]) new Map<?, ?>[capacity];
+    }
+    
+    /**
+     * List of maps view of a batch.
+     */
+    private static final class SampleList extends AbstractList<Map<String, String>> implements RandomAccess {
+        private final FeedSampleBatch batch;
+        
+        public SampleList(FeedSampleBatch batch) {
+            this.batch = batch;
+        }
+        
+        @Override
+        public Map<String, String> get(int index) {
+            return batch.toMap(index);
+        }
+        
+        @Override
+        public int size() {
+            return batch.size;
+        }
+    }
+}
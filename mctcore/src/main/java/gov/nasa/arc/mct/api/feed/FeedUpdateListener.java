@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.Set;
+
+/**
+ * This interface defines a listener notified when data is written to a {@link ObservableFeedAggregator}.
+ *
+ */
+public interface FeedUpdateListener {
+    /**
+     * Invoked on the thread writing the data once the data of the feeds can be retrieved. Implementations 
+     * must return quickly and should only record the feeds for later processing.
+     * @param feedIDs of the feeds with new data, this set must not be modified or retained.
+     */
+    public void feedsUpdated(Set<String> feedIDs);
+}
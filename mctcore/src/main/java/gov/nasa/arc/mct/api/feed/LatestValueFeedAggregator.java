@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This interface defines the api for a Feed Aggregator which keeps the latest sample of every feed. 
+ *
+ */
+public interface LatestValueFeedAggregator extends FeedAggregator {
+    /**
+     * Returns the latest sample of each feed. This is cheaper than {@link FeedAggregator#getData(Set, java.util.concurrent.TimeUnit, long, long)} 
+     * for consumers which only display the current value, as the samples are kept in memory as they are written.
+     * @param feedIDs to retrieve the latest sample for
+     * @return map of the latest sample of the specified feeds, feeds without data are not included. The 
+     * samples are shared and cannot be modified.
+     */
+    public Map<String, Map<String, String>> getLatest(Set<String> feedIDs);
+}
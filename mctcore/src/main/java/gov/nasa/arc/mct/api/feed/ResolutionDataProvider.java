@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This interface defines a data provider which can reduce the data it returns to a target resolution.
+ *
+ */
+public interface ResolutionDataProvider extends DataProvider {
+    /**
+     * Returns a map of data for each feed reduced to the given resolution. The time span is cut into intervals 
+     * no wider than the resolution and for each interval at most the first, minimum, maximum and last samples 
+     * are returned, so the envelope of the data is preserved. The returned samples are original samples, not 
+     * averages. If the provider cannot reduce the data to the resolution the data is returned as by 
+     * {@link DataProvider#getData(Set, long, long, TimeUnit)}.
+     * @param feedIDs to retrieve data for
+     * @param startTime the start time of the return data set.
+     * @param endTime the end time of the return data set.
+     * @param resolution the width of the time interval represented by one point of the consumer, such as a pixel of a plot.
+     * @param timeUnit the time unit of startTime, endTime and resolution parameters.
+     * @return map of data for the specified feeds. Each entry in the map has data 
+     * with a timestamp that is >= startTime and <= endTime ordered according to the time.
+     */
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, long startTime, long endTime, long resolution, TimeUnit timeUnit);
+}
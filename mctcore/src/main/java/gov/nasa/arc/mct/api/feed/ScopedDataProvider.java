@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+/**
+ * This interface defines a data provider which knows the feeds it can serve. The feed aggregator queries 
+ * a slower provider concurrently with faster ones only for feeds none of the faster providers can serve.
+ *
+ */
+public interface ScopedDataProvider extends DataProvider {
+    /**
+     * Returns true if this provider may return data for the feed. Returning true for a feed the provider 
+     * has no data for is allowed, but returning false for a feed it has data for is not.
+     * @param feedID to check
+     * @return false if this provider never returns data for the feed
+     */
+    public boolean canProvide(String feedID);
+}
@@ -21,7 +21,10 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.ColumnarFeedAggregator;
 import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedSampleBatch;
+import gov.nasa.arc.mct.api.feed.ResolutionFeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.platform.spi.PlatformAccess;
 import gov.nasa.arc.mct.util.internal.ElapsedTimer;
@@ -44,7 +47,9 @@ import javax.swing.SwingWorker;
 /**
  * Provide a worker to retrieve feed data for the cycle set in batch (all the
  * views requesting) and render the views in the AWT thread. The feed paint
- * requests happen in batch at the frequency of the paint rate.
+ * requests happen in batch at the frequency of the paint rate. Data from a
+ * {@link ColumnarFeedAggregator} is carried to the views as {@link FeedSampleBatch}
+ * views, which the views can read through {@link FeedSampleBatch#batchOf(List)}.
  * 
  */
 class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> {
@@ -53,6 +58,7 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
                     .getLogger("gov.nasa.arc.mct.performance.feeds.pool");
 
     private final Set<FeedView> activeFeedViews;
+    private final FeedViewIndex feedViewIndex;
     private final Map<FeedProvider, Long[]> times;
     private final ElapsedTimer dataRequestTimer = new ElapsedTimer();
     private final ElapsedTimer uiRenderingTimer = new ElapsedTimer();
@@ -68,8 +74,26 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
      */
     public FeedCycleRenderer(Map<FeedProvider, Long[]> timeMapping,
                     Set<FeedView> activeViews) {
+        this(timeMapping, activeViews, null);
+    }
+
+    /**
+     * Create a new instance of a worker to retrieve and render feed data, dispatching 
+     * to each view only the data of the feeds it shows.
+     * 
+     * @param timeMapping
+     *            currently in the request set for the feed providers.
+     * @param activeViews
+     *            views current maintained
+     * @param viewIndex
+     *            index of the active views by feed, or null to dispatch all the data to
+     *            every active view
+     */
+    FeedCycleRenderer(Map<FeedProvider, Long[]> timeMapping,
+                    Set<FeedView> activeViews, FeedViewIndex viewIndex) {
         activeFeedViews = activeViews;
         times = timeMapping;
+        feedViewIndex = viewIndex;
     }
 
     /**
@@ -131,6 +155,16 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
         return lastRequests.isEmpty() ? fullSpanRequests:Collections.<Request,Set<FeedProvider>>emptyMap();
     }
     
+    /**
+     * Returns the time span, in milliseconds, represented by one point of the views the data is requested for. 
+     * Feed aggregators able to reduce the data return at most a few samples per span. The default implementation 
+     * returns 0, requesting all the data.
+     * @return the resolution of the request in milliseconds, or 0 for all the data
+     */
+    protected long getRequestResolution() {
+        return 0;
+    }
+    
     @Override
     protected Map<String, List<Map<String, String>>> doInBackground() {
         dataRequestTimer.startInterval();
@@ -160,7 +194,14 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
                     
                     Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
                     if (feedAggregator != null) { 
-                        data = feedAggregator.getData(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime());
+                        long resolution = getRequestResolution();
+                        if (feedAggregator instanceof ColumnarFeedAggregator) {
+                            data = FeedSampleBatch.asMaps(ColumnarFeedAggregator.class.cast(feedAggregator).getSampleBatches(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime(), resolution));
+                        } else if (resolution > 0 && feedAggregator instanceof ResolutionFeedAggregator) {
+                            data = ResolutionFeedAggregator.class.cast(feedAggregator).getData(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime(), resolution);
+                        } else {
+                            data = feedAggregator.getData(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime());
+                        }
                     }
                     
                     Map<String, List<Map<String,String>>> adjValues = adjustResponses(data, r.getStartTime());
@@ -191,7 +232,14 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
             // only adjust the value for a request that returns a single data point as this could be the case where the
             // time of the data point is less than the start time, if so then shift the request time to be the value at the
             // start time
-            if (dataValues.size() >= 1) {
+            FeedSampleBatch batch = FeedSampleBatch.batchOf(dataValues);
+            if (batch != null) {
+                if (!batch.isEmpty() && batch.getTime(0) < startTime) {
+                    FeedSampleBatch batch2 = batch.copy();
+                    batch2.setTime(0, startTime);
+                    entry.setValue(batch2.asMaps());
+                }
+            } else if (dataValues.size() >= 1) {
                 Map<String, String> value = dataValues.get(0);
                 Long l = Long.parseLong(value.get(FeedProvider.NORMALIZED_TIME_KEY));
                 if (l < startTime) {
@@ -303,6 +351,17 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
     
     private void dispatchDataToFeeds(Map<String, List<Map<String, String>>> data) {
         uiRenderingTimer.startInterval();
+        if (feedViewIndex != null) {
+            for (Entry<FeedView, Map<String, List<Map<String, String>>>> slice : feedViewIndex.slice(data).entrySet()) {
+                try {
+                    dispatchToFeed(slice.getKey(), slice.getValue());
+                } catch (Exception e) {
+                    LOGGER.error("exception occurred while invoking updateFromFeed " + slice.getKey(), e);
+                }
+            }
+            uiRenderingTimer.stopInterval();
+            return;
+        }
         for (FeedView fvm : activeFeedViews) {
             try {
                 dispatchToFeed(fvm, data);
@@ -21,9 +21,14 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedUpdateListener;
+import gov.nasa.arc.mct.api.feed.ObservableFeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.util.ComponentModelUtil;
 import gov.nasa.arc.mct.gui.FeedView.SynchronizationControl;
+import gov.nasa.arc.mct.gui.RenderScheduler.Lane;
+import gov.nasa.arc.mct.platform.spi.Platform;
 import gov.nasa.arc.mct.platform.spi.PlatformAccess;
 import gov.nasa.arc.mct.platform.spi.SubscriptionManager;
 import gov.nasa.arc.mct.services.activity.TimeService;
@@ -77,11 +82,23 @@ import javax.swing.SwingWorker;
  * 
  * This class will only start a maximum number of worker threads, if the current cycle would exceed 
  * the number of worker threads. The cycle is skipped and the next cycle will request a longer
- * time range. 
+ * time range. The cycle workers run in the realtime lane of a {@link RenderScheduler}, apart from the
+ * special requests of the views, so historical requests do not delay the cycles. 
  * 
  * During the rendering cycle, subscriptions are managed using referencing counting. Thus when a 
  * transition from zero to one feed views occurs a subscription is requested and when the number of views
  * transitions from one to zero a subscription is removed. 
+ * 
+ * When the feed aggregator notifies writes (see {@link ObservableFeedAggregator}) the pool renders in push 
+ * mode: the written feeds are marked dirty and each cycle only requests data for the dirty feeds, so a cycle 
+ * without new data costs nothing. Feeds whose data is not written through the aggregator, such as feeds 
+ * generating their data when it is read, are never notified, so a feed is requested on every cycle until its 
+ * first write is notified. Subscriptions are then refreshed when views are added or removed and 
+ * once a second to follow changes in the visible feeds. 
+ * 
+ * The data of a cycle is dispatched through an index of the views by feed, maintained when the subscriptions 
+ * are handled, so each view only receives the data of the feeds it shows and views without new data are not 
+ * updated. 
  */
 class FeedRenderingPool {
     private final Timer timer;
@@ -92,13 +109,39 @@ class FeedRenderingPool {
      */
     private Set<FeedProvider> activeSubscriptions = Collections.emptySet();
     private final Set<FeedView> activeFeedViews = new ConcurrentSkipListSet<FeedView>(new IdentityComparator());
+    /** The active views by feed, updated from the timer thread when the subscriptions are handled. */
+    private final FeedViewIndex feedViewIndex = new FeedViewIndex(activeFeedViews);
     private static final MCTLogger LOGGER = MCTLogger.getLogger(FeedRenderingPool.class);
     private final AtomicInteger activeRenderers = new AtomicInteger(0);
-    private static final int MAX_ACTIVE_REQUESTS = 1;
+    /** Runs the workers, the cycle workers in the realtime lane and the special requests of the views in the other lanes. */
+    private final RenderScheduler renderScheduler = new RenderScheduler();
     private final ConcurrentHashMap<FeedProvider, Long> activeFeeds = new ConcurrentHashMap<FeedProvider, Long>();
     private final AtomicReference<SynchronizationControl> activeSyncControl = new AtomicReference<SynchronizationControl>();
     private AtomicBoolean exceededMaxSubscriptions = new AtomicBoolean(false);
     private static final int maxSubscriptions = initMaxSubscriptions();
+    private static final boolean pushRenderingEnabled = initPushRendering();
+    private static final long SUBSCRIPTION_REFRESH_MILLIS = 1000;
+    /** Subscription ids of the active feeds, written from the timer thread and read by the update listener. */
+    private volatile Set<String> subscribedFeedIDs = Collections.emptySet();
+    private final Set<String> dirtyFeeds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** Subscription ids of the active feeds whose writes have been notified, the other feeds are polled. */
+    private final Set<String> pushedFeeds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicBoolean viewsChanged = new AtomicBoolean(true);
+    /** The aggregator notifying the update listener, only accessed from the timer thread. */
+    private ObservableFeedAggregator observedAggregator;
+    private long lastSubscriptionRefresh;
+    private final FeedUpdateListener updateListener = new FeedUpdateListener() {
+        @Override
+        public void feedsUpdated(Set<String> feedIDs) {
+            Set<String> subscribed = subscribedFeedIDs;
+            for (String feedID : feedIDs) {
+                if (subscribed.contains(feedID)) {
+                    pushedFeeds.add(feedID);
+                    dirtyFeeds.add(feedID);
+                }
+            }
+        }
+    };
     private static final Comparator<FeedProvider> FEED_COMPARATOR = new Comparator<FeedProvider>() {
         @Override
         public int compare(FeedProvider o1, FeedProvider o2) {
@@ -143,6 +186,9 @@ class FeedRenderingPool {
     
     void cancelTimer() {
         timer.cancel();
+        if (observedAggregator != null) {
+            observedAggregator.removeFeedUpdateListener(updateListener);
+        }
     }
     
     /**
@@ -151,6 +197,7 @@ class FeedRenderingPool {
      */
     public void addFeedView(FeedView manifestation) throws IllegalArgumentException {
         activeFeedViews.add(manifestation);
+        viewsChanged.set(true);
     }
     
     /**
@@ -159,6 +206,8 @@ class FeedRenderingPool {
      */
     public void removeFeedView(FeedView manifestation) {
         activeFeedViews.remove(manifestation);
+        feedViewIndex.remove(manifestation);
+        viewsChanged.set(true);
     }
     
     public SynchronizationControl synchronizeTime(final long syncTime) {
@@ -182,7 +231,7 @@ class FeedRenderingPool {
                  FeedCycleRenderer renderer = createSyncWorker(syncTime, times, activeFeedViews, syncedManifestations);
 
                  try {
-                     renderer.execute();
+                     renderScheduler.execute(renderer, Lane.REALTIME);
                  } catch (Exception e) {
                      LOGGER.error(e);
                  }
@@ -217,7 +266,7 @@ class FeedRenderingPool {
         FeedCycleRenderer renderer = createSyncWorker(syncTime, times, activeFeedViews, syncedManifestations);
         
         try {
-            renderer.execute();
+            renderScheduler.execute(renderer, Lane.REALTIME);
         } catch (Exception e) {
             LOGGER.error(e);
             sc.synchronizationDone();
@@ -239,7 +288,54 @@ class FeedRenderingPool {
     }
     
     FeedCycleRenderer createWorker(Map<FeedProvider, Long[]> times, Set<FeedView> activeFeedViews) {
-        return new FeedCycleRenderer(times, activeFeedViews);
+        return new FeedCycleRenderer(times, activeFeedViews, feedViewIndex);
+    }
+    
+    RenderScheduler getRenderScheduler() {
+        return renderScheduler;
+    }
+    
+    FeedAggregator getFeedAggregator() {
+        Platform platform = PlatformAccess.getPlatform();
+        return platform == null ? null : platform.getFeedAggregator();
+    }
+    
+    /**
+     * Listens to the feed aggregator if it notifies writes. This will only be called from the timer thread.
+     * @return true if the dirty feeds are tracked
+     */
+    private boolean isPushRendering() {
+        if (!pushRenderingEnabled) {
+            return false;
+        }
+        FeedAggregator aggregator = getFeedAggregator();
+        if (aggregator != observedAggregator) {
+            if (observedAggregator != null) {
+                observedAggregator.removeFeedUpdateListener(updateListener);
+                observedAggregator = null;
+            }
+            pushedFeeds.clear();
+            if (aggregator instanceof ObservableFeedAggregator) {
+                observedAggregator = (ObservableFeedAggregator) aggregator;
+                observedAggregator.addFeedUpdateListener(updateListener);
+                // data written before the listener was added has not been marked
+                dirtyFeeds.addAll(subscribedFeedIDs);
+            }
+        }
+        return observedAggregator != null;
+    }
+    
+    /**
+     * Returns true if an active feed has not been notified by the aggregator and has to be polled. 
+     * @return true if a feed is polled
+     */
+    private boolean hasPolledFeeds() {
+        for (FeedProvider feed : activeFeeds.keySet()) {
+            if (!pushedFeeds.contains(feed.getSubscriptionId())) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -247,15 +343,34 @@ class FeedRenderingPool {
      * timer thread. 
      */
     private void startWorker() {
-        handleSubscriptions();
+        boolean push = isPushRendering();
+        long now = System.currentTimeMillis();
+        if (!push || viewsChanged.getAndSet(false) || now - lastSubscriptionRefresh >= SUBSCRIPTION_REFRESH_MILLIS) {
+            lastSubscriptionRefresh = now;
+            handleSubscriptions();
+        }
+        if (!push) {
+            dirtyFeeds.clear();
+        } else if (dirtyFeeds.isEmpty() && !hasPolledFeeds()) {
+            return;
+        }
         
         // if the current number of active requests > max number of threads, then wait for the next
         // one
-        if (activeRenderers.get() < MAX_ACTIVE_REQUESTS && activeSyncControl.get() == null) {
+        if (activeRenderers.get() < renderScheduler.getMaximumWorkers(Lane.REALTIME) && activeSyncControl.get() == null) {
+            Set<String> updatedFeeds = null;
+            if (push) {
+                updatedFeeds = new HashSet<String>(dirtyFeeds);
+                dirtyFeeds.removeAll(updatedFeeds);
+            }
             Map<TimeService,Long> currentTimes = new HashMap<TimeService,Long>();
             Map<FeedProvider,Long[]> times = new TreeMap<FeedProvider,Long[]>(FEED_COMPARATOR);
             for (Entry<FeedProvider,Long> lastTimeMapping:activeFeeds.entrySet()) {
                 FeedProvider feed = lastTimeMapping.getKey();
+                if (updatedFeeds != null && !updatedFeeds.contains(feed.getSubscriptionId()) 
+                        && pushedFeeds.contains(feed.getSubscriptionId())) {
+                    continue;
+                }
                 long lastRequestTime = lastTimeMapping.getValue();
                 // ensure that all values coming from the same time service reflect the same time
                 Long cachedTime = currentTimes.get(feed.getTimeService());
@@ -269,7 +384,10 @@ class FeedRenderingPool {
                     timeRange[0]++;
                     times.put(feed, timeRange);
                     activeFeeds.put(feed, currentTime);
-                } 
+                } else if (updatedFeeds != null) {
+                    // the time service has not advanced yet, render the feed on a later cycle
+                    dirtyFeeds.add(feed.getSubscriptionId());
+                }
             }
             
             if (!times.isEmpty()) {
@@ -283,14 +401,14 @@ class FeedRenderingPool {
                     }
                 });
                 activeRenderers.incrementAndGet();
-                worker.execute();
+                renderScheduler.execute(worker, Lane.REALTIME);
             } 
         }
     }
     
     /**
      * Determine the current subscriptions required by iterating through the active manifestations
-     * and extracting the providers.  
+     * and extracting the providers. The feed view index is updated with the providers of each view.  
      * @return
      */
     private Set<FeedProvider> buildRequiredSubscriptions() {
@@ -298,6 +416,7 @@ class FeedRenderingPool {
         
         for (FeedView manifestation: activeFeedViews) {
             Collection<FeedProvider> providers = manifestation.getVisibleFeedProviders();
+            feedViewIndex.update(manifestation, providers);
             if (providers != null) {
                 requiredSubscriptions.addAll(providers);
             }
@@ -331,6 +450,7 @@ class FeedRenderingPool {
                 LOGGER.debug("removing subscription for {0}", feed.getSubscriptionId());
                 manager.unsubscribe(feed.getSubscriptionId());
                 activeFeeds.remove(feed);
+                pushedFeeds.remove(feed.getSubscriptionId());
             }
         	
         	List<String> newlyAddedSubscriptionIds = new ArrayList<String> (newSubscriptions.size());
@@ -338,6 +458,8 @@ class FeedRenderingPool {
                 LOGGER.debug("adding subscription for {0}", feed.getSubscriptionId());
                 newlyAddedSubscriptionIds.add(feed.getSubscriptionId());
                 activeFeeds.put(feed, feed.getTimeService().getCurrentTime());
+                // the first request returns the current value of the feed even if no new data is written
+                dirtyFeeds.add(feed.getSubscriptionId());
             }
             
             assert newlyAddedSubscriptionIds.size() == newSubscriptions.size();
@@ -346,6 +468,11 @@ class FeedRenderingPool {
             }
             
             activeSubscriptions = requiredSubscriptions;
+            Set<String> feedIDs = new HashSet<String>();
+            for (FeedProvider feed:requiredSubscriptions) {
+                feedIDs.add(feed.getSubscriptionId());
+            }
+            subscribedFeedIDs = feedIDs;
         } else {
             LOGGER.warn("subscription manager not available, subscriptions not updated");
         } 
@@ -376,6 +503,10 @@ class FeedRenderingPool {
         }       
     }
 
+    private static boolean initPushRendering() {
+        return Boolean.parseBoolean(MCTProperties.DEFAULT_MCT_PROPERTIES.getProperty("feed.rendering.push", "true"));
+    }
+    
     private static int initMaxSubscriptions() {
         int defaultMax = 3000;
         int max = defaultMax;
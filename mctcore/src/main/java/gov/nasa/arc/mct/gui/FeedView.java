@@ -23,6 +23,7 @@ package gov.nasa.arc.mct.gui;
 
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.gui.RenderScheduler.Lane;
 import gov.nasa.arc.mct.services.component.ViewInfo;
 
 import java.util.Collection;
@@ -163,6 +164,28 @@ public abstract class FeedView extends View {
      */
     public SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> requestData(Collection<FeedProvider> providers, long startTime, long endTime,
                             final DataTransformation transformer, final RenderingCallback renderer, final boolean reverseOrder) throws IllegalArgumentException {
+        return requestData(providers, startTime, endTime, transformer, renderer, reverseOrder, 0);
+    }
+    
+    /**
+     * Perform a special request for data reduced to a resolution. This behaves as 
+     * {@link #requestData(Collection, long, long, DataTransformation, RenderingCallback, boolean)}, except
+     * feed aggregators able to reduce the data return only the first, minimum, maximum and last samples
+     * of each resolution interval, which is enough to draw a view showing one point per interval.
+     * @param providers to use for the data retrieval operation. If this argument is null, then the 
+     * return value from {@link #getVisibleFeedProviders()}.
+     * @param startTime to use for the request, in milliseconds since January 1, 1970
+     * @param endTime to use for the request, in milliseconds since January 1, 1970
+     * @param transformer to use during the background processing, may be null. 
+     * @param renderer to use for visualizing the data, must not be null. 
+     * @param reverseOrder true if the data should be retrieved in reverse order, false otherwise.
+     * @param resolution time span in milliseconds represented by one point of the view, 0 to retrieve all the data
+     * @throws IllegalArgumentException if renderer is null
+     * @return SwingWorker representing the running task, which may be canceled. 
+     */
+    public SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> requestData(Collection<FeedProvider> providers, long startTime, long endTime,
+                            final DataTransformation transformer, final RenderingCallback renderer, final boolean reverseOrder, 
+                            final long resolution) throws IllegalArgumentException {
         if (renderer == null) {
             throw new IllegalArgumentException("renderer cannot be null");
         }
@@ -207,6 +230,11 @@ public abstract class FeedView extends View {
                 return adjustEndTimeForRequest(super.batchByRequestTime());
             }
             
+            @Override
+            protected long getRequestResolution() {
+                return resolution;
+            }
+            
             @Override
             protected Map<Request, Set<FeedProvider>> getCurrentIterationRequests(
                             Map<Request, Set<FeedProvider>> fullSpanRequests,
@@ -235,7 +263,8 @@ public abstract class FeedView extends View {
             }
         };
         
-        worker.execute();
+        // requests from views which are not showing, like views being prepared, have the lowest priority
+        feedPool.getRenderScheduler().execute(worker, isShowing() ? Lane.BACKFILL : Lane.PREFETCH);
         return worker;
     }
     
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.gui;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.util.logging.MCTLogger;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the feed views by the subscription ids of their visible feed providers. The index allows the data of 
+ * a rendering cycle to be dispatched to the views showing each feed without handing the complete response to 
+ * every view. 
+ * 
+ * The index is updated incrementally, only the feeds a view starts or stops showing change the index. Updates 
+ * are serialized while lookups are lock free, so the index can be updated from the timer thread while the 
+ * data is dispatched in the AWT thread. 
+ */
+class FeedViewIndex {
+    private static final MCTLogger LOGGER = MCTLogger.getLogger(FeedViewIndex.class);
+    
+    private final Set<FeedView> activeViews;
+    /** The views for each subscription id, the sets are replaced instead of modified. */
+    private final ConcurrentHashMap<String, Set<FeedView>> viewsByFeed = new ConcurrentHashMap<String, Set<FeedView>>();
+    /** The subscription ids indexed for each view, the sets are replaced instead of modified. */
+    private final ConcurrentHashMap<FeedView, Set<String>> feedsByView = new ConcurrentHashMap<FeedView, Set<String>>();
+    
+    /**
+     * Create a new index.
+     * @param activeViews the views currently rendered, views not in this set are not added to the index
+     */
+    FeedViewIndex(Set<FeedView> activeViews) {
+        this.activeViews = activeViews;
+    }
+    
+    /**
+     * Updates the feeds of a view. Views which are no longer active are ignored, views should be removed 
+     * from the active views before being removed from the index.
+     * @param view to update
+     * @param providers currently visible in the view
+     */
+    synchronized void update(FeedView view, Collection<FeedProvider> providers) {
+        if (!activeViews.contains(view)) {
+            return;
+        }
+        Set<String> feedIDs = new HashSet<String>();
+        if (providers != null) {
+            for (FeedProvider provider : providers) {
+                try {
+                    feedIDs.add(provider.getSubscriptionId());
+                } catch (Exception e) {
+                    LOGGER.error("exception occurred while getting subscription id from " + provider, e);
+                }
+            }
+        }
+        
+        Set<String> indexedFeedIDs = feedsByView.get(view);
+        if (indexedFeedIDs == null) {
+            indexedFeedIDs = Collections.emptySet();
+        } else if (indexedFeedIDs.equals(feedIDs)) {
+            return;
+        }
+        for (String feedID : indexedFeedIDs) {
+            if (!feedIDs.contains(feedID)) {
+                removeView(feedID, view);
+            }
+        }
+        for (String feedID : feedIDs) {
+            if (!indexedFeedIDs.contains(feedID)) {
+                addView(feedID, view);
+            }
+        }
+        feedsByView.put(view, Collections.unmodifiableSet(feedIDs));
+    }
+    
+    /**
+     * Removes a view from the index.
+     * @param view to remove
+     */
+    synchronized void remove(FeedView view) {
+        Set<String> indexedFeedIDs = feedsByView.remove(view);
+        if (indexedFeedIDs != null) {
+            for (String feedID : indexedFeedIDs) {
+                removeView(feedID, view);
+            }
+        }
+    }
+    
+    private void addView(String feedID, FeedView view) {
+        Set<FeedView> views = viewsByFeed.get(feedID);
+        Set<FeedView> newViews = Collections.newSetFromMap(new IdentityHashMap<FeedView, Boolean>());
+        if (views != null) {
+            newViews.addAll(views);
+        }
+        newViews.add(view);
+        viewsByFeed.put(feedID, Collections.unmodifiableSet(newViews));
+    }
+    
+    private void removeView(String feedID, FeedView view) {
+        Set<FeedView> views = viewsByFeed.get(feedID);
+        if (views == null || !views.contains(view)) {
+            return;
+        }
+        if (views.size() == 1) {
+            viewsByFeed.remove(feedID);
+        } else {
+            Set<FeedView> newViews = Collections.newSetFromMap(new IdentityHashMap<FeedView, Boolean>());
+            newViews.addAll(views);
+            newViews.remove(view);
+            viewsByFeed.put(feedID, Collections.unmodifiableSet(newViews));
+        }
+    }
+    
+    /**
+     * Returns the views showing a feed.
+     * @param feedID subscription id of the feed
+     * @return the views showing the feed, empty if no view shows the feed
+     */
+    Set<FeedView> getViews(String feedID) {
+        Set<FeedView> views = viewsByFeed.get(feedID);
+        return views == null ? Collections.<FeedView>emptySet() : views;
+    }
+    
+    /**
+     * Splits the data of a cycle by view. Each view gets the data of the feeds it shows, views showing none of 
+     * the feeds in the data are not in the returned map. The data of a view is a read only view of the cycle 
+     * data restricted to the feeds of the view, so slicing does not copy the data. 
+     * @param data retrieved for the cycle keyed by subscription id
+     * @return the data for each view
+     */
+    Map<FeedView, Map<String, List<Map<String, String>>>> slice(Map<String, List<Map<String, String>>> data) {
+        int viewCount = feedsByView.size();
+        Map<FeedView, Map<String, List<Map<String, String>>>> slices = 
+            new IdentityHashMap<FeedView, Map<String, List<Map<String, String>>>>(Math.min(data.size(), viewCount));
+        if (data.size() >= viewCount) {
+            // most views have data, checking each view is cheaper than collecting the views of each feed 
+            for (Entry<FeedView, Set<String>> view : feedsByView.entrySet()) {
+                for (String feedID : view.getValue()) {
+                    if (data.containsKey(feedID)) {
+                        slices.put(view.getKey(), new FeedDataSlice(data, view.getValue()));
+                        break;
+                    }
+                }
+            }
+            return slices;
+        }
+        for (String feedID : data.keySet()) {
+            Set<FeedView> views = viewsByFeed.get(feedID);
+            if (views == null) {
+                continue;
+            }
+            for (FeedView view : views) {
+                if (!slices.containsKey(view)) {
+                    Set<String> feedIDs = feedsByView.get(view);
+                    if (feedIDs != null) {
+                        slices.put(view, new FeedDataSlice(data, feedIDs));
+                    }
+                }
+            }
+        }
+        return slices;
+    }
+    
+    /**
+     * The data of a cycle restricted to the feeds of a view. Lookups go to the cycle data, the entries are only
+     * collected when iterated.
+     */
+    private static final class FeedDataSlice extends AbstractMap<String, List<Map<String, String>>> {
+        private final Map<String, List<Map<String, String>>> data;
+        private final Set<String> feedIDs;
+        private Map<String, List<Map<String, String>>> entries;
+        
+        FeedDataSlice(Map<String, List<Map<String, String>>> data, Set<String> feedIDs) {
+            this.data = data;
+            this.feedIDs = feedIDs;
+        }
+        
+        @Override
+        public List<Map<String, String>> get(Object key) {
+            List<Map<String, String>> values = data.get(key);
+            return values != null && feedIDs.contains(key) ? values : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return feedIDs.contains(key) && data.containsKey(key);
+        }
+        
+        @Override
+        public Set<Entry<String, List<Map<String, String>>>> entrySet() {
+            if (entries == null) {
+                entries = new HashMap<String, List<Map<String, String>>>();
+                for (String feedID : feedIDs) {
+                    List<Map<String, String>> values = data.get(feedID);
+                    if (values != null || data.containsKey(feedID)) {
+                        entries.put(feedID, values);
+                    }
+                }
+            }
+            return Collections.unmodifiableMap(entries).entrySet();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.gui;
+
+import gov.nasa.arc.mct.util.logging.MCTLogger;
+import gov.nasa.arc.mct.util.property.MCTProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingWorker;
+
+/**
+ * Runs the feed rendering workers in priority lanes. Each lane has its own bounded set of worker threads, so 
+ * long running requests in one lane, like chunked historical requests which wait for each chunk to be 
+ * rendered, cannot hold the threads needed by another lane. Workers submitted to a lane with all its threads 
+ * busy wait for the next free thread of the lane.
+ * 
+ * The number of threads of each lane is read from the <code>feed.rendering.&lt;lane&gt;.workers</code> 
+ * property. 
+ */
+class RenderScheduler {
+    private static final MCTLogger LOGGER = MCTLogger.getLogger(RenderScheduler.class);
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    
+    /**
+     * The lanes workers are run in.
+     */
+    enum Lane {
+        /** Periodic refresh of the feed views with the latest data, the highest priority. */
+        REALTIME(1, Thread.NORM_PRIORITY),
+        /** Historical requests from visible views. */
+        BACKFILL(4, Thread.NORM_PRIORITY - 1),
+        /** Requests from views which are not showing, the lowest priority. */
+        PREFETCH(2, Thread.MIN_PRIORITY);
+        
+        private final int defaultWorkers;
+        private final int threadPriority;
+        
+        private Lane(int defaultWorkers, int threadPriority) {
+            this.defaultWorkers = defaultWorkers;
+            this.threadPriority = threadPriority;
+        }
+        
+        /**
+         * Returns the name of the lane used in properties and thread names.
+         * @return name of the lane
+         */
+        String getLaneName() {
+            return name().toLowerCase();
+        }
+        
+        /**
+         * Returns the number of worker threads of the lane, as configured in the MCT properties.
+         * @return the maximum number of workers running concurrently in the lane
+         */
+        int getConfiguredWorkers() {
+            String property = "feed.rendering." + getLaneName() + ".workers";
+            String value = MCTProperties.DEFAULT_MCT_PROPERTIES.getProperty(property, Integer.toString(defaultWorkers));
+            try {
+                int workers = Integer.parseInt(value.trim());
+                if (workers > 0) {
+                    return workers;
+                }
+            } catch (NumberFormatException e) {
+                // fall through to the default
+            }
+            LOGGER.error("Could not convert " + property + " to a valid number of workers. Using default of: " + defaultWorkers);
+            return defaultWorkers;
+        }
+    }
+    
+    private final Map<Lane, ThreadPoolExecutor> executors = new EnumMap<Lane, ThreadPoolExecutor>(Lane.class);
+    
+    /**
+     * Create a new scheduler with the number of workers of each lane configured in the MCT properties.
+     */
+    RenderScheduler() {
+        for (Lane lane : Lane.values()) {
+            executors.put(lane, createExecutor(lane, lane.getConfiguredWorkers()));
+        }
+    }
+    
+    /**
+     * Create a new scheduler.
+     * @param workers the maximum number of workers running concurrently in each lane
+     */
+    RenderScheduler(Map<Lane, Integer> workers) {
+        for (Lane lane : Lane.values()) {
+            Integer laneWorkers = workers.get(lane);
+            executors.put(lane, createExecutor(lane, laneWorkers == null ? lane.defaultWorkers : laneWorkers));
+        }
+    }
+    
+    private static ThreadPoolExecutor createExecutor(final Lane lane, int workers) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+            
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "MCT " + lane.getLaneName() + " render worker " + threadNumber.getAndIncrement());
+                t.setDaemon(true);
+                t.setPriority(lane.threadPriority);
+                return t;
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, 
+                        new LinkedBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Runs a worker in a lane. This is used instead of {@link SwingWorker#execute()}, the worker is run and
+     * its results are delivered in the AWT thread as if it was executed.
+     * @param worker to run
+     * @param lane to run the worker in
+     */
+    void execute(SwingWorker<?, ?> worker, Lane lane) {
+        executors.get(lane).execute(worker);
+    }
+    
+    /**
+     * Returns the number of workers running or waiting to run in a lane.
+     * @param lane to count the workers of
+     * @return number of workers in the lane
+     */
+    int getPendingWorkers(Lane lane) {
+        ThreadPoolExecutor executor = executors.get(lane);
+        return executor.getActiveCount() + executor.getQueue().size();
+    }
+    
+    /**
+     * Returns the maximum number of workers running concurrently in a lane.
+     * @param lane of the workers
+     * @return the number of threads of the lane
+     */
+    int getMaximumWorkers(Lane lane) {
+        return executors.get(lane).getMaximumPoolSize();
+    }
+    
+    /**
+     * Stops the worker threads once the running workers complete. 
+     */
+    void shutdown() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FeedSampleBatchTest {
+    
+    private Map<String, String> sample(long time, String value, String status, String ri, String isValid) {
+        Map<String, String> sample = new HashMap<String, String>();
+        sample.put(FeedSampleBatch.TIME_KEY, Long.toString(time));
+        if (value != null) {
+            sample.put(FeedSampleBatch.VALUE_KEY, value);
+        }
+        if (status != null) {
+            sample.put(FeedSampleBatch.STATUS_KEY, status);
+        }
+        if (ri != null) {
+            sample.put(FeedSampleBatch.RENDERING_INFO_KEY, ri);
+        }
+        if (isValid != null) {
+            sample.put(FeedSampleBatch.IS_VALID_KEY, isValid);
+        }
+        return sample;
+    }
+    
+    @Test
+    public void testPrimitiveAdd() {
+        FeedSampleBatch batch = new FeedSampleBatch(1);
+        for (int i = 0; i < 100; i++) {
+            batch.add(i * 10L, i / 2.0, i % 2 == 0, "ok", null);
+        }
+        Assert.assertEquals(batch.size(), 100);
+        Assert.assertEquals(batch.getTime(50), 500L);
+        Assert.assertEquals(batch.getValue(50), 25.0);
+        Assert.assertTrue(batch.isValid(50));
+        Assert.assertFalse(batch.isValid(51));
+        Assert.assertTrue(batch.isNumeric(51));
+        Assert.assertEquals(batch.getStatus(99), "ok");
+        Assert.assertNull(batch.getRenderingInfo(99));
+        Assert.assertEquals(batch.getTimes().length, 100);
+        Assert.assertEquals(batch.getValues()[99], 49.5);
+    }
+    
+    @Test
+    public void testMapRoundTrip() {
+        List<Map<String, String>> samples = new ArrayList<Map<String, String>>();
+        samples.add(sample(1, "1.5", "ok", "a&b", "true"));
+        samples.add(sample(2, "1", "ok", "a&b", "false"));
+        samples.add(sample(3, "OPEN", "bad", null, null));
+        samples.add(sample(4, null, null, null, "true"));
+        Map<String, String> withExtra = sample(5, "-2.25E-4", "ok", "a&b", "true");
+        withExtra.put("custom", "x");
+        samples.add(withExtra);
+        
+        FeedSampleBatch batch = FeedSampleBatch.fromMaps(samples);
+        Assert.assertEquals(batch.size(), samples.size());
+        Assert.assertEquals(batch.toMaps(), samples);
+        
+        Assert.assertEquals(batch.getValue(0), 1.5);
+        Assert.assertTrue(batch.isNumeric(1));
+        Assert.assertEquals(batch.getValue(1), 1.0);
+        Assert.assertEquals(batch.getValueText(1), "1");
+        Assert.assertFalse(batch.isNumeric(2));
+        Assert.assertTrue(Double.isNaN(batch.getValue(2)));
+        Assert.assertEquals(batch.getValueText(2), "OPEN");
+        Assert.assertTrue(batch.isValid(2));
+        Assert.assertFalse(batch.isValid(1));
+        Assert.assertNull(batch.getValueText(3));
+        Assert.assertEquals(batch.getValue(4), -2.25E-4);
+    }
+    
+    @Test
+    public void testTimeMapAdapter() {
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        Map<String, String> noTime = new HashMap<String, String>();
+        noTime.put(FeedSampleBatch.VALUE_KEY, "3.0");
+        samples.put(7L, noTime);
+        samples.put(9L, sample(9, "4.0", null, null, null));
+        FeedSampleBatch batch = FeedSampleBatch.fromTimeMap(samples);
+        Assert.assertEquals(batch.getTime(0), 7L);
+        Assert.assertEquals(batch.getTime(1), 9L);
+        Assert.assertEquals(batch.toMap(0), noTime);
+        
+        Map<String, FeedSampleBatch> batches = Collections.singletonMap("feed", batch);
+        Map<String, List<Map<String, String>>> maps = FeedSampleBatch.toMaps(batches);
+        Assert.assertEquals(maps.get("feed").size(), 2);
+        Assert.assertEquals(FeedSampleBatch.fromMaps(Collections.singletonMap("feed", maps.get("feed").subList(1, 2))).get("feed").getValue(0), 4.0);
+    }
+    
+    @Test
+    public void testIndexOfAndAddAll() {
+        FeedSampleBatch batch = new FeedSampleBatch();
+        for (int i = 0; i < 10; i++) {
+            batch.add(i * 2, i, true, null, null);
+        }
+        Assert.assertEquals(batch.indexOf(-1), 0);
+        Assert.assertEquals(batch.indexOf(4), 2);
+        Assert.assertEquals(batch.indexOf(5), 3);
+        Assert.assertEquals(batch.indexOf(100), 10);
+        
+        FeedSampleBatch other = new FeedSampleBatch(0);
+        other.add(sample(30, "ON", "ok", null, null));
+        batch.addAll(other);
+        Assert.assertEquals(batch.size(), 11);
+        Assert.assertEquals(batch.getValueText(10), "ON");
+        Assert.assertEquals(batch.getStatus(10), "ok");
+    }
+    
+    @Test
+    public void testMapView() {
+        List<Map<String, String>> samples = new ArrayList<Map<String, String>>();
+        samples.add(sample(1, "1.5", "ok", "a&b", "true"));
+        samples.add(sample(2, "OPEN", "bad", null, null));
+        FeedSampleBatch batch = FeedSampleBatch.fromMaps(samples);
+        
+        List<Map<String, String>> view = batch.asMaps();
+        Assert.assertEquals(view, samples);
+        Assert.assertSame(FeedSampleBatch.batchOf(view), batch);
+        Assert.assertNull(FeedSampleBatch.batchOf(samples));
+        Assert.assertNotSame(view.get(0), view.get(0));
+        
+        Map<String, List<Map<String, String>>> data = FeedSampleBatch.asMaps(Collections.singletonMap("feed", batch));
+        Assert.assertSame(FeedSampleBatch.batchOf(data.get("feed")), batch);
+        Assert.assertEquals(data.get("feed"), samples);
+        
+        // the view follows the batch
+        batch.add(3, 2.0, true, null, null);
+        Assert.assertEquals(view.size(), 3);
+        Assert.assertEquals(view.get(2).get(FeedSampleBatch.VALUE_KEY), "2.0");
+    }
+    
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testMapViewIsReadOnly() {
+        FeedSampleBatch batch = new FeedSampleBatch();
+        batch.asMaps().add(sample(1, "1", null, null, null));
+    }
+    
+    @Test
+    public void testCopyAndSetTime() {
+        List<Map<String, String>> samples = new ArrayList<Map<String, String>>();
+        samples.add(sample(1, "1.5", "ok", "a&b", "true"));
+        Map<String, String> withExtra = sample(2, "OPEN", "bad", null, null);
+        withExtra.put("custom", "x");
+        samples.add(withExtra);
+        FeedSampleBatch batch = FeedSampleBatch.fromMaps(samples);
+        
+        FeedSampleBatch copy = batch.copy();
+        Assert.assertEquals(copy.toMaps(), samples);
+        copy.setTime(0, 5);
+        copy.add(3, 2.0, true, "ok", null);
+        Assert.assertEquals(copy.getTime(0), 5L);
+        Assert.assertEquals(copy.getStatus(2), "ok");
+        Assert.assertEquals(copy.size(), 3);
+        Assert.assertEquals(batch.toMaps(), samples);
+    }
+    
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMissingTime() {
+        new FeedSampleBatch().add(Collections.singletonMap(FeedSampleBatch.VALUE_KEY, "1"));
+    }
+    
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testIndexBounds() {
+        FeedSampleBatch batch = new FeedSampleBatch();
+        batch.add(1, 1, true, null, null);
+        batch.getTime(1);
+    }
+}
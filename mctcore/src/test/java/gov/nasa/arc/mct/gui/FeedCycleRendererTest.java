@@ -21,7 +21,9 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.ColumnarFeedAggregator;
 import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedSampleBatch;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.platform.spi.Platform;
 import gov.nasa.arc.mct.platform.spi.PlatformAccess;
@@ -168,6 +170,44 @@ public class FeedCycleRendererTest {
         worker.done();
     }
     
+    @Test
+    public void testColumnarAggregator() throws Exception {
+        final FeedSampleBatch batch = new FeedSampleBatch();
+        batch.add(999, 1.0, true, null, null);
+        batch.add(1500, 2.0, true, null, null);
+        Mockito.when(platform.getFeedAggregator()).thenReturn(new ColumnarFeedAggregator() {
+            
+            @Override
+            public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit,
+                            long startTime, long endTime) {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public Map<String, FeedSampleBatch> getSampleBatches(Set<String> feedIDs, TimeUnit timeUnit,
+                            long startTime, long endTime, long resolution) {
+                return Collections.singletonMap("numeric", batch);
+            }
+        });
+        Map<FeedProvider, Long[]> times = new HashMap<FeedProvider, Long[]>();
+        times.put(numericProvider, new Long[]{1000L,2000L});
+        FeedCycleRenderer worker = new FeedCycleRenderer(times, Collections.<FeedView>singleton(fv1)) {
+            @Override
+            public Map<String, List<Map<String,String>>> doInBackground() {
+                return super.doInBackground();
+            }
+        };
+        
+        // the batch is carried to the views, with the first sample moved to the request start
+        List<Map<String,String>> values = worker.doInBackground().get("numeric");
+        FeedSampleBatch dispatched = FeedSampleBatch.batchOf(values);
+        Assert.assertNotNull(dispatched);
+        Assert.assertEquals(dispatched.getTime(0), 1000L);
+        Assert.assertEquals(dispatched.getTime(1), 1500L);
+        Assert.assertEquals(values.get(0).get(FeedProvider.NORMALIZED_TIME_KEY), "1000");
+        Assert.assertEquals(batch.getTime(0), 999L);
+    }
+    
     @SuppressWarnings("unchecked")
     @Test
     public void testDone() throws Exception {
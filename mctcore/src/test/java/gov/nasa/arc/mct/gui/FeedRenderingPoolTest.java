@@ -21,6 +21,9 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedUpdateListener;
+import gov.nasa.arc.mct.api.feed.ObservableFeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.gui.FeedView.SynchronizationControl;
 import gov.nasa.arc.mct.platform.spi.SubscriptionManager;
@@ -259,6 +262,101 @@ public class FeedRenderingPoolTest {
         Mockito.verify(manager).unsubscribe(feedId);
     }
     
+    @Test
+    public void testPushRendering() throws Exception {
+        pool.cancelTimer();
+        feedId1.set("f1");
+        final ObservableFeedAggregator aggregator = Mockito.mock(ObservableFeedAggregator.class);
+        final AtomicReference<FeedUpdateListener> listener = new AtomicReference<FeedUpdateListener>();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                listener.set((FeedUpdateListener) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(aggregator).addFeedUpdateListener(Mockito.<FeedUpdateListener>any());
+        final AtomicLong workers = new AtomicLong();
+        pool = new FeedRenderingPool(50) {
+            @Override
+            FeedCycleRenderer createWorker(Map<FeedProvider, Long[]> timeMapping, Set<FeedView> activeFeedViews) {
+                workers.incrementAndGet();
+                return new FeedCycleRendererTest2(timeMapping, activeFeedViews);
+            }
+            
+            @Override
+            SubscriptionManager getSubscriptionManager() {
+                return manager;
+            }
+            
+            @Override
+            FeedAggregator getFeedAggregator() {
+                return aggregator;
+            }
+        };
+        pool.addFeedView(fv1);
+        
+        // the new subscription is rendered to show the current value
+        waitForWorkers(workers, 1);
+        Mockito.verify(manager).subscribe("f1");
+        Assert.assertNotNull(listener.get());
+        
+        // once a write of the feed is notified the feed is only rendered when it is written
+        listener.get().feedsUpdated(Collections.singleton("f1"));
+        Thread.sleep(200);
+        long rendered = workers.get();
+        Thread.sleep(300);
+        Assert.assertEquals(workers.get(), rendered, "idle feeds should not be rendered");
+        
+        listener.get().feedsUpdated(Collections.singleton("other"));
+        Thread.sleep(300);
+        Assert.assertEquals(workers.get(), rendered, "feeds not displayed should not be rendered");
+        
+        listener.get().feedsUpdated(Collections.singleton("f1"));
+        listener.get().feedsUpdated(Collections.singleton("f1"));
+        waitForWorkers(workers, rendered + 1);
+        Thread.sleep(300);
+        Assert.assertEquals(workers.get(), rendered + 1, "updates within a cycle should be coalesced");
+    }
+    
+    @Test
+    public void testPushRenderingPollsFeedsNotWrittenThroughAggregator() throws Exception {
+        pool.cancelTimer();
+        // a feed generating its data when it is read, its writes are never notified
+        feedId1.set("generated");
+        final ObservableFeedAggregator aggregator = Mockito.mock(ObservableFeedAggregator.class);
+        final AtomicLong workers = new AtomicLong();
+        pool = new FeedRenderingPool(50) {
+            @Override
+            FeedCycleRenderer createWorker(Map<FeedProvider, Long[]> timeMapping, Set<FeedView> activeFeedViews) {
+                workers.incrementAndGet();
+                return new FeedCycleRendererTest2(timeMapping, activeFeedViews);
+            }
+            
+            @Override
+            SubscriptionManager getSubscriptionManager() {
+                return manager;
+            }
+            
+            @Override
+            FeedAggregator getFeedAggregator() {
+                return aggregator;
+            }
+        };
+        pool.addFeedView(fv1);
+        
+        waitForWorkers(workers, 1);
+        Mockito.verify(aggregator).addFeedUpdateListener(Mockito.<FeedUpdateListener>any());
+        // the feed keeps being requested, every cycle of 50 ms
+        waitForWorkers(workers, 4);
+    }
+    
+    private void waitForWorkers(AtomicLong workers, long expected) throws InterruptedException {
+        for (int i = 0; i < 40 && workers.get() < expected; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(workers.get() >= expected, workers.get() + " workers, expected " + expected);
+    }
+    
     @Test
     public void testSubscriptionsExceeded() {
         for (Window w: Window.getWindows()) {
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.gui;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.util.logging.MCTLogger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class FeedViewIndexTest {
+    private static final MCTLogger LOGGER = MCTLogger.getLogger(FeedViewIndexTest.class);
+    
+    @Mock
+    private FeedView view1;
+    @Mock
+    private FeedView view2;
+    @Mock
+    private FeedProvider alphaProvider;
+    @Mock
+    private FeedProvider numericProvider;
+    
+    private Set<FeedView> activeViews;
+    private FeedViewIndex index;
+    
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(alphaProvider.getSubscriptionId()).thenReturn("alpha");
+        Mockito.when(numericProvider.getSubscriptionId()).thenReturn("numeric");
+        activeViews = Collections.newSetFromMap(new IdentityHashMap<FeedView, Boolean>());
+        activeViews.add(view1);
+        activeViews.add(view2);
+        index = new FeedViewIndex(activeViews);
+    }
+    
+    @Test
+    public void testUpdate() {
+        index.update(view1, Arrays.asList(alphaProvider, numericProvider));
+        index.update(view2, Collections.singleton(numericProvider));
+        Assert.assertEquals(index.getViews("alpha"), Collections.singleton(view1));
+        Assert.assertEquals(index.getViews("numeric").size(), 2);
+        
+        // view1 stops showing the alpha feed
+        index.update(view1, Collections.singleton(numericProvider));
+        Assert.assertTrue(index.getViews("alpha").isEmpty());
+        Assert.assertEquals(index.getViews("numeric").size(), 2);
+        
+        index.remove(view2);
+        Assert.assertEquals(index.getViews("numeric"), Collections.singleton(view1));
+        index.update(view1, null);
+        Assert.assertTrue(index.getViews("numeric").isEmpty());
+    }
+    
+    @Test
+    public void testInactiveViewIgnored() {
+        activeViews.remove(view2);
+        index.update(view2, Collections.singleton(alphaProvider));
+        Assert.assertTrue(index.getViews("alpha").isEmpty());
+    }
+    
+    @Test
+    public void testSlice() {
+        index.update(view1, Arrays.asList(alphaProvider, numericProvider));
+        index.update(view2, Collections.singleton(numericProvider));
+        
+        List<Map<String, String>> value = Collections.singletonList(Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "1"));
+        Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
+        data.put("alpha", value);
+        data.put("other", value);
+        Map<FeedView, Map<String, List<Map<String, String>>>> slices = index.slice(data);
+        Assert.assertEquals(slices.size(), 1);
+        Assert.assertEquals(slices.get(view1), Collections.singletonMap("alpha", value));
+        
+        data.put("numeric", value);
+        slices = index.slice(data);
+        Assert.assertEquals(slices.get(view1).keySet(), new HashSet<String>(Arrays.asList("alpha", "numeric")));
+        Assert.assertEquals(slices.get(view2), Collections.singletonMap("numeric", value));
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRendererDispatchesSlices() {
+        index.update(view1, Collections.singleton(alphaProvider));
+        index.update(view2, Collections.singleton(numericProvider));
+        final Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
+        data.put("alpha", Collections.singletonList(Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "1")));
+        
+        FeedCycleRenderer worker = new FeedCycleRenderer(Collections.<FeedProvider, Long[]>emptyMap(), activeViews, index) {
+            @Override
+            Map<String, List<Map<String, String>>> getData() throws InterruptedException, ExecutionException {
+                return data;
+            }
+        };
+        worker.renderFeeds();
+        Mockito.verify(view1).updateFromFeed(Collections.singletonMap("alpha", data.get("alpha")));
+        Mockito.verify(view2, Mockito.never()).updateFromFeed(Mockito.anyMap());
+    }
+    
+    /**
+     * Dispatches cycles for 500 views over 3000 feeds, the default maximum number of subscriptions, once handing
+     * the complete response to every view and once through the index. As the table and plot views do, each view 
+     * looks up the data of its feeds in what it is handed, keeps the last value of each feed and then refreshes 
+     * what it displays. Both dispatches must deliver the same values; the times are only logged.
+     */
+    @Test
+    public void dispatchBenchmarkTest() {
+        final int views = 500;
+        final int feeds = 3000;
+        final int feedsPerView = feeds / views;
+        Random random = new Random(7);
+        
+        final Set<FeedView> benchmarkViews = new ConcurrentSkipListSet<FeedView>(new Comparator<FeedView>() {
+            @Override
+            public int compare(FeedView o1, FeedView o2) {
+                return System.identityHashCode(o2) - System.identityHashCode(o1);
+            }
+        });
+        FeedViewIndex benchmarkIndex = new FeedViewIndex(benchmarkViews);
+        List<BenchmarkView> allViews = new ArrayList<BenchmarkView>();
+        for (int v = 0; v < views; v++) {
+            List<String> feedIDs = new ArrayList<String>();
+            Collection<FeedProvider> providers = new ArrayList<FeedProvider>();
+            for (int f = 0; f < feedsPerView; f++) {
+                String feedID = "feed" + (v * feedsPerView + f);
+                FeedProvider provider = Mockito.mock(FeedProvider.class);
+                Mockito.when(provider.getSubscriptionId()).thenReturn(feedID);
+                feedIDs.add(feedID);
+                providers.add(provider);
+            }
+            BenchmarkView view = new BenchmarkView(feedIDs, providers);
+            allViews.add(view);
+            benchmarkViews.add(view);
+            benchmarkIndex.update(view, providers);
+        }
+        
+        // a cycle with data for a tenth of the feeds and a cycle with data for all the feeds
+        List<Map<String, String>> value = Collections.singletonList(Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "1"));
+        Map<String, List<Map<String, String>>> partialCycle = new HashMap<String, List<Map<String, String>>>();
+        Map<String, List<Map<String, String>>> fullCycle = new HashMap<String, List<Map<String, String>>>();
+        for (int f = 0; f < feeds; f++) {
+            if (random.nextInt(10) == 0) {
+                partialCycle.put("feed" + f, value);
+            }
+            fullCycle.put("feed" + f, value);
+        }
+        
+        List<Map<String, List<Map<String, String>>>> cycles = new ArrayList<Map<String, List<Map<String, String>>>>();
+        cycles.add(partialCycle);
+        cycles.add(fullCycle);
+        for (Map<String, List<Map<String, String>>> cycle : cycles) {
+            long full = timeCycles(cycle, benchmarkViews, null);
+            int fullValues = countValues(allViews);
+            long indexed = timeCycles(cycle, benchmarkViews, benchmarkIndex);
+            Assert.assertEquals(countValues(allViews), fullValues);
+            LOGGER.info("dispatch of {0} feeds to {1} views: full response {2} us, indexed {3} us", 
+                            cycle.size(), views, TimeUnit.NANOSECONDS.toMicros(full), TimeUnit.NANOSECONDS.toMicros(indexed));
+        }
+    }
+    
+    /**
+     * Returns the average time to dispatch a cycle. 
+     */
+    private long timeCycles(final Map<String, List<Map<String, String>>> cycle, Set<FeedView> views, FeedViewIndex viewIndex) {
+        FeedCycleRenderer worker = new FeedCycleRenderer(Collections.<FeedProvider, Long[]>emptyMap(), views, viewIndex) {
+            @Override
+            Map<String, List<Map<String, String>>> getData() throws InterruptedException, ExecutionException {
+                return cycle;
+            }
+        };
+        
+        final int cycles = 200;
+        for (int i = 0; i < cycles; i++) {
+            worker.renderFeeds();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < cycles; i++) {
+            worker.renderFeeds();
+        }
+        return (System.nanoTime() - start) / cycles;
+    }
+    
+    /**
+     * Returns the number of feed values found by the views since the last count. 
+     */
+    private int countValues(List<BenchmarkView> views) {
+        int values = 0;
+        for (BenchmarkView view : views) {
+            values += view.values;
+            view.values = 0;
+        }
+        return values;
+    }
+    
+    private static class BenchmarkView extends FeedView {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<String> feedIDs;
+        private final Collection<FeedProvider> providers;
+        private final Map<String, Long> lastTimes = new HashMap<String, Long>();
+        private final StringBuilder display = new StringBuilder();
+        private int values;
+        
+        public BenchmarkView(List<String> feedIDs, Collection<FeedProvider> providers) {
+            super(null);
+            this.feedIDs = feedIDs;
+            this.providers = providers;
+        }
+
+        @Override
+        public void updateFromFeed(Map<String, List<Map<String, String>>> data) {
+            for (String feedID : feedIDs) {
+                List<Map<String, String>> feedData = data.get(feedID);
+                if (feedData != null) {
+                    values++;
+                    lastTimes.put(feedID, Long.valueOf(feedData.get(feedData.size() - 1).get(FeedProvider.NORMALIZED_TIME_KEY)));
+                }
+            }
+            display.setLength(0);
+            for (String feedID : feedIDs) {
+                display.append(feedID).append(' ').append(lastTimes.get(feedID)).append('\n');
+            }
+        }
+
+        @Override
+        public void synchronizeTime(Map<String, List<Map<String, String>>> data, long syncTime) {
+        }
+
+        @Override
+        public Collection<FeedProvider> getVisibleFeedProviders() {
+            return providers;
+        }
+    }
+}
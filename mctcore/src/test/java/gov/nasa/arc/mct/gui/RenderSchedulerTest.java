@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.gui;
+
+import gov.nasa.arc.mct.gui.RenderScheduler.Lane;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingWorker;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RenderSchedulerTest {
+    private RenderScheduler scheduler;
+    private CountDownLatch release;
+    private AtomicInteger running;
+    private AtomicInteger maxRunning;
+    
+    @BeforeMethod
+    public void setup() {
+        Map<Lane, Integer> workers = new EnumMap<Lane, Integer>(Lane.class);
+        workers.put(Lane.REALTIME, 1);
+        workers.put(Lane.BACKFILL, 2);
+        workers.put(Lane.PREFETCH, 1);
+        scheduler = new RenderScheduler(workers);
+        release = new CountDownLatch(1);
+        running = new AtomicInteger();
+        maxRunning = new AtomicInteger();
+    }
+    
+    @AfterMethod
+    public void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+    
+    @Test
+    public void testRealtimeNotDelayedByBackfill() throws Exception {
+        List<SwingWorker<Boolean, Void>> backfills = new ArrayList<SwingWorker<Boolean, Void>>();
+        for (int i = 0; i < 5; i++) {
+            SwingWorker<Boolean, Void> backfill = new BlockingWorker();
+            backfills.add(backfill);
+            scheduler.execute(backfill, Lane.BACKFILL);
+        }
+        scheduler.execute(new BlockingWorker(), Lane.PREFETCH);
+        
+        SwingWorker<Boolean, Void> realtime = new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return Boolean.TRUE;
+            }
+        };
+        scheduler.execute(realtime, Lane.REALTIME);
+        Assert.assertTrue(realtime.get(1, TimeUnit.SECONDS));
+        
+        // the backfill lane only runs two workers at a time, the others wait for a thread of the lane
+        Assert.assertEquals(scheduler.getPendingWorkers(Lane.BACKFILL), 5);
+        Assert.assertTrue(maxRunning.get() <= 3, "running " + maxRunning.get());
+        
+        release.countDown();
+        for (SwingWorker<Boolean, Void> backfill : backfills) {
+            Assert.assertTrue(backfill.get(5, TimeUnit.SECONDS));
+        }
+    }
+    
+    @Test
+    public void testWorkers() {
+        Assert.assertEquals(scheduler.getMaximumWorkers(Lane.REALTIME), 1);
+        Assert.assertEquals(scheduler.getMaximumWorkers(Lane.BACKFILL), 2);
+        Assert.assertEquals(scheduler.getMaximumWorkers(Lane.PREFETCH), 1);
+        
+        RenderScheduler configured = new RenderScheduler();
+        try {
+            for (Lane lane : Lane.values()) {
+                Assert.assertTrue(configured.getMaximumWorkers(lane) > 0);
+            }
+        } finally {
+            configured.shutdown();
+        }
+    }
+    
+    private class BlockingWorker extends SwingWorker<Boolean, Void> {
+        @Override
+        protected Boolean doInBackground() throws Exception {
+            int current = running.incrementAndGet();
+            while (true) {
+                int max = maxRunning.get();
+                if (current <= max || maxRunning.compareAndSet(max, current)) {
+                    break;
+                }
+            }
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -442,7 +442,11 @@ public class LabeledTable extends JPanel {
 		model.addTableModelListener(new TableModelListener() {
 			@Override
 			public void tableChanged(TableModelEvent e) {				
-				if (e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getType() != TableModelEvent.UPDATE) {
+				// Updates to the values of a range of rows do not change the columns
+				boolean rowsUpdated = e.getType() == TableModelEvent.UPDATE
+						&& e.getFirstRow() != TableModelEvent.HEADER_ROW
+						&& e.getLastRow() != Integer.MAX_VALUE;
+				if ((e.getColumn() == TableModelEvent.ALL_COLUMNS && !rowsUpdated) || e.getType() != TableModelEvent.UPDATE) {
 					updateColumnsFromModel(null);
 					setRowHeadersVisible(LabeledTableModel.class.cast(table.getModel()).hasRowLabels());
 					setColumnHeadersVisible(LabeledTableModel.class.cast(table.getModel()).hasColumnLabels());
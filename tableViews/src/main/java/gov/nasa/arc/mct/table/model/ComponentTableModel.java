@@ -23,6 +23,7 @@ package gov.nasa.arc.mct.table.model;
 
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
 import gov.nasa.arc.mct.components.Placeholder;
 import gov.nasa.arc.mct.evaluator.api.Evaluator;
 import gov.nasa.arc.mct.table.utils.NoSizeList;
@@ -31,6 +32,7 @@ import gov.nasa.arc.mct.table.view.LabelAbbreviations;
 import gov.nasa.arc.mct.table.view.TableCellSettings;
 import gov.nasa.arc.mct.table.view.TableViewManifestation;
 
+import java.awt.Color;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -50,6 +52,8 @@ public class ComponentTableModel extends LabeledTableModel {
 	private Map<String,List<Point>> componentLocations;
 	
 	private Map<String, Object> values = new HashMap<String, Object>(); 
+	/** The raw feed value and status last recorded for each object, to skip updates that would not change its cells. */
+	private Map<String, RawValue> rawValues = new HashMap<String, RawValue>();
 	private Map<String, TableCellSettings> cellSettings = new HashMap<String, TableCellSettings>();
 	private Map<String, LabelAbbreviations> cellLabelAbbreviations = new HashMap<String, LabelAbbreviations>();
 	
@@ -88,6 +92,7 @@ public class ComponentTableModel extends LabeledTableModel {
 	 */
 	public void notifyTableStructureChanged() {
 		structure.notifyTableStructureChanged();
+		clearRawValues();
 	}
 	
 	/**
@@ -240,6 +245,79 @@ public class ComponentTableModel extends LabeledTableModel {
 		}
 	}
 
+	/**
+	 * Sets the values of several objects updated by a data feed. Instead of
+	 * an event for each cell, listeners are notified with a single event
+	 * covering all the cells displaying those objects.
+	 * 
+	 * @param newValues the new values to display, by object identifier
+	 */
+	public void setValues(Map<String, ?> newValues) {
+		int firstRow = Integer.MAX_VALUE;
+		int lastRow = -1;
+		int firstColumn = Integer.MAX_VALUE;
+		int lastColumn = -1;
+		for (Map.Entry<String, ?> entry : newValues.entrySet()) {
+			values.put(entry.getKey(), entry.getValue());
+			List<Point> locations = componentLocations.get(entry.getKey());
+			if (locations != null) {
+				for (Point p : locations) {
+					firstRow = Math.min(firstRow, p.y);
+					lastRow = Math.max(lastRow, p.y);
+					firstColumn = Math.min(firstColumn, p.x);
+					lastColumn = Math.max(lastColumn, p.x);
+				}
+			}
+		}
+		if (lastRow >= 0) {
+			fireTableCellsUpdated(firstRow, lastRow, firstColumn, lastColumn);
+		}
+	}
+
+	/**
+	 * Tells whether the raw value and status of an object received from a
+	 * data feed differ from the ones last displayed. Cells whose raw value,
+	 * status and version are unchanged do not need to be evaluated,
+	 * formatted or redrawn again.
+	 * 
+	 * @param id the identifier for the object updated
+	 * @param value the raw value from the feed
+	 * @param info the rendering information for the value
+	 * @param version identifies how the value is displayed, such as the code of the evaluator, or null
+	 * @return true if the value, status or version changed, or if none were recorded for the object yet
+	 */
+	public boolean isRawValueChanged(String id, Object value, RenderingInfo info, Object version) {
+		RawValue rawValue = rawValues.get(id);
+		return rawValue == null || !rawValue.matches(value, info, version);
+	}
+	
+	/**
+	 * Records the raw value and status of an object once the value 
+	 * displayed for them has been set, see {@link #isRawValueChanged(String, Object, RenderingInfo, Object)}.
+	 * 
+	 * @param id the identifier for the object updated
+	 * @param value the raw value from the feed
+	 * @param info the rendering information for the value
+	 * @param version identifies how the value is displayed, or null
+	 */
+	public void setRawValue(String id, Object value, RenderingInfo info, Object version) {
+		RawValue rawValue = rawValues.get(id);
+		if (rawValue == null) {
+			rawValue = new RawValue();
+			rawValues.put(id, rawValue);
+		}
+		rawValue.set(value, info, version);
+	}
+
+	/**
+	 * Forgets the recorded raw values, so that the next feed update
+	 * changes every cell. This is needed when settings that affect how
+	 * values are displayed have changed.
+	 */
+	public void clearRawValues() {
+		rawValues.clear();
+	}
+
 	@Override
 	public TableType getTableType() {
 		return structure.getType();
@@ -481,4 +559,38 @@ public class ComponentTableModel extends LabeledTableModel {
 		maxDecimalsForColumn.clear();
 	}
 	
+	/**
+	 * The raw value and status of an object, as last displayed.
+	 */
+	private static final class RawValue {
+		private Object value;
+		private String valueText;
+		private String statusText;
+		private Color valueColor;
+		private boolean valid;
+		private Object version;
+
+		boolean matches(Object value, RenderingInfo info, Object version) {
+			return equal(this.value, value)
+					&& equal(this.version, version)
+					&& equal(valueText, info.getValueText())
+					&& equal(statusText, info.getStatusText())
+					&& equal(valueColor, info.getValueColor())
+					&& valid == info.isValid();
+		}
+
+		void set(Object value, RenderingInfo info, Object version) {
+			this.value = value;
+			this.version = version;
+			valueText = info.getValueText();
+			statusText = info.getStatusText();
+			valueColor = info.getValueColor();
+			valid = info.isValid();
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
 }
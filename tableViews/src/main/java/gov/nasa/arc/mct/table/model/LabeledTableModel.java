@@ -26,6 +26,7 @@ import gov.nasa.arc.mct.table.utils.ListenerNotifier;
 
 import javax.swing.AbstractListModel;
 import javax.swing.ListModel;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
 /**
@@ -267,6 +268,30 @@ public abstract class LabeledTableModel extends AbstractTableModel {
 		}
 	}
 
+	/**
+	 * Notifies listeners that the values in a block of cells have changed,
+	 * using a single event. The block is given in the same coordinates as
+	 * for {@link #fireTableCellUpdated(int, int)}. If the block spans more
+	 * than one column, the event covers all columns of its rows.
+	 * 
+	 * @param firstRow the first row of the block
+	 * @param lastRow the last row of the block
+	 * @param firstColumn the first column of the block
+	 * @param lastColumn the last column of the block
+	 */
+	public void fireTableCellsUpdated(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+		if (orientation == TableOrientation.ROW_MAJOR) {
+			fireTableBlockUpdated(firstRow, lastRow, firstColumn, lastColumn);
+		} else {
+			fireTableBlockUpdated(firstColumn, lastColumn, firstRow, lastRow);
+		}
+	}
+
+	private void fireTableBlockUpdated(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+		int column = (firstColumn == lastColumn) ? firstColumn : TableModelEvent.ALL_COLUMNS;
+		fireTableChanged(new TableModelEvent(this, firstRow, lastRow, column));
+	}
+
 	/**
 	 * Recalculates all row, column, and cell labels. This method is executed
 	 * automatically when the table model changes. However, the user can
@@ -104,6 +104,16 @@ public class TableViewManifestation extends FeedView
 	private Map<String, TimeConversion> timeConversionMap = new HashMap<String, TimeConversion>();
 	private final AtomicReference<Collection<FeedProvider>> feedProvidersRef = new AtomicReference<Collection<FeedProvider>>(Collections.<FeedProvider>emptyList());
 	private List<AbstractComponent> multipleEvaluators = new ArrayList<AbstractComponent>();
+	/** The feeds whose cells are in the table, used to tell whether evaluator inputs are tracked. */
+	private Set<String> visibleFeedIds = Collections.emptySet();
+	/** The feeds whose raw value or status changed in the current update. */
+	private final Set<String> changedFeeds = new HashSet<String>();
+	/** The values to display for the cells changed in the current update. */
+	private final Map<String, Object> changedValues = new HashMap<String, Object>();
+	/** True if the multiple input evaluators must be evaluated whether or not their inputs changed. */
+	private boolean multipleEvaluatorsOutOfDate = true;
+	/** The code each multiple input evaluator was last evaluated with, so code edits refresh its cell. */
+	private final Map<String, String> multipleEvaluatorCodes = new HashMap<String, String>();
 	private static final DecimalFormat[] formats;
 	private boolean receivedData = false;
 	private boolean updating = false;
@@ -384,6 +394,7 @@ public class TableViewManifestation extends FeedView
 	private void recreateTable() {
 		//TODO: Recreate without clobbering user selections (except where appropriate)
 		model.notifyTableStructureChanged();
+		multipleEvaluatorsOutOfDate = true;
 		updateFeedProviders();
 		model.updateLabels();
 		table.updateColumnsFromModel(null);
@@ -421,13 +432,18 @@ public class TableViewManifestation extends FeedView
 	}
 
 	/**
-	 * Extract data from the feed and push it to the table.
+	 * Extract data from the feed and push it to the table. Cells whose raw
+	 * value, status and evaluator code did not change since they were last
+	 * displayed are skipped, and the changed cells are pushed to the table
+	 * together.
 	 */
 	@Override
 	public void updateFromFeed(Map<String, List<Map<String, String>>> data) {
 		receivedData = true;
 		if (data != null) {
 			Collection<FeedProvider> feeds = getVisibleFeedProviders();
+			changedFeeds.clear();
+			changedValues.clear();
 
 			for (FeedProvider provider : feeds) {
 				String feedId = provider.getSubscriptionId();
@@ -445,11 +461,18 @@ public class TableViewManifestation extends FeedView
 						TableCellSettings settings = model
 								.getCellSettings(provider
 										.getSubscriptionId());
+						Evaluator evaluator = settings.getEvaluator() == null ? null
+								: settings.getEvaluator().getCapability(Evaluator.class);
+						String evaluatorCode = evaluator == null ? null : evaluator.getCode();
+						if (!model.isRawValueChanged(feedId, value, ri, evaluatorCode)) {
+							continue;
+						}
+						changedFeeds.add(feedId);
+						Object rawValue = value;
+						RenderingInfo rawInfo = ri;
 						
-						if (settings.getEvaluator() != null) {
-							ri = settings
-									.getEvaluator()
-									.getCapability(Evaluator.class)
+						if (evaluator != null) {
+							ri = evaluator
 									.evaluate(
 											data,
 											Collections
@@ -484,8 +507,10 @@ public class TableViewManifestation extends FeedView
 						displayedValue
 								.setAlignment(settings.getAlignment());
 
-						model.setValue(provider.getSubscriptionId(),
+						changedValues.put(provider.getSubscriptionId(),
 								displayedValue);
+						// only now the cell shows the value, a failed update is retried with the next one
+						model.setRawValue(feedId, rawValue, rawInfo, evaluatorCode);
 						
 					} catch (ClassCastException ex) {
 						logger.error("Feed data entry of unexpected type",
@@ -498,15 +523,22 @@ public class TableViewManifestation extends FeedView
 				}
 			}
 
-			// execute multiple evaluators to ensure their values are
-			// updated also
+			// execute multiple evaluators whose inputs changed to ensure
+			// their values are updated also
 			for (AbstractComponent multi : multipleEvaluators) {
+				List<FeedProvider> inputs = getFeedProviders(multi);
 				Evaluator evaluator = multi.getCapability(Evaluator.class);
+				String key = model.getKey(multi);
+				String code = evaluator.getCode();
+				if (!multipleEvaluatorsOutOfDate && !hasChangedInput(inputs)
+						&& code != null && code.equals(multipleEvaluatorCodes.get(key))) {
+					continue;
+				}
 				FeedProvider.RenderingInfo info = evaluator.evaluate(data,
-						getFeedProviders(multi));
+						inputs);
+				multipleEvaluatorCodes.put(key, code);
 
-				TableCellSettings settings = model.getCellSettings(model
-						.getKey(multi));
+				TableCellSettings settings = model.getCellSettings(key);
 				DisplayedValue displayedValue = new DisplayedValue();
 				displayedValue.setValue(info.getValueText());
 				displayedValue.setStatusText(info.getStatusText());
@@ -516,13 +548,37 @@ public class TableViewManifestation extends FeedView
 				displayedValue.setAlignment(settings.getAlignment());
 
 				assert !info.getValueColor().equals(Color.white) : "attempting to rendering white text on white foreground";
-				model.setValue(model.getKey(multi), displayedValue);
+				changedValues.put(key, displayedValue);
+			}
+			multipleEvaluatorsOutOfDate = false;
+
+			if (!changedValues.isEmpty()) {
+				model.setValues(changedValues);
+				changedValues.clear();
 			}
 		} else {
 			logger.debug("Data was null");
 		}
 	}
 
+	/**
+	 * Tells whether any of the inputs of an evaluator changed in the current
+	 * update. Inputs whose feeds are not in the table are not tracked, so
+	 * they are always considered changed.
+	 * 
+	 * @param inputs the feeds evaluated
+	 * @return true if the evaluator needs to be evaluated again
+	 */
+	private boolean hasChangedInput(List<FeedProvider> inputs) {
+		for (FeedProvider input : inputs) {
+			String feedId = input.getSubscriptionId();
+			if (changedFeeds.contains(feedId) || !visibleFeedIds.contains(feedId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private List<FeedProvider> getFeedProviders(AbstractComponent component) {
 
 		List<FeedProvider> feedProviders = new ArrayList<FeedProvider>(
@@ -717,6 +773,11 @@ public class TableViewManifestation extends FeedView
 			}
 		}
 		feedProviders.trimToSize();
+		Set<String> feedIds = new HashSet<String>();
+		for (FeedProvider fp : feedProviders) {
+			feedIds.add(fp.getSubscriptionId());
+		}
+		visibleFeedIds = feedIds;
 		feedProvidersRef.set(feedProviders);
 	}
 
@@ -849,6 +910,10 @@ public class TableViewManifestation extends FeedView
 	}
 
 	private void saveSettingsToPersistence() {
+		// The new settings may change how the current values are displayed
+		model.clearRawValues();
+		multipleEvaluatorsOutOfDate = true;
+
 		boolean settingsChanged = false;
 		TableSettings settings = getCurrentTableSettings(table);
 		ExtendedProperties viewProperties = getViewProperties();
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.table.model;
+
+import gov.nasa.arc.mct.components.AbstractComponent;
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+import gov.nasa.arc.mct.table.gui.LabeledTable;
+import gov.nasa.arc.mct.table.view.DisplayedValue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ComponentTableModelTest {
+	
+	@Test
+	public void testRawValueChanged() {
+		ComponentTableModel model = createModel(1, 1);
+		RenderingInfo ok = new RenderingInfo("1.0", Color.GREEN, " ", Color.GREEN, true);
+		RenderingInfo red = new RenderingInfo("1.0", Color.RED, "R", Color.RED, true);
+		
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", ok, null));
+		// not recorded until the displayed value is set
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", ok, null));
+		model.setRawValue("feed", "1.0", ok, null);
+		Assert.assertFalse(model.isRawValueChanged("feed", "1.0", new RenderingInfo("1.0", Color.GREEN, " ", Color.GREEN, true), null));
+		Assert.assertTrue(model.isRawValueChanged("feed", "2.0", ok, null));
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", red, null));
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", new RenderingInfo("1.0", Color.GREEN, " ", Color.GREEN, false), null));
+		Assert.assertTrue(model.isRawValueChanged("other", "1.0", ok, null));
+		
+		// a new evaluator code changes the displayed value
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", ok, "value * 2"));
+		model.setRawValue("feed", "1.0", ok, "value * 2");
+		Assert.assertFalse(model.isRawValueChanged("feed", "1.0", ok, "value * 2"));
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", ok, "value * 3"));
+		
+		model.clearRawValues();
+		Assert.assertTrue(model.isRawValueChanged("feed", "1.0", ok, "value * 2"));
+	}
+	
+	@Test
+	public void testSetValuesFiresOneEvent() {
+		ComponentTableModel model = createModel(4, 3);
+		final List<TableModelEvent> events = new ArrayList<TableModelEvent>();
+		model.addTableModelListener(new TableModelListener() {
+			@Override
+			public void tableChanged(TableModelEvent e) {
+				events.add(e);
+			}
+		});
+		
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put(id(1, 2), displayedValue("a"));
+		values.put(id(3, 0), displayedValue("b"));
+		model.setValues(values);
+		Assert.assertEquals(events.size(), 1);
+		assertEvent(events.get(0), 1, 3, TableModelEvent.ALL_COLUMNS);
+		Assert.assertEquals(((DisplayedValue) model.getValueAt(1, 2)).getValue(), "a");
+		Assert.assertEquals(((DisplayedValue) model.getValueAt(3, 0)).getValue(), "b");
+		
+		values.clear();
+		values.put(id(2, 1), displayedValue("c"));
+		model.setValues(values);
+		Assert.assertEquals(events.size(), 2);
+		assertEvent(events.get(1), 2, 2, 1);
+		
+		model.setOrientation(TableOrientation.COLUMN_MAJOR);
+		events.clear();
+		values.clear();
+		values.put(id(0, 1), displayedValue("d"));
+		values.put(id(3, 1), displayedValue("e"));
+		model.setValues(values);
+		Assert.assertEquals(events.size(), 1);
+		assertEvent(events.get(0), 1, 1, TableModelEvent.ALL_COLUMNS);
+		
+		events.clear();
+		values.clear();
+		values.put("not in the table", displayedValue("f"));
+		model.setValues(values);
+		Assert.assertTrue(events.isEmpty());
+	}
+	
+	@Test
+	public void testChangedCellsFireOneEventPerUpdate() {
+		// a 100x50 table updated 100 times, where a few cells change in each update
+		final int rows = 100;
+		final int columns = 50;
+		final int updates = 100;
+		ComponentTableModel model = createModel(rows, columns);
+		new LabeledTable(model);
+		final List<TableModelEvent> events = new ArrayList<TableModelEvent>();
+		model.addTableModelListener(new TableModelListener() {
+			@Override
+			public void tableChanged(TableModelEvent e) {
+				events.add(e);
+			}
+		});
+		
+		Random random = new Random(11);
+		RenderingInfo info = new RenderingInfo("", Color.GREEN, " ", Color.GREEN, true);
+		Map<String, String> current = new HashMap<String, String>();
+		Map<String, Object> changed = new HashMap<String, Object>();
+		for (int update = 0; update < updates; update++) {
+			// every update changes 0 to 4 cells, and the rest are sent again unchanged
+			int changes = update % 5;
+			for (int i = 0; i < changes; i++) {
+				current.put(id(random.nextInt(rows), random.nextInt(columns)), Double.toString(random.nextDouble()));
+			}
+			
+			int firstRow = Integer.MAX_VALUE;
+			int lastRow = -1;
+			int firstColumn = Integer.MAX_VALUE;
+			int lastColumn = -1;
+			changed.clear();
+			for (Map.Entry<String, String> entry : current.entrySet()) {
+				if (model.isRawValueChanged(entry.getKey(), entry.getValue(), info, null)) {
+					changed.put(entry.getKey(), displayedValue(entry.getValue()));
+					model.setRawValue(entry.getKey(), entry.getValue(), info, null);
+					String[] cell = entry.getKey().split(",");
+					int row = Integer.parseInt(cell[0]);
+					int column = Integer.parseInt(cell[1]);
+					firstRow = Math.min(firstRow, row);
+					lastRow = Math.max(lastRow, row);
+					firstColumn = Math.min(firstColumn, column);
+					lastColumn = Math.max(lastColumn, column);
+				}
+			}
+			Assert.assertTrue(changed.size() <= changes);
+			
+			events.clear();
+			model.setValues(changed);
+			if (changed.isEmpty()) {
+				Assert.assertTrue(events.isEmpty());
+			} else {
+				// one event for the bounding box of the changed cells
+				Assert.assertEquals(events.size(), 1);
+				assertEvent(events.get(0), firstRow, lastRow, 
+						firstColumn == lastColumn ? firstColumn : TableModelEvent.ALL_COLUMNS);
+			}
+		}
+	}
+	
+	private void assertEvent(TableModelEvent e, int firstRow, int lastRow, int column) {
+		Assert.assertEquals(e.getType(), TableModelEvent.UPDATE);
+		Assert.assertEquals(e.getFirstRow(), firstRow);
+		Assert.assertEquals(e.getLastRow(), lastRow);
+		Assert.assertEquals(e.getColumn(), column);
+	}
+	
+	private DisplayedValue displayedValue(String value) {
+		DisplayedValue displayedValue = new DisplayedValue();
+		displayedValue.setValue(value);
+		return displayedValue;
+	}
+	
+	private static String id(int row, int column) {
+		return row + "," + column;
+	}
+	
+	private ComponentTableModel createModel(int rows, int columns) {
+		final AbstractComponent[][] components = new AbstractComponent[rows][columns];
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				components[row][column] = new CellComponent(id(row, column));
+			}
+		}
+		TableStructure structure = Mockito.mock(TableStructure.class);
+		Mockito.when(structure.getType()).thenReturn(TableType.TWO_DIMENSIONAL);
+		Mockito.when(structure.getRowCount()).thenReturn(rows);
+		Mockito.when(structure.getColumnCount()).thenReturn(columns);
+		Mockito.when(structure.getValue(Mockito.anyInt(), Mockito.anyInt())).thenAnswer(new Answer<AbstractComponent>() {
+			@Override
+			public AbstractComponent answer(InvocationOnMock invocation) throws Throwable {
+				Object[] arguments = invocation.getArguments();
+				return components[(Integer) arguments[0]][(Integer) arguments[1]];
+			}
+		});
+		ComponentTableModel model = new ComponentTableModel(structure, new AbbreviatingTableLabelingAlgorithm(), null);
+		model.updateLabels();
+		return model;
+	}
+	
+	private static class CellComponent extends AbstractComponent {
+		
+		public CellComponent(String id) {
+			setId(id);
+		}
+		
+	}
+
+}
@@ -57,4 +57,10 @@ public interface DataBufferEnv {
     public LOS getLOS();
     
     public void flush();
+    
+    /**
+     * Measures the disk space available to the buffer.
+     * @return the disk usage level, or null if the buffer does not keep its data on local disk
+     */
+    public DiskUsageLevel checkDiskUsage();
 }
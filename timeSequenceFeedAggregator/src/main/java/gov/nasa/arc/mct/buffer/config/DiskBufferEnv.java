@@ -255,6 +255,11 @@ public final class DiskBufferEnv implements DataBufferEnv, Cloneable {
         return diskStore;
     }
     
+    @Override
+    public DiskUsageLevel checkDiskUsage() {
+        return diskQuotaHelper.refresh();
+    }
+    
     public boolean isDiskBufferFull() {
         return diskQuotaHelper.isDiskBufferFull();
     }
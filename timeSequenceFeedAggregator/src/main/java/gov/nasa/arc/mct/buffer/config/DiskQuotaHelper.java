@@ -30,13 +30,16 @@ import org.slf4j.LoggerFactory;
 class DiskQuotaHelper {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiskQuotaHelper.class);
 
-    private double usableSpaceAvailableInPercentage = 0;
-    private double freeSpaceAvailableInPercentage = 0;
-    private double totalSpaceInMB = 0;
-    private double freeSpaceInMB = 0;
-    private double usableSpaceInMB = 0;
+    private volatile double usableSpaceAvailableInPercentage = 0;
+    private volatile double freeSpaceAvailableInPercentage = 0;
+    private volatile double totalSpaceInMB = 0;
+    private volatile double freeSpaceInMB = 0;
+    private volatile double usableSpaceInMB = 0;
     private int bufferMinDiskSpaceAvailableInMB = 10;
     private int bufferMinDiskSpaceAvailableInPercentage = 1;
+    private int bufferEvictDiskSpaceInMB;
+    private int bufferThrottleDiskSpaceInMB;
+    private final File bufferHome;
     
     public String DISK_SPACE_PERCENTAGE_ERROR_MSG = "bufferMinDiskSpaceAvailableInMB = " 
         + bufferMinDiskSpaceAvailableInMB + " bufferMinDiskSpaceAvailableInPercentage= " + bufferMinDiskSpaceAvailableInPercentage + "%";
@@ -44,6 +47,11 @@ class DiskQuotaHelper {
     public DiskQuotaHelper(Properties prop, File bufferHome) {
         bufferMinDiskSpaceAvailableInMB = Integer.parseInt(prop.getProperty("buffer.min.disk.space.megabytes"));
         bufferMinDiskSpaceAvailableInPercentage = Integer.parseInt(prop.getProperty("buffer.min.percentage.disk.space"));
+        bufferEvictDiskSpaceInMB = Integer.parseInt(prop.getProperty("buffer.evict.disk.space.megabytes", 
+                        String.valueOf(5 * bufferMinDiskSpaceAvailableInMB)));
+        bufferThrottleDiskSpaceInMB = Integer.parseInt(prop.getProperty("buffer.throttle.disk.space.megabytes", 
+                        String.valueOf(2 * bufferMinDiskSpaceAvailableInMB)));
+        this.bufferHome = bufferHome;
         
         DISK_SPACE_PERCENTAGE_ERROR_MSG = "Disk space for MCT Buffer is &lt;= " 
             + bufferMinDiskSpaceAvailableInMB + " MB or Total free disk space available is &lt;= " + bufferMinDiskSpaceAvailableInPercentage + "%";
@@ -97,6 +105,43 @@ class DiskQuotaHelper {
        LOGGER.info(m);
     }
     
+    /**
+     * Measures the disk space again. This only queries the file system and is cheap enough to be 
+     * called periodically.
+     * @return the disk usage level after the measurement
+     */
+    public synchronized DiskUsageLevel refresh() {
+        double total = bufferHome.getTotalSpace() / 1024 / 1024;
+        double usable = bufferHome.getUsableSpace() / 1024 / 1024;
+        double free = bufferHome.getFreeSpace() / 1024 / 1024;
+        totalSpaceInMB = total;
+        usableSpaceInMB = usable;
+        freeSpaceInMB = free;
+        if (total > 0) {
+            usableSpaceAvailableInPercentage = (usable / total) * 100;
+            freeSpaceAvailableInPercentage = (free / total) * 100;
+        }
+        DiskUsageLevel level = getDiskUsageLevel();
+        if (level != DiskUsageLevel.normal) {
+            LOGGER.debug("Disk usage level {}: usable {} MB, free {} MB", new Object[] { level, usable, free });
+        }
+        return level;
+    }
+    
+    public DiskUsageLevel getDiskUsageLevel() {
+        if (isDiskBufferFull()) {
+            return DiskUsageLevel.full;
+        }
+        double availableSpaceInMB = Math.min(usableSpaceInMB, freeSpaceInMB);
+        if (availableSpaceInMB <= bufferThrottleDiskSpaceInMB) {
+            return DiskUsageLevel.throttle;
+        }
+        if (availableSpaceInMB <= bufferEvictDiskSpaceInMB) {
+            return DiskUsageLevel.evict;
+        }
+        return DiskUsageLevel.normal;
+    }
+    
     public String getErrorMsg() {
         return ("<HTML>" + DISK_SPACE_PERCENTAGE_ERROR_MSG 
                 + "<BR>Total Disk Space (in MB): " + totalSpaceInMB
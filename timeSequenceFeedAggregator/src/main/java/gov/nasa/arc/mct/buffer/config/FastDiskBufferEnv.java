@@ -200,6 +200,11 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
         cursorConfig.setReadUncommitted(true);
     }
     
+    @Override
+    public DiskUsageLevel checkDiskUsage() {
+        return diskQuotaHelper.refresh();
+    }
+    
     public boolean isDiskBufferFull() {
         return diskQuotaHelper.isDiskBufferFull();
     }
@@ -58,6 +58,7 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
     private final long bufferTimeMillis;
     private final int numOfBufferPartitions;
     private int currentBufferPartition;
+    private final boolean compressSealed;
     
     public MemoryBufferEnv(Properties prop) {
         if (prop == null) {
@@ -72,6 +73,7 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
             bufferTimeMillis = bufferTime;
         }
         this.currentBufferPartition = 0;
+        compressSealed = Boolean.parseBoolean(prop.getProperty("memory.buffer.compress.sealed", "false").trim());
     }
     
     public MemoryBufferEnv(Properties prop, int currentBufferPartition) {
@@ -82,6 +84,16 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
         this.currentBufferPartition = currentBufferPartition;
         numOfBufferPartitions = Integer.parseInt(prop.getProperty("memory.buffer.partition"));
         bufferTimeMillis = Long.parseLong(prop.getProperty("memory.buffer.time.millis"));
+        compressSealed = Boolean.parseBoolean(prop.getProperty("memory.buffer.compress.sealed", "false").trim());
+    }
+
+    /**
+     * Returns whether a partition is kept as compressed blocks once it is sealed, instead of being
+     * left to the garbage collector.
+     * @return true if sealed partitions are compressed
+     */
+    public boolean isCompressSealed() {
+        return compressSealed;
     }
 
     @Override
@@ -172,4 +184,9 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
         // TODO Auto-generated method stub
         
     }
+
+    @Override
+    public DiskUsageLevel checkDiskUsage() {
+        return null;
+    }
 }
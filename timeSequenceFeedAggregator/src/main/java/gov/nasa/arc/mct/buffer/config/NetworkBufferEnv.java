@@ -178,4 +178,9 @@ public class NetworkBufferEnv implements DataBufferEnv, Cloneable {
         // TODO Auto-generated method stub
         
     }
+
+    @Override
+    public DiskUsageLevel checkDiskUsage() {
+        return null;
+    }
 }
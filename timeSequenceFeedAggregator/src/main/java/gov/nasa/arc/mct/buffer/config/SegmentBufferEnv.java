@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.config;
+
+import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.util.FilepathReplacer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Environment for the segment buffer. Each partition is a directory below
+ * <code>buffer.disk.loc/segments</code> holding the append only log segments of the partition.
+ */
+public class SegmentBufferEnv implements DataBufferEnv, Cloneable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentBufferEnv.class);
+    
+    private static final String SEGMENT_PATH = "segments";
+    private static final String DEFAULT_SEGMENT_BYTES = "1048576";
+    private static final String DEFAULT_INITIAL_SEGMENT_BYTES = "4096";
+    private static final String DEFAULT_INDEX_INTERVAL = "64";
+    
+    private static Properties loadDefaultPropertyFile() {
+        Properties prop = new Properties();
+        InputStream is = null;
+        try {
+             is = ClassLoader.getSystemResourceAsStream("properties/feed.properties");
+            prop.load(is);
+        } catch (Exception e) {
+            LOGGER.error("Cannot initialized DataBufferEnv properties", e);
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ioe) {
+                    // ignore exception
+                }
+            }
+        }
+        return prop;
+    }
+    
+    private final Properties prop;
+    private final File bufferHome;
+    private final File envHome;
+    private final long bufferTimeMillis;
+    private final int numOfBufferPartitions;
+    private final int currentBufferPartition;
+    private final long partitionOverlapMillis;
+    private final int concurrency;
+    private final int bufferWriteThreadPoolSize;
+    private final int segmentBytes;
+    private final int initialSegmentBytes;
+    private final int indexInterval;
+    private final boolean compressSealed;
+    private final DiskQuotaHelper diskQuotaHelper;
+    
+    public SegmentBufferEnv(Properties prop) {
+        this(prop, 0);
+    }
+    
+    public SegmentBufferEnv(Properties prop, int currentBufferPartition) {
+        if (prop == null) {
+            prop = loadDefaultPropertyFile();
+        }
+        this.prop = prop;
+        this.currentBufferPartition = currentBufferPartition;
+        bufferHome = new File(new File(FilepathReplacer.substitute(getPropertyWithPrecedence(prop, "buffer.disk.loc"))), SEGMENT_PATH);
+        if (!bufferHome.exists()) {
+            bufferHome.mkdirs();
+        }
+        envHome = new File(bufferHome, String.valueOf(currentBufferPartition));
+        if (!envHome.exists()) {
+            envHome.mkdirs();
+        }
+        concurrency = Integer.parseInt(prop.getProperty("buffer.concurrency"));
+        bufferWriteThreadPoolSize = Integer.parseInt(prop.getProperty("buffer.write.threadPool.size"));
+        numOfBufferPartitions = Integer.parseInt(prop.getProperty("buffer.partitions"));
+        long bufferTime = Long.parseLong(prop.getProperty("buffer.time.millis"));
+        if (bufferTime > numOfBufferPartitions) {
+            bufferTimeMillis = bufferTime / numOfBufferPartitions;
+        } else {
+            bufferTimeMillis = bufferTime;
+        }
+        partitionOverlapMillis = Long.parseLong(prop.getProperty("buffer.partition.overlap.millis"));
+        segmentBytes = Integer.parseInt(prop.getProperty("segment.buffer.segment.bytes", DEFAULT_SEGMENT_BYTES).trim());
+        initialSegmentBytes = Integer.parseInt(prop.getProperty("segment.buffer.initial.segment.bytes", DEFAULT_INITIAL_SEGMENT_BYTES).trim());
+        indexInterval = Integer.parseInt(prop.getProperty("segment.buffer.index.interval", DEFAULT_INDEX_INTERVAL).trim());
+        compressSealed = Boolean.parseBoolean(prop.getProperty("segment.buffer.compress.sealed", "false").trim());
+        diskQuotaHelper = new DiskQuotaHelper(prop, bufferHome);
+    }
+    
+    private String getPropertyWithPrecedence(Properties localProps, String key) {
+        String systemProp = System.getProperty(key);
+        return systemProp != null ? systemProp.trim() : localProps.getProperty(key, "unset").trim(); 
+    }
+    
+    /**
+     * Returns the directory holding the segments of this partition.
+     * @return the partition directory
+     */
+    public File getPartitionDirectory() {
+        return envHome;
+    }
+    
+    /**
+     * Returns the largest size in bytes of a log segment. Segments double in size from the 
+     * initial size up to this size.
+     * @return the maximum segment size
+     */
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+    
+    /**
+     * Returns the size in bytes of the first log segment of a feed.
+     * @return the initial segment size
+     */
+    public int getInitialSegmentBytes() {
+        return initialSegmentBytes;
+    }
+    
+    /**
+     * Returns how many records are written between two entries of the sparse time index.
+     * @return the index interval
+     */
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+    
+    /**
+     * Returns whether the logs of a partition are rewritten as compressed blocks once the partition is sealed.
+     * @return true if sealed partitions are compressed
+     */
+    public boolean isCompressSealed() {
+        return compressSealed;
+    }
+    
+    @Override
+    public DiskUsageLevel checkDiskUsage() {
+        return diskQuotaHelper.refresh();
+    }
+    
+    public boolean isDiskBufferFull() {
+        return diskQuotaHelper.isDiskBufferFull();
+    }
+    
+    public String getErrorMsg() {
+        return diskQuotaHelper.getErrorMsg();
+    }
+
+    @Override
+    public long getBufferPartitionOverlap() {
+        return partitionOverlapMillis;
+    }
+
+    @Override
+    public long getBufferTime() {
+        return bufferTimeMillis;
+    }
+
+    @Override
+    public int getCurrentBufferPartition() {
+        return currentBufferPartition;
+    }
+
+    @Override
+    public int getNumOfBufferPartitions() {
+        return numOfBufferPartitions;
+    }
+    
+    @Override
+    public int nextBufferPartition() {
+        return (this.currentBufferPartition+1)%numOfBufferPartitions;
+    }
+    
+    @Override
+    public int previousBufferPartition(int currentPartition) {
+        int i = currentPartition;
+        if (i == 0) {
+            i = this.numOfBufferPartitions-1;
+        } else {
+            i--;
+        }
+        return i;
+    }
+    
+    @Override
+    public DataBufferEnv advanceBufferPartition() {
+        int nextBufferPartition = nextBufferPartition();
+        deletePartitionDirectory(new File(bufferHome, String.valueOf(nextBufferPartition)));
+        return new SegmentBufferEnv(prop, nextBufferPartition);
+    }
+    
+    /**
+     * Removes all the segments of this partition.
+     */
+    public void removeEnvironment() {
+        deletePartitionDirectory(envHome);
+    }
+    
+    private void deletePartitionDirectory(File partitionDir) {
+        if (partitionDir.exists()) {
+            if (partitionDir.isDirectory()) {
+                File[] files = partitionDir.listFiles();
+                for (File f: files) {
+                    f.delete();
+                }
+            }
+            partitionDir.delete();
+        }
+    }
+    
+    @Override
+    public void closeAndRestartEnvironment() {
+        removeEnvironment();
+        restartEnvironment(false);
+    }
+    
+    @Override
+    public void restartEnvironment(boolean isReadOnly) {
+        if (!envHome.exists()) {
+            envHome.mkdirs();
+        }
+    }
+    
+    @Override
+    public int getBufferWriteThreadPoolSize() {
+        return bufferWriteThreadPoolSize;
+    }
+    
+    @Override
+    public int getConcurrencyDegree() {
+        return concurrency;
+    }
+    
+    @Override
+    public Object clone() {
+        return new SegmentBufferEnv(prop, 0);
+    }
+    
+    @Override
+    public Object cloneMetaBuffer() {
+        return new SegmentBufferEnv(prop);
+    }
+    
+    @Override
+    public Properties getConfigProperties() {
+        return this.prop;
+    }
+
+    @Override
+    public LOS getLOS() {
+        return LOS.medium;
+    }
+    
+    @Override
+    public void flush() {
+        // segments are forced to disk when they are sealed or closed
+    }
+}
@@ -94,7 +94,7 @@ public class MetaDiskBuffer extends MetaDataBuffer {
             EntityCursor<PartitionMetaData> piCursor = pi.entities();
             try {
                 for (PartitionMetaData pObj : piCursor) {
-                    partitionMetaDatas[pObj.getPartitionId()] = pObj;
+                    setPartitionMetaData(pObj.getPartitionId(), pObj);
                     if (pObj.isCurrentPartition()) {
                         this.currentPartition = pObj.getPartitionId();
                     }
@@ -167,9 +167,7 @@ public class MetaDiskBuffer extends MetaDataBuffer {
         
         if (newPartitionMetaData == null) {
             newPartitionMetaData = new PartitionMetaData(newCurrentBufferPartition);
-            synchronized(this) {
-                this.partitionMetaDatas[newCurrentBufferPartition] = newPartitionMetaData;
-            }
+            setPartitionMetaData(newCurrentBufferPartition, newPartitionMetaData);
         }
         newPartitionMetaData.setCurrentPartition(true);
         
@@ -23,14 +23,13 @@ package gov.nasa.arc.mct.buffer.internal;
 
 import gov.nasa.arc.mct.api.feed.BufferFullException;
 import gov.nasa.arc.mct.api.feed.DataArchive;
-import gov.nasa.arc.mct.api.feed.DataProvider;
+import gov.nasa.arc.mct.api.feed.ResolutionDataProvider;
 import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
 import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -45,7 +44,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public final class CODataBuffer extends DataBuffer implements DataArchive, DataProvider {
+public final class CODataBuffer extends DataBuffer implements DataArchive, ResolutionDataProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger(CODataBuffer.class);
     private static final Logger PERF_READ_LOGGER = LoggerFactory
     .getLogger("gov.nasa.arc.mct.performance.read.codbuffer");
@@ -110,250 +109,192 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
         Map<String, FeedRequestContext>[]  partitionFeeds = new Map[this.currentParition.getBufferEnv().getNumOfBufferPartitions()];
         
         int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int i = startPartition;
         
-        do {
-            Map<String, FeedRequestContext> feedsForThisPartition = null;
-            for (Iterator<String> it = feedIDs.iterator(); it.hasNext(); ) {
-                String feedID = it.next();
+        // walk the partitions of each feed from the newest until one holds the start of the request
+        for (String feedID : feedIDs) {
+            int i = startPartition;
+            do {
                 if (metaDataBuffer.hasFeed(i, feedID)) {
-                    feedsForThisPartition = partitionFeeds[i];
+                    Map<String, FeedRequestContext> feedsForThisPartition = partitionFeeds[i];
                     if (feedsForThisPartition == null) {
                         feedsForThisPartition = new HashMap<String, FeedRequestContext>();
                         partitionFeeds[i] = feedsForThisPartition;
                     }
-                    FeedRequestContext frc = null;
-                    if (metaDataBuffer.isFullyWithinTimeSpan(i, feedID, timeUnit, startTime)) {
-                        frc = new FeedRequestContext(feedID, true);
-                        it.remove();
-                    } else {
-                        frc = new FeedRequestContext(feedID, false);
+                    boolean fullyWithinTimeSpan = metaDataBuffer.isFullyWithinTimeSpan(i, feedID, timeUnit, startTime);
+                    feedsForThisPartition.put(feedID, new FeedRequestContext(feedID, fullyWithinTimeSpan));
+                    if (fullyWithinTimeSpan) {
+                        break;
                     }
-                    feedsForThisPartition.put(feedID, frc);
                 }
-            }
-            i = this.currentParition.getBufferEnv().previousBufferPartition(i);
-        } while (i != startPartition);
+                i = this.currentParition.getBufferEnv().previousBufferPartition(i);
+            } while (i != startPartition);
+        }
         return partitionFeeds;
     }
     
     @Override
     public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, long startTime, long endTime,
             TimeUnit timeUnit) {
-        Set<String> requestFeedIDs = new HashSet<String>(feedIDs);
-        Map<String, FeedRequestContext>[] partitionFeeds = mapFeedsToPartitions(requestFeedIDs, startTime, endTime, timeUnit);
-        
-        synchronized (movePartitionLock) {
+        long epochToken = partitionEpoch.enter();
+        try {
             if (reset) return Collections.emptyMap();
-        }
-        
-        Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
-        
-        for (int i=0; i< partitionFeeds.length; i++) {
-            Map<String, FeedRequestContext> partitionFeed = partitionFeeds[i];
-            if (partitionFeed != null) {
+            
+            Map<String, FeedRequestContext>[] partitionFeeds = mapFeedsToPartitions(feedIDs, startTime, endTime, timeUnit);
+            
+            Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+            
+            for (int i=0; i< partitionFeeds.length; i++) {
+                Map<String, FeedRequestContext> partitionFeed = partitionFeeds[i];
                 PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-                
-                Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, partitionFeed, timeUnit, startTime, endTime);
-                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
-                    SortedMap<Long, Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
-                    if (cumulativeData != null) {
-                        cumulativeData.putAll(entry.getValue());
-                    } else {
-                        aggregateData.put(entry.getKey(), entry.getValue());
+                if (partitionFeed != null && partitionBuffer != null) {
+                    Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, partitionFeed, timeUnit, startTime, endTime);
+                    for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                        SortedMap<Long, Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
+                        if (cumulativeData != null) {
+                            cumulativeData.putAll(entry.getValue());
+                        } else {
+                            aggregateData.put(entry.getKey(), entry.getValue());
+                        }
                     }
-                }
 
+                }
             }
+            
+            return aggregateData;
+        } finally {
+            partitionEpoch.exit(epochToken);
         }
-        
-        return aggregateData;
     }
     
     @Override
     public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
             long endTime) {
-        Set<String> requestFeedIDs = new HashSet<String>(feedIDs);
-        Map<String, FeedRequestContext>[] partitionFeeds = mapFeedsToPartitions(requestFeedIDs, startTime, endTime, timeUnit);
-        
-        synchronized (movePartitionLock) {
+        long epochToken = partitionEpoch.enter();
+        try {
             if (reset) return Collections.emptyMap();
-        }
-        
-        Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
-        
-        for (int i=0; i<partitionFeeds.length; i++) {
-            Map<String, FeedRequestContext> partitionFeed = partitionFeeds[i];
-            if (partitionFeed != null) {
+            
+            Map<String, FeedRequestContext>[] partitionFeeds = mapFeedsToPartitions(feedIDs, startTime, endTime, timeUnit);
+            
+            Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
+            
+            for (int i=0; i<partitionFeeds.length; i++) {
+                Map<String, FeedRequestContext> partitionFeed = partitionFeeds[i];
                 PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-                Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, partitionFeed, timeUnit, startTime, endTime);
-                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
-                    List<Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
-                    if (cumulativeData != null) {
-                        cumulativeData.addAll(0, entry.getValue().values());
-                    } else {
-                        aggregateData.put(entry.getKey(), new LinkedList<Map<String, String>>(entry.getValue().values()));
+                if (partitionFeed != null && partitionBuffer != null) {
+                    Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, partitionFeed, timeUnit, startTime, endTime);
+                    for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                        List<Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
+                        if (cumulativeData != null) {
+                            cumulativeData.addAll(0, entry.getValue().values());
+                        } else {
+                            aggregateData.put(entry.getKey(), new LinkedList<Map<String, String>>(entry.getValue().values()));
+                        }
                     }
-                }
 
+                }
             }
+            
+            return aggregateData;
+        } finally {
+            partitionEpoch.exit(epochToken);
         }
-        
-        return aggregateData;
     }
 
     private Map<String, SortedMap<Long, Map<String, String>>> getData(PartitionDataBuffer partitionDataBuffer, Map<String, FeedRequestContext> feedRequestContexts, TimeUnit timeUnit,
                     long startTime, long endTime) {
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-            
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            readInProgress = true;
-        }
-        
-        try {
-            final ElapsedTimer timer = new ElapsedTimer();
-            timer.startInterval();
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
 
-            Map<String, SortedMap<Long, Map<String, String>>> returnedData = partitionDataBuffer.getData(feedRequestContexts.keySet(), timeUnit, startTime, endTime);
-            PERF_READ_LOGGER.debug("Get Regular Data feeds: {}  from partition: {}", returnedData, partitionDataBuffer.getBufferEnv().getCurrentBufferPartition());
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = partitionDataBuffer.getData(feedRequestContexts.keySet(), timeUnit, startTime, endTime);
+        PERF_READ_LOGGER.debug("Get Regular Data feeds: {}  from partition: {}", returnedData, partitionDataBuffer.getBufferEnv().getCurrentBufferPartition());
 
-            for (Iterator<Entry<String, FeedRequestContext>> it = feedRequestContexts.entrySet().iterator(); it.hasNext(); ) {
-                Entry<String, FeedRequestContext> entry = it.next();
+        for (Iterator<Entry<String, FeedRequestContext>> it = feedRequestContexts.entrySet().iterator(); it.hasNext(); ) {
+            Entry<String, FeedRequestContext> entry = it.next();
+            String feedID = entry.getKey();
+            SortedMap<Long, Map<String, String>> data = returnedData.get(feedID);
+            boolean needPrevPoint = true;
+            if (data != null && !data.isEmpty()) {
+                long firstPointTS = data.firstKey();
+                needPrevPoint = firstPointTS > TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+            }
+            if (!entry.getValue().getLastDataIfNeeded || !needPrevPoint) {
+                it.remove();
+            }
+        }
+        if (!feedRequestContexts.isEmpty()) {
+            Set<String> feedIDs = feedRequestContexts.keySet();
+            Map<String, SortedMap<Long, Map<String, String>>> lastData = partitionDataBuffer.getLastData(feedIDs,
+                    timeUnit, 0, startTime);
+            for (Entry<String, SortedMap<Long, Map<String, String>>> entry : lastData.entrySet()) {
                 String feedID = entry.getKey();
-                SortedMap<Long, Map<String, String>> data = returnedData.get(feedID);
-                boolean needPrevPoint = true;
+                SortedMap<Long, Map<String, String>> data = entry.getValue();
                 if (data != null && !data.isEmpty()) {
-                    long firstPointTS = data.firstKey();
-                    needPrevPoint = firstPointTS > TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
-                }
-                if (!entry.getValue().getLastDataIfNeeded || !needPrevPoint) {
-                    it.remove();
-                }
-            }
-            if (!feedRequestContexts.isEmpty()) {
-                Set<String> feedIDs = feedRequestContexts.keySet();
-                Map<String, SortedMap<Long, Map<String, String>>> lastData = partitionDataBuffer.getLastData(feedIDs,
-                        timeUnit, 0, startTime);
-                for (Entry<String, SortedMap<Long, Map<String, String>>> entry : lastData.entrySet()) {
-                    String feedID = entry.getKey();
-                    SortedMap<Long, Map<String, String>> data = entry.getValue();
-                    if (data != null && !data.isEmpty()) {
-                        SortedMap<Long, Map<String, String>> feedData = returnedData.get(feedID);
-                        if (feedData == null) {
-                            feedData = new TreeMap<Long, Map<String, String>>();
-                            returnedData.put(feedID, feedData);
-                        }
-                        Long ts = data.firstKey();
-                        feedData.put(ts, data.get(ts));
+                    SortedMap<Long, Map<String, String>> feedData = returnedData.get(feedID);
+                    if (feedData == null) {
+                        feedData = new TreeMap<Long, Map<String, String>>();
+                        returnedData.put(feedID, feedData);
                     }
+                    Long ts = data.firstKey();
+                    feedData.put(ts, data.get(ts));
                 }
-                
-                PERF_READ_LOGGER.debug("Get Last Data feeds: {} from partition: {} ", returnedData, partitionDataBuffer.getBufferEnv().getCurrentBufferPartition());
-            }
-
-            timer.stopInterval();
-            LOGGER.debug("time to get Data for feeds {}: {}", feedRequestContexts, timer.getIntervalInMillis());
-            return returnedData;
-        } finally {
-            synchronized (movePartitionLock) {
-                readInProgress = false;
-                movePartitionLock.notifyAll();
             }
+            
+            PERF_READ_LOGGER.debug("Get Last Data feeds: {} from partition: {} ", returnedData, partitionDataBuffer.getBufferEnv().getCurrentBufferPartition());
         }
+
+        timer.stopInterval();
+        LOGGER.debug("time to get Data for feeds {}: {}", feedRequestContexts, timer.getIntervalInMillis());
+        return returnedData;
     }
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
-        
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
         Map<String, Map<Long, Map<String, String>>> feedDataToPut = new HashMap<String, Map<Long,Map<String,String>>>();
         feedDataToPut.put(feedID, entries);
         
-        int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int startPartition = i;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer == null || !partitionBuffer.isActive()) {
-                break;
-            }
-            
-            LOGGER.debug("Putting in partition {}", i);
-
-            Map<String, PartitionTimestamps> timeStamps = putData(partitionBuffer, feedDataToPut, timeUnit);
-            if (timeStamps != null) {
-                metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
-            }
-            i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
-        } while (i != startPartition);
+        putData(feedDataToPut, timeUnit);
 
         timer.stopInterval();
         PERF_LOGGER.debug("Time to save data for feed {}: {}", feedID, timer.getIntervalInMillis());
 
     }
     
-    private void putData(PartitionDataBuffer partitionBuffer, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, MetaDataBuffer metadata, int metadataIndex)  throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            writeInProgress = true;
+    /**
+     * Writes the data to the current partition and to every active partition following it.
+     */
+    private void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) throws BufferFullException {
+        if (diskFull) {
+            throw new BufferFullException(DISK_FULL_MSG);
         }
-        if (this.partitionDataBuffers[partitionBuffer.getBufferEnv().getCurrentBufferPartition()].get() == null) {
-            return;
-        }
-
+        long epochToken = partitionEpoch.enter();
         try {
-            partitionBuffer.putData(value, timeUnit, metadata, metadataIndex);
-        } finally {
-            synchronized (movePartitionLock) {
-                writeInProgress = false;
-                movePartitionLock.notifyAll();
-            }
-        }
-    
-    }
-    
-    
-    private Map<String, PartitionTimestamps> putData(PartitionDataBuffer partitionBuffer, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit)  throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return null;
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
+            if (reset) return;
+            
+            int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+            int startPartition = i;
+            do {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer == null || !partitionBuffer.isActive()) {
+                    break;
                 }
-            }
-            writeInProgress = true;
-        }
-        if (this.partitionDataBuffers[partitionBuffer.getBufferEnv().getCurrentBufferPartition()].get() == null) {
-            return null;
-        }
+                
+                LOGGER.debug("Putting in partition {}", i);
 
-        try {
-            return partitionBuffer.putData(value, timeUnit);
+                Map<String, PartitionTimestamps> timeStamps = partitionBuffer.putData(value, timeUnit);
+                if (timeStamps != null) {
+                    metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
+                }
+                addToRollup(i, value, timeUnit);
+                i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
+            } while (i != startPartition);
+        } catch (BufferFullException e) {
+            diskFull = true;
+            throw e;
         } finally {
-            synchronized (movePartitionLock) {
-                writeInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            partitionEpoch.exit(epochToken);
         }
     }
     
@@ -361,30 +302,41 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
     public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit,
                     Runnable callback)  throws BufferFullException {
         PERF_WRITE_LOGGER.debug("COD Putting data for {} feeds", value);
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
-        int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int startPartition = i;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer == null || !partitionBuffer.isActive()) {
-                break;
-            }
+        if (diskFull) {
+            throw new BufferFullException(DISK_FULL_MSG);
+        }
+        long epochToken = partitionEpoch.enter();
+        try {
+            if (reset) return;
             
-            LOGGER.debug("Putting in partition {}", i);
+            int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+            int startPartition = i;
+            do {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer == null || !partitionBuffer.isActive()) {
+                    break;
+                }
+                
+                LOGGER.debug("Putting in partition {}", i);
 
-            putData(partitionBuffer, value, timeUnit, metaDataBuffer, i);
+                partitionBuffer.putData(value, timeUnit, metaDataBuffer, i);
+                addToRollup(i, value, timeUnit);
+                i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
+            } while (i != startPartition);
+        } catch (BufferFullException e) {
+            diskFull = true;
+            throw e;
+        } finally {
+            partitionEpoch.exit(epochToken);
+        }
 
-            timer.stopInterval();
-            PERF_LOGGER.debug("Time to save data for {} feeds: {}", value.size(), timer
-                            .getIntervalInMillis());
-            i = (i + 1) % currentParition.getBufferEnv().getNumOfBufferPartitions();
-        } while (i != startPartition);
+        timer.stopInterval();
+        PERF_LOGGER.debug("Time to save data for {} feeds: {}", value.size(), timer
+                        .getIntervalInMillis());
 
         if (callback != null) {
             callback.run();
@@ -394,10 +346,6 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
-        
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
@@ -407,22 +355,7 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
         Map<String, Map<Long, Map<String, String>>> feedDataToPut = new HashMap<String, Map<Long,Map<String,String>>>();
         feedDataToPut.put(feedID, dataToPut);
 
-        int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int startPartition = i;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer == null || !partitionBuffer.isActive()) {
-                break;
-            }
-            
-            LOGGER.debug("Putting in partition {}", i);
-
-            Map<String, PartitionTimestamps> timeStamps = putData(partitionBuffer, feedDataToPut, timeUnit);
-            if (timeStamps != null) {
-                metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
-            }
-            i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
-        } while (i != startPartition);
+        putData(feedDataToPut, timeUnit);
         
         timer.stopInterval();
         PERF_LOGGER.debug("Time to save data for feed {}: {}", feedID, timer.getIntervalInMillis());
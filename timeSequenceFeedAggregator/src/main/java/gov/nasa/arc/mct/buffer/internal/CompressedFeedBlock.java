@@ -0,0 +1,584 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable, compressed encoding of the samples of one feed in a sealed partition. Samples are
+ * laid out in time order in a single bit stream:
+ * <ul>
+ * <li>timestamps are delta-of-delta encoded in units of the greatest common divisor of the deltas,
+ * so regularly sampled feeds cost one bit per sample;</li>
+ * <li>the value is XOR encoded against the previous value when every value of the block is a 
+ * number that renders back to the same string, otherwise it is dictionary coded;</li>
+ * <li>every other key (status, rendering info, validity, ...) is dictionary coded and costs one bit
+ * when unchanged from the previous sample;</li>
+ * <li>a time key that is the sample time in milliseconds is not stored at all.</li>
+ * </ul>
+ * Decoding is sequential from the start of the block and reproduces the original maps exactly.
+ */
+public final class CompressedFeedBlock {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String TIME_KEY = "time";
+    private static final String VALUE_KEY = "data";
+    private static final byte FORMAT_VERSION = 1;
+    
+    private static final byte VALUE_NONE = 0;
+    private static final byte VALUE_DOUBLE = 1;
+    private static final byte VALUE_LONG = 2;
+    
+    private final int count;
+    private final long firstTime;
+    private final long lastTime;
+    private final long timeUnit;
+    private final byte valueMode;
+    private final boolean derivedTime;
+    private final String[] keys;
+    private final String[][] dictionaries;
+    private final int[] codeBits;
+    private final long[] words;
+    private final long bitLength;
+    
+    private CompressedFeedBlock(int count, long firstTime, long lastTime, long timeUnit, byte valueMode, boolean derivedTime,
+                    String[] keys, String[][] dictionaries, int[] codeBits, long[] words, long bitLength) {
+        this.count = count;
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.timeUnit = timeUnit;
+        this.valueMode = valueMode;
+        this.derivedTime = derivedTime;
+        this.keys = keys;
+        this.dictionaries = dictionaries;
+        this.codeBits = codeBits;
+        this.words = words;
+        this.bitLength = bitLength;
+    }
+    
+    /**
+     * Encodes the samples of a feed.
+     * @param samples keyed by time in nanoseconds
+     * @return the encoded block
+     */
+    public static CompressedFeedBlock encode(SortedMap<Long, Map<String, String>> samples) {
+        int count = samples.size();
+        long[] times = new long[count];
+        int n = 0;
+        for (Long time : samples.keySet()) {
+            times[n++] = time.longValue();
+        }
+        
+        long unit = 0;
+        for (int i = 1; i < count; i++) {
+            unit = gcd(unit, times[i] - times[i - 1]);
+        }
+        if (unit <= 0) {
+            unit = 1;
+        }
+        
+        byte valueMode = numericValueMode(samples);
+        boolean derivedTime = true;
+        Map<String, Map<String, Integer>> dictionaryIndex = new LinkedHashMap<String, Map<String, Integer>>();
+        Map<String, List<String>> dictionaryEntries = new HashMap<String, List<String>>();
+        n = 0;
+        for (Map<String, String> sample : samples.values()) {
+            for (Entry<String, String> entry : sample.entrySet()) {
+                String key = entry.getKey();
+                if (valueMode != VALUE_NONE && VALUE_KEY.equals(key)) {
+                    continue;
+                }
+                if (TIME_KEY.equals(key) && isDerivedTime(times[n], entry.getValue())) {
+                    continue;
+                }
+                Map<String, Integer> index = dictionaryIndex.get(key);
+                if (index == null) {
+                    index = new HashMap<String, Integer>();
+                    dictionaryIndex.put(key, index);
+                    dictionaryEntries.put(key, new ArrayList<String>());
+                }
+                if (!index.containsKey(entry.getValue())) {
+                    List<String> entries = dictionaryEntries.get(key);
+                    index.put(entry.getValue(), Integer.valueOf(entries.size()));
+                    entries.add(entry.getValue());
+                }
+            }
+            if (!isDerivedTime(times[n], sample.get(TIME_KEY))) {
+                derivedTime = false;
+            }
+            n++;
+        }
+        if (!derivedTime && !dictionaryIndex.containsKey(TIME_KEY)) {
+            // only some samples carried a time key, keep them all verbatim
+            dictionaryIndex.put(TIME_KEY, new HashMap<String, Integer>());
+            dictionaryEntries.put(TIME_KEY, new ArrayList<String>());
+        }
+        if (!derivedTime) {
+            Map<String, Integer> index = dictionaryIndex.get(TIME_KEY);
+            List<String> entries = dictionaryEntries.get(TIME_KEY);
+            for (Map<String, String> sample : samples.values()) {
+                if (sample.containsKey(TIME_KEY) && !index.containsKey(sample.get(TIME_KEY))) {
+                    index.put(sample.get(TIME_KEY), Integer.valueOf(entries.size()));
+                    entries.add(sample.get(TIME_KEY));
+                }
+            }
+        }
+        
+        String[] keys = dictionaryIndex.keySet().toArray(new String[dictionaryIndex.size()]);
+        String[][] dictionaries = new String[keys.length][];
+        int[] codeBits = new int[keys.length];
+        for (int k = 0; k < keys.length; k++) {
+            List<String> entries = dictionaryEntries.get(keys[k]);
+            dictionaries[k] = entries.toArray(new String[entries.size()]);
+            codeBits[k] = 64 - Long.numberOfLeadingZeros(dictionaries[k].length);
+        }
+        
+        BitWriter out = new BitWriter(Math.max(1, count));
+        long previousTime = 0;
+        long previousDelta = 0;
+        long previousValue = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        int[] previousCodes = new int[keys.length];
+        n = 0;
+        for (Map<String, String> sample : samples.values()) {
+            long time = times[n];
+            if (n == 0) {
+                out.write(time, 64);
+            } else {
+                long delta = (time - previousTime) / unit;
+                writeZigZag(out, delta - previousDelta);
+                previousDelta = delta;
+            }
+            previousTime = time;
+            
+            if (valueMode != VALUE_NONE) {
+                long value = Double.doubleToRawLongBits(Double.parseDouble(sample.get(VALUE_KEY)));
+                if (n == 0) {
+                    out.write(value, 64);
+                } else {
+                    long xor = value ^ previousValue;
+                    if (xor == 0) {
+                        out.write(0, 1);
+                    } else {
+                        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+                        int trailing = Long.numberOfTrailingZeros(xor);
+                        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                            out.write(2, 2);
+                            out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                        } else {
+                            int significant = 64 - leading - trailing;
+                            out.write(3, 2);
+                            out.write(leading, 5);
+                            out.write(significant - 1, 6);
+                            out.write(xor >>> trailing, significant);
+                            previousLeading = leading;
+                            previousTrailing = trailing;
+                        }
+                    }
+                }
+                previousValue = value;
+            }
+            
+            for (int k = 0; k < keys.length; k++) {
+                int code = 0;
+                if (sample.containsKey(keys[k]) && !(derivedTime && TIME_KEY.equals(keys[k]))) {
+                    code = dictionaryIndex.get(keys[k]).get(sample.get(keys[k])).intValue() + 1;
+                }
+                if (code == previousCodes[k]) {
+                    out.write(0, 1);
+                } else {
+                    out.write(1, 1);
+                    out.write(code, codeBits[k]);
+                    previousCodes[k] = code;
+                }
+            }
+            n++;
+        }
+        
+        return new CompressedFeedBlock(count, count == 0 ? 0 : times[0], count == 0 ? 0 : times[count - 1], unit, valueMode,
+                        derivedTime, keys, dictionaries, codeBits, out.toWords(), out.bitLength);
+    }
+    
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return Math.abs(a);
+    }
+    
+    private static boolean isDerivedTime(long timeInNanos, String time) {
+        return time != null && time.equals(Long.toString(TimeUnit.NANOSECONDS.toMillis(timeInNanos)));
+    }
+    
+    /**
+     * Returns how the values of the samples can be stored as doubles without changing their string form, 
+     * or {@link #VALUE_NONE} if they have to be dictionary coded.
+     */
+    private static byte numericValueMode(SortedMap<Long, Map<String, String>> samples) {
+        boolean doubleForm = true;
+        boolean longForm = true;
+        for (Map<String, String> sample : samples.values()) {
+            String s = sample.get(VALUE_KEY);
+            if (s == null) {
+                return VALUE_NONE;
+            }
+            double d;
+            try {
+                d = Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                return VALUE_NONE;
+            }
+            doubleForm = doubleForm && s.equals(Double.toString(d));
+            longForm = longForm && Math.abs(d) < (1L << 53) && s.equals(Long.toString((long) d));
+            if (!doubleForm && !longForm) {
+                return VALUE_NONE;
+            }
+        }
+        if (samples.isEmpty()) {
+            return VALUE_NONE;
+        }
+        return doubleForm ? VALUE_DOUBLE : VALUE_LONG;
+    }
+    
+    private static void writeZigZag(BitWriter out, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        if (zigZag == 0) {
+            out.write(0, 1);
+        } else if (zigZag >>> 8 == 0) {
+            out.write(2, 2);
+            out.write(zigZag, 8);
+        } else if (zigZag >>> 16 == 0) {
+            out.write(6, 3);
+            out.write(zigZag, 16);
+        } else if (zigZag >>> 32 == 0) {
+            out.write(14, 4);
+            out.write(zigZag, 32);
+        } else {
+            out.write(15, 4);
+            out.write(zigZag, 64);
+        }
+    }
+    
+    private static long readZigZag(BitReader in) {
+        int bits;
+        if (in.read(1) == 0) {
+            return 0;
+        } else if (in.read(1) == 0) {
+            bits = 8;
+        } else if (in.read(1) == 0) {
+            bits = 16;
+        } else if (in.read(1) == 0) {
+            bits = 32;
+        } else {
+            bits = 64;
+        }
+        long zigZag = in.read(bits);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+    
+    /**
+     * Decodes the samples with a time in [startTime, endTime] into the given map. 
+     * @param startTime in nanoseconds
+     * @param endTime in nanoseconds
+     * @param data to add the samples to
+     * @param lastOnly only add the last sample in the range
+     */
+    public void read(long startTime, long endTime, SortedMap<Long, Map<String, String>> data, boolean lastOnly) {
+        if (count == 0 || endTime < firstTime || startTime > lastTime) {
+            return;
+        }
+        
+        BitReader in = new BitReader(words);
+        long time = 0;
+        long delta = 0;
+        long value = 0;
+        int leading = 0;
+        int trailing = 0;
+        int[] codes = new int[keys.length];
+        
+        long lastMatchTime = 0;
+        long lastMatchValue = 0;
+        int[] lastMatchCodes = null;
+        // rendering a double dominates decoding, reuse the text while the value does not change
+        String valueText = null;
+        long valueTextBits = 0;
+        for (int n = 0; n < count; n++) {
+            if (n == 0) {
+                time = in.read(64);
+            } else {
+                delta += readZigZag(in);
+                time += delta * timeUnit;
+            }
+            
+            if (valueMode != VALUE_NONE) {
+                if (n == 0) {
+                    value = in.read(64);
+                } else if (in.read(1) == 1) {
+                    if (in.read(1) == 1) {
+                        leading = (int) in.read(5);
+                        int significant = (int) in.read(6) + 1;
+                        trailing = 64 - leading - significant;
+                    }
+                    value ^= in.read(64 - leading - trailing) << trailing;
+                }
+            }
+            
+            for (int k = 0; k < keys.length; k++) {
+                if (in.read(1) == 1) {
+                    codes[k] = (int) in.read(codeBits[k]);
+                }
+            }
+            
+            if (time > endTime) {
+                break;
+            }
+            if (time >= startTime) {
+                if (lastOnly) {
+                    lastMatchTime = time;
+                    lastMatchValue = value;
+                    if (lastMatchCodes == null) {
+                        lastMatchCodes = new int[keys.length];
+                    }
+                    System.arraycopy(codes, 0, lastMatchCodes, 0, codes.length);
+                } else {
+                    if (valueText == null || value != valueTextBits) {
+                        valueText = valueText(value);
+                        valueTextBits = value;
+                    }
+                    data.put(time, toMap(time, valueText, codes));
+                }
+            }
+        }
+        if (lastOnly && lastMatchCodes != null) {
+            data.put(lastMatchTime, toMap(lastMatchTime, valueText(lastMatchValue), lastMatchCodes));
+        }
+    }
+    
+    private String valueText(long value) {
+        if (valueMode == VALUE_DOUBLE) {
+            return Double.toString(Double.longBitsToDouble(value));
+        } else if (valueMode == VALUE_LONG) {
+            return Long.toString((long) Double.longBitsToDouble(value));
+        }
+        return null;
+    }
+    
+    private Map<String, String> toMap(long time, String valueText, int[] codes) {
+        Map<String, String> sample = new HashMap<String, String>(keys.length * 2 + 4);
+        if (valueText != null) {
+            sample.put(VALUE_KEY, valueText);
+        }
+        if (derivedTime) {
+            sample.put(TIME_KEY, Long.toString(TimeUnit.NANOSECONDS.toMillis(time)));
+        }
+        for (int k = 0; k < keys.length; k++) {
+            if (codes[k] != 0) {
+                sample.put(keys[k], dictionaries[k][codes[k] - 1]);
+            }
+        }
+        return sample;
+    }
+    
+    public int getSampleCount() {
+        return count;
+    }
+    
+    public long getFirstTimestamp() {
+        return firstTime;
+    }
+    
+    public long getLastTimestamp() {
+        return lastTime;
+    }
+    
+    /**
+     * Returns the size of the encoded samples, not counting the dictionaries.
+     * @return number of bytes used by the bit stream
+     */
+    public int getEncodedBytes() {
+        return (int) ((bitLength + 7) / 8);
+    }
+    
+    /**
+     * Writes the block so that it can be read back with {@link #readFrom(DataInput)}.
+     * @param out to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(count);
+        out.writeLong(firstTime);
+        out.writeLong(lastTime);
+        out.writeLong(timeUnit);
+        out.writeByte(valueMode);
+        out.writeBoolean(derivedTime);
+        out.writeInt(keys.length);
+        for (int k = 0; k < keys.length; k++) {
+            writeString(out, keys[k]);
+            out.writeInt(dictionaries[k].length);
+            for (String s : dictionaries[k]) {
+                writeString(out, s);
+            }
+        }
+        out.writeLong(bitLength);
+        int wordCount = (int) ((bitLength + 63) / 64);
+        for (int i = 0; i < wordCount; i++) {
+            out.writeLong(words[i]);
+        }
+    }
+    
+    /**
+     * Reads a block written by {@link #writeTo(DataOutput)}.
+     * @param in to read from
+     * @return the block
+     * @throws IOException if reading fails or the format is not recognized
+     */
+    public static CompressedFeedBlock readFrom(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown compressed block format " + version);
+        }
+        int count = in.readInt();
+        long firstTime = in.readLong();
+        long lastTime = in.readLong();
+        long timeUnit = in.readLong();
+        byte valueMode = in.readByte();
+        boolean derivedTime = in.readBoolean();
+        int keyCount = in.readInt();
+        String[] keys = new String[keyCount];
+        String[][] dictionaries = new String[keyCount][];
+        int[] codeBits = new int[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            keys[k] = readString(in);
+            dictionaries[k] = new String[in.readInt()];
+            for (int i = 0; i < dictionaries[k].length; i++) {
+                dictionaries[k][i] = readString(in);
+            }
+            codeBits[k] = 64 - Long.numberOfLeadingZeros(dictionaries[k].length);
+        }
+        long bitLength = in.readLong();
+        long[] words = new long[(int) ((bitLength + 63) / 64) + 1];
+        for (int i = 0; i < words.length - 1; i++) {
+            words[i] = in.readLong();
+        }
+        return new CompressedFeedBlock(count, firstTime, lastTime, timeUnit, valueMode, derivedTime, keys, dictionaries, codeBits, words, bitLength);
+    }
+    
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+    
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+    
+    private static final class BitWriter {
+        private long[] words;
+        private long bitLength;
+        
+        BitWriter(int expectedSamples) {
+            words = new long[expectedSamples / 16 + 2];
+        }
+        
+        void write(long bits, int width) {
+            if (width == 0) {
+                return;
+            }
+            if (width < 64) {
+                bits &= (1L << width) - 1;
+            }
+            int word = (int) (bitLength >>> 6);
+            int offset = (int) (bitLength & 63);
+            if (word + 1 >= words.length) {
+                long[] grown = new long[words.length * 2];
+                System.arraycopy(words, 0, grown, 0, words.length);
+                words = grown;
+            }
+            int free = 64 - offset;
+            if (width <= free) {
+                words[word] |= bits << (free - width);
+            } else {
+                words[word] |= bits >>> (width - free);
+                words[word + 1] |= bits << (64 - (width - free));
+            }
+            bitLength += width;
+        }
+        
+        /** Trimmed copy with one spare word so that reads never run past the end. */
+        long[] toWords() {
+            long[] trimmed = new long[(int) ((bitLength + 63) / 64) + 1];
+            System.arraycopy(words, 0, trimmed, 0, trimmed.length - 1);
+            return trimmed;
+        }
+    }
+    
+    private static final class BitReader {
+        private final long[] words;
+        private long position;
+        
+        BitReader(long[] words) {
+            this.words = words;
+        }
+        
+        long read(int width) {
+            if (width == 0) {
+                return 0;
+            }
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            position += width;
+            int free = 64 - offset;
+            long bits;
+            if (width <= free) {
+                bits = words[word] >>> (free - width);
+            } else {
+                bits = (words[word] << (width - free)) | (words[word + 1] >>> (64 - (width - free)));
+            }
+            return width == 64 ? bits : bits & ((1L << width) - 1);
+        }
+    }
+}
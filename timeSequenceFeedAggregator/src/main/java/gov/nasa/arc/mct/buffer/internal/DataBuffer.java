@@ -23,19 +23,25 @@ package gov.nasa.arc.mct.buffer.internal;
 
 import gov.nasa.arc.mct.api.feed.BufferFullException;
 import gov.nasa.arc.mct.api.feed.DataArchive;
-import gov.nasa.arc.mct.api.feed.DataProvider;
+import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.api.feed.ResolutionDataProvider;
+import gov.nasa.arc.mct.api.feed.ScopedDataProvider;
 import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
+import gov.nasa.arc.mct.buffer.config.DiskUsageLevel;
 import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -43,22 +49,30 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class DataBuffer implements DataArchive, DataProvider {
+public class DataBuffer implements DataArchive, ResolutionDataProvider, ScopedDataProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger(DataBuffer.class);
     private static final Logger PERF_LOGGER = LoggerFactory
                     .getLogger("gov.nasa.arc.mct.performance.buffer");
+    private static final String DISK_CHECK_PROPERTY = "buffer.disk.check.millis";
+    private static final long DEFAULT_DISK_CHECK_MILLIS = 10000;
+    private static final String ROLLUP_TIERS_PROPERTY = "buffer.rollup.tiers.millis";
+    protected static final String DISK_FULL_MSG = "Disk space for MCT Buffer is exhausted and no buffer partition is left to evict";
 
     protected final AtomicReference<PartitionDataBuffer>[] partitionDataBuffers;
+    /** Rollup of each partition, null if rollups are disabled or the partition held data before this buffer was opened. */
+    protected final AtomicReference<PartitionRollup>[] partitionRollups;
+    protected final long[] rollupTierWidths;
     protected MetaDataBuffer metaDataBuffer;
     protected volatile PartitionDataBuffer currentParition;
     protected DataBufferEvictor evictor;
+    protected DiskQuotaMonitor diskMonitor;
+    protected volatile DiskUsageLevel diskUsageLevel = DiskUsageLevel.normal;
+    protected volatile boolean diskFull = false;
+    /** Serializes partition rotation and reset. Readers and writers never take this lock. */
     protected final Object movePartitionLock = new Object();
-    protected final Object resetLock = new Object();
-    protected boolean readInProgress = false;
-    protected boolean writeInProgress = false;
-    protected boolean moveParitionInProgress = false;
+    /** Readers and writers register here so retired partitions are only closed once they are no longer in use. */
+    protected final PartitionEpoch partitionEpoch = new PartitionEpoch();
     protected volatile boolean reset = false;
-    protected volatile boolean prepareNewPartitionInProgress = false;
     protected final DataBufferHelper dataBufferHelper;
 
     @SuppressWarnings("unchecked")
@@ -70,8 +84,12 @@ public class DataBuffer implements DataArchive, DataProvider {
             metaDataBuffer = partitionBufferFactory.newMetaDataBuffer(partitionBufferFactory.newMetaDataBufferEnv(env.getConfigProperties()));
         }
         this.partitionDataBuffers = new AtomicReference[metaDataBuffer.getNumOfPartitions()];
+        this.partitionRollups = new AtomicReference[metaDataBuffer.getNumOfPartitions()];
+        this.rollupTierWidths = parseRollupTiers(env);
         setupPartitionBuffers(env, partitionBufferFactory);
+        setupPartitionRollups();
         startEvictor();
+        startDiskMonitor();
     }
     
     protected void setupPartitionBuffers(DataBufferEnv env, DataBufferHelper partitionBufferFactory) {
@@ -90,6 +108,56 @@ public class DataBuffer implements DataArchive, DataProvider {
         this.partitionDataBuffers[currentEnv.getCurrentBufferPartition()].set(currentParition);
     }
     
+    /**
+     * Reads the rollup tier widths in nanoseconds. The memory buffer only holds a few seconds of 
+     * data so its reads are served from the raw data.
+     */
+    private static long[] parseRollupTiers(DataBufferEnv env) {
+        if (env == null || env.getLOS() == LOS.fast || env.getConfigProperties() == null) {
+            return new long[0];
+        }
+        String tiers = env.getConfigProperties().getProperty(ROLLUP_TIERS_PROPERTY);
+        if (tiers == null || tiers.trim().length() == 0) {
+            return new long[0];
+        }
+        String[] widths = tiers.split(",");
+        long[] tierWidths = new long[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            tierWidths[i] = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(widths[i].trim()));
+        }
+        Arrays.sort(tierWidths);
+        return tierWidths;
+    }
+    
+    /**
+     * Starts a rollup for every partition that holds no data yet. The rollup of a partition 
+     * which already held data would be incomplete, reads of such a partition use the raw data.
+     */
+    private void setupPartitionRollups() {
+        for (int i = 0; i < partitionRollups.length; i++) {
+            partitionRollups[i] = new AtomicReference<PartitionRollup>();
+            PartitionMetaData partitionMetaData = metaDataBuffer.getPartitionMetaData(i);
+            PartitionDataBuffer partitionBuffer = partitionDataBuffers[i].get();
+            if (partitionBuffer != null && partitionBuffer.isActive() && (partitionMetaData == null || partitionMetaData.getFeeds().isEmpty())) {
+                partitionRollups[i].set(newPartitionRollup());
+            }
+        }
+    }
+    
+    private PartitionRollup newPartitionRollup() {
+        return rollupTierWidths.length == 0 ? null : new PartitionRollup(rollupTierWidths);
+    }
+    
+    /**
+     * Adds the samples just written to a partition to its rollup.
+     */
+    protected void addToRollup(int partition, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) {
+        PartitionRollup rollup = partitionRollups[partition].get();
+        if (rollup != null) {
+            rollup.add(value, timeUnit);
+        }
+    }
+    
     private void startEvictor() {
         DataBufferEnv currentEnv = currentParition.getBufferEnv();
         
@@ -100,6 +168,34 @@ public class DataBuffer implements DataArchive, DataProvider {
         }
     }
     
+    private void startDiskMonitor() {
+        DataBufferEnv currentEnv = currentParition.getBufferEnv();
+        Properties prop = currentEnv.getConfigProperties();
+        long checkMillis = DEFAULT_DISK_CHECK_MILLIS;
+        if (prop != null && prop.getProperty(DISK_CHECK_PROPERTY) != null) {
+            checkMillis = Long.parseLong(prop.getProperty(DISK_CHECK_PROPERTY));
+        }
+        
+        if (checkMillis > 0 && currentEnv.checkDiskUsage() != null) {
+            this.diskMonitor = new DiskQuotaMonitor(this, checkMillis);
+            diskMonitor.schedule();
+        }
+    }
+    
+    /**
+     * Returns true if any partition holds data for the feed. The data of a feed is only returned from the 
+     * partitions whose meta data contains it, so a feed not in any partition is never returned.
+     */
+    @Override
+    public boolean canProvide(String feedID) {
+        for (int i = 0; i < metaDataBuffer.getNumOfPartitions(); i++) {
+            if (metaDataBuffer.hasFeed(i, feedID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     @Override
     public boolean isFullyWithinTimeSpan(String feedID, long startTime, TimeUnit timeUnit) {
         int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
@@ -130,206 +226,228 @@ public class DataBuffer implements DataArchive, DataProvider {
         return true;
     }
 
-    private boolean isWithinTimeSpan(int partition, Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime) {
-        for (String feedID : feedIDs) {
-            if(metaDataBuffer.isWithinTimeSpan(partition, feedID, timeUnit, startTime, endTime)) {
-                return true;
-            }
-        }
-        return false;
-    }
     
     @Override
     public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, long startTime, long endTime,
             TimeUnit timeUnit) {
-        synchronized (movePartitionLock) {
+        long epochToken = partitionEpoch.enter();
+        try {
             if (reset) return Collections.emptyMap();
+            
+            Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+            
+            boolean[] partitionsWithinTimeSpan = metaDataBuffer.getPartitionsWithinTimeSpan(feedIDs, timeUnit, startTime, endTime);
+            int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+            int i = startPartition;
+            do {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer != null && partitionsWithinTimeSpan[i]) {
+                    Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, feedIDs, timeUnit, startTime, endTime);
+                    for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                        SortedMap<Long, Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
+                        if (cumulativeData != null) {
+                            cumulativeData.putAll(entry.getValue());
+                        } else {
+                            aggregateData.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    if (isFullyWithinTimeSpan(i, feedIDs, startTime, timeUnit)) {
+                        break;
+                    }
+                }
+                i = this.currentParition.getBufferEnv().previousBufferPartition(i);
+            } while (i != startPartition);
+            
+            return aggregateData;
+        } finally {
+            partitionEpoch.exit(epochToken);
+        }
+    }
+    
+    /**
+     * Returns the data reduced to the coarsest rollup tier not wider than the resolution. The part of 
+     * the request not covering whole buckets of the tier, at either end, is read from the raw data.
+     */
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, long startTime, long endTime,
+            long resolution, TimeUnit timeUnit) {
+        int tier = PartitionRollup.selectTier(rollupTierWidths, TimeUnit.NANOSECONDS.convert(resolution, timeUnit));
+        if (tier < 0) {
+            return getData(feedIDs, startTime, endTime, timeUnit);
+        }
+        long width = rollupTierWidths[tier];
+        long start = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        long end = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        long alignedStart = -PartitionRollup.floorDiv(-start, width) * width;
+        // the end time includes the whole unit it is given in, so a bucket ending within that unit is complete
+        long alignedEnd = PartitionRollup.floorDiv(TimeUnit.NANOSECONDS.convert(endTime + 1, timeUnit), width) * width - 1;
+        if (alignedStart >= alignedEnd) {
+            return getData(feedIDs, startTime, endTime, timeUnit);
         }
         
-        Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
         
-        int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int i = startPartition;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer != null && isWithinTimeSpan(i, feedIDs, timeUnit, startTime, endTime)) {
-                Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, feedIDs, timeUnit, startTime, endTime);
-                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
-                    SortedMap<Long, Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
-                    if (cumulativeData != null) {
-                        cumulativeData.putAll(entry.getValue());
-                    } else {
-                        aggregateData.put(entry.getKey(), entry.getValue());
-                    }
+        Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+        if (start < alignedStart) {
+            mergeData(aggregateData, getData(feedIDs, start, alignedStart - 1, TimeUnit.NANOSECONDS));
+        }
+        long bucketsEnd = Math.min(alignedEnd, end);
+        long epochToken = partitionEpoch.enter();
+        try {
+            if (reset) return Collections.emptyMap();
+            
+            boolean[] partitionsWithinTimeSpan = metaDataBuffer.getPartitionsWithinTimeSpan(feedIDs, TimeUnit.NANOSECONDS, alignedStart, bucketsEnd);
+            for (int i = 0; i < partitionDataBuffers.length; i++) {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer == null || !partitionsWithinTimeSpan[i]) {
+                    continue;
                 }
-                if (isFullyWithinTimeSpan(i, feedIDs, startTime, timeUnit)) {
-                    break;
+                PartitionRollup rollup = this.partitionRollups[i].get();
+                if (rollup != null) {
+                    rollup.read(feedIDs, tier, alignedStart, bucketsEnd, aggregateData);
+                } else {
+                    mergeData(aggregateData, getData(partitionBuffer, feedIDs, TimeUnit.NANOSECONDS, alignedStart, bucketsEnd));
                 }
             }
-            i = this.currentParition.getBufferEnv().previousBufferPartition(i);
-        } while (i != startPartition);
+        } finally {
+            partitionEpoch.exit(epochToken);
+        }
+        if (alignedEnd < end) {
+            mergeData(aggregateData, getData(feedIDs, alignedEnd + 1, end, TimeUnit.NANOSECONDS));
+        }
         
+        timer.stopInterval();
+        PERF_LOGGER.debug("Time to get {} feeds at resolution {} ns: {}", new Object[] { feedIDs.size(), width, timer.getIntervalInMillis() });
         return aggregateData;
     }
     
+    private static void mergeData(Map<String, SortedMap<Long, Map<String, String>>> aggregateData, Map<String, SortedMap<Long, Map<String, String>>> data) {
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+            SortedMap<Long, Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
+            if (cumulativeData != null) {
+                cumulativeData.putAll(entry.getValue());
+            } else {
+                aggregateData.put(entry.getKey(), new TreeMap<Long, Map<String, String>>(entry.getValue()));
+            }
+        }
+    }
+    
     @Override
     public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
             long endTime) {
-        synchronized (movePartitionLock) {
+        long epochToken = partitionEpoch.enter();
+        try {
             if (reset) return Collections.emptyMap();
-        }
-        
-        Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
-        
-        int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int i = startPartition;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer != null && isWithinTimeSpan(i, feedIDs, timeUnit, startTime, endTime)) {
-                Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, feedIDs, timeUnit, startTime, endTime);
-                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
-                    List<Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
-                    if (cumulativeData != null) {
-                        cumulativeData.addAll(0, entry.getValue().values());
-                    } else {
-                        aggregateData.put(entry.getKey(), new LinkedList<Map<String, String>>(entry.getValue().values()));
+            
+            Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
+            
+            boolean[] partitionsWithinTimeSpan = metaDataBuffer.getPartitionsWithinTimeSpan(feedIDs, timeUnit, startTime, endTime);
+            int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+            int i = startPartition;
+            do {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer != null && partitionsWithinTimeSpan[i]) {
+                    Map<String, SortedMap<Long, Map<String, String>>> data = getData(partitionBuffer, feedIDs, timeUnit, startTime, endTime);
+                    for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                        List<Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
+                        if (cumulativeData != null) {
+                            cumulativeData.addAll(0, entry.getValue().values());
+                        } else {
+                            aggregateData.put(entry.getKey(), new LinkedList<Map<String, String>>(entry.getValue().values()));
+                        }
+                    }
+                    if (isFullyWithinTimeSpan(i, feedIDs, startTime, timeUnit)) {
+                        break;
                     }
                 }
-                if (isFullyWithinTimeSpan(i, feedIDs, startTime, timeUnit)) {
-                    break;
-                }
-            }
-            i = this.currentParition.getBufferEnv().previousBufferPartition(i);
-        } while (i != startPartition);
-        
-        return aggregateData;
+                i = this.currentParition.getBufferEnv().previousBufferPartition(i);
+            } while (i != startPartition);
+            
+            return aggregateData;
+        } finally {
+            partitionEpoch.exit(epochToken);
+        }
     }
 
     private Map<String, SortedMap<Long, Map<String, String>>> getData(PartitionDataBuffer partitionDataBuffer, Set<String> feedIDs, TimeUnit timeUnit,
                     long startTime, long endTime) {
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-            
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            readInProgress = true;
-        }
-        
         Set<String> searchFeedIDS = new HashSet<String>(feedIDs);
 
-        try {
-            final ElapsedTimer timer = new ElapsedTimer();
-            timer.startInterval();
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
 
-            Map<String, SortedMap<Long, Map<String, String>>> returnedData = partitionDataBuffer.getData(searchFeedIDS, timeUnit, startTime, endTime);
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = partitionDataBuffer.getData(searchFeedIDS, timeUnit, startTime, endTime);
 
-            timer.stopInterval();
-            LOGGER.debug("time to get Data for feeds {}: {}", feedIDs, timer.getIntervalInMillis());
-            return returnedData;
-        } finally {
-            synchronized (movePartitionLock) {
-                readInProgress = false;
-                movePartitionLock.notifyAll();
-            }
-        }
+        timer.stopInterval();
+        LOGGER.debug("time to get Data for feeds {}: {}", feedIDs, timer.getIntervalInMillis());
+        return returnedData;
     }
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
-        
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
         Map<String, Map<Long, Map<String, String>>> feedDataToPut = new HashMap<String, Map<Long,Map<String,String>>>();
         feedDataToPut.put(feedID, entries);
         
-        int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int startPartition = i;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer == null || !partitionBuffer.isActive()) {
-                break;
-            }
-            
-            LOGGER.debug("Putting in partition {}", i);
-
-            Map<String, PartitionTimestamps> timeStamps = putData(partitionBuffer, feedDataToPut, timeUnit);
-            if (timeStamps != null) {
-                metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
-            }
-            i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
-        } while (i != startPartition);
+        putData(feedDataToPut, timeUnit);
 
         timer.stopInterval();
         PERF_LOGGER.debug("Time to save data for feed {}: {}", feedID, timer.getIntervalInMillis());
 
     }
 
-    private Map<String, PartitionTimestamps> putData(PartitionDataBuffer partitionBuffer, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit)  throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return null;
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            writeInProgress = true;
-        }
-        if (this.partitionDataBuffers[partitionBuffer.getBufferEnv().getCurrentBufferPartition()].get() == null) {
-            return null;
+    /**
+     * Writes the data to the current partition and to every active partition following it.
+     */
+    private void putData(Map<String, Map<Long, Map<String, String>>> feedDataToPut, TimeUnit timeUnit) throws BufferFullException {
+        if (diskFull) {
+            throw new BufferFullException(DISK_FULL_MSG);
         }
-
+        long epochToken = partitionEpoch.enter();
         try {
-            return partitionBuffer.putData(value, timeUnit);
+            if (reset) return;
+            
+            int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+            int startPartition = i;
+            do {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer == null || !partitionBuffer.isActive()) {
+                    break;
+                }
+                
+                LOGGER.debug("Putting in partition {}", i);
+
+                Map<String, PartitionTimestamps> timeStamps = partitionBuffer.putData(feedDataToPut, timeUnit);
+                if (timeStamps != null) {
+                    metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
+                }
+                addToRollup(i, feedDataToPut, timeUnit);
+                i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
+            } while (i != startPartition);
+        } catch (BufferFullException e) {
+            diskFull = true;
+            throw e;
         } finally {
-            synchronized (movePartitionLock) {
-                writeInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            partitionEpoch.exit(epochToken);
         }
     }
-    
+
     @Override
     public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit,
                     Runnable callback)  throws BufferFullException {
         PERF_LOGGER.debug("Putting data for {} feeds", value.size());
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
-        int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int startPartition = i;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer == null || !partitionBuffer.isActive()) {
-                break;
-            }
-            
-            LOGGER.debug("Putting in partition {}", i);
-
-            Map<String, PartitionTimestamps> timeStamps = putData(partitionBuffer, value, timeUnit);
-            if (timeStamps != null) {
-                metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
-            }
+        putData(value, timeUnit);
 
-            timer.stopInterval();
-            PERF_LOGGER.debug("Time to save data for {} feeds: {}", value.size(), timer
-                            .getIntervalInMillis());
-            i = (i + 1) % currentParition.getBufferEnv().getNumOfBufferPartitions();
-        } while (i != startPartition);
+        timer.stopInterval();
+        PERF_LOGGER.debug("Time to save data for {} feeds: {}", value.size(), timer
+                        .getIntervalInMillis());
 
         if (callback != null) {
             callback.run();
@@ -339,10 +457,6 @@ public class DataBuffer implements DataArchive, DataProvider {
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
-        
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
@@ -352,22 +466,7 @@ public class DataBuffer implements DataArchive, DataProvider {
         Map<String, Map<Long, Map<String, String>>> feedDataToPut = new HashMap<String, Map<Long,Map<String,String>>>();
         feedDataToPut.put(feedID, dataToPut);
 
-        int i = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        int startPartition = i;
-        do {
-            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
-            if (partitionBuffer == null || !partitionBuffer.isActive()) {
-                break;
-            }
-            
-            LOGGER.debug("Putting in partition {}", i);
-
-            Map<String, PartitionTimestamps> timeStamps = putData(partitionBuffer, feedDataToPut, timeUnit);
-            if (timeStamps != null) {
-                metaDataBuffer.updatePartitionMetaData(partitionBuffer.getBufferEnv().getCurrentBufferPartition(), timeStamps);
-            }
-            i = (i + 1) % this.currentParition.getBufferEnv().getNumOfBufferPartitions();
-        } while (i != startPartition);
+        putData(feedDataToPut, timeUnit);
         
         timer.stopInterval();
         PERF_LOGGER.debug("Time to save data for feed {}: {}", feedID, timer.getIntervalInMillis());
@@ -384,53 +483,46 @@ public class DataBuffer implements DataArchive, DataProvider {
     @Override
     public void reset() {
         synchronized (movePartitionLock) {
-            while (moveParitionInProgress || writeInProgress || readInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
             reset = true;
-        }
-        synchronized(resetLock) {
-            while (prepareNewPartitionInProgress) {
-                try {
-                    resetLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
+            try {
+                if (evictor != null) {
+                    evictor.cancel();
                 }
-            }
-        }
-        
-        try {
-            if (evictor != null) {
-                evictor.cancel();
-            }
-            DataBufferEnv env = currentParition.getBufferEnv();
-            for (int j = 0; j < this.partitionDataBuffers.length; j++) {
-                if (partitionDataBuffers[j].get() != null) {
-                    partitionDataBuffers[j].get().removeBuffer();
-                    partitionDataBuffers[j].set(null);
+                if (diskMonitor != null) {
+                    diskMonitor.cancel();
+                    diskMonitor = null;
                 }
-            }
-            
-            if (this.metaDataBuffer != null) {
-                this.metaDataBuffer.restart();
-            }
-            
-            DataBufferEnv currentEnv = (DataBufferEnv)env.clone();
-            
-            assert currentEnv != null : "Current DataBufferEnv should not be null.";
-            assert dataBufferHelper != null : "DataBufferHelper should not be null.";
-            
-            PartitionDataBuffer partitionBuffer = dataBufferHelper.newPartitionBuffer(currentEnv);
-            this.currentParition = partitionBuffer;
-            this.partitionDataBuffers[currentEnv.getCurrentBufferPartition()].set(currentParition);
-
-            startEvictor();
-        } finally {
-            synchronized(movePartitionLock) {
+                // let reads and writes that started before the reset drain
+                partitionEpoch.awaitQuiescence();
+                
+                DataBufferEnv env = currentParition.getBufferEnv();
+                for (int j = 0; j < this.partitionDataBuffers.length; j++) {
+                    PartitionDataBuffer partitionBuffer = partitionDataBuffers[j].getAndSet(null);
+                    partitionRollups[j].set(null);
+                    if (partitionBuffer != null) {
+                        partitionBuffer.removeBuffer();
+                    }
+                }
+                
+                if (this.metaDataBuffer != null) {
+                    this.metaDataBuffer.restart();
+                }
+                
+                DataBufferEnv currentEnv = (DataBufferEnv)env.clone();
+                
+                assert currentEnv != null : "Current DataBufferEnv should not be null.";
+                assert dataBufferHelper != null : "DataBufferHelper should not be null.";
+                
+                PartitionDataBuffer partitionBuffer = dataBufferHelper.newPartitionBuffer(currentEnv);
+                this.currentParition = partitionBuffer;
+                this.partitionRollups[currentEnv.getCurrentBufferPartition()].set(newPartitionRollup());
+                this.partitionDataBuffers[currentEnv.getCurrentBufferPartition()].set(currentParition);
+
+                startEvictor();
+                diskFull = false;
+                diskUsageLevel = DiskUsageLevel.normal;
+                startDiskMonitor();
+            } finally {
                 reset = false;
             }
         }
@@ -441,12 +533,17 @@ public class DataBuffer implements DataArchive, DataProvider {
             evictor.cancel();
             evictor = null;
         }
+        if (diskMonitor != null) {
+            diskMonitor.cancel();
+            diskMonitor = null;
+        }
 
         for (int j = 0; j < this.partitionDataBuffers.length; j++) {
             if (partitionDataBuffers[j].get() != null) {
                 partitionDataBuffers[j].get().closeBuffer();
                 partitionDataBuffers[j].set(null);
             }
+            partitionRollups[j].set(null);
         }
         if (this.metaDataBuffer != null) {
             this.metaDataBuffer.close();
@@ -471,19 +568,23 @@ public class DataBuffer implements DataArchive, DataProvider {
         return true;
     }
 
+    /**
+     * Replaces the oldest partition with a new, empty partition buffer. The old buffer is 
+     * unpublished first and only closed once no reader can still be using it, so reads and 
+     * writes proceed while the partition is being prepared.
+     */
     public void prepareForNextPartition() {
-        synchronized(resetLock) {
+        synchronized (movePartitionLock) {
             if (reset) { return; }
-            prepareNewPartitionInProgress = true;
-        }
-        
-        try {
+            
             int newBufferPartition = this.currentParition.getBufferEnv().nextBufferPartition();
         
-            PartitionDataBuffer toBeClosedBuffer = this.partitionDataBuffers[newBufferPartition].get();
+            PartitionDataBuffer toBeClosedBuffer = this.partitionDataBuffers[newBufferPartition].getAndSet(null);
+            this.partitionRollups[newBufferPartition].set(null);
         
             Map<String, SortedMap<Long, Map<String, String>>> rowOverData = null;
             if (toBeClosedBuffer != null) {
+                partitionEpoch.awaitQuiescence();
                 Set<String> rowOverFeedIDs = metaDataBuffer.resetPartitionMetaData(newBufferPartition);
                 if (!rowOverFeedIDs.isEmpty()) {
                     rowOverData = toBeClosedBuffer.getLastData(rowOverFeedIDs, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
@@ -493,6 +594,7 @@ public class DataBuffer implements DataArchive, DataProvider {
 
             DataBufferEnv newBufferEnv = this.currentParition.getBufferEnv().advanceBufferPartition();
             PartitionDataBuffer newPartitionBuffer = dataBufferHelper.newPartitionBuffer(newBufferEnv);
+            PartitionRollup newRollup = newPartitionRollup();
             if (rowOverData != null) {
                 Map<String, Map<Long, Map<String, String>>> data = new HashMap<String, Map<Long,Map<String,String>>>();
                 for (Entry<String, SortedMap<Long, Map<String, String>>> entry: rowOverData.entrySet()) {
@@ -500,60 +602,106 @@ public class DataBuffer implements DataArchive, DataProvider {
                     data.put(entry.getKey(), feedData);
                 }
                 try {
-                    Map<String, PartitionTimestamps> timeStamps = putData(newPartitionBuffer, data, TimeUnit.NANOSECONDS);
+                    Map<String, PartitionTimestamps> timeStamps = newPartitionBuffer.putData(data, TimeUnit.NANOSECONDS);
                     if (timeStamps != null) {
                         metaDataBuffer.updatePartitionMetaData(newBufferPartition, timeStamps);
                     }
+                    if (newRollup != null) {
+                        newRollup.add(data, TimeUnit.NANOSECONDS);
+                    }
                 } catch (BufferFullException e) {
                     LOGGER.error("Buffer full during prepareForNextPartition", e);
                 }
             }
+            this.partitionRollups[newBufferEnv.getCurrentBufferPartition()].set(newRollup);
             this.partitionDataBuffers[newBufferEnv.getCurrentBufferPartition()].set(newPartitionBuffer);
-        } finally {
-            synchronized(resetLock) {
-                prepareNewPartitionInProgress = false;
-                resetLock.notifyAll();
-            }
         }
     }
 
+    /**
+     * Makes the prepared partition the current one. Readers and writers pick up the new 
+     * partition on their next call; only the previous partition's flush waits for writes 
+     * already in flight.
+     */
     public void moveToNextPartition() {
-        int nextBufferPartition = this.currentParition.getBufferEnv().nextBufferPartition();
-        int currentBufferPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        
-        PartitionDataBuffer toBeInActiveBuffer = this.partitionDataBuffers[currentBufferPartition].get();
-        
-        metaDataBuffer.writeCurrentBufferPartition(nextBufferPartition);
-
         synchronized (movePartitionLock) {
             if (reset) { return; }
             
-            while (readInProgress || writeInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
+            int nextBufferPartition = this.currentParition.getBufferEnv().nextBufferPartition();
+            int currentBufferPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+            
+            PartitionDataBuffer toBeInActiveBuffer = this.partitionDataBuffers[currentBufferPartition].get();
+            
+            metaDataBuffer.writeCurrentBufferPartition(nextBufferPartition);
+
+            this.currentParition = this.partitionDataBuffers[nextBufferPartition].get();
+            
+            metaDataBuffer.writePartitionMetaData(currentBufferPartition);
+            
+            if (toBeInActiveBuffer != null) {
+                partitionEpoch.awaitQuiescence();
+                toBeInActiveBuffer.getBufferEnv().flush();
+                toBeInActiveBuffer.inactive();
+                PartitionRollup rollup = this.partitionRollups[currentBufferPartition].get();
+                if (rollup != null) {
+                    rollup.seal();
                 }
+            } else {
+                LOGGER.warn("PartitionDataBuffer object should not be null!");
+                LOGGER.warn("currentBufferPartition={}, nextBufferPartition={}", currentBufferPartition, nextBufferPartition);
             }
-            moveParitionInProgress = true;
         }
-        try {
-            this.currentParition = this.partitionDataBuffers[nextBufferPartition].get();
-        } finally {
-            synchronized (movePartitionLock) {
-                moveParitionInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+    }
+
+    /**
+     * Measures the disk space used by the buffer and applies a graduated response. While space is low
+     * the oldest inactive partition is evicted ahead of schedule, one per check; the buffer is only 
+     * reported full once space is exhausted and no partition is left to evict.
+     * @return the disk usage level measured
+     */
+    public DiskUsageLevel checkDiskUsage() {
+        DiskUsageLevel level = this.currentParition.getBufferEnv().checkDiskUsage();
+        if (level == null) {
+            return DiskUsageLevel.normal;
         }
-        
-        metaDataBuffer.writePartitionMetaData(currentBufferPartition);
-        
-        if (toBeInActiveBuffer != null) {
-            toBeInActiveBuffer.getBufferEnv().flush();
-            toBeInActiveBuffer.inactive();
-        } else {
-            LOGGER.warn("PartitionDataBuffer object should not be null!");
-            LOGGER.warn("currentBufferPartition={}, nextBufferPartition={}", currentBufferPartition, nextBufferPartition);
+        boolean evicted = false;
+        if (level.compareTo(DiskUsageLevel.evict) >= 0) {
+            evicted = evictOldestPartition();
+        }
+        this.diskFull = level == DiskUsageLevel.full && !evicted;
+        this.diskUsageLevel = level;
+        return level;
+    }
+    
+    public DiskUsageLevel getDiskUsageLevel() {
+        return this.diskUsageLevel;
+    }
+    
+    public boolean isDiskFull() {
+        return this.diskFull;
+    }
+    
+    private boolean evictOldestPartition() {
+        synchronized (movePartitionLock) {
+            if (reset) { return false; }
+            
+            DataBufferEnv env = this.currentParition.getBufferEnv();
+            int currentBufferPartition = env.getCurrentBufferPartition();
+            int i = env.nextBufferPartition();
+            while (i != currentBufferPartition) {
+                PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+                if (partitionBuffer != null && !partitionBuffer.isActive()) {
+                    this.partitionDataBuffers[i].set(null);
+                    this.partitionRollups[i].set(null);
+                    partitionEpoch.awaitQuiescence();
+                    metaDataBuffer.resetPartitionMetaData(i);
+                    closeBuffer(partitionBuffer);
+                    LOGGER.warn("Evicted buffer partition {} ahead of schedule to free disk space", i);
+                    return true;
+                }
+                i = (i + 1) % env.getNumOfBufferPartitions();
+            }
+            return false;
         }
     }
 
@@ -23,8 +23,10 @@ package gov.nasa.arc.mct.buffer.internal;
 
 import gov.nasa.arc.mct.buffer.config.FastDiskBufferEnv;
 import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
+import gov.nasa.arc.mct.buffer.config.SegmentBufferEnv;
 import gov.nasa.arc.mct.buffer.disk.internal.FastDiskDataBufferHelper;
 import gov.nasa.arc.mct.buffer.memory.internal.MemoryDataBufferHelper;
+import gov.nasa.arc.mct.buffer.segment.internal.SegmentDataBufferHelper;
 
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -32,10 +34,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class DataBufferFactory {
     private final static AtomicBoolean fastDiskBufferInitializeToken = new AtomicBoolean(false);
     private final static AtomicBoolean memoryBufferInitializeToken = new AtomicBoolean(false);
+    private final static AtomicBoolean segmentBufferInitializeToken = new AtomicBoolean(false);
     private static volatile DataBuffer fastDiskDataBuffer;
     private static volatile DataBuffer memoryDataBuffer;
+    private static volatile DataBuffer segmentDataBuffer;
     private final static DataBufferHelper fastDiskBufferHelper = new FastDiskDataBufferHelper();
     private final static DataBufferHelper memoryBufferHelper = new MemoryDataBufferHelper();
+    private final static DataBufferHelper segmentBufferHelper = new SegmentDataBufferHelper();
 
     private DataBufferFactory() {
         //
@@ -65,10 +70,24 @@ public class DataBufferFactory {
         return fastDiskDataBuffer;
     }
 
+    public static DataBuffer getSegmentDataBuffer(Properties prop) {
+        if (!segmentBufferInitializeToken.get()) {
+            synchronized(DataBufferFactory.class) {
+                if (segmentDataBuffer == null) {
+                    segmentDataBuffer = new CODataBuffer(new SegmentBufferEnv(prop), segmentBufferHelper);
+                }
+            }
+            segmentBufferInitializeToken.compareAndSet(false, true);
+        }
+        return segmentDataBuffer;
+    }
+
     static void reset() {
         fastDiskDataBuffer = null;
         memoryDataBuffer = null;
+        segmentDataBuffer = null;
         fastDiskBufferInitializeToken.set(false);
         memoryBufferInitializeToken.set(false);
+        segmentBufferInitializeToken.set(false);
     }
 }
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Index of the time span of every feed in every partition, read without locking. The spans of a 
+ * feed are kept in one array holding the start and end timestamps of each partition, so the partitions 
+ * of a feed are found with a single lookup. Updates must be serialized by the caller; readers see either 
+ * the span before or after an update.
+ */
+final class FeedPartitionIndex {
+    /** Start marker of a feed not in the partition. */
+    private static final long ABSENT = Long.MAX_VALUE;
+    /** Start marker of a feed rolled over into the partition before any sample was written. */
+    private static final long NO_TIMESTAMPS = Long.MIN_VALUE;
+    private static final long NULL_TIMESTAMP = -1;
+    
+    private final int numOfPartitions;
+    private final ConcurrentMap<String, AtomicLongArray> spans = new ConcurrentHashMap<String, AtomicLongArray>();
+    
+    FeedPartitionIndex(int numOfPartitions) {
+        this.numOfPartitions = numOfPartitions;
+    }
+    
+    private AtomicLongArray newSpans() {
+        AtomicLongArray feedSpans = new AtomicLongArray(2 * numOfPartitions);
+        for (int i = 0; i < numOfPartitions; i++) {
+            feedSpans.set(2 * i, ABSENT);
+        }
+        return feedSpans;
+    }
+    
+    /**
+     * Records the state of a feed in a partition.
+     * @param partition index
+     * @param feedID of the feed
+     * @param partitionMetaData of the partition, may be null
+     */
+    void update(int partition, String feedID, PartitionMetaData partitionMetaData) {
+        AtomicLongArray feedSpans = spans.get(feedID);
+        if (partitionMetaData == null || !partitionMetaData.hasFeed(feedID)) {
+            if (feedSpans != null) {
+                feedSpans.set(2 * partition, ABSENT);
+            }
+            return;
+        }
+        if (feedSpans == null) {
+            feedSpans = newSpans();
+            spans.put(feedID, feedSpans);
+        }
+        if (partitionMetaData.getTimestamps(feedID) == null) {
+            feedSpans.set(2 * partition, NO_TIMESTAMPS);
+        } else {
+            // the end is published before the start so a reader seeing the start sees the matching end
+            feedSpans.set(2 * partition + 1, partitionMetaData.getEndTimestamp(feedID));
+            feedSpans.set(2 * partition, partitionMetaData.getStartTimestamp(feedID));
+        }
+    }
+    
+    /**
+     * Replaces the state of every feed in a partition.
+     * @param partition index
+     * @param partitionMetaData of the partition, may be null
+     */
+    void set(int partition, PartitionMetaData partitionMetaData) {
+        clear(partition);
+        if (partitionMetaData != null) {
+            for (String feedID : partitionMetaData.getFeeds()) {
+                update(partition, feedID, partitionMetaData);
+            }
+        }
+    }
+    
+    void clear(int partition) {
+        for (AtomicLongArray feedSpans : spans.values()) {
+            feedSpans.set(2 * partition, ABSENT);
+        }
+    }
+    
+    void clear() {
+        spans.clear();
+    }
+    
+    boolean hasFeed(int partition, String feedID) {
+        AtomicLongArray feedSpans = spans.get(feedID);
+        return feedSpans != null && feedSpans.get(2 * partition) != ABSENT;
+    }
+    
+    long getStartTimestamp(int partition, String feedID) {
+        AtomicLongArray feedSpans = spans.get(feedID);
+        if (feedSpans == null) {
+            return NULL_TIMESTAMP;
+        }
+        long start = feedSpans.get(2 * partition);
+        return start == ABSENT || start == NO_TIMESTAMPS ? NULL_TIMESTAMP : start;
+    }
+    
+    long getEndTimestamp(int partition, String feedID) {
+        AtomicLongArray feedSpans = spans.get(feedID);
+        if (feedSpans == null) {
+            return NULL_TIMESTAMP;
+        }
+        long start = feedSpans.get(2 * partition);
+        return start == ABSENT || start == NO_TIMESTAMPS ? NULL_TIMESTAMP : feedSpans.get(2 * partition + 1);
+    }
+    
+    private static boolean isWithinTimeSpan(AtomicLongArray feedSpans, int partition, long startTime, long endTime) {
+        long start = feedSpans.get(2 * partition);
+        if (start == ABSENT || start == NO_TIMESTAMPS) {
+            return false;
+        }
+        long end = feedSpans.get(2 * partition + 1);
+        return (startTime <= end || end == NULL_TIMESTAMP) && endTime >= start;
+    }
+    
+    boolean isWithinTimeSpan(int partition, String feedID, long startTime, long endTime) {
+        AtomicLongArray feedSpans = spans.get(feedID);
+        return feedSpans != null && isWithinTimeSpan(feedSpans, partition, startTime, endTime);
+    }
+    
+    boolean isFullyWithinTimeSpan(int partition, String feedID, long startTime) {
+        AtomicLongArray feedSpans = spans.get(feedID);
+        if (feedSpans == null) {
+            return false;
+        }
+        long start = feedSpans.get(2 * partition);
+        return start != ABSENT && start != NO_TIMESTAMPS && startTime >= start;
+    }
+    
+    /**
+     * Returns the partitions holding data of any of the feeds within the time span.
+     * @param feedIDs of the feeds
+     * @param startTime in nanoseconds
+     * @param endTime in nanoseconds
+     * @return flag for each partition, true if the partition holds data of a feed within the time span
+     */
+    boolean[] getPartitionsWithinTimeSpan(Set<String> feedIDs, long startTime, long endTime) {
+        boolean[] partitions = new boolean[numOfPartitions];
+        int found = 0;
+        for (String feedID : feedIDs) {
+            AtomicLongArray feedSpans = spans.get(feedID);
+            if (feedSpans == null) {
+                continue;
+            }
+            for (int i = 0; i < numOfPartitions; i++) {
+                if (!partitions[i] && isWithinTimeSpan(feedSpans, i, startTime, endTime)) {
+                    partitions[i] = true;
+                    found++;
+                }
+            }
+            if (found == numOfPartitions) {
+                break;
+            }
+        }
+        return partitions;
+    }
+}
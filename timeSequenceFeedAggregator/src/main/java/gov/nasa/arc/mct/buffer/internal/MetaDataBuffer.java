@@ -35,6 +35,9 @@ public class MetaDataBuffer {
     
     protected volatile PartitionMetaData[] partitionMetaDatas;
     
+    /** Lock free copy of the partition time spans for the read path, updated while holding the lock of this buffer. */
+    private final FeedPartitionIndex feedIndex;
+    
     protected volatile int currentPartition = 0;
     
     private DataBufferEnv metaEnv;
@@ -42,12 +45,18 @@ public class MetaDataBuffer {
     public MetaDataBuffer(DataBufferEnv metaEnv) {
         this.metaEnv = metaEnv;
         this.partitionMetaDatas = new PartitionMetaData[metaEnv.getNumOfBufferPartitions()];
+        this.feedIndex = new FeedPartitionIndex(metaEnv.getNumOfBufferPartitions());
     }
     
     protected synchronized PartitionMetaData getPartitionMetaData(int bufferPartition) {
         return partitionMetaDatas[bufferPartition];
     }
     
+    protected synchronized void setPartitionMetaData(int bufferPartition, PartitionMetaData partitionMetaData) {
+        partitionMetaDatas[bufferPartition] = partitionMetaData;
+        feedIndex.set(bufferPartition, partitionMetaData);
+    }
+    
     public int getNumOfPartitions() {
         return metaEnv.getNumOfBufferPartitions();
     }
@@ -56,54 +65,43 @@ public class MetaDataBuffer {
         return currentPartition;
     }
 
-    public synchronized long getStartTimestamp(int bufferPartition, String feedID) {
-        PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
-        if (partitionMetaData == null) {
-            return NULL_TIMESTAMP;
-        } else {
-            return partitionMetaData.getStartTimestamp(feedID);
-        }
+    public long getStartTimestamp(int bufferPartition, String feedID) {
+        return feedIndex.getStartTimestamp(bufferPartition, feedID);
     }
 
-    public synchronized long getEndTimestamp(int bufferPartition, String feedID) {
-        PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
-        if (partitionMetaData == null) {
-            return NULL_TIMESTAMP;
-        } else {
-            return partitionMetaData.getEndTimestamp(feedID);
-        }
+    public long getEndTimestamp(int bufferPartition, String feedID) {
+        return feedIndex.getEndTimestamp(bufferPartition, feedID);
     }
 
     public boolean isWithinTimeSpan(int bufferPartition, String feedID, TimeUnit timeunit, long startTime, long endTime) {
         long startTimeInNanos = TimeUnit.NANOSECONDS.convert(startTime, timeunit);
         long endTimeInNanos = TimeUnit.NANOSECONDS.convert(endTime, timeunit);
-
-        synchronized (this) {
-            PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
-            if (partitionMetaData == null) {
-                return false;
-            }
-            
-            return partitionMetaData.isWithinTimeSpan(feedID, startTimeInNanos, endTimeInNanos);
-        }
+        return feedIndex.isWithinTimeSpan(bufferPartition, feedID, startTimeInNanos, endTimeInNanos);
+    }
+    
+    /**
+     * Returns the partitions holding data of any of the feeds within the time span, looking up each feed once.
+     * @param feedIDs of the feeds
+     * @param timeunit of the start and end time
+     * @param startTime of the time span
+     * @param endTime of the time span
+     * @return flag for each partition, true if the partition holds data of a feed within the time span
+     */
+    public boolean[] getPartitionsWithinTimeSpan(Set<String> feedIDs, TimeUnit timeunit, long startTime, long endTime) {
+        long startTimeInNanos = TimeUnit.NANOSECONDS.convert(startTime, timeunit);
+        long endTimeInNanos = TimeUnit.NANOSECONDS.convert(endTime, timeunit);
+        return feedIndex.getPartitionsWithinTimeSpan(feedIDs, startTimeInNanos, endTimeInNanos);
     }
     
     public boolean isFullyWithinTimeSpan(int bufferPartition, String feedID, TimeUnit timeunit, long startTime) {
         long startTimeInNanos = TimeUnit.NANOSECONDS.convert(startTime, timeunit);
-        
-        synchronized (this) {
-            PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
-            if (partitionMetaData == null) {
-                return false;
-            }
-            
-            return partitionMetaData.isFullyWithinTimeSpan(feedID, startTimeInNanos);
-        }
+        return feedIndex.isFullyWithinTimeSpan(bufferPartition, feedID, startTimeInNanos);
     }
 
     public synchronized PartitionMetaData removePartitionMetaData(int bufferPartition) {
         PartitionMetaData partitionMetaData = this.partitionMetaDatas[bufferPartition];
         this.partitionMetaDatas[bufferPartition] = null;
+        feedIndex.clear(bufferPartition);
         return partitionMetaData;
     }
     
@@ -114,6 +112,7 @@ public class MetaDataBuffer {
             partitionMetaData.reset();
             partitionMetaData.addFeeds(rowoverFeedIDs);
         }
+        feedIndex.set(bufferPartition, partitionMetaData);
         return rowoverFeedIDs;
     }
     
@@ -135,16 +134,11 @@ public class MetaDataBuffer {
         return targetFeedIDs;
     }
     
-    public synchronized boolean hasFeed(int bufferPartition, String feedID) {
-        PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
-        if (partitionMetaData == null) {
-            return false;
-        } else {
-            return partitionMetaData.hasFeed(feedID);
-        }
+    public boolean hasFeed(int bufferPartition, String feedID) {
+        return feedIndex.hasFeed(bufferPartition, feedID);
     }
     
-    public void updatePartitionMetaData(int bufferPartition, Map<String, PartitionTimestamps> timeStamps) {
+    public synchronized void updatePartitionMetaData(int bufferPartition, Map<String, PartitionTimestamps> timeStamps) {
         PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
         if (partitionMetaData == null) {
             partitionMetaData = new PartitionMetaData(bufferPartition);
@@ -153,6 +147,9 @@ public class MetaDataBuffer {
         } else {
             partitionMetaData.updateTimestamp(timeStamps);
         }
+        for (String feedID : timeStamps.keySet()) {
+            feedIndex.update(bufferPartition, feedID, partitionMetaData);
+        }
     }
 
     public synchronized void updatePartitionMetaData(int bufferPartition, String feedID, long startTime, long endTime) {
@@ -162,6 +159,7 @@ public class MetaDataBuffer {
             this.partitionMetaDatas[bufferPartition] = partitionMetaData;
         }
         partitionMetaData.updateTimestamp(feedID, startTime, endTime);
+        feedIndex.update(bufferPartition, feedID, partitionMetaData);
     }
 
     public void writePartitionMetaData(int bufferPartition) {
@@ -173,20 +171,24 @@ public class MetaDataBuffer {
     public void restart() {
         metaEnv.restartEnvironment(false);
         partitionMetaDatas = new PartitionMetaData[metaEnv.getNumOfBufferPartitions()];
+        feedIndex.clear();
     }
 
     public void close() {
         partitionMetaDatas = new PartitionMetaData[metaEnv.getNumOfBufferPartitions()];
+        feedIndex.clear();
         metaEnv = null;
     }
     
     public void closeAndRestartEnvironment() {
         partitionMetaDatas = new PartitionMetaData[metaEnv.getNumOfBufferPartitions()];
+        feedIndex.clear();
         metaEnv.closeAndRestartEnvironment();
     }
 
     public void closeDatabase() {
         partitionMetaDatas = new PartitionMetaData[metaEnv.getNumOfBufferPartitions()];
+        feedIndex.clear();
     }
 
 }
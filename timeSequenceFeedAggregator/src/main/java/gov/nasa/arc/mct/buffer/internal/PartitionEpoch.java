@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tracks the readers and writers that are using partition buffers so that a partition can be
+ * rotated out without blocking them. Readers and writers bracket their use of the
+ * partition buffers with {@link #enter()} and {@link #exit(long)}, which only update counters.
+ * After a partition buffer has been unpublished from the partition array, the rotating thread
+ * calls {@link #awaitQuiescence()}, which advances the epoch and waits until every thread that
+ * entered under the previous epoch has exited. Those are the only threads that could still hold
+ * a reference to the unpublished buffer.
+ */
+final class PartitionEpoch {
+    private static final long QUIESCENCE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicInteger[] activeCounts = new AtomicInteger[] { new AtomicInteger(), new AtomicInteger() };
+    
+    /**
+     * Registers the calling thread as using the partition buffers. Never blocks.
+     * @return the epoch token to pass to {@link #exit(long)}
+     */
+    long enter() {
+        while (true) {
+            long currentEpoch = epoch.get();
+            AtomicInteger activeCount = activeCounts[(int) (currentEpoch & 1)];
+            activeCount.incrementAndGet();
+            if (epoch.get() == currentEpoch) {
+                return currentEpoch;
+            }
+            // the epoch advanced while registering; register under the new epoch instead
+            activeCount.decrementAndGet();
+        }
+    }
+    
+    void exit(long token) {
+        activeCounts[(int) (token & 1)].decrementAndGet();
+    }
+    
+    /**
+     * Waits until all threads that entered before this call have exited. Only the thread 
+     * retiring a partition waits here; callers of {@link #enter()} are never held up.
+     */
+    synchronized void awaitQuiescence() {
+        long previousEpoch = epoch.getAndIncrement();
+        AtomicInteger activeCount = activeCounts[(int) (previousEpoch & 1)];
+        while (activeCount.get() != 0) {
+            LockSupport.parkNanos(QUIESCENCE_PARK_NANOS);
+        }
+    }
+}
@@ -96,6 +96,10 @@ public final class PartitionMetaData {
         }
     }
     
+    public PartitionTimestamps getTimestamps(String feedID) {
+        return timestamps.get(feedID);
+    }
+    
     public Set<String> getFeeds() {
         return timestamps.keySet();
     }
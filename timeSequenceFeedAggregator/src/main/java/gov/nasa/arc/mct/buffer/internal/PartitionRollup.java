@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rollup tiers of the samples written to one buffer partition. For each feed and tier the time line
+ * is cut into buckets of the tier width, and each bucket remembers its first, minimum, maximum and 
+ * last sample. Reading a tier therefore returns at most four of the original samples per bucket, 
+ * which preserves the envelope a plot draws while transferring far fewer samples than the raw data.
+ * <p>
+ * The rollup lives and dies with its partition. Once the partition is sealed the bucket samples of
+ * each tier are kept as {@link CompressedFeedBlock}s.
+ */
+final class PartitionRollup {
+    private static final String VALUE_KEY = "data";
+    
+    private static final class Bucket {
+        private long firstTime;
+        private Map<String, String> first;
+        private long lastTime;
+        private Map<String, String> last;
+        private long minTime;
+        private double min = Double.NaN;
+        private Map<String, String> minSample;
+        private long maxTime;
+        private double max = Double.NaN;
+        private Map<String, String> maxSample;
+        
+        Bucket(long time, Map<String, String> sample, double value) {
+            firstTime = time;
+            first = sample;
+            lastTime = time;
+            last = sample;
+            add(time, sample, value);
+        }
+        
+        void add(long time, Map<String, String> sample, double value) {
+            if (time < firstTime) {
+                firstTime = time;
+                first = sample;
+            }
+            if (time >= lastTime) {
+                lastTime = time;
+                last = sample;
+            }
+            if (!Double.isNaN(value)) {
+                if (minSample == null || value < min) {
+                    min = value;
+                    minTime = time;
+                    minSample = sample;
+                }
+                if (maxSample == null || value > max) {
+                    max = value;
+                    maxTime = time;
+                    maxSample = sample;
+                }
+            }
+        }
+        
+        void addSamplesTo(SortedMap<Long, Map<String, String>> data, long startTime, long endTime) {
+            put(data, firstTime, first, startTime, endTime);
+            put(data, lastTime, last, startTime, endTime);
+            if (minSample != null) {
+                put(data, minTime, minSample, startTime, endTime);
+                put(data, maxTime, maxSample, startTime, endTime);
+            }
+        }
+        
+        private static void put(SortedMap<Long, Map<String, String>> data, long time, Map<String, String> sample, long startTime, long endTime) {
+            if (time >= startTime && time <= endTime) {
+                data.put(time, sample);
+            }
+        }
+    }
+    
+    private static final class FeedRollup {
+        private final TreeMap<Long, Bucket>[] buckets;
+        private CompressedFeedBlock[] sealedTiers;
+        
+        @SuppressWarnings("unchecked")
+        FeedRollup(int tiers) {
+            buckets = new TreeMap[tiers];
+            for (int t = 0; t < tiers; t++) {
+                buckets[t] = new TreeMap<Long, Bucket>();
+            }
+        }
+    }
+    
+    private final long[] tierWidths;
+    private final ConcurrentMap<String, FeedRollup> feeds = new ConcurrentHashMap<String, FeedRollup>();
+    
+    /**
+     * Creates an empty rollup.
+     * @param tierWidths bucket width of each tier in nanoseconds, in ascending order
+     */
+    PartitionRollup(long[] tierWidths) {
+        this.tierWidths = tierWidths;
+    }
+    
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+    
+    private static double numericValue(Map<String, String> sample) {
+        String s = sample.get(VALUE_KEY);
+        if (s == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    private FeedRollup getFeedRollup(String feedID) {
+        FeedRollup rollup = feeds.get(feedID);
+        if (rollup == null) {
+            FeedRollup newRollup = new FeedRollup(tierWidths.length);
+            rollup = feeds.putIfAbsent(feedID, newRollup);
+            if (rollup == null) {
+                rollup = newRollup;
+            }
+        }
+        return rollup;
+    }
+    
+    /**
+     * Adds the samples written to the partition.
+     * @param value samples for each feed keyed by time
+     * @param timeUnit of the sample times
+     */
+    void add(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) {
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            FeedRollup rollup = getFeedRollup(entry.getKey());
+            synchronized (rollup) {
+                if (rollup.sealedTiers != null) {
+                    continue;
+                }
+                for (Entry<Long, Map<String, String>> sample : entry.getValue().entrySet()) {
+                    long time = TimeUnit.NANOSECONDS.convert(sample.getKey(), timeUnit);
+                    double v = numericValue(sample.getValue());
+                    for (int t = 0; t < tierWidths.length; t++) {
+                        Long bucketIndex = Long.valueOf(floorDiv(time, tierWidths[t]));
+                        Bucket bucket = rollup.buckets[t].get(bucketIndex);
+                        if (bucket == null) {
+                            rollup.buckets[t].put(bucketIndex, new Bucket(time, sample.getValue(), v));
+                        } else {
+                            bucket.add(time, sample.getValue(), v);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads the bucket samples of a tier.
+     * @param feedIDs to read
+     * @param tier index of the tier
+     * @param startTime in nanoseconds
+     * @param endTime in nanoseconds
+     * @param data to add the samples of each feed to
+     */
+    void read(Set<String> feedIDs, int tier, long startTime, long endTime, Map<String, SortedMap<Long, Map<String, String>>> data) {
+        for (String feedID : feedIDs) {
+            FeedRollup rollup = feeds.get(feedID);
+            if (rollup == null) {
+                continue;
+            }
+            SortedMap<Long, Map<String, String>> feedData = data.get(feedID);
+            if (feedData == null) {
+                feedData = new TreeMap<Long, Map<String, String>>();
+            }
+            synchronized (rollup) {
+                if (rollup.sealedTiers != null) {
+                    rollup.sealedTiers[tier].read(startTime, endTime, feedData, false);
+                } else {
+                    long width = tierWidths[tier];
+                    for (Bucket bucket : rollup.buckets[tier].subMap(floorDiv(startTime, width), true, floorDiv(endTime, width), true).values()) {
+                        bucket.addSamplesTo(feedData, startTime, endTime);
+                    }
+                }
+            }
+            if (!feedData.isEmpty()) {
+                data.put(feedID, feedData);
+            }
+        }
+    }
+    
+    /**
+     * Compresses the tiers once no more samples are written to the partition.
+     */
+    void seal() {
+        for (FeedRollup rollup : feeds.values()) {
+            synchronized (rollup) {
+                if (rollup.sealedTiers != null) {
+                    continue;
+                }
+                CompressedFeedBlock[] sealedTiers = new CompressedFeedBlock[tierWidths.length];
+                for (int t = 0; t < tierWidths.length; t++) {
+                    SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+                    for (Bucket bucket : rollup.buckets[t].values()) {
+                        bucket.addSamplesTo(samples, Long.MIN_VALUE, Long.MAX_VALUE);
+                    }
+                    sealedTiers[t] = CompressedFeedBlock.encode(samples);
+                    rollup.buckets[t] = null;
+                }
+                rollup.sealedTiers = sealedTiers;
+            }
+        }
+    }
+    
+    /**
+     * Returns the coarsest tier whose buckets are not wider than the given resolution.
+     * @param tierWidths bucket width of each tier in nanoseconds, in ascending order
+     * @param resolution in nanoseconds
+     * @return index of the tier or -1 if every tier is coarser than the resolution
+     */
+    static int selectTier(long[] tierWidths, long resolution) {
+        int tier = -1;
+        for (int t = 0; t < tierWidths.length; t++) {
+            if (tierWidths[t] <= resolution) {
+                tier = t;
+            }
+        }
+        return tier;
+    }
+}
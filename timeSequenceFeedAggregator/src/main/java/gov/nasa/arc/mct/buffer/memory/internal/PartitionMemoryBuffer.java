@@ -24,6 +24,7 @@ package gov.nasa.arc.mct.buffer.memory.internal;
 import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
 import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
 import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
+import gov.nasa.arc.mct.buffer.internal.CompressedFeedBlock;
 import gov.nasa.arc.mct.buffer.internal.MetaDataBuffer;
 import gov.nasa.arc.mct.buffer.internal.PartitionDataBuffer;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
@@ -60,6 +61,7 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
 
     private volatile Map<String, TreeMap<Long, Map<String, String>>> cachedData = new HashMap<String, TreeMap<Long, Map<String, String>>>();
     private volatile SoftReference<Map<String, TreeMap<Long, Map<String, String>>>> claimableCachedData = null;
+    private volatile Map<String, CompressedFeedBlock> sealedData = null;
 
     private final MemoryBufferEnv env;
     private volatile boolean active;
@@ -78,6 +80,7 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
     @Override
     public void removeBuffer() {
         cachedData = null;
+        sealedData = null;
         this.env.closeAndRestartEnvironment();
     }
     
@@ -109,6 +112,11 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
         
+        Map<String, CompressedFeedBlock> sealedData = this.sealedData;
+        if (sealedData != null) {
+            return getSealedData(sealedData, feedIDs, timeUnit, startTime, endTime, true);
+        }
+        
         Map<String, TreeMap<Long, Map<String, String>>> cachedData = getCachedData();
         
         Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
@@ -143,6 +151,11 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
         
+        Map<String, CompressedFeedBlock> sealedData = this.sealedData;
+        if (sealedData != null) {
+            return getSealedData(sealedData, feedIDs, timeUnit, startTime, endTime, false);
+        }
+        
         Map<String, TreeMap<Long, Map<String, String>>> cachedData = getCachedData();
         
         Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
@@ -172,9 +185,51 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
         return returnedData;
     }
 
+    private Map<String, SortedMap<Long, Map<String, String>>> getSealedData(Map<String, CompressedFeedBlock> sealedData, 
+                    Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, boolean lastOnly) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+        
+        long start = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        long end = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (String feedID : feedIDs) {
+            CompressedFeedBlock block = sealedData.get(feedID);
+            if (block == null) {
+                continue;
+            }
+            SortedMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String, String>>();
+            block.read(start, end, feedData, lastOnly);
+            if (!feedData.isEmpty()) {
+                returnedData.put(feedID, feedData);
+            }
+        }
+        
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} feeds from compressed memory: {} from partition " + this.env.getCurrentBufferPartition(), feedIDs.size(), timer.getIntervalInMillis());
+        return returnedData;
+    }
+
     @Override
     public void inactive() {
-        claimableCachedData = new SoftReference<Map<String,TreeMap<Long,Map<String,String>>>>(cachedData);
+        if (env.isCompressSealed() && cachedData != null) {
+            final ElapsedTimer timer = new ElapsedTimer();
+            timer.startInterval();
+            
+            Map<String, CompressedFeedBlock> sealed = new HashMap<String, CompressedFeedBlock>();
+            synchronized (this) {
+                for (Entry<String, TreeMap<Long, Map<String, String>>> entry : cachedData.entrySet()) {
+                    sealed.put(entry.getKey(), CompressedFeedBlock.encode(entry.getValue()));
+                }
+            }
+            sealedData = sealed;
+            
+            timer.stopInterval();
+            LOGGER.debug("Time to compress {} feeds: {} from partition " + this.env.getCurrentBufferPartition(), sealed.size(), timer.getIntervalInMillis());
+        } else {
+            claimableCachedData = new SoftReference<Map<String,TreeMap<Long,Map<String,String>>>>(cachedData);
+        }
         cachedData = null;
         this.active = false;
     }
@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.segment.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only log of the samples of one feed in one partition. The log is a sequence of memory 
+ * mapped segment files, a new segment is started when the current one is full. The first segment 
+ * is small and each new one doubles in size up to the maximum, so the many feeds which write 
+ * little only map a few pages. Segments never grow past {@link #MAX_SEGMENT_BYTES}, and stay at 
+ * the initial size when mappings cannot be released early. Each record is laid out as
+ * <pre>
+ * long timestamp | int payload length | short entry count | (int length, UTF-8 bytes) for each key and value
+ * </pre>
+ * A sparse index holding the position of every n<sup>th</sup> record allows a range read to
+ * start close to the requested start time and then scan sequentially. If samples arrive out of 
+ * time order the index can no longer be used and reads fall back to scanning the whole log.
+ */
+final class FeedSegmentLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeedSegmentLog.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int RECORD_HEADER_BYTES = 8 + 4;
+    
+    /** Largest segment mapped, whatever the configured maximum. */
+    static final int MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+    
+    /** <code>sun.misc.Unsafe.invokeCleaner</code> and its instance, available from Java 9. */
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+    
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+            // earlier Java versions, the buffer's own cleaner is used
+            invokeCleaner = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+    
+    /** Cleared the first time a mapping cannot be released, the failure is only logged once. */
+    private static volatile boolean unmapAvailable = true;
+    
+    private static final class Segment {
+        private final File file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+        /** The number of bytes written, only modified while holding the log lock. */
+        private int limit;
+        
+        private Segment(File file, int size) throws IOException {
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        
+        private int remaining() {
+            return buffer.capacity() - limit;
+        }
+        
+        /**
+         * Forces the segment to disk and releases the mapping and the file handle. The segment 
+         * must not be read after this, the mapped memory is gone.
+         */
+        private void close() {
+            buffer.force();
+            unmap(buffer);
+            try {
+                raf.close();
+            } catch (IOException ioe) {
+                LOGGER.warn("Unable to close segment " + file, ioe);
+            }
+        }
+    }
+    
+    /**
+     * Releases the mapping of a buffer now rather than when the buffer is garbage collected, so the 
+     * address space and the file of an evicted partition are freed with the partition.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            if (unmapAvailable) {
+                unmapAvailable = false;
+                LOGGER.warn("Unable to unmap segments on this JVM, closed segments are released when collected " 
+                        + "and new segments stay at the initial size", e);
+            }
+        }
+    }
+    
+    private final File directory;
+    private final String filePrefix;
+    private final int initialSegmentBytes;
+    private final int maxSegmentBytes;
+    private final int indexInterval;
+    private final List<Segment> segments = new ArrayList<Segment>();
+    
+    private long firstTimestamp = Long.MAX_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private boolean ordered = true;
+    private int recordCount;
+    
+    private long[] indexTimes = new long[16];
+    private int[] indexSegments = new int[16];
+    private int[] indexOffsets = new int[16];
+    private int indexSize;
+    
+    FeedSegmentLog(File directory, String filePrefix, int initialSegmentBytes, int maxSegmentBytes, int indexInterval) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, MAX_SEGMENT_BYTES);
+        this.initialSegmentBytes = Math.min(initialSegmentBytes, this.maxSegmentBytes);
+        this.indexInterval = Math.max(1, indexInterval);
+    }
+    
+    /**
+     * Appends a sample to the log.
+     * @param time of the sample in nanoseconds
+     * @param value of the sample
+     * @throws IOException if a new segment cannot be allocated
+     */
+    synchronized void append(long time, Map<String, String> value) throws IOException {
+        byte[][] encoded = new byte[value.size() * 2][];
+        int payload = 2;
+        int i = 0;
+        for (Entry<String, String> entry : value.entrySet()) {
+            encoded[i] = entry.getKey().getBytes(UTF8);
+            payload += 4 + encoded[i++].length;
+            String s = entry.getValue();
+            encoded[i] = s == null ? null : s.getBytes(UTF8);
+            payload += 4 + (encoded[i] == null ? 0 : encoded[i].length);
+            i++;
+        }
+        int recordBytes = RECORD_HEADER_BYTES + payload;
+        
+        Segment tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        boolean newSegment = false;
+        if (tail == null || tail.remaining() < recordBytes) {
+            if (tail != null) {
+                tail.buffer.force();
+            }
+            int size = tail == null || !unmapAvailable ? initialSegmentBytes : (int) Math.min(maxSegmentBytes, 2L * tail.buffer.capacity());
+            tail = new Segment(new File(directory, filePrefix + "-" + segments.size() + ".seg"), Math.max(size, recordBytes));
+            segments.add(tail);
+            newSegment = true;
+        }
+        
+        int offset = tail.limit;
+        ByteBuffer b = tail.buffer;
+        b.putLong(offset, time);
+        b.putInt(offset + 8, payload);
+        int pos = offset + RECORD_HEADER_BYTES;
+        b.putShort(pos, (short) value.size());
+        pos += 2;
+        for (byte[] bytes : encoded) {
+            if (bytes == null) {
+                b.putInt(pos, -1);
+                pos += 4;
+            } else {
+                b.putInt(pos, bytes.length);
+                pos += 4;
+                for (int k = 0; k < bytes.length; k++) {
+                    b.put(pos++, bytes[k]);
+                }
+            }
+        }
+        tail.limit = pos;
+        
+        if (time < lastTimestamp) {
+            ordered = false;
+        }
+        if (newSegment || recordCount % indexInterval == 0) {
+            addIndexEntry(time, segments.size() - 1, offset);
+        }
+        recordCount++;
+        lastTimestamp = Math.max(lastTimestamp, time);
+        firstTimestamp = Math.min(firstTimestamp, time);
+    }
+    
+    private void addIndexEntry(long time, int segment, int offset) {
+        if (indexSize == indexTimes.length) {
+            int capacity = indexSize * 2;
+            indexTimes = Arrays.copyOf(indexTimes, capacity);
+            indexSegments = Arrays.copyOf(indexSegments, capacity);
+            indexOffsets = Arrays.copyOf(indexOffsets, capacity);
+        }
+        indexTimes[indexSize] = time;
+        indexSegments[indexSize] = segment;
+        indexOffsets[indexSize] = offset;
+        indexSize++;
+    }
+    
+    /**
+     * Returns the index entry to start a scan from for the given time, this is the last entry
+     * with a time strictly before the start time.
+     */
+    private int findIndexEntry(long startTime) {
+        if (!ordered) {
+            return 0;
+        }
+        int low = 0;
+        int high = indexSize - 1;
+        int result = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexTimes[mid] < startTime) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Reads the samples with a time in [startTime, endTime] into the given map. 
+     * @param startTime in nanoseconds
+     * @param endTime in nanoseconds
+     * @param data to add the samples to
+     * @param lastOnly only add the last sample in the range
+     */
+    synchronized void read(long startTime, long endTime, SortedMap<Long, Map<String, String>> data, boolean lastOnly) {
+        if (segments.isEmpty() || endTime < firstTimestamp || startTime > lastTimestamp) {
+            return;
+        }
+        int entry = findIndexEntry(startTime);
+        int segment = indexSegments[entry];
+        int offset = indexOffsets[entry];
+        
+        long lastTime = 0;
+        int lastSegment = -1;
+        int lastOffset = 0;
+        for (; segment < segments.size(); segment++, offset = 0) {
+            Segment s = segments.get(segment);
+            ByteBuffer b = s.buffer;
+            while (offset < s.limit) {
+                long time = b.getLong(offset);
+                int payload = b.getInt(offset + 8);
+                if (time > endTime && ordered) {
+                    break;
+                }
+                if (time >= startTime && time <= endTime) {
+                    if (lastOnly) {
+                        if (lastSegment == -1 || time >= lastTime) {
+                            lastTime = time;
+                            lastSegment = segment;
+                            lastOffset = offset;
+                        }
+                    } else {
+                        data.put(time, decode(b, offset + RECORD_HEADER_BYTES));
+                    }
+                }
+                offset += RECORD_HEADER_BYTES + payload;
+            }
+        }
+        if (lastOnly && lastSegment != -1) {
+            data.put(lastTime, decode(segments.get(lastSegment).buffer, lastOffset + RECORD_HEADER_BYTES));
+        }
+    }
+    
+    private Map<String, String> decode(ByteBuffer b, int pos) {
+        int count = b.getShort(pos);
+        pos += 2;
+        Map<String, String> value = new HashMap<String, String>(count * 2);
+        for (int i = 0; i < count; i++) {
+            int keyLength = b.getInt(pos);
+            pos += 4;
+            String key = decodeString(b, pos, keyLength);
+            pos += keyLength;
+            int valueLength = b.getInt(pos);
+            pos += 4;
+            String s = null;
+            if (valueLength >= 0) {
+                s = decodeString(b, pos, valueLength);
+                pos += valueLength;
+            }
+            value.put(key, s);
+        }
+        return value;
+    }
+    
+    private String decodeString(ByteBuffer b, int pos, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = b.get(pos + i);
+        }
+        return new String(bytes, UTF8);
+    }
+    
+    synchronized long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+    
+    synchronized long getLastTimestamp() {
+        return lastTimestamp;
+    }
+    
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Returns the number of bytes written to the segments of the log.
+     * @return the size of the records
+     */
+    synchronized long getByteCount() {
+        long bytes = 0;
+        for (Segment s : segments) {
+            bytes += s.limit;
+        }
+        return bytes;
+    }
+    
+    /**
+     * Forces the segments to disk and releases their mappings and file handles.
+     */
+    synchronized void close() {
+        for (Segment s : segments) {
+            s.close();
+        }
+        segments.clear();
+        indexSize = 0;
+        recordCount = 0;
+        ordered = true;
+        firstTimestamp = Long.MAX_VALUE;
+        lastTimestamp = Long.MIN_VALUE;
+    }
+    
+    /**
+     * Closes the log and deletes its segment files.
+     */
+    synchronized void delete() {
+        List<File> files = new ArrayList<File>(segments.size());
+        for (Segment s : segments) {
+            files.add(s.file);
+        }
+        close();
+        for (File f : files) {
+            f.delete();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.segment.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
+import gov.nasa.arc.mct.buffer.config.SegmentBufferEnv;
+import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
+import gov.nasa.arc.mct.buffer.internal.CompressedFeedBlock;
+import gov.nasa.arc.mct.buffer.internal.MetaDataBuffer;
+import gov.nasa.arc.mct.buffer.internal.PartitionDataBuffer;
+import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A partition buffer writing each feed to its own append only log of memory mapped segments. 
+ * Compared to {@link gov.nasa.arc.mct.buffer.disk.internal.PartitionFastDiskBuffer} a write is a 
+ * copy into a mapped page instead of a B-tree insert, and a range read is a sequential scan
+ * starting from a sparse time index. The feed to log mapping is kept in memory, so the content
+ * of the partition is not recovered when the buffer is reopened.
+ * <p>
+ * If enabled, the logs are rewritten as {@link CompressedFeedBlock}s when the partition is sealed.
+ * A block file is decoded on demand and kept in memory only as long as the heap allows.
+ */
+public class PartitionSegmentBuffer implements PartitionDataBuffer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionSegmentBuffer.class);
+    private static final Logger READ_PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.segment.partitionbuffer.read");
+    private static final Logger WRITE_PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.segment.partitionbuffer.write");
+    
+    private static final class SealedFeed {
+        private final File file;
+        private volatile SoftReference<CompressedFeedBlock> block;
+        
+        SealedFeed(File file, CompressedFeedBlock block) {
+            this.file = file;
+            this.block = new SoftReference<CompressedFeedBlock>(block);
+        }
+        
+        CompressedFeedBlock getBlock() throws IOException {
+            CompressedFeedBlock b = block.get();
+            if (b == null) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    b = CompressedFeedBlock.readFrom(in);
+                } finally {
+                    in.close();
+                }
+                block = new SoftReference<CompressedFeedBlock>(b);
+            }
+            return b;
+        }
+    }
+    
+    private final ConcurrentMap<String, FeedSegmentLog> feedLogs = new ConcurrentHashMap<String, FeedSegmentLog>();
+    private final ConcurrentMap<String, SealedFeed> sealedFeeds = new ConcurrentHashMap<String, SealedFeed>();
+    private final AtomicInteger feedCounter = new AtomicInteger(0);
+    private final SegmentBufferEnv env;
+    private volatile boolean active;
+    private volatile boolean closed;
+    
+    public PartitionSegmentBuffer(int partitionNumber) {
+        this(new SegmentBufferEnv(null, partitionNumber));
+    }
+
+    public PartitionSegmentBuffer(SegmentBufferEnv env) {
+        this.env = env;
+        // the feed to log mapping is not persisted, so start from an empty partition
+        env.closeAndRestartEnvironment();
+        this.active = true;
+    }
+    
+    private FeedSegmentLog getFeedLog(String feedID, boolean create) {
+        FeedSegmentLog log = feedLogs.get(feedID);
+        if (log == null && create) {
+            FeedSegmentLog newLog = new FeedSegmentLog(env.getPartitionDirectory(), "feed" + feedCounter.getAndIncrement(), 
+                            env.getInitialSegmentBytes(), env.getSegmentBytes(), env.getIndexInterval());
+            log = feedLogs.putIfAbsent(feedID, newLog);
+            if (log == null) {
+                log = newLog;
+            }
+        }
+        return log;
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit,
+            long startTime, long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, false);
+    }
+    
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getLastData(Set<String> feedIDs, TimeUnit timeUnit,
+            long startTime, long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, true);
+    }
+    
+    private Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit,
+            long startTime, long endTime, boolean lastOnly) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+        
+        long start = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        long end = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (String feedID : feedIDs) {
+            SortedMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String, String>>();
+            FeedSegmentLog log = getFeedLog(feedID, false);
+            if (log != null) {
+                log.read(start, end, feedData, lastOnly);
+            }
+            if (feedData.isEmpty()) {
+                // the log may have been replaced by a compressed block in the meantime
+                readSealedFeed(feedID, start, end, feedData, lastOnly);
+            }
+            if (!feedData.isEmpty()) {
+                returnedData.put(feedID, feedData);
+            }
+        }
+        
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} feeds from segments: {} from partition " + this.env.getCurrentBufferPartition(), feedIDs.size(), timer.getIntervalInMillis());
+        return returnedData;
+    }
+
+    private void readSealedFeed(String feedID, long start, long end, SortedMap<Long, Map<String, String>> feedData, boolean lastOnly) {
+        SealedFeed sealed = sealedFeeds.get(feedID);
+        if (sealed == null) {
+            return;
+        }
+        try {
+            sealed.getBlock().read(start, end, feedData, lastOnly);
+        } catch (IOException ioe) {
+            LOGGER.error("Reading compressed data for feed {} failed", feedID, ioe);
+        }
+    }
+
+    @Override
+    public Map<String, PartitionTimestamps> putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit)
+                    throws BufferFullException {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        Map<String, PartitionTimestamps> timestamps = new HashMap<String, PartitionTimestamps>();
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            PartitionTimestamps timeStamp = putData(entry.getKey(), entry.getValue(), timeUnit);
+            if (timeStamp == null) {
+                break;
+            }
+            timestamps.put(entry.getKey(), timeStamp);
+        }
+        
+        timer.stopInterval();
+        WRITE_PERF_LOGGER.debug("Time to write {} feeds: {} from partition " + this.env.getCurrentBufferPartition(), value.size(), timer.getIntervalInMillis());
+        return timestamps;
+    }
+
+    @Override
+    public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, MetaDataBuffer metadata,
+            int metadataIndex) throws BufferFullException {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            PartitionTimestamps timeStamp = putData(entry.getKey(), entry.getValue(), timeUnit);
+            if (timeStamp == null) {
+                break;
+            }
+            metadata.updatePartitionMetaData(metadataIndex, entry.getKey(), timeStamp.getStartTimestamp(), timeStamp.getEndTimestamp());
+        }
+        
+        timer.stopInterval();
+        WRITE_PERF_LOGGER.debug("Time to write {} feeds: {} from partition " + this.env.getCurrentBufferPartition(), value.size(), timer.getIntervalInMillis());
+    }
+    
+    private PartitionTimestamps putData(String feedID, Map<Long, Map<String, String>> entries, TimeUnit timeUnit) throws BufferFullException {
+        long largestTime = 0;
+        long smallestTime = 0;
+        FeedSegmentLog log = getFeedLog(feedID, true);
+        for (Entry<Long, Map<String, String>> feedData : entries.entrySet()) {
+            long time = TimeUnit.NANOSECONDS.convert(feedData.getKey(), timeUnit);
+            try {
+                log.append(time, feedData.getValue());
+            } catch (IOException ioe) {
+                LOGGER.error("Putting data for feed {} failed", feedID, ioe);
+                if (env.isDiskBufferFull()) {
+                    LOGGER.error("[PartitionSegmentBuffer]: " + env.getErrorMsg());
+                    throw new BufferFullException(env.getErrorMsg());
+                }
+                return null;
+            }
+            if (time > largestTime) {
+                largestTime = time;
+            }
+            if (smallestTime == 0 || time < smallestTime) {
+                smallestTime = time;
+            }
+        }
+        return new PartitionTimestamps(smallestTime, largestTime);
+    }
+    
+    @Override
+    public synchronized void removeBuffer() {
+        for (FeedSegmentLog log : feedLogs.values()) {
+            log.delete();
+        }
+        feedLogs.clear();
+        sealedFeeds.clear();
+        env.removeEnvironment();
+        closed = true;
+    }
+
+    @Override
+    public synchronized void closeBuffer() {
+        for (FeedSegmentLog log : feedLogs.values()) {
+            log.close();
+        }
+        feedLogs.clear();
+        sealedFeeds.clear();
+        closed = true;
+    }
+    
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized void resetBuffer() {
+        for (FeedSegmentLog log : feedLogs.values()) {
+            log.delete();
+        }
+        feedLogs.clear();
+        sealedFeeds.clear();
+        env.closeAndRestartEnvironment();
+    }
+
+    @Override
+    public void inactive() {
+        active = false;
+        if (env.isCompressSealed()) {
+            compressLogs();
+        }
+    }
+    
+    /**
+     * Replaces each feed log by a compressed block file. A block is published before its log is
+     * deleted, so concurrent reads always find the data in one of the two.
+     */
+    private synchronized void compressLogs() {
+        if (closed) {
+            return;
+        }
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+        
+        long logBytes = 0;
+        long blockBytes = 0;
+        for (Entry<String, FeedSegmentLog> entry : feedLogs.entrySet()) {
+            FeedSegmentLog log = entry.getValue();
+            SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+            log.read(Long.MIN_VALUE, Long.MAX_VALUE, samples, false);
+            CompressedFeedBlock block = CompressedFeedBlock.encode(samples);
+            File file = new File(env.getPartitionDirectory(), "feed" + feedCounter.getAndIncrement() + ".blk");
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                try {
+                    block.writeTo(out);
+                } finally {
+                    out.close();
+                }
+            } catch (IOException ioe) {
+                LOGGER.error("Compressing data for feed {} failed, keeping the uncompressed log", entry.getKey(), ioe);
+                file.delete();
+                continue;
+            }
+            sealedFeeds.put(entry.getKey(), new SealedFeed(file, block));
+            feedLogs.remove(entry.getKey());
+            logBytes += log.getByteCount();
+            blockBytes += file.length();
+            log.delete();
+        }
+        
+        timer.stopInterval();
+        LOGGER.debug("Compressed partition {} from {} to {} bytes in {}", 
+                        new Object[] { this.env.getCurrentBufferPartition(), logBytes, blockBytes, timer.getIntervalInMillis() });
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public DataBufferEnv getBufferEnv() {
+        return env;
+    }
+}
@@ -22,11 +22,19 @@
 package gov.nasa.arc.mct.feed;
 
 import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.api.feed.ColumnarFeedAggregator;
 import gov.nasa.arc.mct.api.feed.DataArchive;
 import gov.nasa.arc.mct.api.feed.DataProvider;
 import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
-import gov.nasa.arc.mct.api.feed.FeedAggregator;
 import gov.nasa.arc.mct.api.feed.FeedDataArchive;
+import gov.nasa.arc.mct.api.feed.FeedSampleBatch;
+import gov.nasa.arc.mct.api.feed.FeedUpdateListener;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
+import gov.nasa.arc.mct.api.feed.ObservableFeedAggregator;
+import gov.nasa.arc.mct.api.feed.ResolutionDataProvider;
+import gov.nasa.arc.mct.api.feed.ResolutionFeedAggregator;
+import gov.nasa.arc.mct.api.feed.ScopedDataProvider;
+import gov.nasa.arc.mct.buffer.config.DiskUsageLevel;
 import gov.nasa.arc.mct.buffer.internal.DataBuffer;
 import gov.nasa.arc.mct.buffer.internal.DataBufferFactory;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
@@ -34,10 +42,10 @@ import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -45,18 +53,28 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.Vector;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeoutException;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public final class FeedAggregatorService implements FeedDataArchive, FeedAggregator {
+public final class FeedAggregatorService implements FeedDataArchive, ResolutionFeedAggregator, 
+                ColumnarFeedAggregator, LatestValueFeedAggregator, ObservableFeedAggregator {
     private static Logger LOGGER = LoggerFactory.getLogger(FeedAggregatorService.class.getName());
     private static final Logger PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.feedAggregator");
     private static final Logger READ_PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.read.feedAggregator");
@@ -64,6 +82,30 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     private static final String DIALOG_WINDOW_TITLE = "MCT Buffer Available Space Warning";
     
     private static final String BUFFER_LIST_PROPERTY = "bufferList";
+    private static final String WRITE_LANES_PROPERTY = "buffer.write.threadPool.size";
+    private static final String WRITE_MAX_PENDING_PROPERTY = "buffer.write.max.pending.samples";
+    private static final String WRITE_MAX_LAG_PROPERTY = "buffer.write.max.lag.millis";
+    private static final int DEFAULT_WRITE_MAX_PENDING = 100000;
+    private static final long DEFAULT_WRITE_MAX_LAG = 5000;
+    private static final String REQUEST_DEADLINE_PROPERTY = "aggregator.request.deadline.millis";
+    private static final long DEFAULT_REQUEST_DEADLINE = 30000;
+    private static final String LATEST_LOOKBACK_PROPERTY = "aggregator.latest.lookback.millis";
+    private static final long DEFAULT_LATEST_LOOKBACK = 10000;
+    private static final String PROVIDER_THREADS_PROPERTY = "aggregator.provider.threads";
+    private static final int DEFAULT_PROVIDER_THREADS = 4;
+    private static final String PROVIDER_QUEUE_PROPERTY = "aggregator.provider.queue.size";
+    private static final int DEFAULT_PROVIDER_QUEUE = 64;
+    private static final long THROTTLE_PAUSE_MILLIS = 100;
+    
+    private static final ThreadFactory providerThreadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setContextClassLoader(getClass().getClassLoader());
+            t.setDaemon(true);
+            return t;
+        } 
+    };
     
     private final Vector<DataProvider> dataProviders; // use a synchronized data
                                                       // structure due to the
@@ -71,12 +113,15 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
                                                       // accessing from multiple
                                                       // threads.
     private final Vector<DataArchive> dataArchives;
-    private final ThreadPoolExecutor bufferWorkers;
-    private LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
-    private DataArchive dormantArchive;
+    private final WriteBehindPipeline writeBehind;
+    private final LatestValueCache latestValues = new LatestValueCache();
+    private final List<FeedUpdateListener> updateListeners = new CopyOnWriteArrayList<FeedUpdateListener>();
+    private final ExecutorService providerWorkers;
+    private final long requestDeadlineMillis;
+    private final long latestLookbackMillis;
+    private volatile DataArchive dormantArchive;
     private RunMode currentRunMode;
     private Properties configProp;
-    private final AtomicInteger numOfWriteJobs = new AtomicInteger(0);
     
     private static enum RunMode {
         embedded, server;
@@ -95,6 +140,13 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
             public DataBuffer getDataBuffer(Properties props) {
                 return DataBufferFactory.getFastDiskDataBuffer(props);
             }
+        },
+        
+        segment() {
+            @Override
+            public DataBuffer getDataBuffer(Properties props) {
+                return DataBufferFactory.getSegmentDataBuffer(props);
+            }
         };
         
         abstract DataBuffer getDataBuffer(Properties props);
@@ -113,8 +165,24 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
         List<DataBuffer> dataBuffers = getDataBuffers();
         this.dataArchives.addAll(dataBuffers);
 
-        this.bufferWorkers = new ThreadPoolExecutor(1, 1, 1l, TimeUnit.SECONDS,
-                queue);
+        this.writeBehind = new WriteBehindPipeline(
+                Integer.parseInt(configProp.getProperty(WRITE_LANES_PROPERTY, "1")),
+                Integer.parseInt(configProp.getProperty(WRITE_MAX_PENDING_PROPERTY, String.valueOf(DEFAULT_WRITE_MAX_PENDING))),
+                Long.parseLong(configProp.getProperty(WRITE_MAX_LAG_PROPERTY, String.valueOf(DEFAULT_WRITE_MAX_LAG))),
+                new WriteBehindPipeline.BatchWriter() {
+                    @Override
+                    public void write(Map<String, Map<Long, Map<String, String>>> batch, TimeUnit timeUnit) {
+                        putArchiveData(batch, timeUnit);
+                    }
+                });
+        int providerThreads = Integer.parseInt(configProp.getProperty(PROVIDER_THREADS_PROPERTY, String.valueOf(DEFAULT_PROVIDER_THREADS)));
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(providerThreads, providerThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Integer.parseInt(configProp.getProperty(PROVIDER_QUEUE_PROPERTY, String.valueOf(DEFAULT_PROVIDER_QUEUE)))), 
+                providerThreadFactory);
+        workers.allowCoreThreadTimeOut(true);
+        this.providerWorkers = workers;
+        this.requestDeadlineMillis = Long.parseLong(configProp.getProperty(REQUEST_DEADLINE_PROPERTY, String.valueOf(DEFAULT_REQUEST_DEADLINE)));
+        this.latestLookbackMillis = Long.parseLong(configProp.getProperty(LATEST_LOOKBACK_PROPERTY, String.valueOf(DEFAULT_LATEST_LOOKBACK)));
         this.dataProviders.addAll(dataBuffers);
         String runMode = configProp.getProperty("runMode");
         this.currentRunMode = Enum.valueOf(RunMode.class, runMode);
@@ -181,30 +249,236 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     @Override
     public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
             long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, 0);
+    }
+    
+    @Override
+    public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, long resolution) {
+        Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = getProviderData(feedIDs, timeUnit, startTime, endTime, resolution);
+        Map<String, List<Map<String, String>>> returnedData = new HashMap<String, List<Map<String,String>>>();
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry: obtainedValues.entrySet()) {
+            returnedData.put(entry.getKey(), new ArrayList<Map<String,String>>(entry.getValue().values()));
+        }
+        return returnedData;
+    }
+    
+    /**
+     * Returns the data of the buffers and the other providers as batches, built straight from the time 
+     * ordered samples the providers return. 
+     */
+    @Override
+    public Map<String, FeedSampleBatch> getSampleBatches(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, long resolution) {
+        Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = getProviderData(feedIDs, timeUnit, startTime, endTime, resolution);
+        Map<String, FeedSampleBatch> returnedData = new HashMap<String, FeedSampleBatch>();
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry: obtainedValues.entrySet()) {
+            returnedData.put(entry.getKey(), FeedSampleBatch.fromTimeMap(entry.getValue()));
+        }
+        return returnedData;
+    }
+    
+    /**
+     * Returns the latest samples from the cache updated by the put calls. Feeds not written since the 
+     * aggregator started are looked up in the data providers over the lookback window, reduced to the 
+     * window so the providers return a few samples per feed. The result is cached for the length of the 
+     * window, including for the feeds without a sample, so quiet feeds do not query the providers on 
+     * every call.
+     */
+    @Override
+    public Map<String, Map<String, String>> getLatest(Set<String> feedIDs) {
+        Set<String> missingFeedIDs = new HashSet<String>(feedIDs);
+        Map<String, Map<String, String>> latest = latestValues.get(missingFeedIDs);
+        if (!missingFeedIDs.isEmpty()) {
+            long time = System.currentTimeMillis();
+            Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = getProviderData(missingFeedIDs, TimeUnit.MILLISECONDS, 
+                    time - latestLookbackMillis, time, latestLookbackMillis);
+            long expires = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(latestLookbackMillis);
+            for (String feedID : missingFeedIDs) {
+                SortedMap<Long, Map<String, String>> feedData = obtainedValues.get(feedID);
+                if (feedData != null && !feedData.isEmpty()) {
+                    latestValues.load(feedID, feedData.lastKey(), feedData.get(feedData.lastKey()), expires);
+                } else {
+                    latestValues.loadAbsent(feedID, expires);
+                }
+            }
+            latest.putAll(latestValues.get(missingFeedIDs));
+        }
+        return latest;
+    }
+    
+    /**
+     * Queries the data providers in LOS order until every feed has been satisfied. The fast providers 
+     * are queried on the calling thread and the slower providers on the provider workers. A slower provider 
+     * is queried while the providers ahead of it are still running only for the feeds none of them can 
+     * serve, see {@link ScopedDataProvider}; the other feeds are requested once the providers ahead of it 
+     * have returned and only if they did not satisfy them. Results are merged in LOS order, and providers 
+     * still running when all feeds are satisfied or the request deadline expires are cancelled. The workers 
+     * are bounded; when they are saturated a provider is skipped, so its feeds are left to the slower providers 
+     * or missing from the returned data, rather than queried past the deadline.
+     * @param resolution passed to the providers which can reduce their data, 0 to request all the data
+     * @return the time ordered data for each feed from the provider which satisfied the feed
+     */
+    private Map<String, SortedMap<Long, Map<String, String>>> getProviderData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, long resolution) {
         final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestDeadlineMillis);
         
         feedIDs = new HashSet<String>(feedIDs);
         int feedSize = feedIDs.size();
-        Map<String, List<Map<String, String>>> returnedData = new HashMap<String, List<Map<String,String>>>();
-        for (DataProvider dataRetrieval : dataProviders) {
-            timer.startInterval();
-
-            Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = dataRetrieval
-                    .getData(feedIDs, startTime, endTime, timeUnit);
-            
-            for (Entry<String, SortedMap<Long, Map<String, String>>> entry: obtainedValues.entrySet()) {
-                returnedData.put(entry.getKey(), new LinkedList<Map<String,String>>(entry.getValue().values()));
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+        List<DataProvider> providers = new ArrayList<DataProvider>(dataProviders);
+        List<ProviderQuery> queries = new ArrayList<ProviderQuery>();
+        
+        for (int i = 0; i < providers.size() && !feedIDs.isEmpty() && !Thread.currentThread().isInterrupted(); i++) {
+            DataProvider dataRetrieval = providers.get(i);
+            if (dataRetrieval.getLOS() == LOS.fast) {
+                mergeQueries(queries, feedIDs, returnedData, timeUnit, startTime, deadline);
+                if (!feedIDs.isEmpty()) {
+                    mergeProviderData(dataRetrieval, getData(dataRetrieval, feedIDs, startTime, endTime, resolution, timeUnit), feedIDs, 
+                            feedIDs, returnedData, timeUnit, startTime);
+                }
+                continue;
             }
-            filterObtainedFeeds(dataRetrieval, feedIDs, obtainedValues, timeUnit, startTime);
             
-            timer.stopInterval();
-            READ_PERF_LOGGER.debug("Time to get {} feeds: {} ms from provider " + dataRetrieval.getLOS(), feedSize, timer.getIntervalInMillis());
-
-            if (feedIDs.isEmpty()) { break; }
+            Set<String> independentFeedIDs = new HashSet<String>();
+            for (String feedID : feedIDs) {
+                if (!mayProvide(queries, feedID)) {
+                    independentFeedIDs.add(feedID);
+                }
+            }
+            Set<String> dependentFeedIDs = new HashSet<String>(feedIDs);
+            dependentFeedIDs.removeAll(independentFeedIDs);
+            ProviderQuery independentQuery = null;
+            if (!independentFeedIDs.isEmpty()) {
+                independentQuery = submitQuery(dataRetrieval, independentFeedIDs, timeUnit, startTime, endTime, resolution);
+            }
+            if (!dependentFeedIDs.isEmpty()) {
+                mergeQueries(queries, feedIDs, returnedData, timeUnit, startTime, deadline);
+                dependentFeedIDs.retainAll(feedIDs);
+            }
+            if (independentQuery != null) {
+                queries.add(independentQuery);
+            }
+            if (!dependentFeedIDs.isEmpty()) {
+                ProviderQuery dependentQuery = submitQuery(dataRetrieval, dependentFeedIDs, timeUnit, startTime, endTime, resolution);
+                if (dependentQuery != null) {
+                    queries.add(dependentQuery);
+                }
+            }
         }
+        mergeQueries(queries, feedIDs, returnedData, timeUnit, startTime, deadline);
+        
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} feeds: {} ms from " + providers.size() + " providers", feedSize, timer.getIntervalInMillis());
         return returnedData;
     }
     
+    /**
+     * A request for the data of some feeds running on the provider workers.
+     */
+    private static final class ProviderQuery {
+        private final DataProvider provider;
+        private final Set<String> feedIDs;
+        private final Future<Map<String, SortedMap<Long, Map<String, String>>>> result;
+        
+        ProviderQuery(DataProvider provider, Set<String> feedIDs, Future<Map<String, SortedMap<Long, Map<String, String>>>> result) {
+            this.provider = provider;
+            this.feedIDs = feedIDs;
+            this.result = result;
+        }
+    }
+    
+    /**
+     * Queries the provider on the provider workers.
+     * @return the running query, or null if the workers are saturated and the provider is skipped
+     */
+    private ProviderQuery submitQuery(final DataProvider dataRetrieval, final Set<String> feedIDs, final TimeUnit timeUnit, 
+            final long startTime, final long endTime, final long resolution) {
+        try {
+            return new ProviderQuery(dataRetrieval, feedIDs, providerWorkers.submit(new Callable<Map<String, SortedMap<Long, Map<String, String>>>>() {
+                @Override
+                public Map<String, SortedMap<Long, Map<String, String>>> call() throws Exception {
+                    return getData(dataRetrieval, feedIDs, startTime, endTime, resolution, timeUnit);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Provider {} skipped for {} feeds, the provider workers are saturated", dataRetrieval.getLOS(), feedIDs.size());
+            return null;
+        }
+    }
+    
+    /**
+     * Returns true if one of the running queries may return data for the feed. Providers which do not 
+     * declare their feeds may serve any feed.
+     */
+    private static boolean mayProvide(List<ProviderQuery> queries, String feedID) {
+        for (ProviderQuery query : queries) {
+            if (query.feedIDs.contains(feedID) && 
+                    (!(query.provider instanceof ScopedDataProvider) || ScopedDataProvider.class.cast(query.provider).canProvide(feedID))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Merges the results of the running queries in LOS order, waiting no longer than the deadline. 
+     * Queries no longer needed are cancelled.
+     */
+    private void mergeQueries(List<ProviderQuery> queries, Set<String> feedIDs, Map<String, SortedMap<Long, Map<String, String>>> returnedData, 
+            TimeUnit timeUnit, long startTime, long deadline) {
+        for (int j = 0; j < queries.size(); j++) {
+            ProviderQuery query = queries.get(j);
+            if (feedIDs.isEmpty()) {
+                query.result.cancel(true);
+                continue;
+            }
+            try {
+                Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = query.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                mergeProviderData(query.provider, obtainedValues, query.feedIDs, feedIDs, returnedData, timeUnit, startTime);
+            } catch (TimeoutException e) {
+                query.result.cancel(true);
+                LOGGER.warn("Provider {} did not return data within {} ms", query.provider.getLOS(), requestDeadlineMillis);
+            } catch (ExecutionException e) {
+                LOGGER.error("Failed to get data from provider " + query.provider.getLOS(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int k = j; k < queries.size(); k++) {
+                    queries.get(k).result.cancel(true);
+                }
+                break;
+            }
+        }
+        queries.clear();
+    }
+    
+    private static Map<String, SortedMap<Long, Map<String, String>>> getData(DataProvider dataProvider, Set<String> feedIDs, long startTime, 
+            long endTime, long resolution, TimeUnit timeUnit) {
+        if (resolution > 0 && dataProvider instanceof ResolutionDataProvider) {
+            return ResolutionDataProvider.class.cast(dataProvider).getData(feedIDs, startTime, endTime, resolution, timeUnit);
+        }
+        return dataProvider.getData(feedIDs, startTime, endTime, timeUnit);
+    }
+    
+    /**
+     * Takes the data for the requested feeds not yet satisfied by a faster provider and removes the feeds this provider satisfies.
+     */
+    private void mergeProviderData(DataProvider dataProvider, Map<String, SortedMap<Long, Map<String, String>>> obtainedValues, Set<String> requestedFeedIDs, 
+            Set<String> feedIDs, Map<String, SortedMap<Long, Map<String, String>>> returnedData, TimeUnit timeUnit, long startTime) {
+        Set<String> mergedFeedIDs = new HashSet<String>(requestedFeedIDs);
+        mergedFeedIDs.retainAll(feedIDs);
+        for (String feedID : mergedFeedIDs) {
+            if (obtainedValues.containsKey(feedID)) {
+                returnedData.put(feedID, obtainedValues.get(feedID));
+            }
+        }
+        filterObtainedFeeds(dataProvider, mergedFeedIDs, obtainedValues, timeUnit, startTime);
+        feedIDs.removeAll(requestedFeedIDs);
+        feedIDs.addAll(mergedFeedIDs);
+    }
+    
     private void filterObtainedFeeds(DataProvider dataProvider, Set<String> feedIDs, Map<String, SortedMap<Long, Map<String, String>>> obtainedValues,
             TimeUnit timeUnit, long startTime) {
         startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
@@ -223,81 +497,148 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) {
-        PERF_LOGGER.debug("Queue size {}", queue.size());
         Map<Long, Map<String, String>> entries = new HashMap<Long, Map<String, String>>();
         entries.put(Long.valueOf(time), value);
         putData(feedID, timeUnit, entries);
     }
 
     /**
-     * Asynchronously putting data into the data buffer.
+     * Writes the data to the memory buffer and queues it for the slower archives.
      */
     @Override
     public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
-        PERF_LOGGER.debug("Queue size {}", queue.size());
+        PERF_LOGGER.debug("Queue size {}", writeBehind.getQueueDepth());
+        latestValues.put(feedID, timeUnit, entries);
         DataArchive db = this.dataArchives.get(0);
         try {
             db.putData(feedID, timeUnit, entries);
         } catch (BufferFullException e) {
             LOGGER.error("Memory buffer should not be full", e);
         }
-        PutDataTask task = new PutDataTask(feedID, timeUnit, entries);
-        numOfWriteJobs.incrementAndGet();
-        bufferWorkers.execute(task);
+        fireFeedsUpdated(Collections.singleton(feedID));
+        if (dataArchives.size() > 1) {
+            writeBehind.put(feedID, timeUnit, entries);
+        }
     }
 
     @Override
     public void putData(final Map<String, Map<Long, Map<String, String>>> value, final TimeUnit timeUnit,
             final Runnable callback) {
-        PERF_LOGGER.debug("Queue size {}", queue.size());
+        PERF_LOGGER.debug("Queue size {}", writeBehind.getQueueDepth());
         if (!value.isEmpty()) {
+            latestValues.put(value, timeUnit);
             DataArchive db = this.dataArchives.get(0);
             try {
                 db.putData(value, timeUnit, null);
             } catch (BufferFullException e) {
                 LOGGER.error("Memory buffer should not be full", e);
             }
+            fireFeedsUpdated(value.keySet());
             if (dataArchives.size() == 1) {
-                callback.run();
+                if (callback != null) {
+                    callback.run();
+                }
             } else {
-                Runnable bulkInsert = new Runnable() {
-                    public void run() {
-                        try {
-                            for (Iterator<DataArchive> it = dataArchives.iterator(); it.hasNext();) {
-                                DataArchive dataArchive = it.next();
-                                if (dataArchive.getLOS() == LOS.fast) {
-                                    continue;
-                                }
-                                try {
-                                    if (it.hasNext()) {
-                                        dataArchive.putData(value, timeUnit, null);
-                                    } else {
-                                        dataArchive.putData(value, timeUnit, callback);
-                                    }
-                                } catch (BufferFullException e) {
-                                    dormantArchive = dataArchive;
-                                    it.remove();
-                                    bufferFullAlert(e.getMessage());
-                                }
-                            }
-                        } finally {
-                            synchronized(numOfWriteJobs) {
-                                if (numOfWriteJobs.decrementAndGet() == 0) {
-                                    numOfWriteJobs.notifyAll();
-                                }
-                            }
-                        }
-                    }
-                };
-                numOfWriteJobs.incrementAndGet();
-                bufferWorkers.execute(bulkInsert);
+                writeBehind.put(value, timeUnit, callback);
+            }
+        }
+    }
+    
+    @Override
+    public void addFeedUpdateListener(FeedUpdateListener listener) {
+        updateListeners.add(listener);
+    }
+    
+    @Override
+    public void removeFeedUpdateListener(FeedUpdateListener listener) {
+        updateListeners.remove(listener);
+    }
+    
+    /**
+     * Notifies the listeners once the data is readable from the memory buffer.
+     */
+    private void fireFeedsUpdated(Set<String> feedIDs) {
+        for (FeedUpdateListener listener : updateListeners) {
+            try {
+                listener.feedsUpdated(feedIDs);
+            } catch (RuntimeException e) {
+                LOGGER.error("Feed update listener failed", e);
             }
         }
     }
     
-    private void bufferFullAlert(String msg) {
+    /**
+     * Writes a coalesced batch from the write behind pipeline to every archive slower than the memory buffer.
+     */
+    private void putArchiveData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) {
+        reviveDormantArchive();
+        for (DataArchive dataArchive : new ArrayList<DataArchive>(dataArchives)) {
+            if (dataArchive.getLOS() == LOS.fast) {
+                continue;
+            }
+            if (dataArchive instanceof DataBuffer
+                            && ((DataBuffer) dataArchive).getDiskUsageLevel() == DiskUsageLevel.throttle) {
+                // slow intake so the write behind queue pushes back on the feeds while space is reclaimed
+                try {
+                    Thread.sleep(THROTTLE_PAUSE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                dataArchive.putData(value, timeUnit, null);
+            } catch (BufferFullException e) {
+                if (dataArchives.remove(dataArchive)) {
+                    dormantArchive = dataArchive;
+                    bufferFullAlert(e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of samples waiting to be written to the archives slower than the memory buffer.
+     * @return the number of queued samples
+     */
+    public int getWriteQueueDepth() {
+        return writeBehind.getQueueDepth();
+    }
+    
+    /**
+     * Returns how far the slower archives lag behind the memory buffer.
+     * @param timeUnit unit of the returned lag
+     * @return age of the oldest sample not yet written to the slower archives
+     */
+    public long getWriteLag(TimeUnit timeUnit) {
+        return writeBehind.getLag(timeUnit);
+    }
+    
+    /**
+     * Puts a disk buffer that was taken out of service back into the archive list once its disk monitor
+     * has reclaimed enough space.
+     */
+    private void reviveDormantArchive() {
+        DataArchive archive = dormantArchive;
+        if (!(archive instanceof DataBuffer) || ((DataBuffer) archive).isDiskFull()) {
+            return;
+        }
+        synchronized (dataArchives) {
+            if (dormantArchive == archive) {
+                dormantArchive = null;
+                dataArchives.add(Math.min(1, dataArchives.size()), archive);
+                LOGGER.info("Disk space reclaimed, resuming writes to {}", archive.getLOS());
+            }
+        }
+    }
+    
+    private void bufferFullAlert(final String msg) {
         if (currentRunMode == RunMode.embedded) {
-            JOptionPane.showMessageDialog(null, msg, DIALOG_WINDOW_TITLE, JOptionPane.WARNING_MESSAGE);
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    JOptionPane.showMessageDialog(null, msg, DIALOG_WINDOW_TITLE, JOptionPane.WARNING_MESSAGE);
+                }
+            });
         } else {
             LOGGER.error(msg);
         }
@@ -305,6 +646,7 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     
     @Override
     public void reset() {
+        latestValues.clear();
         for (DataArchive dataArchive: dataArchives) {
             dataArchive.reset();
         }
@@ -325,58 +667,12 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     }
 
     public void shutdown() {
-        synchronized(numOfWriteJobs) {
-            while (numOfWriteJobs.get() > 0) {
-                try {
-                    numOfWriteJobs.wait();
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException during shutdown", e);
-                }
-            }
-        }
+        providerWorkers.shutdown();
+        writeBehind.shutdown();
         for (DataProvider dataProvider: dataProviders) {
             if (dataProvider instanceof DataBuffer) {
                 DataBuffer.class.cast(dataProvider).closeBuffer();
             }
         }
     }
-
-    private final class PutDataTask implements Runnable {
-        private final String feedID;
-        private final TimeUnit timeUnit;
-        private final Map<Long, Map<String, String>> entries;
-
-        public PutDataTask(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
-            this.feedID = feedID;
-            this.timeUnit = timeUnit;
-            this.entries = entries;
-        }
-
-        @Override
-        public void run() {
-            try {
-                if (dataArchives.size() > 1) {
-                    for (Iterator<DataArchive> it = dataArchives.iterator(); it.hasNext();) {
-                        DataArchive dataArchive = it.next();
-                        if (dataArchive.getLOS() == LOS.fast) {
-                            continue;
-                        }
-                        try {
-                            dataArchive.putData(feedID, timeUnit, entries);
-                        } catch (BufferFullException e) {
-                            dormantArchive = dataArchive;
-                            it.remove();
-                            bufferFullAlert(e.getMessage());
-                        }
-                    }
-                }
-            } finally {
-                synchronized(this) {
-                    if (numOfWriteJobs.decrementAndGet() == 0) {
-                        this.notifyAll();
-                    }
-                }
-            }
-        }
-    }
 }
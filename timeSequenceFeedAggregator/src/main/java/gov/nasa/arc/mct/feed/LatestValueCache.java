@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latest sample of every feed written to the aggregator. A sample replaces the cached one only if it
+ * is not older, so samples written out of order or loaded from a data provider never hide a newer one. 
+ * Samples loaded from a data provider, and feeds the providers had no sample for, are only kept until they 
+ * expire, as the providers may have newer samples not written through the aggregator.
+ */
+final class LatestValueCache {
+    private static final class LatestValue {
+        private final long time;
+        private final Map<String, String> value;
+        private final long expires;
+        
+        LatestValue(long time, Map<String, String> value, long expires) {
+            this.time = time;
+            this.value = value == null ? null : Collections.unmodifiableMap(value);
+            this.expires = expires;
+        }
+        
+        boolean isExpired(long now) {
+            return expires != NEVER && expires - now < 0;
+        }
+    }
+    
+    private static final long NEVER = Long.MAX_VALUE;
+    
+    private final ConcurrentMap<String, LatestValue> latestValues = new ConcurrentHashMap<String, LatestValue>();
+    
+    /**
+     * Offers the latest of the entries of a feed.
+     * @param feedID of the feed
+     * @param timeUnit of the entry times
+     * @param entries samples keyed by time
+     */
+    void put(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
+        Entry<Long, Map<String, String>> latest = null;
+        for (Entry<Long, Map<String, String>> entry : entries.entrySet()) {
+            if (latest == null || entry.getKey() >= latest.getKey()) {
+                latest = entry;
+            }
+        }
+        if (latest != null) {
+            put(feedID, TimeUnit.NANOSECONDS.convert(latest.getKey(), timeUnit), latest.getValue());
+        }
+    }
+    
+    void put(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) {
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            put(entry.getKey(), timeUnit, entry.getValue());
+        }
+    }
+    
+    /**
+     * Offers a sample of a feed.
+     * @param feedID of the feed
+     * @param time of the sample in nanoseconds
+     * @param value the sample
+     */
+    void put(String feedID, long time, Map<String, String> value) {
+        put(feedID, new LatestValue(time, value, NEVER));
+    }
+    
+    /**
+     * Offers a sample of a feed loaded from a data provider.
+     * @param feedID of the feed
+     * @param time of the sample in nanoseconds
+     * @param value the sample
+     * @param expires the {@link System#nanoTime()} after which the sample must be loaded again
+     */
+    void load(String feedID, long time, Map<String, String> value, long expires) {
+        put(feedID, new LatestValue(time, value, expires));
+    }
+    
+    /**
+     * Records that the data providers had no sample for a feed. A sample previously loaded is kept.
+     * @param feedID of the feed
+     * @param expires the {@link System#nanoTime()} after which the feed must be loaded again
+     */
+    void loadAbsent(String feedID, long expires) {
+        LatestValue current = latestValues.get(feedID);
+        if (current == null) {
+            if (latestValues.putIfAbsent(feedID, new LatestValue(Long.MIN_VALUE, null, expires)) == null) {
+                return;
+            }
+            current = latestValues.get(feedID);
+        }
+        if (current != null && current.expires != NEVER) {
+            latestValues.replace(feedID, current, new LatestValue(current.time, current.value, expires));
+        }
+    }
+    
+    private void put(String feedID, LatestValue latestValue) {
+        long time = latestValue.time;
+        while (true) {
+            LatestValue current = latestValues.get(feedID);
+            if (current == null) {
+                if (latestValues.putIfAbsent(feedID, latestValue) == null) {
+                    return;
+                }
+            } else if (current.time > time || latestValues.replace(feedID, current, latestValue)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns the cached samples of the feeds and removes the feeds found from the given set. Feeds 
+     * known to have no sample are removed from the set without being returned.
+     * @param feedIDs to look up, the feeds not cached or expired are left in the set
+     * @return the latest sample of each cached feed
+     */
+    Map<String, Map<String, String>> get(Set<String> feedIDs) {
+        Map<String, Map<String, String>> latest = new HashMap<String, Map<String, String>>();
+        long now = System.nanoTime();
+        for (Iterator<String> it = feedIDs.iterator(); it.hasNext();) {
+            String feedID = it.next();
+            LatestValue latestValue = latestValues.get(feedID);
+            if (latestValue != null && !latestValue.isExpired(now)) {
+                if (latestValue.value != null) {
+                    latest.put(feedID, latestValue.value);
+                }
+                it.remove();
+            }
+        }
+        return latest;
+    }
+    
+    void clear() {
+        latestValues.clear();
+    }
+}
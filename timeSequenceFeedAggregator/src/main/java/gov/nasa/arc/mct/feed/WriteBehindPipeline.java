@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded write-behind pipeline feeding the archives that are slower than the memory buffer.
+ * Feeds are assigned to lanes by hash, so samples of one feed are always written in order by the
+ * same lane. Each lane coalesces the put calls queued while its previous write was in progress 
+ * into a single batched archive write. Producers block when a lane holds more than its share of
+ * the pending sample limit, or when the oldest sample not yet written by the lane is older than
+ * the maximum lag.
+ */
+final class WriteBehindPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindPipeline.class);
+    
+    /**
+     * Writes a coalesced batch to the slow archives. Times are always in nanoseconds.
+     */
+    interface BatchWriter {
+        void write(Map<String, Map<Long, Map<String, String>>> batch, TimeUnit timeUnit);
+    }
+    
+    private final Lane[] lanes;
+    private final BatchWriter batchWriter;
+    private final int laneCapacity;
+    private final long maxLagNanos;
+    
+    WriteBehindPipeline(int numOfLanes, int maxPendingSamples, long maxLagMillis, BatchWriter batchWriter) {
+        assert numOfLanes > 0 : "at least one write lane is required";
+        this.batchWriter = batchWriter;
+        this.laneCapacity = Math.max(1, maxPendingSamples / numOfLanes);
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        this.lanes = new Lane[numOfLanes];
+        for (int i = 0; i < numOfLanes; i++) {
+            lanes[i] = new Lane(i);
+            lanes[i].start();
+        }
+    }
+    
+    void put(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
+        getLane(feedID).offer(feedID, timeUnit, entries, null);
+    }
+    
+    /**
+     * Queues the data of several feeds. The callback is run once every lane holding part of the data 
+     * has written it.
+     */
+    void put(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, Runnable callback) {
+        int[] laneIndexes = new int[value.size()];
+        boolean[] usedLanes = new boolean[lanes.length];
+        int numOfUsedLanes = 0;
+        int i = 0;
+        for (String feedID : value.keySet()) {
+            laneIndexes[i] = getLaneIndex(feedID);
+            if (!usedLanes[laneIndexes[i]]) {
+                usedLanes[laneIndexes[i]] = true;
+                numOfUsedLanes++;
+            }
+            i++;
+        }
+        
+        Completion completion = callback == null ? null : new Completion(callback, numOfUsedLanes);
+        boolean[] completionAdded = new boolean[lanes.length];
+        i = 0;
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            int laneIndex = laneIndexes[i++];
+            Completion laneCompletion = null;
+            if (completion != null && !completionAdded[laneIndex]) {
+                laneCompletion = completion;
+                completionAdded[laneIndex] = true;
+            }
+            lanes[laneIndex].offer(entry.getKey(), timeUnit, entry.getValue(), laneCompletion);
+        }
+    }
+    
+    /**
+     * Returns the number of samples queued but not yet handed to the archives.
+     */
+    int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.getPendingSamples();
+        }
+        return depth;
+    }
+    
+    /**
+     * Returns how far the slowest lane lags behind, measured from the time its oldest unwritten 
+     * sample was queued.
+     */
+    long getLag(TimeUnit timeUnit) {
+        long now = System.nanoTime();
+        long lag = 0;
+        for (Lane lane : lanes) {
+            lag = Math.max(lag, lane.getLagNanos(now));
+        }
+        return timeUnit.convert(lag, TimeUnit.NANOSECONDS);
+    }
+    
+    int getNumOfLanes() {
+        return lanes.length;
+    }
+    
+    /**
+     * Waits until every queued sample has been written.
+     */
+    void drain() {
+        for (Lane lane : lanes) {
+            lane.drain();
+        }
+    }
+    
+    /**
+     * Writes the queued samples and stops the lanes. Puts after shutdown are written on the caller's thread.
+     */
+    void shutdown() {
+        for (Lane lane : lanes) {
+            lane.shutdown();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+    
+    private Lane getLane(String feedID) {
+        return lanes[getLaneIndex(feedID)];
+    }
+    
+    private int getLaneIndex(String feedID) {
+        return (feedID.hashCode() & Integer.MAX_VALUE) % lanes.length;
+    }
+    
+    private static final class Completion {
+        private final Runnable callback;
+        private final AtomicInteger remainingLanes;
+        
+        Completion(Runnable callback, int numOfLanes) {
+            this.callback = callback;
+            this.remainingLanes = new AtomicInteger(numOfLanes);
+        }
+        
+        void laneWritten() {
+            if (remainingLanes.decrementAndGet() == 0) {
+                callback.run();
+            }
+        }
+    }
+    
+    private final class Lane extends Thread {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private Map<String, Map<Long, Map<String, String>>> pending = new HashMap<String, Map<Long, Map<String, String>>>();
+        private List<Completion> pendingCompletions = new ArrayList<Completion>();
+        private int pendingSamples;
+        private long pendingSinceNanos;
+        private boolean writing;
+        private long writingSinceNanos;
+        private boolean stopped;
+        
+        Lane(int index) {
+            super("FeedAggregator write lane " + index);
+            setDaemon(true);
+        }
+        
+        void offer(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries, Completion completion) {
+            if (!enqueue(feedID, timeUnit, entries, completion)) {
+                writeOnCallerThread(feedID, timeUnit, entries, completion);
+            }
+        }
+        
+        private boolean enqueue(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries, Completion completion) {
+            lock.lock();
+            try {
+                if (stopped) {
+                    return false;
+                }
+                boolean interrupted = false;
+                while (!interrupted && isSaturated(System.nanoTime())) {
+                    try {
+                        notFull.awaitNanos(maxLagNanos);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                
+                Map<Long, Map<String, String>> feedData = pending.get(feedID);
+                if (feedData == null) {
+                    feedData = new HashMap<Long, Map<String, String>>();
+                    pending.put(feedID, feedData);
+                }
+                for (Entry<Long, Map<String, String>> entry : entries.entrySet()) {
+                    feedData.put(TimeUnit.NANOSECONDS.convert(entry.getKey(), timeUnit), entry.getValue());
+                }
+                if (pendingSamples == 0) {
+                    pendingSinceNanos = System.nanoTime();
+                }
+                pendingSamples += entries.size();
+                if (completion != null) {
+                    pendingCompletions.add(completion);
+                }
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void writeOnCallerThread(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries, Completion completion) {
+            Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+            for (Entry<Long, Map<String, String>> entry : entries.entrySet()) {
+                feedData.put(TimeUnit.NANOSECONDS.convert(entry.getKey(), timeUnit), entry.getValue());
+            }
+            try {
+                batchWriter.write(Collections.singletonMap(feedID, feedData), TimeUnit.NANOSECONDS);
+            } finally {
+                if (completion != null) {
+                    completion.laneWritten();
+                }
+            }
+        }
+        
+        private boolean isSaturated(long now) {
+            return pendingSamples >= laneCapacity || (pendingSamples > 0 && getLagNanos(now) > maxLagNanos);
+        }
+        
+        private long getLagNanos(long now) {
+            lock.lock();
+            try {
+                if (writing) {
+                    return now - writingSinceNanos;
+                }
+                return pendingSamples == 0 ? 0 : now - pendingSinceNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        int getPendingSamples() {
+            lock.lock();
+            try {
+                return pendingSamples;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void drain() {
+            lock.lock();
+            try {
+                while (pendingSamples > 0 || writing) {
+                    notFull.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void shutdown() {
+            lock.lock();
+            try {
+                stopped = true;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                Map<String, Map<Long, Map<String, String>>> batch;
+                List<Completion> completions;
+                lock.lock();
+                try {
+                    while (pendingSamples == 0 && !stopped) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (pendingSamples == 0) {
+                        return;
+                    }
+                    batch = pending;
+                    completions = pendingCompletions;
+                    pending = new HashMap<String, Map<Long, Map<String, String>>>();
+                    pendingCompletions = new ArrayList<Completion>();
+                    pendingSamples = 0;
+                    writing = true;
+                    writingSinceNanos = pendingSinceNanos;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                
+                try {
+                    batchWriter.write(batch, TimeUnit.NANOSECONDS);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to write batch of " + batch.size() + " feeds", e);
+                } finally {
+                    for (Completion completion : completions) {
+                        completion.laneWritten();
+                    }
+                    lock.lock();
+                    try {
+                        writing = false;
+                        notFull.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+}
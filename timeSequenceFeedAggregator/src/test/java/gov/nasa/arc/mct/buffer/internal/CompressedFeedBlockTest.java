@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
+import gov.nasa.arc.mct.buffer.memory.internal.PartitionMemoryBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CompressedFeedBlockTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressedFeedBlockTest.class);
+    private static final long START_MILLIS = 1300000000000L;
+    
+    private static Map<String, String> sample(long timeInMillis, String value, String status) {
+        Map<String, String> sample = new HashMap<String, String>();
+        sample.put("time", Long.toString(timeInMillis));
+        sample.put("data", value);
+        sample.put("status", status);
+        sample.put("isValid", "true");
+        return sample;
+    }
+    
+    private static SortedMap<Long, Map<String, String>> telemetry(int count, long periodMillis, boolean jitter) {
+        Random random = new Random(count);
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        long time = START_MILLIS;
+        double value = 20.0;
+        for (int i = 0; i < count; i++) {
+            time += periodMillis + (jitter ? random.nextInt(3) - 1 : 0);
+            value += (random.nextInt(5) - 2) * 0.25;
+            samples.put(TimeUnit.MILLISECONDS.toNanos(time), sample(time, Double.toString(value), i % 100 == 0 ? "R" : " "));
+        }
+        return samples;
+    }
+    
+    private static SortedMap<Long, Map<String, String>> decodeAll(CompressedFeedBlock block) {
+        SortedMap<Long, Map<String, String>> decoded = new TreeMap<Long, Map<String, String>>();
+        block.read(Long.MIN_VALUE, Long.MAX_VALUE, decoded, false);
+        return decoded;
+    }
+    
+    @Test
+    public void roundTripTest() {
+        SortedMap<Long, Map<String, String>> samples = telemetry(5000, 100, true);
+        CompressedFeedBlock block = CompressedFeedBlock.encode(samples);
+        Assert.assertEquals(block.getSampleCount(), 5000);
+        Assert.assertEquals(decodeAll(block), samples);
+        // regular samples of slowly changing values should take only a few bytes each
+        Assert.assertTrue(block.getEncodedBytes() < 5000 * 8, "encoded bytes " + block.getEncodedBytes());
+    }
+    
+    @Test
+    public void valueFormsTest() {
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        for (int i = 0; i < 10; i++) {
+            samples.put(TimeUnit.MILLISECONDS.toNanos(START_MILLIS + i), sample(START_MILLIS + i, Integer.toString(i * 7 - 20), "G"));
+        }
+        Assert.assertEquals(decodeAll(CompressedFeedBlock.encode(samples)), samples);
+        
+        // values which do not render back identically are kept verbatim
+        samples.get(samples.firstKey()).put("data", "1.50");
+        samples.get(samples.lastKey()).put("data", "not a number");
+        samples.get(samples.lastKey()).put("ri", null);
+        samples.get(samples.lastKey()).remove("status");
+        Assert.assertEquals(decodeAll(CompressedFeedBlock.encode(samples)), samples);
+    }
+    
+    @Test
+    public void timeKeyTest() {
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        samples.put(1000L, sample(5, "1.0", "G"));
+        samples.put(1500L, sample(6, "2.0", "G"));
+        samples.put(2700L, new HashMap<String, String>(Collections.singletonMap("data", "3.0")));
+        samples.put(Long.MAX_VALUE, sample(7, "4.0", "G"));
+        Assert.assertEquals(decodeAll(CompressedFeedBlock.encode(samples)), samples);
+    }
+    
+    @Test
+    public void rangeTest() {
+        SortedMap<Long, Map<String, String>> samples = telemetry(1000, 10, false);
+        CompressedFeedBlock block = CompressedFeedBlock.encode(samples);
+        Long[] times = samples.keySet().toArray(new Long[samples.size()]);
+        
+        SortedMap<Long, Map<String, String>> decoded = new TreeMap<Long, Map<String, String>>();
+        block.read(times[100], times[199], decoded, false);
+        Assert.assertEquals(decoded, samples.subMap(times[100], times[200]));
+        
+        decoded.clear();
+        block.read(times[100], times[199] + 1, decoded, true);
+        Assert.assertEquals(decoded.size(), 1);
+        Assert.assertEquals(decoded.get(times[199]), samples.get(times[199]));
+        
+        decoded.clear();
+        block.read(times[999] + 1, Long.MAX_VALUE, decoded, false);
+        Assert.assertTrue(decoded.isEmpty());
+        
+        block = CompressedFeedBlock.encode(new TreeMap<Long, Map<String, String>>());
+        block.read(Long.MIN_VALUE, Long.MAX_VALUE, decoded, false);
+        Assert.assertTrue(decoded.isEmpty());
+    }
+    
+    @Test
+    public void serializationTest() throws IOException {
+        SortedMap<Long, Map<String, String>> samples = telemetry(2000, 250, true);
+        CompressedFeedBlock block = CompressedFeedBlock.encode(samples);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        block.writeTo(new DataOutputStream(bytes));
+        CompressedFeedBlock read = CompressedFeedBlock.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(decodeAll(read), samples);
+        Assert.assertEquals(read.getFirstTimestamp(), samples.firstKey().longValue());
+        Assert.assertEquals(read.getLastTimestamp(), samples.lastKey().longValue());
+    }
+    
+    @Test
+    public void sealedMemoryPartitionTest() throws Exception {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("memory.buffer.compress.sealed", "true");
+        PartitionMemoryBuffer partition = new PartitionMemoryBuffer(new MemoryBufferEnv(prop));
+        
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+        value.put("feed1", new HashMap<Long, Map<String, String>>(telemetry(500, 100, true)));
+        value.put("feed2", new HashMap<Long, Map<String, String>>(telemetry(300, 1000, false)));
+        partition.putData(value, TimeUnit.NANOSECONDS);
+        
+        Set<String> feeds = value.keySet();
+        Map<String, SortedMap<Long, Map<String, String>>> before = partition.getData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
+        Map<String, SortedMap<Long, Map<String, String>>> lastBefore = partition.getLastData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
+        partition.inactive();
+        Assert.assertFalse(partition.isActive());
+        Assert.assertEquals(partition.getData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE), before);
+        Assert.assertEquals(partition.getLastData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE), lastBefore);
+    }
+    
+    @Test
+    public void largePartitionTest() throws Exception {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("memory.buffer.compress.sealed", "true");
+        PartitionMemoryBuffer partition = new PartitionMemoryBuffer(new MemoryBufferEnv(prop));
+        
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+        for (int i = 0; i < 100; i++) {
+            value.put("feed" + i, new HashMap<Long, Map<String, String>>(telemetry(2000, 100, true)));
+        }
+        partition.putData(value, TimeUnit.NANOSECONDS);
+        Set<String> feeds = value.keySet();
+        
+        Map<String, SortedMap<Long, Map<String, String>>> before = partition.getData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
+        long uncompressed = timeGetData(partition, feeds);
+        partition.inactive();
+        Assert.assertEquals(partition.getData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE), before);
+        long compressed = timeGetData(partition, feeds);
+        
+        int encodedBytes = 0;
+        for (Map<Long, Map<String, String>> samples : value.values()) {
+            encodedBytes += CompressedFeedBlock.encode(new TreeMap<Long, Map<String, String>>(samples)).getEncodedBytes();
+        }
+        LOGGER.info("getData of {} samples: uncompressed {} ms, compressed {} ms, {} encoded bytes", 
+                        new Object[] { 100 * 2000, TimeUnit.NANOSECONDS.toMillis(uncompressed), 
+                        TimeUnit.NANOSECONDS.toMillis(compressed), encodedBytes });
+        Assert.assertTrue(encodedBytes < 100 * 2000 * 8, "encoded bytes " + encodedBytes);
+    }
+    
+    private long timeGetData(PartitionMemoryBuffer partition, Set<String> feeds) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            Map<String, SortedMap<Long, Map<String, String>>> data = partition.getData(feeds, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
+            best = Math.min(best, System.nanoTime() - start);
+            Assert.assertEquals(data.size(), feeds.size());
+        }
+        return best;
+    }
+}
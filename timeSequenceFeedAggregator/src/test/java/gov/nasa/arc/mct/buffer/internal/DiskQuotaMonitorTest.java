@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.buffer.config.DiskUsageLevel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DiskQuotaMonitorTest {
+    private static final String HUGE_DISK_SPACE = String.valueOf(Integer.MAX_VALUE);
+    
+    private DataBuffer dataBuffer;
+    private File bufferLocation;
+    private Properties prop;
+    
+    @BeforeMethod
+    public void setup() throws IOException {
+        prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("buffer.partitions", "3");
+        prop.put("buffer.time.millis", "-1");
+        prop.put("buffer.disk.check.millis", "0");
+        bufferLocation = File.createTempFile("mct-buffer", "");
+        bufferLocation.delete();
+        Assert.assertTrue(bufferLocation.mkdir());
+        prop.put("buffer.disk.loc", bufferLocation.toString());
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (dataBuffer != null) {
+            dataBuffer.closeBuffer();
+        }
+        DataBufferFactory.reset();
+        delete(bufferLocation);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File f2 : f.listFiles()) {
+                delete(f2);
+            }
+        }
+        f.delete();
+    }
+    
+    private void openBuffer() {
+        dataBuffer = DataBufferFactory.getFastDiskDataBuffer(prop);
+        if (dataBuffer.isDataBufferClose()) {
+            dataBuffer.reset();
+        }
+    }
+    
+    private void putValue(String feedID, long time) throws BufferFullException {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", String.valueOf(time));
+        dataBuffer.putData(feedID, TimeUnit.MILLISECONDS, time, value);
+    }
+    
+    private int size(String feedID, long startTime, long endTime) {
+        Map<String, List<Map<String, String>>> data = dataBuffer.getData(Collections.singleton(feedID), TimeUnit.MILLISECONDS, startTime, endTime);
+        List<Map<String, String>> values = data.get(feedID);
+        return values == null ? 0 : values.size();
+    }
+    
+    @Test
+    public void normalLevelTest() {
+        openBuffer();
+        Assert.assertEquals(dataBuffer.checkDiskUsage(), DiskUsageLevel.normal);
+        Assert.assertEquals(dataBuffer.getDiskUsageLevel(), DiskUsageLevel.normal);
+        Assert.assertFalse(dataBuffer.isDiskFull());
+    }
+    
+    @Test
+    public void evictOldestPartitionTest() throws Exception {
+        prop.put("buffer.evict.disk.space.megabytes", HUGE_DISK_SPACE);
+        openBuffer();
+        long time = System.currentTimeMillis();
+        putValue("feed", time);
+        dataBuffer.prepareForNextPartition();
+        dataBuffer.moveToNextPartition();
+        putValue("feed", time + 1000);
+        Assert.assertEquals(size("feed", time, time + 2000), 2);
+        
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(dataBuffer.checkDiskUsage(), DiskUsageLevel.evict);
+        }
+        
+        Assert.assertFalse(dataBuffer.isDiskFull());
+        Assert.assertEquals(size("feed", time, time + 500), 0);
+        Assert.assertEquals(size("feed", time + 500, time + 2000), 1);
+        putValue("feed", time + 1500);
+        Assert.assertEquals(size("feed", time, time + 2000), 2);
+    }
+    
+    @Test
+    public void fullWhenNothingLeftToEvictTest() throws Exception {
+        prop.put("buffer.partitions", "1");
+        prop.put("buffer.min.disk.space.megabytes", HUGE_DISK_SPACE);
+        openBuffer();
+        Assert.assertEquals(dataBuffer.checkDiskUsage(), DiskUsageLevel.full);
+        Assert.assertTrue(dataBuffer.isDiskFull());
+        try {
+            putValue("feed", System.currentTimeMillis());
+            Assert.fail("disk full buffer accepted data");
+        } catch (BufferFullException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void monitorTest() throws Exception {
+        prop.put("buffer.evict.disk.space.megabytes", HUGE_DISK_SPACE);
+        prop.put("buffer.disk.check.millis", "50");
+        openBuffer();
+        Assert.assertEquals(dataBuffer.getDiskUsageLevel(), DiskUsageLevel.normal);
+        Thread.sleep(500);
+        Assert.assertEquals(dataBuffer.getDiskUsageLevel(), DiskUsageLevel.evict);
+    }
+}
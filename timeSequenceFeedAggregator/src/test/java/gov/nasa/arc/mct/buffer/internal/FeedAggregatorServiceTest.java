@@ -23,6 +23,9 @@ package gov.nasa.arc.mct.buffer.internal;
 
 import gov.nasa.arc.mct.api.feed.DataProvider;
 import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.api.feed.FeedSampleBatch;
+import gov.nasa.arc.mct.api.feed.FeedUpdateListener;
+import gov.nasa.arc.mct.api.feed.ScopedDataProvider;
 import gov.nasa.arc.mct.feed.FeedAggregatorService;
 
 import java.io.File;
@@ -37,17 +40,23 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 public class FeedAggregatorServiceTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeedAggregatorServiceTest.class);
     private DataBuffer dataBuffer;
     private DataBuffer memoryBuffer;
     private FeedAggregatorService feedAggregatorService;
@@ -160,6 +169,36 @@ public class FeedAggregatorServiceTest {
         assertHasSameValue(data2.get(0), value);
     }
 
+    @Test(groups="feedAggregatorServiceTest")
+    public void sampleBatchTest() {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("data", "1.3");
+        value.put("status", "ok");
+        long time = System.currentTimeMillis();
+        value.put("time", Long.toString(time));
+        feedAggregatorService.putData(testFeedID2, TimeUnit.MILLISECONDS, time, value);
+
+        feedAggregatorService.addDataProvider(mockDataProvider);
+
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add(testFeedID1);
+        feedIDs.add(testFeedID2);
+        Map<String, FeedSampleBatch> returnData = feedAggregatorService.getSampleBatches(feedIDs, TimeUnit.MILLISECONDS, time - 10000, time, 0);
+        Assert.assertEquals(returnData.size(), 2);
+
+        List<Map<String, String>> data1 = returnData.get(testFeedID1).asMaps();
+        Assert.assertEquals(data1.size(), 2);
+        assertHasSameValue(data1.get(0), data.get(0));
+        assertHasSameValue(data1.get(1), data.get(1));
+
+        FeedSampleBatch batch2 = returnData.get(testFeedID2);
+        Assert.assertEquals(batch2.size(), 1);
+        Assert.assertEquals(batch2.getTime(0), time);
+        Assert.assertEquals(batch2.getValue(0), 1.3);
+        Assert.assertEquals(batch2.getStatus(0), "ok");
+        assertHasSameValue(batch2.toMap(0), value);
+    }
+
     @Test(groups="feedAggregatorServiceTest")
     public void putSingleTest() throws InterruptedException {
         Map<String, String> value = new HashMap<String, String>();
@@ -179,6 +218,268 @@ public class FeedAggregatorServiceTest {
         assertHasSameValue(returnValue, value);
     }
     
+    @SuppressWarnings("unchecked")
+    @Test(groups="feedAggregatorServiceTest")
+    public void latestValueTest() {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", "1.3");
+        value.put("status", "ok");
+        long time = System.currentTimeMillis();
+        feedAggregatorService.putData(testFeedID2, TimeUnit.MILLISECONDS, time, value);
+        feedAggregatorService.putData(testFeedID2, TimeUnit.MILLISECONDS, time - 100, new HashMap<String, String>());
+        
+        // the provider only answers for the times it has a sample at, like a buffer
+        final long sampleTime = TimeUnit.MILLISECONDS.toNanos(time - 2000);
+        final Map<String, String> sample = data.get(1);
+        DataProvider historyProvider = Mockito.mock(DataProvider.class);
+        Mockito.when(historyProvider.getLOS()).thenReturn(LOS.slow);
+        Mockito.when(historyProvider.getData(Mockito.anySet(), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any())).thenAnswer(
+            new Answer<Map<String, SortedMap<Long, Map<String, String>>>>() {
+                @Override
+                public Map<String, SortedMap<Long, Map<String, String>>> answer(InvocationOnMock invocation) throws Throwable {
+                    Object[] args = invocation.getArguments();
+                    TimeUnit timeUnit = (TimeUnit) args[3];
+                    if (!((Set<String>) args[0]).contains(testFeedID1) || timeUnit.toNanos((Long) args[1]) > sampleTime 
+                            || timeUnit.toNanos((Long) args[2]) < sampleTime) {
+                        return Collections.emptyMap();
+                    }
+                    SortedMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String,String>>();
+                    feedData.put(sampleTime, sample);
+                    return Collections.singletonMap(testFeedID1, feedData);
+                }
+            });
+        feedAggregatorService.addDataProvider(historyProvider);
+
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add(testFeedID1);
+        feedIDs.add(testFeedID2);
+        feedIDs.add("TestPuiQuiet");
+        Map<String, Map<String, String>> latest = feedAggregatorService.getLatest(feedIDs);
+        Assert.assertEquals(latest.size(), 2);
+        assertHasSameValue(latest.get(testFeedID2), value);
+        // feeds not written through the aggregator are looked up in the providers before now
+        assertHasSameValue(latest.get(testFeedID1), sample);
+        
+        // feeds without a sample are cached as well
+        Assert.assertEquals(feedAggregatorService.getLatest(feedIDs).size(), 2);
+        Mockito.verify(historyProvider, Mockito.times(1)).getData(Mockito.anySet(), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any());
+    }
+    
+    @Test(groups="feedAggregatorServiceTest")
+    public void updateListenerTest() {
+        FeedUpdateListener listener = Mockito.mock(FeedUpdateListener.class);
+        feedAggregatorService.addFeedUpdateListener(listener);
+        
+        long time = System.currentTimeMillis();
+        feedAggregatorService.putData(testFeedID1, TimeUnit.MILLISECONDS, time, new HashMap<String, String>());
+        Mockito.verify(listener).feedsUpdated(Collections.singleton(testFeedID1));
+        
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+        value.put(testFeedID1, Collections.singletonMap(time + 1, (Map<String, String>) new HashMap<String, String>()));
+        value.put(testFeedID2, Collections.singletonMap(time + 1, (Map<String, String>) new HashMap<String, String>()));
+        feedAggregatorService.putData(value, TimeUnit.MILLISECONDS, null);
+        Mockito.verify(listener).feedsUpdated(value.keySet());
+        
+        feedAggregatorService.removeFeedUpdateListener(listener);
+        feedAggregatorService.putData(testFeedID2, TimeUnit.MILLISECONDS, time + 2, new HashMap<String, String>());
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+    
+    @Test(groups="feedAggregatorServiceTest")
+    public void concurrentProvidersTest() {
+        long time = System.currentTimeMillis();
+        // the medium provider only returns once the slow provider has been queried
+        CountDownLatch slowQueried = new CountDownLatch(1);
+        DataProvider mediumProvider = blockingProvider(newScopedMock(testFeedID1), LOS.medium, testFeedID1, time, 
+                        new CountDownLatch(1), slowQueried, new CountDownLatch(1));
+        DataProvider slowProvider = blockingProvider(newScopedMock(testFeedID2), LOS.slow, testFeedID2, time, 
+                        slowQueried, new CountDownLatch(0), new CountDownLatch(1));
+        feedAggregatorService.addDataProvider(mediumProvider);
+        feedAggregatorService.addDataProvider(slowProvider);
+        
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add(testFeedID1);
+        feedIDs.add(testFeedID2);
+        long start = System.nanoTime();
+        Map<String, List<Map<String, String>>> returnData = feedAggregatorService.getData(feedIDs, TimeUnit.MILLISECONDS, time, time + 100);
+        LOGGER.info("concurrent providers answered in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        
+        Assert.assertEquals(returnData.get(testFeedID1).size(), 1);
+        Assert.assertEquals(returnData.get(testFeedID2).size(), 1);
+    }
+    
+    @Test(groups="feedAggregatorServiceTest")
+    public void providersQueriedInOrderTest() {
+        long time = System.currentTimeMillis();
+        DataProvider mediumProvider = newSlowProvider(LOS.medium, testFeedID1, time, 200);
+        DataProvider slowProvider = newScopedProvider(LOS.slow, testFeedID2, time, 0);
+        Mockito.when(mediumProvider.isFullyWithinTimeSpan(Mockito.eq(testFeedID1), Mockito.anyLong(), Mockito.<TimeUnit>any())).thenReturn(true);
+        feedAggregatorService.addDataProvider(slowProvider);
+        feedAggregatorService.addDataProvider(mediumProvider);
+        
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add(testFeedID1);
+        feedIDs.add(testFeedID2);
+        Map<String, List<Map<String, String>>> returnData = feedAggregatorService.getData(feedIDs, TimeUnit.MILLISECONDS, time, time + 100);
+        
+        Assert.assertEquals(returnData.get(testFeedID1).size(), 1);
+        Assert.assertEquals(returnData.get(testFeedID2).size(), 1);
+        // the medium provider may serve any feed, so the slow provider only gets the feed it did not satisfy
+        Mockito.verify(slowProvider).getData(Mockito.eq(Collections.singleton(testFeedID2)), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any());
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test(groups="feedAggregatorServiceTest")
+    public void fasterProviderTakesPrecedenceTest() {
+        long time = System.currentTimeMillis();
+        DataProvider slowProvider = newSlowProvider(LOS.slow, testFeedID1, time, 0);
+        DataProvider mediumProvider = newSlowProvider(LOS.medium, testFeedID1, time, 200);
+        Mockito.when(mediumProvider.isFullyWithinTimeSpan(Mockito.eq(testFeedID1), Mockito.anyLong(), Mockito.<TimeUnit>any())).thenReturn(true);
+        feedAggregatorService.addDataProvider(slowProvider);
+        feedAggregatorService.addDataProvider(mediumProvider);
+        
+        List<Map<String, String>> returnData = feedAggregatorService.getData(Collections.singleton(testFeedID1), TimeUnit.MILLISECONDS, time, time + 100).get(testFeedID1);
+        Assert.assertEquals(returnData.size(), 1);
+        Assert.assertEquals(returnData.get(0).get("value"), LOS.medium.name());
+        Mockito.verify(slowProvider, Mockito.never()).getData(Mockito.anySet(), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any());
+    }
+    
+    @Test(groups="feedAggregatorServiceTest")
+    public void requestDeadlineTest() throws Exception {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("aggregator.request.deadline.millis", "200");
+        FeedAggregatorService deadlineService = new FeedAggregatorService(prop);
+        long time = System.currentTimeMillis();
+        CountDownLatch slowQueried = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowCancelled = new CountDownLatch(1);
+        deadlineService.addDataProvider(newSlowProvider(LOS.medium, testFeedID1, time, 0));
+        deadlineService.addDataProvider(blockingProvider(Mockito.mock(DataProvider.class), LOS.slow, testFeedID2, time, 
+                        slowQueried, release, slowCancelled));
+        
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add(testFeedID1);
+        feedIDs.add(testFeedID2);
+        try {
+            long start = System.nanoTime();
+            Map<String, List<Map<String, String>>> returnData = deadlineService.getData(feedIDs, TimeUnit.MILLISECONDS, time, time + 100);
+            LOGGER.info("request with a blocked provider ended after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            
+            // the data of the medium provider came back while the slow provider was still blocked
+            Assert.assertEquals(slowQueried.getCount(), 0);
+            Assert.assertEquals(release.getCount(), 1);
+            Assert.assertEquals(returnData.get(testFeedID1).size(), 1);
+            Assert.assertNull(returnData.get(testFeedID2));
+            // and the slow provider was cancelled at the deadline
+            Assert.assertTrue(slowCancelled.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test(groups="feedAggregatorServiceTest")
+    public void saturatedProvidersSkippedTest() throws Exception {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("aggregator.request.deadline.millis", "200");
+        prop.put("aggregator.provider.threads", "1");
+        prop.put("aggregator.provider.queue.size", "1");
+        FeedAggregatorService saturatedService = new FeedAggregatorService(prop);
+        long time = System.currentTimeMillis();
+        CountDownLatch release = new CountDownLatch(1);
+        // the first provider takes the only worker and the second one the only queue slot
+        saturatedService.addDataProvider(blockingProvider(newScopedMock(testFeedID1), LOS.medium, testFeedID1, time, 
+                        new CountDownLatch(1), release, new CountDownLatch(1)));
+        saturatedService.addDataProvider(blockingProvider(newScopedMock(testFeedID2), LOS.slow, testFeedID2, time, 
+                        new CountDownLatch(1), release, new CountDownLatch(1)));
+        String testFeedID3 = "TestPui3";
+        DataProvider skippedProvider = newScopedProvider(LOS.slow, testFeedID3, time, 0);
+        saturatedService.addDataProvider(skippedProvider);
+        
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add(testFeedID1);
+        feedIDs.add(testFeedID2);
+        feedIDs.add(testFeedID3);
+        try {
+            long start = System.nanoTime();
+            Map<String, List<Map<String, String>>> returnData = saturatedService.getData(feedIDs, TimeUnit.MILLISECONDS, time, time + 100);
+            LOGGER.info("request with saturated provider workers ended after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            
+            // the provider finding the queue full is skipped rather than queried on the calling thread
+            Assert.assertTrue(returnData.isEmpty());
+            Mockito.verify(skippedProvider, Mockito.never()).getData(Mockito.anySet(), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any());
+            Assert.assertEquals(release.getCount(), 1);
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    private DataProvider newSlowProvider(LOS los, String feedID, long time, long delayMillis) {
+        return stubProvider(Mockito.mock(DataProvider.class), los, feedID, time, delayMillis);
+    }
+    
+    private DataProvider newScopedProvider(LOS los, String feedID, long time, long delayMillis) {
+        return stubProvider(newScopedMock(feedID), los, feedID, time, delayMillis);
+    }
+    
+    private ScopedDataProvider newScopedMock(String feedID) {
+        ScopedDataProvider provider = Mockito.mock(ScopedDataProvider.class);
+        Mockito.when(provider.canProvide(feedID)).thenReturn(true);
+        Mockito.when(provider.isFullyWithinTimeSpan(Mockito.eq(feedID), Mockito.anyLong(), Mockito.<TimeUnit>any())).thenReturn(true);
+        return provider;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private DataProvider stubProvider(DataProvider provider, final LOS los, final String feedID, final long time, final long delayMillis) {
+        Mockito.when(provider.getLOS()).thenReturn(los);
+        Mockito.when(provider.getData(Mockito.anySet(), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any())).thenAnswer(
+            new Answer<Map<String, SortedMap<Long, Map<String, String>>>>() {
+                @Override
+                public Map<String, SortedMap<Long, Map<String, String>>> answer(InvocationOnMock invocation) throws Throwable {
+                    Thread.sleep(delayMillis);
+                    return providerData(los, feedID, time);
+                }
+            });
+        return provider;
+    }
+    
+    /**
+     * Stubs a provider which counts down queried when it is queried and returns its data once released. 
+     * It counts down cancelled if it is interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    private DataProvider blockingProvider(DataProvider provider, final LOS los, final String feedID, final long time, 
+                    final CountDownLatch queried, final CountDownLatch release, final CountDownLatch cancelled) {
+        Mockito.when(provider.getLOS()).thenReturn(los);
+        Mockito.when(provider.getData(Mockito.anySet(), Mockito.anyLong(), Mockito.anyLong(), Mockito.<TimeUnit>any())).thenAnswer(
+            new Answer<Map<String, SortedMap<Long, Map<String, String>>>>() {
+                @Override
+                public Map<String, SortedMap<Long, Map<String, String>>> answer(InvocationOnMock invocation) throws Throwable {
+                    queried.countDown();
+                    try {
+                        if (!release.await(10, TimeUnit.SECONDS)) {
+                            throw new IllegalStateException(los + " provider was not released");
+                        }
+                    } catch (InterruptedException e) {
+                        cancelled.countDown();
+                        throw e;
+                    }
+                    return providerData(los, feedID, time);
+                }
+            });
+        return provider;
+    }
+    
+    private static Map<String, SortedMap<Long, Map<String, String>>> providerData(LOS los, String feedID, long time) {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", los.name());
+        SortedMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String,String>>();
+        feedData.put(TimeUnit.MILLISECONDS.toNanos(time), value);
+        return Collections.singletonMap(feedID, feedData);
+    }
+    
     private void assertHasSameValue(Map<String, String> actualValue, Map<String, String> expectedValue) {
         Assert.assertEquals(actualValue.size(), expectedValue.size());
 
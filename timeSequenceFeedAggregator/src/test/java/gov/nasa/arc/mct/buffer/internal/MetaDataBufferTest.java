@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MetaDataBufferTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetaDataBufferTest.class);
+    private static final int PARTITIONS = 5;
+    
+    private MetaDataBuffer metaDataBuffer;
+    
+    @BeforeMethod
+    public void setup() throws IOException {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("memory.buffer.partition", String.valueOf(PARTITIONS));
+        metaDataBuffer = new MetaDataBuffer(new MemoryBufferEnv(prop));
+        Assert.assertEquals(metaDataBuffer.getNumOfPartitions(), PARTITIONS);
+    }
+    
+    @Test
+    public void indexMatchesPartitionMetaDataTest() {
+        Random random = new Random(3);
+        for (int n = 0; n < 2000; n++) {
+            int partition = random.nextInt(PARTITIONS);
+            String feedID = "feed" + random.nextInt(50);
+            long start = random.nextInt(10000);
+            if (n % 400 == 399) {
+                metaDataBuffer.removePartitionMetaData(partition);
+            } else {
+                metaDataBuffer.updatePartitionMetaData(partition, feedID, start, start + random.nextInt(1000));
+            }
+        }
+        
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            PartitionMetaData partitionMetaData = metaDataBuffer.getPartitionMetaData(partition);
+            for (int f = 0; f < 50; f++) {
+                String feedID = "feed" + f;
+                boolean hasFeed = partitionMetaData != null && partitionMetaData.hasFeed(feedID);
+                Assert.assertEquals(metaDataBuffer.hasFeed(partition, feedID), hasFeed);
+                Assert.assertEquals(metaDataBuffer.getStartTimestamp(partition, feedID), hasFeed ? partitionMetaData.getStartTimestamp(feedID) : -1);
+                Assert.assertEquals(metaDataBuffer.getEndTimestamp(partition, feedID), hasFeed ? partitionMetaData.getEndTimestamp(feedID) : -1);
+                for (long t = 0; t < 12000; t += 500) {
+                    Assert.assertEquals(metaDataBuffer.isWithinTimeSpan(partition, feedID, TimeUnit.NANOSECONDS, t, t + 500), 
+                                    hasFeed && partitionMetaData.isWithinTimeSpan(feedID, t, t + 500));
+                    Assert.assertEquals(metaDataBuffer.isFullyWithinTimeSpan(partition, feedID, TimeUnit.NANOSECONDS, t), 
+                                    hasFeed && partitionMetaData.isFullyWithinTimeSpan(feedID, t));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void rolloverFeedTest() {
+        metaDataBuffer.updatePartitionMetaData(0, "feed1", 100, 200);
+        metaDataBuffer.updatePartitionMetaData(1, "feed2", 100, 200);
+        metaDataBuffer.updatePartitionMetaData(1, "feed1", 300, 400);
+        
+        // feed2 is only in partition 1, so it rolls over into the reset partition without timestamps
+        Set<String> rowoverFeedIDs = metaDataBuffer.resetPartitionMetaData(1);
+        Assert.assertEquals(rowoverFeedIDs, Collections.singleton("feed2"));
+        Assert.assertTrue(metaDataBuffer.hasFeed(1, "feed2"));
+        Assert.assertFalse(metaDataBuffer.hasFeed(1, "feed1"));
+        Assert.assertFalse(metaDataBuffer.isWithinTimeSpan(1, "feed2", TimeUnit.NANOSECONDS, 0, 1000));
+        Assert.assertFalse(metaDataBuffer.isFullyWithinTimeSpan(1, "feed2", TimeUnit.NANOSECONDS, 1000));
+        Assert.assertEquals(metaDataBuffer.getStartTimestamp(1, "feed2"), -1);
+        
+        Set<String> feeds = new HashSet<String>();
+        feeds.add("feed1");
+        feeds.add("feed2");
+        boolean[] partitions = metaDataBuffer.getPartitionsWithinTimeSpan(feeds, TimeUnit.NANOSECONDS, 150, 1000);
+        Assert.assertTrue(partitions[0]);
+        Assert.assertFalse(partitions[1]);
+        
+        metaDataBuffer.updatePartitionMetaData(1, "feed2", 500, 600);
+        Assert.assertTrue(metaDataBuffer.getPartitionsWithinTimeSpan(feeds, TimeUnit.NANOSECONDS, 550, 1000)[1]);
+    }
+    
+    @Test
+    public void concurrentLookupTest() throws Exception {
+        final int feeds = 1000;
+        // feed f is in partition p unless f + p is a multiple of 3, and partition p spans [p * 1000, p * 1000 + 999]
+        for (int f = 0; f < feeds; f++) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                if (isInPartition(f, partition)) {
+                    metaDataBuffer.updatePartitionMetaData(partition, "feed" + f, partition * 1000, partition * 1000 + 999);
+                }
+            }
+        }
+        
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // rewrites the same timestamps, so the expected partitions do not change
+                int f = 0;
+                while (!done.get()) {
+                    if (isInPartition(f, PARTITIONS - 1)) {
+                        metaDataBuffer.updatePartitionMetaData(PARTITIONS - 1, "feed" + f, 4000, 4999);
+                    }
+                    f = (f + 1) % feeds;
+                }
+            }
+        }, "Meta Data Writer");
+        writer.setDaemon(true);
+        writer.start();
+        
+        final int readers = 4;
+        final int lookups = 2000;
+        final CountDownLatch finished = new CountDownLatch(readers);
+        final ConcurrentLinkedQueue<String> mismatches = new ConcurrentLinkedQueue<String>();
+        long start = System.nanoTime();
+        for (int r = 0; r < readers; r++) {
+            final Random random = new Random(r);
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < lookups; i++) {
+                            Set<Integer> queried = new HashSet<Integer>();
+                            Set<String> feedIDs = new HashSet<String>();
+                            for (int n = random.nextInt(3); n >= 0; n--) {
+                                int f = random.nextInt(feeds);
+                                queried.add(f);
+                                feedIDs.add("feed" + f);
+                            }
+                            long startTime = random.nextInt(PARTITIONS * 1000 + 500) - 500;
+                            long endTime = startTime + random.nextInt(2500);
+                            boolean[] partitions = metaDataBuffer.getPartitionsWithinTimeSpan(feedIDs, TimeUnit.NANOSECONDS, startTime, endTime);
+                            for (int partition = 0; partition < PARTITIONS; partition++) {
+                                boolean expected = false;
+                                for (int f : queried) {
+                                    expected |= isInPartition(f, partition) 
+                                        && startTime <= partition * 1000 + 999 && endTime >= partition * 1000;
+                                }
+                                if (partitions[partition] != expected) {
+                                    mismatches.add(feedIDs + " [" + startTime + ", " + endTime + "] partition " + partition);
+                                }
+                            }
+                        }
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }, "Meta Data Reader " + r);
+            t.setDaemon(true);
+            t.start();
+        }
+        
+        Assert.assertTrue(finished.await(60, TimeUnit.SECONDS), "readers blocked");
+        long elapsed = System.nanoTime() - start;
+        done.set(true);
+        writer.join();
+        LOGGER.info("{} partition lookups by each of {} readers with concurrent writes: {} us per lookup", 
+                        new Object[] { lookups, readers, TimeUnit.NANOSECONDS.toMicros(elapsed) / lookups });
+        Assert.assertTrue(mismatches.isEmpty(), "mismatches: " + mismatches);
+    }
+    
+    @Test
+    public void lookupDoesNotLockTest() throws Exception {
+        metaDataBuffer.updatePartitionMetaData(2, "feed1", 2000, 2999);
+        final CountDownLatch lookedUp = new CountDownLatch(1);
+        final boolean[][] partitions = new boolean[1][];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                partitions[0] = metaDataBuffer.getPartitionsWithinTimeSpan(Collections.singleton("feed1"), TimeUnit.NANOSECONDS, 2500, 3500);
+                lookedUp.countDown();
+            }
+        }, "Meta Data Reader");
+        reader.setDaemon(true);
+        // writers hold the lock of the metadata buffer, readers of the index must not wait for it
+        synchronized (metaDataBuffer) {
+            reader.start();
+            Assert.assertTrue(lookedUp.await(10, TimeUnit.SECONDS), "lookup waited for the metadata lock");
+        }
+        Assert.assertEquals(Arrays.toString(partitions[0]), Arrays.toString(new boolean[] { false, false, true, false, false }));
+    }
+    
+    private static boolean isInPartition(int feed, int partition) {
+        return (feed + partition) % 3 != 0;
+    }
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PartitionRotationStressTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionRotationStressTest.class);
+    private static final int WRITERS = 4;
+    private static final int PUTS_PER_WRITER = 20000;
+    private static final long ROTATION_INTERVAL_MILLIS = 5;
+    /** Far longer than the puts take, so only a blocked writer or reader runs past it. */
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    
+    private DataBuffer dataBuffer;
+    
+    @BeforeMethod
+    public void setup() throws IOException {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("memory.buffer.partition", "3");
+        prop.put("memory.buffer.time.millis", "-1");
+        dataBuffer = DataBufferFactory.getMemoryDataBuffer(prop);
+        if (dataBuffer.isDataBufferClose()) {
+            dataBuffer.reset();
+        }
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (dataBuffer != null) {
+            dataBuffer.reset();
+        }
+        DataBufferFactory.reset();
+    }
+    
+    @Test
+    public void rotateWhileWritingTest() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicInteger activeWriters = new AtomicInteger(WRITERS);
+        final AtomicInteger completedPuts = new AtomicInteger();
+        final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+        final long[][] latencies = new long[WRITERS][PUTS_PER_WRITER];
+        final long baseTime = System.currentTimeMillis();
+        
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers[w] = new Thread("writer-" + w) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        String feedID = "feed" + writer;
+                        for (int i = 0; i < PUTS_PER_WRITER; i++) {
+                            Map<String, String> value = new HashMap<String, String>();
+                            value.put("value", String.valueOf(i));
+                            long before = System.nanoTime();
+                            dataBuffer.putData(feedID, TimeUnit.MILLISECONDS, baseTime + i, value);
+                            latencies[writer][i] = System.nanoTime() - before;
+                            completedPuts.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        if (activeWriters.decrementAndGet() == 0) {
+                            writing.set(false);
+                        }
+                    }
+                }
+            };
+            // a blocked thread fails the test but must not keep the JVM running
+            writers[w].setDaemon(true);
+            writers[w].start();
+        }
+        
+        Thread reader = new Thread("reader") {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    while (writing.get()) {
+                        dataBuffer.getData(Collections.singleton("feed0"), TimeUnit.MILLISECONDS, baseTime, baseTime + PUTS_PER_WRITER);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+        
+        start.countDown();
+        int rotations = 0;
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (writing.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(ROTATION_INTERVAL_MILLIS);
+            dataBuffer.prepareForNextPartition();
+            dataBuffer.moveToNextPartition();
+            rotations++;
+        }
+        for (Thread writer : writers) {
+            writer.join(Math.max(1, deadline - System.currentTimeMillis()));
+            Assert.assertFalse(writer.isAlive(), writer.getName() + " blocked");
+        }
+        reader.join(Math.max(1, deadline - System.currentTimeMillis()));
+        Assert.assertFalse(reader.isAlive(), "reader blocked");
+        
+        Assert.assertTrue(failures.isEmpty(), "Failures during rotation: " + failures);
+        Assert.assertEquals(completedPuts.get(), WRITERS * PUTS_PER_WRITER);
+        Assert.assertTrue(rotations > 0);
+        
+        long[] allLatencies = new long[WRITERS * PUTS_PER_WRITER];
+        for (int w = 0; w < WRITERS; w++) {
+            System.arraycopy(latencies[w], 0, allLatencies, w * PUTS_PER_WRITER, PUTS_PER_WRITER);
+        }
+        Arrays.sort(allLatencies);
+        long p50 = allLatencies[allLatencies.length / 2];
+        long p99 = allLatencies[(int) (allLatencies.length * 0.99)];
+        long max = allLatencies[allLatencies.length - 1];
+        LOGGER.info("{} puts across {} partition rotations: p50 {} us, p99 {} us, max {} us", new Object[] {
+                        allLatencies.length, rotations, TimeUnit.NANOSECONDS.toMicros(p50), 
+                        TimeUnit.NANOSECONDS.toMicros(p99), TimeUnit.NANOSECONDS.toMicros(max) });
+    }
+    
+    @Test
+    public void readAfterRotationTest() throws BufferFullException {
+        long time = System.currentTimeMillis();
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", "1.3");
+        dataBuffer.putData("feed", TimeUnit.MILLISECONDS, time, value);
+        
+        dataBuffer.prepareForNextPartition();
+        dataBuffer.moveToNextPartition();
+        
+        Map<String, String> value2 = new HashMap<String, String>();
+        value2.put("value", "1.4");
+        dataBuffer.putData("feed", TimeUnit.MILLISECONDS, time + 1, value2);
+        
+        SortedMap<Long, Map<String, String>> data = dataBuffer.getData(Collections.singleton("feed"), time, time + 1, TimeUnit.MILLISECONDS).get("feed");
+        Assert.assertEquals(data.size(), 2);
+        Assert.assertEquals(data.get(TimeUnit.MILLISECONDS.toNanos(time)), value);
+        Assert.assertEquals(data.get(TimeUnit.MILLISECONDS.toNanos(time + 1)), value2);
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RollupDataBufferTest {
+    private static final long START_TIME = 1300000000000L;
+    private static final int SAMPLES = 1000;
+    
+    private CODataBuffer codataBuffer;
+    private String testFeedID = "TestPui1";
+    private File bufferLocation;
+    private double min;
+    private double max;
+
+    @BeforeMethod
+    public void setup() throws IOException, BufferFullException {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("buffer.partitions", "2");
+        prop.put("buffer.time.millis", "-1");
+        prop.put("buffer.rollup.tiers.millis", "10,100");
+        bufferLocation = File.createTempFile("mct-buffer", "");
+        bufferLocation.delete();
+        bufferLocation.mkdir();
+        prop.put("buffer.disk.loc", bufferLocation.toString());
+        DataBufferFactory.reset();
+        codataBuffer = (CODataBuffer) DataBufferFactory.getFastDiskDataBuffer(prop);
+        if (codataBuffer.isDataBufferClose()) {
+            codataBuffer.reset();
+        }
+        
+        Random random = new Random(7);
+        Map<Long, Map<String, String>> samples = new HashMap<Long, Map<String, String>>();
+        min = Double.MAX_VALUE;
+        max = -Double.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            double v = random.nextGaussian();
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+            Map<String, String> value = new HashMap<String, String>();
+            value.put("data", Double.toString(v));
+            value.put("time", Long.toString(START_TIME + i));
+            samples.put(START_TIME + i, value);
+        }
+        codataBuffer.putData(Collections.singletonMap(testFeedID, samples), TimeUnit.MILLISECONDS, null);
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (codataBuffer != null) {
+            codataBuffer.closeBuffer();
+        }
+        DataBufferFactory.reset();
+        delete(bufferLocation);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File f2 : f.listFiles()) {
+                delete(f2);
+            }
+        }
+        f.delete();
+    }
+    
+    private SortedMap<Long, Map<String, String>> getData(long resolution) {
+        return codataBuffer.getData(Collections.singleton(testFeedID), START_TIME, START_TIME + SAMPLES - 1, resolution, 
+                        TimeUnit.MILLISECONDS).get(testFeedID);
+    }
+    
+    @Test
+    public void reducedDataKeepsEnvelopeTest() {
+        SortedMap<Long, Map<String, String>> data = getData(100);
+        
+        // ten buckets with at most first, last, min and max each
+        Assert.assertTrue(data.size() <= 40, "returned " + data.size());
+        Assert.assertEquals(data.firstKey().longValue(), TimeUnit.MILLISECONDS.toNanos(START_TIME));
+        Assert.assertEquals(data.lastKey().longValue(), TimeUnit.MILLISECONDS.toNanos(START_TIME + SAMPLES - 1));
+        double reducedMin = Double.MAX_VALUE;
+        double reducedMax = -Double.MAX_VALUE;
+        for (Map<String, String> value : data.values()) {
+            double v = Double.parseDouble(value.get("data"));
+            reducedMin = Math.min(reducedMin, v);
+            reducedMax = Math.max(reducedMax, v);
+        }
+        Assert.assertEquals(reducedMin, min);
+        Assert.assertEquals(reducedMax, max);
+        
+        Assert.assertTrue(getData(10).size() > data.size());
+    }
+    
+    @Test
+    public void unalignedRequestTest() {
+        SortedMap<Long, Map<String, String>> data = codataBuffer.getData(Collections.singleton(testFeedID), START_TIME + 5, 
+                        START_TIME + 504, 100, TimeUnit.MILLISECONDS).get(testFeedID);
+        
+        // the edges before and after the whole buckets are returned in full
+        for (long t = START_TIME + 5; t < START_TIME + 100; t++) {
+            Assert.assertTrue(data.containsKey(TimeUnit.MILLISECONDS.toNanos(t)));
+        }
+        for (long t = START_TIME + 500; t <= START_TIME + 504; t++) {
+            Assert.assertTrue(data.containsKey(TimeUnit.MILLISECONDS.toNanos(t)));
+        }
+        Assert.assertFalse(data.containsKey(TimeUnit.MILLISECONDS.toNanos(START_TIME + 505)));
+        Assert.assertTrue(data.size() < 400);
+    }
+    
+    @Test
+    public void fineResolutionReturnsRawDataTest() {
+        SortedMap<Long, Map<String, String>> raw = codataBuffer.getData(Collections.singleton(testFeedID), START_TIME, 
+                        START_TIME + SAMPLES - 1, TimeUnit.MILLISECONDS).get(testFeedID);
+        Assert.assertEquals(raw.size(), SAMPLES);
+        Assert.assertEquals(getData(5), raw);
+        Assert.assertEquals(getData(0), raw);
+    }
+    
+    @Test
+    public void sealedRollupTest() throws Exception {
+        SortedMap<Long, Map<String, String>> before = new TreeMap<Long, Map<String, String>>(getData(100));
+        
+        codataBuffer.prepareForNextPartition();
+        codataBuffer.moveToNextPartition();
+        
+        Assert.assertEquals(getData(100).keySet(), before.keySet());
+        for (Long time : before.keySet()) {
+            Assert.assertEquals(getData(100).get(time).get("data"), before.get(time).get("data"));
+        }
+    }
+}
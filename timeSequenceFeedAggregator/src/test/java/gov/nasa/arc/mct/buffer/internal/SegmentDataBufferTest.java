@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.buffer.config.SegmentBufferEnv;
+import gov.nasa.arc.mct.buffer.segment.internal.PartitionSegmentBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SegmentDataBufferTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentDataBufferTest.class);
+    
+    private DataBuffer dataBuffer;
+    private DataBuffer fastDiskBuffer;
+    private String testFeedID1 = "TestPui1";
+    private String testFeedID2 = "TestPui2";
+    private File bufferLocation;
+    private Properties prop;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("buffer.partitions", "1");
+        prop.put("buffer.time.millis", "-1");
+        prop.put("segment.buffer.initial.segment.bytes", "256");
+        prop.put("segment.buffer.segment.bytes", "4096");
+        prop.put("segment.buffer.index.interval", "8");
+        bufferLocation = File.createTempFile("mct-buffer", "");
+        bufferLocation.delete();
+        bufferLocation.mkdir();
+        prop.put("buffer.disk.loc", bufferLocation.toString());
+        dataBuffer = DataBufferFactory.getSegmentDataBuffer(prop);
+        if (dataBuffer.isDataBufferClose()) {
+            dataBuffer.reset();
+        }
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (dataBuffer != null) {
+            dataBuffer.closeBuffer();
+        }
+        if (fastDiskBuffer != null) {
+            fastDiskBuffer.closeBuffer();
+            fastDiskBuffer = null;
+        }
+        DataBufferFactory.reset();
+        delete(bufferLocation);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File f2 : f.listFiles()) {
+                delete(f2);
+            }
+        }
+        f.delete();
+    }
+
+    @Test
+    public void losTest() {
+        Assert.assertEquals(dataBuffer.getLOS(), LOS.medium);
+    }
+
+    @Test
+    public void putSingleDataTest() throws BufferFullException {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", "1.3");
+        value.put("status", "ok");
+        long time = System.currentTimeMillis();
+        long nanotime = TimeUnit.NANOSECONDS.convert(time, TimeUnit.MILLISECONDS);
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time, value);
+
+        List<Map<String, String>> returnData = dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.NANOSECONDS, nanotime, nanotime + 100).get(testFeedID1);
+
+        Assert.assertEquals(returnData.size(), 1);
+        Map<String, String> returnValue = returnData.get(0);
+        Assert.assertNotSame(returnValue, value);
+        Assert.assertEquals(returnValue, value);
+    }
+
+    @Test
+    public void multipleFeedsTest() throws BufferFullException {
+        Map<String, String> value1 = new HashMap<String, String>();
+        value1.put("value", "1.3");
+        value1.put("status", "ok");
+        long time1 = System.currentTimeMillis();
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time1, value1);
+
+        Map<String, String> value2 = new HashMap<String, String>();
+        value2.put("value", "2.3");
+        value2.put("status", "ok2");
+        long time2 = time1 + 10;
+        dataBuffer.putData(testFeedID2, TimeUnit.MILLISECONDS, time2, value2);
+
+        Assert.assertEquals(dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, time1, time1 + 100).get(testFeedID1), Collections.singletonList(value1));
+        Assert.assertEquals(dataBuffer.getData(Collections.singleton(testFeedID2),
+                        TimeUnit.MILLISECONDS, time1, time2 + 100).get(testFeedID2), Collections.singletonList(value2));
+        Assert.assertTrue(dataBuffer.isFullyWithinTimeSpan(testFeedID2, time2, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(dataBuffer.isFullyWithinTimeSpan(testFeedID2, time2 - 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void rangeAcrossSegmentsTest() throws BufferFullException {
+        long baseTime = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> value = new HashMap<String, String>();
+            value.put("value", String.valueOf(i));
+            value.put("time", String.valueOf(baseTime + i));
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, baseTime + i, value);
+        }
+
+        List<Map<String, String>> returnData = dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, baseTime + 500, baseTime + 599).get(testFeedID1);
+        Assert.assertEquals(returnData.size(), 100);
+        for (int i = 0; i < returnData.size(); i++) {
+            Assert.assertEquals(returnData.get(i).get("value"), String.valueOf(500 + i));
+        }
+        
+        returnData = dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, baseTime - 1000, baseTime + 2000).get(testFeedID1);
+        Assert.assertEquals(returnData.size(), 1000);
+        
+        // segments start small and double up to the segment size
+        List<Long> segmentSizes = new ArrayList<Long>();
+        collectSegmentSizes(bufferLocation, segmentSizes);
+        Assert.assertTrue(segmentSizes.size() > 5);
+        Assert.assertEquals(segmentSizes.get(0).longValue(), 256L);
+        for (int i = 1; i < segmentSizes.size(); i++) {
+            Assert.assertEquals(segmentSizes.get(i).longValue(), Math.min(4096L, 2 * segmentSizes.get(i - 1)));
+        }
+    }
+    
+    private void collectSegmentSizes(File f, List<Long> sizes) {
+        if (f.isDirectory()) {
+            for (File f2 : f.listFiles()) {
+                collectSegmentSizes(f2, sizes);
+            }
+        } else if (f.getName().endsWith(".seg")) {
+            int segment = Integer.parseInt(f.getName().substring(f.getName().lastIndexOf('-') + 1, f.getName().length() - 4));
+            while (sizes.size() <= segment) {
+                sizes.add(null);
+            }
+            sizes.set(segment, f.length());
+        }
+    }
+
+    @Test
+    public void compressSealedPartitionTest() throws BufferFullException {
+        dataBuffer.closeBuffer();
+        dataBuffer = null;
+        prop.put("segment.buffer.compress.sealed", "true");
+        PartitionSegmentBuffer partition = new PartitionSegmentBuffer(new SegmentBufferEnv(prop, 1));
+        long baseTime = System.currentTimeMillis();
+        Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> value = new HashMap<String, String>();
+            value.put("value", String.valueOf(i % 7));
+            value.put("time", String.valueOf(baseTime + i));
+            feedData.put(baseTime + i, value);
+        }
+        Map<String, Map<Long, Map<String, String>>> batch = new HashMap<String, Map<Long, Map<String, String>>>();
+        batch.put(testFeedID1, feedData);
+        batch.put(testFeedID2, Collections.singletonMap(baseTime, Collections.singletonMap("value", "x")));
+        partition.putData(batch, TimeUnit.MILLISECONDS);
+        
+        Set<String> feeds = batch.keySet();
+        Map<String, SortedMap<Long, Map<String, String>>> before = partition.getData(feeds, TimeUnit.MILLISECONDS, baseTime, baseTime + 999);
+        Map<String, SortedMap<Long, Map<String, String>>> range = partition.getData(feeds, TimeUnit.MILLISECONDS, baseTime + 500, baseTime + 599);
+        partition.inactive();
+        Assert.assertEquals(partition.getData(feeds, TimeUnit.MILLISECONDS, baseTime, baseTime + 999), before);
+        Assert.assertEquals(partition.getData(feeds, TimeUnit.MILLISECONDS, baseTime + 500, baseTime + 599), range);
+        Assert.assertEquals(partition.getLastData(feeds, TimeUnit.MILLISECONDS, baseTime, baseTime + 999).get(testFeedID1).firstKey(), 
+                        Long.valueOf(TimeUnit.MILLISECONDS.toNanos(baseTime + 999)));
+        
+        File partitionDirectory = ((SegmentBufferEnv) partition.getBufferEnv()).getPartitionDirectory();
+        for (File f : partitionDirectory.listFiles()) {
+            Assert.assertTrue(f.getName().endsWith(".blk"), f.getName());
+        }
+        partition.removeBuffer();
+    }
+
+    @Test
+    public void outOfOrderTest() throws BufferFullException {
+        long baseTime = System.currentTimeMillis();
+        Map<Long, Map<String, String>> data = new TreeMap<Long, Map<String, String>>(Collections.reverseOrder());
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> value = new HashMap<String, String>();
+            value.put("value", String.valueOf(i));
+            data.put(baseTime + i, value);
+        }
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, data);
+
+        List<Map<String, String>> returnData = dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, baseTime + 10, baseTime + 19).get(testFeedID1);
+        Assert.assertEquals(returnData.size(), 10);
+        Assert.assertEquals(returnData.get(0).get("value"), "10");
+        Assert.assertEquals(returnData.get(9).get("value"), "19");
+    }
+    
+    @Test
+    public void compareWithFastDiskBufferTest() throws BufferFullException {
+        fastDiskBuffer = DataBufferFactory.getFastDiskDataBuffer(prop);
+        if (fastDiskBuffer.isDataBufferClose()) {
+            fastDiskBuffer.reset();
+        }
+        
+        int feeds = 20;
+        int samples = 500;
+        long baseTime = System.currentTimeMillis();
+        Set<String> feedIDs = new HashSet<String>();
+        Map<String, Map<Long, Map<String, String>>> batches[] = newBatches(samples);
+        for (int s = 0; s < samples; s++) {
+            batches[s] = new HashMap<String, Map<Long, Map<String, String>>>();
+            for (int f = 0; f < feeds; f++) {
+                String feedID = "feed" + f;
+                feedIDs.add(feedID);
+                Map<String, String> value = new HashMap<String, String>();
+                value.put("value", String.valueOf(f * s * 0.5));
+                value.put("status", s % 7 == 0 ? "stale" : "ok");
+                value.put("time", String.valueOf(baseTime + s));
+                batches[s].put(feedID, Collections.singletonMap(baseTime + s, value));
+            }
+        }
+        
+        long segmentWrite = write(dataBuffer, batches);
+        long fastDiskWrite = write(fastDiskBuffer, batches);
+        
+        long[][] ranges = {{baseTime, baseTime + samples}, {baseTime + 100, baseTime + 199}, {baseTime + samples - 1, baseTime + samples + 100}};
+        long segmentRead = 0;
+        long fastDiskRead = 0;
+        for (long[] range : ranges) {
+            long start = System.nanoTime();
+            Map<String, SortedMap<Long, Map<String, String>>> segmentData = dataBuffer.getData(feedIDs, range[0], range[1], TimeUnit.MILLISECONDS);
+            segmentRead += System.nanoTime() - start;
+            start = System.nanoTime();
+            Map<String, SortedMap<Long, Map<String, String>>> fastDiskData = fastDiskBuffer.getData(feedIDs, range[0], range[1], TimeUnit.MILLISECONDS);
+            fastDiskRead += System.nanoTime() - start;
+            Assert.assertEquals(segmentData, fastDiskData);
+        }
+        
+        LOGGER.info("{} samples written to segment buffer in {} ms, fast disk buffer in {} ms", 
+                        new Object[] {feeds * samples, TimeUnit.NANOSECONDS.toMillis(segmentWrite), TimeUnit.NANOSECONDS.toMillis(fastDiskWrite)});
+        LOGGER.info("range reads from segment buffer in {} ms, fast disk buffer in {} ms", 
+                        TimeUnit.NANOSECONDS.toMillis(segmentRead), TimeUnit.NANOSECONDS.toMillis(fastDiskRead));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<Long, Map<String, String>>>[] newBatches(int size) {
+        return new Map[size];
+    }
+    
+    private long write(DataBuffer buffer, Map<String, Map<Long, Map<String, String>>>[] batches) throws BufferFullException {
+        long start = System.nanoTime();
+        for (Map<String, Map<Long, Map<String, String>>> batch : batches) {
+            buffer.putData(batch, TimeUnit.MILLISECONDS, null);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatestValueCacheTest {
+    
+    @Test
+    public void latestSampleTest() {
+        LatestValueCache cache = new LatestValueCache();
+        Map<Long, Map<String, String>> entries = new HashMap<Long, Map<String, String>>();
+        entries.put(20L, sample("2"));
+        entries.put(30L, sample("3"));
+        entries.put(10L, sample("1"));
+        cache.put("feed", TimeUnit.MILLISECONDS, entries);
+        
+        Set<String> feedIDs = new HashSet<String>();
+        feedIDs.add("feed");
+        feedIDs.add("other");
+        Map<String, Map<String, String>> latest = cache.get(feedIDs);
+        Assert.assertEquals(latest.size(), 1);
+        Assert.assertEquals(latest.get("feed").get("value"), "3");
+        Assert.assertEquals(feedIDs, Collections.singleton("other"));
+    }
+    
+    @Test
+    public void olderSampleIgnoredTest() {
+        LatestValueCache cache = new LatestValueCache();
+        cache.put("feed", TimeUnit.MILLISECONDS, Collections.singletonMap(30L, sample("3")));
+        cache.put("feed", TimeUnit.MILLISECONDS, Collections.singletonMap(20L, sample("2")));
+        cache.put("feed", TimeUnit.MILLISECONDS.toNanos(25), sample("2.5"));
+        Assert.assertEquals(cache.get(new HashSet<String>(Collections.singleton("feed"))).get("feed").get("value"), "3");
+        
+        cache.put(Collections.singletonMap("feed", Collections.singletonMap(30L, sample("4"))), TimeUnit.MILLISECONDS);
+        Assert.assertEquals(cache.get(new HashSet<String>(Collections.singleton("feed"))).get("feed").get("value"), "4");
+        
+        cache.clear();
+        Assert.assertTrue(cache.get(new HashSet<String>(Collections.singleton("feed"))).isEmpty());
+    }
+    
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void sharedSampleTest() {
+        LatestValueCache cache = new LatestValueCache();
+        cache.put("feed", TimeUnit.MILLISECONDS, Collections.singletonMap(30L, sample("3")));
+        cache.get(new HashSet<String>(Collections.singleton("feed"))).get("feed").put("value", "5");
+    }
+    
+    private Map<String, String> sample(String value) {
+        Map<String, String> sample = new HashMap<String, String>();
+        sample.put("value", value);
+        return sample;
+    }
+}
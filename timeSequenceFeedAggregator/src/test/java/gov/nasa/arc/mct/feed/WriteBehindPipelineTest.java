@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class WriteBehindPipelineTest {
+    private WriteBehindPipeline pipeline;
+    
+    @AfterMethod
+    public void shutdown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+            pipeline = null;
+        }
+    }
+    
+    @Test
+    public void coalescingTest() throws Exception {
+        RecordingWriter writer = new RecordingWriter();
+        pipeline = new WriteBehindPipeline(1, 1000, 60000, writer);
+        writer.block();
+        
+        pipeline.put("feed", TimeUnit.MILLISECONDS, sample(0));
+        writer.awaitFirstWrite();
+        for (int i = 1; i < 100; i++) {
+            pipeline.put("feed", TimeUnit.MILLISECONDS, sample(i));
+        }
+        Assert.assertEquals(pipeline.getQueueDepth(), 99);
+        
+        writer.release();
+        pipeline.drain();
+        
+        Assert.assertEquals(pipeline.getQueueDepth(), 0);
+        Assert.assertEquals(writer.batches.size(), 2);
+        TreeMap<Long, Map<String, String>> written = writer.getFeedData("feed");
+        Assert.assertEquals(written.size(), 100);
+        Assert.assertEquals(written.firstKey().longValue(), TimeUnit.MILLISECONDS.toNanos(0));
+        Assert.assertEquals(written.lastKey().longValue(), TimeUnit.MILLISECONDS.toNanos(99));
+    }
+    
+    @Test
+    public void backpressureTest() throws Exception {
+        final RecordingWriter writer = new RecordingWriter();
+        pipeline = new WriteBehindPipeline(1, 10, 60000, writer);
+        writer.block();
+        pipeline.put("feed", TimeUnit.MILLISECONDS, sample(0));
+        writer.awaitFirstWrite();
+        
+        final CountDownLatch produced = new CountDownLatch(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= 50; i++) {
+                    pipeline.put("feed", TimeUnit.MILLISECONDS, sample(i));
+                }
+                produced.countDown();
+            }
+        };
+        producer.start();
+        
+        Assert.assertFalse(produced.await(200, TimeUnit.MILLISECONDS), "producer should be held back while the lane is full");
+        Assert.assertEquals(pipeline.getQueueDepth(), 10);
+        
+        writer.release();
+        Assert.assertTrue(produced.await(10, TimeUnit.SECONDS));
+        pipeline.drain();
+        Assert.assertEquals(writer.getFeedData("feed").size(), 51);
+    }
+    
+    @Test
+    public void lagTest() throws Exception {
+        RecordingWriter writer = new RecordingWriter();
+        pipeline = new WriteBehindPipeline(1, 1000, 60000, writer);
+        writer.block();
+        Assert.assertEquals(pipeline.getLag(TimeUnit.MILLISECONDS), 0);
+        
+        pipeline.put("feed", TimeUnit.MILLISECONDS, sample(0));
+        writer.awaitFirstWrite();
+        Thread.sleep(50);
+        Assert.assertTrue(pipeline.getLag(TimeUnit.MILLISECONDS) >= 50);
+        
+        writer.release();
+        pipeline.drain();
+        Assert.assertEquals(pipeline.getLag(TimeUnit.MILLISECONDS), 0);
+    }
+    
+    @Test
+    public void callbackTest() throws Exception {
+        RecordingWriter writer = new RecordingWriter();
+        pipeline = new WriteBehindPipeline(4, 1000, 60000, writer);
+        final AtomicInteger callbacks = new AtomicInteger();
+        
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+        for (int i = 0; i < 20; i++) {
+            value.put("feed" + i, sample(i));
+        }
+        pipeline.put(value, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                callbacks.incrementAndGet();
+            }
+        });
+        pipeline.drain();
+        
+        Assert.assertEquals(callbacks.get(), 1);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(writer.getFeedData("feed" + i).size(), 1);
+        }
+    }
+    
+    @Test
+    public void putAfterShutdownTest() {
+        RecordingWriter writer = new RecordingWriter();
+        pipeline = new WriteBehindPipeline(2, 1000, 60000, writer);
+        pipeline.shutdown();
+        
+        pipeline.put("feed", TimeUnit.MILLISECONDS, sample(1));
+        Assert.assertEquals(writer.getFeedData("feed").size(), 1);
+    }
+    
+    private static Map<Long, Map<String, String>> sample(long time) {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", String.valueOf(time));
+        return Collections.singletonMap(time, value);
+    }
+    
+    private static final class RecordingWriter implements WriteBehindPipeline.BatchWriter {
+        private final List<Map<String, Map<Long, Map<String, String>>>> batches = 
+            Collections.synchronizedList(new ArrayList<Map<String, Map<Long, Map<String, String>>>>());
+        private final CountDownLatch firstWrite = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+        
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+        
+        void release() {
+            gate.countDown();
+        }
+        
+        void awaitFirstWrite() throws InterruptedException {
+            Assert.assertTrue(firstWrite.await(10, TimeUnit.SECONDS));
+        }
+        
+        @Override
+        public void write(Map<String, Map<Long, Map<String, String>>> batch, TimeUnit timeUnit) {
+            Assert.assertEquals(timeUnit, TimeUnit.NANOSECONDS);
+            firstWrite.countDown();
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batches.add(batch);
+        }
+        
+        TreeMap<Long, Map<String, String>> getFeedData(String feedID) {
+            TreeMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String, String>>();
+            synchronized (batches) {
+                for (Map<String, Map<Long, Map<String, String>>> batch : batches) {
+                    for (Entry<String, Map<Long, Map<String, String>>> entry : batch.entrySet()) {
+                        if (entry.getKey().equals(feedID)) {
+                            feedData.putAll(entry.getValue());
+                        }
+                    }
+                }
+            }
+            return feedData;
+        }
+    }
+}